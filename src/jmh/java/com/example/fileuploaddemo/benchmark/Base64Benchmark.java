@@ -0,0 +1,141 @@
+package com.example.fileuploaddemo.benchmark;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.Base64DownloadWriter;
+import com.example.fileuploaddemo.helper.Base64UploadReader;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.LocalFileStorageEngine;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BASE64 인코딩/디코딩 벤치마크 (메모리 저장소 사용)
+ * 대용량 파일 경로는 임시파일을 저장소로 가져오므로 임시 디렉토리의 로컬 저장소를 사용한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Base64Benchmark {
+
+    private static final String KEY = "bench/payload.bin";
+
+    /**
+     * 파일 크기 (1KB, 64KB, 1MB, 8MB)
+     */
+    @Param({"1024", "65536", "1048576", "8388608"})
+    public int size;
+
+    private File basePath;
+    private StorageEngine storageEngine;
+    private StorageEngine localStorageEngine;
+    private String base64String;
+    private byte[] jsonBytes;
+    private UploadFile uploadFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        base64String = Base64.encodeBase64String(bytes);
+        jsonBytes = ("[{\"filename\":\"payload.bin\",\"subPath\":\"bench\",\"keepOriginalFilename\":true,\"base64String\":\"" + base64String + "\"}]").getBytes(StandardCharsets.UTF_8);
+
+        uploadFile = new UploadFile();
+        uploadFile.setFilename("payload.bin");
+        uploadFile.setSubPath("bench");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init("/bench");
+
+        storageEngine = new MemoryStorageEngine();
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(bytes));
+            writer.commit(KEY);
+        }
+
+        basePath = Files.createTempDirectory("base64-bench").toFile();
+        localStorageEngine = new LocalFileStorageEngine(basePath.toPath(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileSystemUtils.deleteRecursively(basePath);
+    }
+
+    /**
+     * 저장소 파일을 JSON 응답 스트림에 BASE64로 인코딩 (download2와 같은 경로)
+     */
+    @Benchmark
+    public void encodeBase64() throws Exception {
+        Base64DownloadWriter.write(NullOutputStream.NULL_OUTPUT_STREAM, uploadFile, storageEngine, KEY, size);
+    }
+
+    /**
+     * BASE64 문자열을 디코딩해서 저장 (upload2와 같은 경로)
+     */
+    @Benchmark
+    public UploadFile decodeBase64() throws Exception {
+        UploadFile uploadFile = newUploadFile("/bench");
+        UploadHelper.save(storageEngine, uploadFile, false, Long.MAX_VALUE, false);
+        return uploadFile;
+    }
+
+    /**
+     * BASE64 문자열을 미리 할당한 임시파일에 디코딩해서 저장 (upload2 대용량 파일 경로)
+     */
+    @Benchmark
+    public UploadFile decodeBase64LargeFile() throws Exception {
+        UploadFile uploadFile = newUploadFile(basePath.getAbsolutePath());
+        UploadHelper.save(localStorageEngine, uploadFile, false, 0, false);
+        return uploadFile;
+    }
+
+    /**
+     * BASE64 문자열을 메모리 매핑한 임시파일에 디코딩해서 저장 (upload2 대용량 파일 경로, file.upload.largeFile.mapped=true)
+     */
+    @Benchmark
+    public UploadFile decodeBase64MappedFile() throws Exception {
+        UploadFile uploadFile = newUploadFile(basePath.getAbsolutePath());
+        UploadHelper.save(localStorageEngine, uploadFile, false, 0, true);
+        return uploadFile;
+    }
+
+    /**
+     * JSON 스트림에서 BASE64 값을 바로 디코딩해서 저장 (upload2/stream과 같은 경로)
+     */
+    @Benchmark
+    public List<UploadFile> decodeBase64Stream() throws Exception {
+        return Base64UploadReader.save(new ByteArrayInputStream(jsonBytes), "/bench", storageEngine);
+    }
+
+    private UploadFile newUploadFile(String serverBasePath) {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename("payload.bin");
+        uploadFile.setSubPath("bench");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init(serverBasePath);
+        uploadFile.setBase64String(base64String);
+        return uploadFile;
+    }
+}
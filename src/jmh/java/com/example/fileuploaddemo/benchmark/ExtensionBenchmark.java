@@ -0,0 +1,48 @@
+package com.example.fileuploaddemo.benchmark;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 확장자 체크 벤치마크
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExtensionBenchmark {
+
+    /**
+     * 파일명 (이미지, 차단 확장자 마지막 항목, 목록에 없는 확장자)
+     */
+    @Param({"photo.jpg", "app.war", "archive.zip"})
+    public String filename;
+
+    private UploadFile uploadFile;
+
+    @Setup
+    public void setup() {
+        uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.init("/bench");
+    }
+
+    @Benchmark
+    public boolean isDenyExtension() {
+        return UploadHelper.isDenyExtension(uploadFile);
+    }
+
+    @Benchmark
+    public boolean isImageExtension() {
+        return UploadHelper.isImageExtension(uploadFile);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.fileuploaddemo.benchmark;
+
+import com.example.fileuploaddemo.FileuploadDemoApplication;
+import com.example.fileuploaddemo.entity.UploadFile;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 컨트롤러를 통한 업로드/다운로드 벤치마크
+ * 애플리케이션 컨텍스트를 띄우고 MockMvc로 요청해서 네트워크를 제외한 전체 처리 경로를 측정한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UploadControllerBenchmark {
+
+    /**
+     * 저장소 종류
+     */
+    @Param({"memory", "local"})
+    public String storageType;
+
+    /**
+     * 파일 크기 (64KB, 1MB)
+     */
+    @Param({"65536", "1048576"})
+    public int size;
+
+    private File basePath;
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private MockMultipartFile multipartFile;
+    private String upload2Json;
+    private String downloadJson;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        basePath = Files.createTempDirectory("upload-bench").toFile();
+        context = new SpringApplicationBuilder(FileuploadDemoApplication.class)
+                .properties("server.port=0",
+                        "logging.level.root=WARN",
+                        "file.upload.basePath=" + basePath.getAbsolutePath(),
+                        "file.storage.type=" + storageType,
+                        "spring.servlet.multipart.max-file-size=-1",
+                        "spring.servlet.multipart.max-request-size=-1")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        multipartFile = new MockMultipartFile("file", "payload.bin", MediaType.APPLICATION_OCTET_STREAM_VALUE, bytes);
+        upload2Json = "[{\"filename\":\"payload.bin\",\"subPath\":\"bench\",\"keepOriginalFilename\":true,\"base64String\":\"" + Base64.encodeBase64String(bytes) + "\"}]";
+
+        //다운로드할 파일 업로드
+        MvcResult result = mockMvc.perform(post("/api/co/file/upload2").contentType(MediaType.APPLICATION_JSON).content(upload2Json))
+                .andExpect(status().isOk())
+                .andReturn();
+        UploadFile uploadFile = UploadFile.bind(result.getResponse().getContentAsString()).get(0);
+        downloadJson = UploadFile.toJson(uploadFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(basePath);
+    }
+
+    @Benchmark
+    public int upload() throws Exception {
+        return mockMvc.perform(multipart("/api/co/file/upload").file(multipartFile)
+                .param("subPath", "bench")
+                .param("keepOriginalFilename", "true"))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int upload2() throws Exception {
+        return mockMvc.perform(post("/api/co/file/upload2").contentType(MediaType.APPLICATION_JSON).content(upload2Json))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int download() throws Exception {
+        return mockMvc.perform(get("/api/co/file/download").contentType(MediaType.APPLICATION_JSON).content(downloadJson))
+                .andReturn().getResponse().getContentAsByteArray().length;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.fileuploaddemo.benchmark;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UploadFile 생성 및 JSON 변환 벤치마크
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UploadFileBenchmark {
+
+    private MockMultipartFile multipartFile;
+    private UploadFile uploadFile;
+    private String jsonString;
+
+    @Setup
+    public void setup() {
+        multipartFile = new MockMultipartFile("file", "Alligator.jpg", "image/jpeg", new byte[1024]);
+
+        uploadFile = new UploadFile(multipartFile);
+        uploadFile.setServerBasePath("/bench");
+        uploadFile.setSubPath("notice/10001");
+        jsonString = "[" + UploadFile.toJson(uploadFile) + "]";
+    }
+
+    /**
+     * multipart 파일 정보로 생성 (upload와 같은 경로)
+     */
+    @Benchmark
+    public UploadFile createFromMultipart() {
+        UploadFile uploadFile = new UploadFile(multipartFile);
+        uploadFile.setServerBasePath("/bench");
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(false);
+        return uploadFile;
+    }
+
+    @Benchmark
+    public List<UploadFile> bind() throws Exception {
+        return UploadFile.bind(jsonString);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return UploadFile.toJson(uploadFile);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.fileuploaddemo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 파일 저장용 I/O 스레드풀
+     * @param poolSize 스레드 개수
+     * @param queueCapacity 대기열 크기
+     * @return 스레드풀
+     */
+    @Bean
+    public ThreadPoolTaskExecutor uploadIoExecutor(@Value("${file.upload.executor.poolSize:8}") int poolSize,
+                                                   @Value("${file.upload.executor.queueCapacity:256}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-io-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * 썸네일 생성용 스레드풀
+     * 요청 스레드와 경쟁하지 않도록 낮은 우선순위로 실행하며, 대기열이 가득 차면 작업을 거부한다. (호출한 스레드에서 실행하지 않음)
+     * @param poolSize 스레드 개수
+     * @param queueCapacity 대기열 크기
+     * @return 스레드풀
+     */
+    @Bean
+    public ThreadPoolTaskExecutor thumbnailExecutor(@Value("${file.thumbnail.executor.poolSize:2}") int poolSize,
+                                                    @Value("${file.thumbnail.executor.queueCapacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * 다운로드 미리읽기용 스레드풀 (ZIP 묶음 다운로드의 CRC 계산)
+     * 대기열이 가득 차면 호출한 스레드에서 실행한다.
+     * @param poolSize 스레드 개수
+     * @param queueCapacity 대기열 크기
+     * @return 스레드풀
+     */
+    @Bean
+    public ThreadPoolTaskExecutor downloadIoExecutor(@Value("${file.download.executor.poolSize:4}") int poolSize,
+                                                     @Value("${file.download.executor.queueCapacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("download-io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * 분산 배치 이동용 스레드풀
+     * 대기열이 가득 차면 호출한 스레드(디렉토리 순회)에서 실행해서 순회 속도를 이동 속도에 맞춘다.
+     * @param poolSize 스레드 개수
+     * @param queueCapacity 대기열 크기
+     * @return 스레드풀
+     */
+    @Bean
+    public ThreadPoolTaskExecutor shardMigrationExecutor(@Value("${file.storage.shard.migration.poolSize:4}") int poolSize,
+                                                         @Value("${file.storage.shard.migration.queueCapacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("shard-migration-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * 무결성 검사용 스레드
+     * 스케줄러 스레드(기본 1개)를 오래 점유하지 않도록 검사는 이 스레드에서 실행한다.
+     * 대기열 없이 한 번에 하나만 실행하고, 이전 검사가 끝나지 않았으면 작업을 거부한다.
+     * @return 스레드풀
+     */
+    @Bean
+    public ThreadPoolTaskExecutor scrubExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("scrub-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * 비동기 전송용 I/O 스레드풀 (file.async.enabled)
+     * 비동기 다운로드의 파일 읽기와 스트리밍 업로드의 파일 쓰기를 요청 스레드 대신 실행한다.
+     * 전송 하나가 대기열에 넣는 작업은 한 번에 한 개이므로 대기열 크기는 동시 전송 개수를 넘지 않는다. (크기 제한 없음)
+     * @param poolSize 스레드 개수
+     * @return 스레드풀
+     */
+    @Bean
+    public ThreadPoolTaskExecutor asyncIoExecutor(@Value("${file.async.executor.poolSize:16}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("async-io-");
+        return executor;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.fileuploaddemo.config;
+
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.DedupStore;
+import com.example.fileuploaddemo.storage.DirectoryIndexStorageEngine;
+import com.example.fileuploaddemo.storage.FsyncCommitter;
+import com.example.fileuploaddemo.storage.LocalFileStorageEngine;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.ShardLayout;
+import com.example.fileuploaddemo.storage.StatCachingStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.TieredStorageEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+public class StorageConfig {
+
+    /**
+     * 중복제거 저장소 디렉토리명 (basePath 하위)
+     */
+    private static final String CAS_DIRECTORY = ".cas";
+
+    /**
+     * 디렉토리 분산 배치 (local, tiered)
+     * @param levels 단계 수 (0이면 사용하지 않음)
+     * @param width 단계별 디렉토리명 길이 (16진수 자릿수)
+     * @return 분산 배치
+     */
+    @Bean
+    public ShardLayout shardLayout(@Value("${file.storage.shard.levels:0}") int levels,
+                                   @Value("${file.storage.shard.width:2}") int width) {
+        return new ShardLayout(levels, width);
+    }
+
+    /**
+     * 파일 기록 완료 처리 (local, tiered)
+     * file.storage.fsync.policy 설정에 따라 none(강제 기록 안 함), file(파일마다 강제 기록), group(파일은 동시에 강제 기록하고 디렉토리 강제 기록만 묶어서 처리)으로 처리한다.
+     * @param policy 강제 기록 정책
+     * @param groupCommitDelay 묶음을 모으기 위해 기다리는 시간 (group, 0이면 앞 묶음을 기록하는 동안 들어온 파일만 묶음)
+     * @param groupCommitMaxFiles 한 묶음의 최대 파일 개수 (group)
+     * @param groupCommitTimeout 묶음 기록 완료를 기다리는 최대 시간 (group)
+     * @return 기록 완료 처리
+     */
+    @Bean
+    public FsyncCommitter fsyncCommitter(@Value("${file.storage.fsync.policy:none}") String policy,
+                                         @Value("${file.storage.fsync.groupCommitDelay:0ms}") Duration groupCommitDelay,
+                                         @Value("${file.storage.fsync.groupCommitMaxFiles:256}") int groupCommitMaxFiles,
+                                         @Value("${file.storage.fsync.groupCommitTimeout:30s}") Duration groupCommitTimeout) {
+        log.info("파일 강제 기록 정책 [{}]", policy);
+        return new FsyncCommitter(FsyncCommitter.Policy.valueOf(policy.toUpperCase()), groupCommitDelay.toMillis(), groupCommitMaxFiles, groupCommitTimeout.toMillis());
+    }
+
+    /**
+     * 파일 저장소
+     * file.storage.type 설정에 따라 local(로컬 파일시스템), memory(메모리), tiered(메모리 + 로컬 파일시스템) 저장소를 생성한다.
+     * tiered 저장소는 자주 읽는 작은 파일을 direct 버퍼(힙 밖)에 보관하므로 -XX:MaxDirectMemorySize가 hotMaxTotalSize보다 커야 한다.
+     * @param basePath 서버 기본 경로
+     * @param type 저장소 종류
+     * @param hotMaxFileSize tiered 저장소에서 메모리에 보관할 파일 최대 크기
+     * @param hotMaxTotalSize tiered 저장소에서 메모리에 보관할 전체 최대 크기
+     * @param dedupEnabled 중복제거 사용 여부 (local, tiered)
+     * @param statCacheMaxEntries 파일 정보(크기, 수정시간) 캐시 최대 개수 (0이면 사용하지 않음)
+     * @param statCacheTtl 파일 정보 캐시 보관 시간
+     * @param directoryIndexMaxDirectories 디렉토리 목록 색인 최대 디렉토리 개수 (0이면 사용하지 않음)
+     * @param shardLayout 디렉토리 분산 배치
+     * @param fsyncCommitter 기록 완료 처리 (강제 기록 정책)
+     * @return 파일 저장소
+     */
+    @Bean
+    public StorageEngine storageEngine(@Value("${file.upload.basePath}") String basePath,
+                                       @Value("${file.storage.type:local}") String type,
+                                       @Value("${file.storage.tiered.hotMaxFileSize:256KB}") DataSize hotMaxFileSize,
+                                       @Value("${file.storage.tiered.hotMaxTotalSize:256MB}") DataSize hotMaxTotalSize,
+                                       @Value("${file.upload.dedup.enabled:false}") boolean dedupEnabled,
+                                       @Value("${file.storage.statCache.maxEntries:10000}") int statCacheMaxEntries,
+                                       @Value("${file.storage.statCache.ttl:60s}") Duration statCacheTtl,
+                                       @Value("${file.storage.directoryIndex.maxDirectories:1000}") int directoryIndexMaxDirectories,
+                                       ShardLayout shardLayout,
+                                       FsyncCommitter fsyncCommitter) {
+        StorageEngine storageEngine = createStorageEngine(basePath, type, hotMaxFileSize, hotMaxTotalSize, dedupEnabled, shardLayout, fsyncCommitter);
+        if(directoryIndexMaxDirectories > 0) {
+            if(shardLayout.isEnabled()) {
+                log.info("분산 배치를 사용하므로 외부에서 분산 위치에 직접 변경한 파일은 디렉토리 색인에 반영되지 않습니다.");
+            }
+            storageEngine = new DirectoryIndexStorageEngine(storageEngine, directoryIndexMaxDirectories);
+        }
+        if(statCacheMaxEntries > 0) {
+            return new StatCachingStorageEngine(storageEngine, statCacheMaxEntries, statCacheTtl.toMillis());
+        }
+        return storageEngine;
+    }
+
+    private StorageEngine createStorageEngine(String basePath, String type, DataSize hotMaxFileSize, DataSize hotMaxTotalSize, boolean dedupEnabled,
+                                              ShardLayout shardLayout, FsyncCommitter fsyncCommitter) {
+        log.info("파일 저장소 [{}]", type);
+        if("memory".equalsIgnoreCase(type)) {
+            return new MemoryStorageEngine();
+        }
+
+        Path root = Paths.get(UploadHelper.toBasePath(basePath));
+        DedupStore dedupStore = dedupEnabled ? new DedupStore(root.resolve(CAS_DIRECTORY)) : null;
+        StorageEngine local = new LocalFileStorageEngine(root, dedupStore, shardLayout, fsyncCommitter);
+        if("tiered".equalsIgnoreCase(type)) {
+            TieredStorageEngine tiered = new TieredStorageEngine(local, hotMaxFileSize.toBytes(), hotMaxTotalSize.toBytes());
+            MetricsHelper.hotCache(tiered);
+            return tiered;
+        }
+        if(!"local".equalsIgnoreCase(type)) {
+            throw new IllegalArgumentException("지원하지 않는 저장소입니다. [" + type + "]");
+        }
+        return local;
+    }
+}
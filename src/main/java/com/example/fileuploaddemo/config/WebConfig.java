@@ -1,10 +1,26 @@
 package com.example.fileuploaddemo.config;
 
+import com.example.fileuploaddemo.mvc.GzipRequestFilter;
+import com.example.fileuploaddemo.mvc.RateLimitFilter;
+import com.example.fileuploaddemo.mvc.StreamingUploadServlet;
+import com.example.fileuploaddemo.mvc.TransferMetricsFilter;
+import com.example.fileuploaddemo.service.FileIndexService;
+import com.example.fileuploaddemo.service.ThumbnailService;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @Configuration
 public class WebConfig {
 
@@ -20,4 +36,100 @@ public class WebConfig {
             }
         };
     }
+
+    /**
+     * multipart 요청을 직접 해석해서 저장소에 바로 기록하는 업로드 서블릿
+     * @param basePath 서버 기본 경로
+     * @param maxFileSize 파일당 최대 크기
+     * @param maxRequestSize 요청당 최대 크기
+     * @param timeout 비동기 처리 제한시간
+     * @param storageEngine 파일 저장소
+     * @param thumbnailService 썸네일 생성
+     * @param fileIndexService 파일 메타데이터 색인
+     * @param async 비동기 모드 (파일 쓰기를 I/O 스레드풀에서 실행)
+     * @param asyncIoExecutor 비동기 전송용 I/O 스레드풀
+     * @return 서블릿 등록 정보
+     */
+    @Bean
+    public ServletRegistrationBean<StreamingUploadServlet> streamingUploadServlet(@Value("${file.upload.basePath}") String basePath,
+                                                                                  @Value("${spring.servlet.multipart.max-file-size:-1}") DataSize maxFileSize,
+                                                                                  @Value("${spring.servlet.multipart.max-request-size:-1}") DataSize maxRequestSize,
+                                                                                  @Value("${file.upload.stream.timeout:30m}") Duration timeout,
+                                                                                  StorageEngine storageEngine,
+                                                                                  ThumbnailService thumbnailService,
+                                                                                  FileIndexService fileIndexService,
+                                                                                  @Value("${file.async.enabled:false}") boolean async,
+                                                                                  @Qualifier("asyncIoExecutor") ThreadPoolTaskExecutor asyncIoExecutor) {
+        StreamingUploadServlet servlet = new StreamingUploadServlet(basePath, maxFileSize.toBytes(), maxRequestSize.toBytes(), timeout.toMillis(),
+                storageEngine, thumbnailService, fileIndexService, async ? asyncIoExecutor : null);
+        ServletRegistrationBean<StreamingUploadServlet> registration = new ServletRegistrationBean<>(servlet, "/api/co/file/upload/stream");
+        registration.setName("streamingUploadServlet");
+        registration.setAsyncSupported(true);
+        registration.setLoadOnStartup(1);
+        return registration;
+    }
+
+    /**
+     * 진행중인 업로드/다운로드 개수를 기록하는 필터
+     * @return 필터 등록 정보
+     */
+    @Bean
+    public FilterRegistrationBean<TransferMetricsFilter> transferMetricsFilter() {
+        FilterRegistrationBean<TransferMetricsFilter> registration = new FilterRegistrationBean<>(new TransferMetricsFilter(), "/api/co/file/*");
+        registration.setName("transferMetricsFilter");
+        registration.setAsyncSupported(true);
+        return registration;
+    }
+
+    /**
+     * gzip으로 압축된 upload2 요청 본문의 압축을 푸는 필터
+     * @param maxInflatedSize 압축을 푼 요청 본문 최대 크기
+     * @return 필터 등록 정보
+     */
+    @Bean
+    public FilterRegistrationBean<GzipRequestFilter> gzipRequestFilter(@Value("${file.upload.compression.maxInflatedSize:512MB}") DataSize maxInflatedSize) {
+        FilterRegistrationBean<GzipRequestFilter> registration = new FilterRegistrationBean<>(new GzipRequestFilter(maxInflatedSize.toBytes()), "/api/co/file/upload2", "/api/co/file/upload2/stream");
+        registration.setName("gzipRequestFilter");
+        return registration;
+    }
+
+    /**
+     * 클라이언트별, subPath별 요청 수와 전송량을 제한하는 필터 (file.rateLimit.enabled)
+     * 다른 필터보다 먼저 실행해서 거부할 요청은 본문을 읽지 않고 바로 응답한다.
+     * @param enabled 사용 여부
+     * @param apiKeyHeader 클라이언트를 구분하는 API 키 헤더명 (없으면 IP로 구분)
+     * @param maxKeys 구분별 최대 상태 개수
+     * @param clientRequestsPerSecond 클라이언트별 초당 요청 수
+     * @param clientBurst 클라이언트별 한 번에 허용하는 요청 수
+     * @param clientMaxConcurrent 클라이언트별 동시 요청 수
+     * @param clientBytesPerSecond 클라이언트별 초당 전송량
+     * @param subPathRequestsPerSecond subPath별 초당 요청 수
+     * @param subPathBurst subPath별 한 번에 허용하는 요청 수
+     * @param subPathMaxConcurrent subPath별 동시 요청 수
+     * @param subPathBytesPerSecond subPath별 초당 전송량
+     * @return 필터 등록 정보
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(@Value("${file.rateLimit.enabled:false}") boolean enabled,
+                                                                   @Value("${file.rateLimit.apiKeyHeader:X-API-Key}") String apiKeyHeader,
+                                                                   @Value("${file.rateLimit.maxKeys:100000}") int maxKeys,
+                                                                   @Value("${file.rateLimit.client.requestsPerSecond:0}") double clientRequestsPerSecond,
+                                                                   @Value("${file.rateLimit.client.burst:1}") int clientBurst,
+                                                                   @Value("${file.rateLimit.client.maxConcurrent:0}") int clientMaxConcurrent,
+                                                                   @Value("${file.rateLimit.client.bytesPerSecond:0}") DataSize clientBytesPerSecond,
+                                                                   @Value("${file.rateLimit.subPath.requestsPerSecond:0}") double subPathRequestsPerSecond,
+                                                                   @Value("${file.rateLimit.subPath.burst:1}") int subPathBurst,
+                                                                   @Value("${file.rateLimit.subPath.maxConcurrent:0}") int subPathMaxConcurrent,
+                                                                   @Value("${file.rateLimit.subPath.bytesPerSecond:0}") DataSize subPathBytesPerSecond) {
+        RateLimitFilter filter = new RateLimitFilter(
+                new RateLimitFilter.Limit(clientRequestsPerSecond, clientBurst, clientMaxConcurrent, clientBytesPerSecond.toBytes()),
+                new RateLimitFilter.Limit(subPathRequestsPerSecond, subPathBurst, subPathMaxConcurrent, subPathBytesPerSecond.toBytes()),
+                apiKeyHeader, maxKeys);
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter, "/api/co/file/*");
+        registration.setName("rateLimitFilter");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        registration.setAsyncSupported(true);
+        registration.setEnabled(enabled);
+        return registration;
+    }
 }
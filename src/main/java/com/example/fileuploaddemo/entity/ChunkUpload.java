@@ -0,0 +1,46 @@
+package com.example.fileuploaddemo.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ChunkUpload {
+
+    /**
+     * 업로드 세션 ID
+     */
+    private String uploadId;
+
+    /**
+     * 업로드할 파일 정보
+     */
+    private UploadFile uploadFile;
+
+    /**
+     * 조각 크기
+     */
+    private long chunkSize;
+
+    /**
+     * 조각 개수
+     */
+    private int chunkCount;
+
+    /**
+     * 수신 완료된 조각 번호 목록
+     */
+    private List<Integer> receivedChunks;
+
+    /**
+     * 수신 완료된 바이트 수
+     */
+    private long receivedBytes;
+
+    /**
+     * 모든 조각 수신 여부
+     */
+    private boolean complete;
+}
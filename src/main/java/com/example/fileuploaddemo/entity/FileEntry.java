@@ -0,0 +1,44 @@
+package com.example.fileuploaddemo.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class FileEntry {
+
+    /**
+     * 파일 ID (서버 색인에 등록된 경우)
+     */
+    private String id;
+
+    /**
+     * 파일명 (서버 색인에 등록되지 않은 경우 서버 파일명)
+     */
+    private String filename;
+
+    /**
+     * 확장자
+     */
+    private String extension;
+
+    /**
+     * 저장된 파일크기
+     */
+    private long size;
+
+    /**
+     * 수정시간
+     */
+    private long lastModified;
+
+    /**
+     * 서브디렉토리 경로
+     */
+    private String subPath;
+
+    /**
+     * 서버 파일명
+     */
+    private String serverFilename;
+}
@@ -0,0 +1,21 @@
+package com.example.fileuploaddemo.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class FileListPage {
+
+    /**
+     * 파일 목록
+     */
+    private List<FileEntry> files;
+
+    /**
+     * 다음 페이지 커서 (마지막 페이지면 null)
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,49 @@
+package com.example.fileuploaddemo.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class FileListQuery {
+
+    /**
+     * 서브디렉토리 경로
+     */
+    private String subPath;
+
+    /**
+     * 정렬 기준 (name, size, lastModified)
+     */
+    private String sort = "name";
+
+    /**
+     * 정렬 순서 (asc, desc)
+     */
+    private String order = "asc";
+
+    /**
+     * 확장자 (쉼표로 구분)
+     */
+    private String extension;
+
+    /**
+     * 최소 파일크기
+     */
+    private Long minSize;
+
+    /**
+     * 최대 파일크기
+     */
+    private Long maxSize;
+
+    /**
+     * 이전 페이지의 다음 페이지 커서
+     */
+    private String cursor;
+
+    /**
+     * 페이지 크기
+     */
+    private Integer limit;
+}
@@ -0,0 +1,69 @@
+package com.example.fileuploaddemo.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class FileMetadata {
+
+    /**
+     * 파일 ID
+     */
+    private String id;
+
+    /**
+     * 파일명
+     */
+    private String filename;
+
+    /**
+     * 확장자
+     */
+    private String extension;
+
+    /**
+     * 파일크기
+     */
+    private long size;
+
+    /**
+     * 마임타입
+     */
+    private String mimeType;
+
+    /**
+     * 파일 내용 해시 (SHA-256 16진수, 계산하지 않은 경우 null)
+     */
+    private String hash;
+
+    /**
+     * 파일 내용 CRC32C (16진수, 계산하지 않은 경우 null)
+     */
+    private String crc32c;
+
+    /**
+     * 압축 저장 여부 (서버 파일명에 .gz를 붙여서 gzip으로 저장한 경우)
+     */
+    private boolean compressed;
+
+    /**
+     * 서브디렉토리 경로
+     */
+    private String subPath;
+
+    /**
+     * 서버 파일명
+     */
+    private String serverFilename;
+
+    /**
+     * 등록시간
+     */
+    private long createdAt;
+
+    /**
+     * 삭제 여부 (색인 로그의 삭제 기록)
+     */
+    private boolean deleted;
+}
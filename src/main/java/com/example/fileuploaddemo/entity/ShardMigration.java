@@ -0,0 +1,49 @@
+package com.example.fileuploaddemo.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ShardMigration {
+
+    /**
+     * 이동 대상 서브디렉토리 경로 (없으면 전체)
+     */
+    private String subPath;
+
+    /**
+     * 실행중 여부
+     */
+    private boolean running;
+
+    /**
+     * 시작시간
+     */
+    private long startedAt;
+
+    /**
+     * 종료시간 (실행중이면 0)
+     */
+    private long finishedAt;
+
+    /**
+     * 순회한 디렉토리 개수
+     */
+    private long directories;
+
+    /**
+     * 이동한 파일 개수
+     */
+    private long movedFiles;
+
+    /**
+     * 이동하지 못한 파일 개수
+     */
+    private long failedFiles;
+
+    /**
+     * 오류 메시지 (순회가 중단된 경우)
+     */
+    private String error;
+}
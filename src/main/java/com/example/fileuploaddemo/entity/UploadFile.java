@@ -1,6 +1,7 @@
 package com.example.fileuploaddemo.entity;
 
 import com.example.fileuploaddemo.helper.UploadHelper;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
@@ -16,6 +17,11 @@ import java.util.List;
 @NoArgsConstructor
 public class UploadFile {
 
+    /**
+     * 파일 ID (서버 색인에 등록된 경우)
+     */
+    private String id;
+
     /**
      * 파일명
      */
@@ -31,6 +37,30 @@ public class UploadFile {
      */
     private long size;
 
+    /**
+     * 마임타입 (업로드시 파일 내용으로 판별, 요청으로 지정할 수 없음)
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String mimeType;
+
+    /**
+     * 파일 내용의 SHA-256 (16진수, 저장하면서 계산, 요청으로 지정할 수 없음)
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String hash;
+
+    /**
+     * 파일 내용의 CRC32C (16진수, 저장하면서 계산, 요청으로 지정할 수 없음)
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String crc32c;
+
+    /**
+     * 압축 저장 여부 (저장시 설정, 요청으로 지정할 수 없음)
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private boolean compressed;
+
     /**
      * BASE64로 인코딩된 파일 문자열
      */
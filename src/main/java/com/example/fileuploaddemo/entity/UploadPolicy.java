@@ -0,0 +1,116 @@
+package com.example.fileuploaddemo.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 업로드 정책 설정 (file.policy)
+ */
+@Data
+@NoArgsConstructor
+public class UploadPolicy {
+
+    /**
+     * 업로드해서 안되는 확장자 (마지막 확장자, 여러 단계 확장자 포함 ex. tar.gz)
+     */
+    private List<String> denyExtensions = new ArrayList<>(Arrays.asList(
+            "asp", "jsp", "php", "js",
+            "xml", "json", "yml", "yaml", "properties",
+            "exe", "bat", "com",
+            "ini", "conf",
+            "pl", "rb", "ry",
+            "py", "pyc", "pyd", "pyo",
+            "gradle",
+            "sh", "zsh", "csh",
+            "deb", "rpm",
+            "jar", "war"));
+
+    /**
+     * 파일명 중간에 있어도 업로드해서 안되는 확장자 (ex. a.jsp.png)
+     */
+    private List<String> denyInnerExtensions = new ArrayList<>(Arrays.asList(
+            "asp", "aspx", "jsp", "jspx", "php", "php3", "php4", "php5", "phtml",
+            "cgi", "pl", "py", "rb", "sh", "shtml",
+            "exe", "bat", "cmd"));
+
+    /**
+     * 이미지 확장자
+     */
+    private List<String> imageExtensions = new ArrayList<>(Arrays.asList("gif", "png", "jpg", "jpeg"));
+
+    /**
+     * 업로드해서 안되는 마임타입 (image/* 형식 가능)
+     */
+    private List<String> denyMimeTypes = new ArrayList<>();
+
+    /**
+     * 마임타입별 정책
+     */
+    private List<TypeRule> types = new ArrayList<>();
+
+    /**
+     * subPath별 정책 (가장 길게 일치하는 subPath의 정책 한 개만 적용)
+     */
+    private List<SubPathRule> subPaths = new ArrayList<>();
+
+    /**
+     * 마임타입별 정책
+     */
+    @Data
+    @NoArgsConstructor
+    public static class TypeRule {
+
+        /**
+         * 마임타입 (image/* 형식 가능)
+         */
+        private String mimeType;
+
+        /**
+         * 최대 파일 크기 (없으면 제한 없음)
+         */
+        private DataSize maxFileSize;
+    }
+
+    /**
+     * subPath별 정책
+     */
+    @Data
+    @NoArgsConstructor
+    public static class SubPathRule {
+
+        /**
+         * 서브디렉토리 경로 (하위 경로 포함)
+         */
+        private String subPath;
+
+        /**
+         * 허용하는 확장자 (없으면 전체)
+         */
+        private List<String> allowExtensions = new ArrayList<>();
+
+        /**
+         * 업로드해서 안되는 확장자 (전체 정책에 추가)
+         */
+        private List<String> denyExtensions = new ArrayList<>();
+
+        /**
+         * 허용하는 마임타입 (없으면 전체, image/* 형식 가능)
+         */
+        private List<String> allowMimeTypes = new ArrayList<>();
+
+        /**
+         * 업로드해서 안되는 마임타입 (image/* 형식 가능)
+         */
+        private List<String> denyMimeTypes = new ArrayList<>();
+
+        /**
+         * 최대 파일 크기 (없으면 제한 없음)
+         */
+        private DataSize maxFileSize;
+    }
+}
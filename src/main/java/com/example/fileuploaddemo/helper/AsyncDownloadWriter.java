@@ -0,0 +1,192 @@
+package com.example.fileuploaddemo.helper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.Executor;
+
+/**
+ * 비동기 서블릿 I/O로 응답 본문을 전송한다.
+ * 요청 스레드는 전송을 시작한 뒤 바로 반환되고, 파일 읽기는 I/O 스레드풀에서, 응답 쓰기는 소켓이 쓰기 가능할 때(WriteListener)만 한다.
+ * 느린 클라이언트를 기다리는 동안 스레드를 점유하지 않으므로 동시 전송 개수가 스레드 개수에 묶이지 않는다.
+ * 비동기 처리는 Spring MVC(DeferredResult)로 시작하므로 제한시간은 spring.mvc.async.request-timeout을 따른다.
+ */
+@Slf4j
+public class AsyncDownloadWriter implements WriteListener {
+
+    /**
+     * 읽기 버퍼 크기
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HttpServletResponse response;
+    private final ServletOutputStream out;
+    private final ReadableByteChannel source;
+    private final Executor executor;
+    private final DeferredResult<Void> result = new DeferredResult<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * 원본을 끝까지 읽었는지 여부
+     */
+    private boolean eof;
+
+    /**
+     * 전송 종료 여부
+     */
+    private boolean done;
+
+    /**
+     * 응답에 쓴 바이트 (종료할 때 전송량 지표로 기록)
+     */
+    private long written;
+
+    private AsyncDownloadWriter(HttpServletResponse response, ReadableByteChannel source, Executor executor) throws IOException {
+        this.response = response;
+        this.out = response.getOutputStream();
+        this.source = source;
+        this.executor = executor;
+        this.buffer.flip();
+    }
+
+    /**
+     * 원본 채널의 내용을 응답 본문으로 비동기 전송한다. 응답 헤더는 미리 설정되어 있어야 하며, 채널은 전송이 끝나면 닫힌다.
+     * @param request 요청
+     * @param response 응답
+     * @param source 원본 채널
+     * @param executor 파일 읽기용 I/O 스레드풀
+     * @throws IOException 비동기 처리를 시작할 수 없는 경우
+     */
+    public static void start(HttpServletRequest request, HttpServletResponse response, ReadableByteChannel source, Executor executor) throws IOException {
+        AsyncDownloadWriter writer;
+        try {
+            writer = new AsyncDownloadWriter(response, source, executor);
+            writer.result.onCompletion(writer::close);
+            writer.result.onTimeout(writer::timeout);
+            WebAsyncUtils.getAsyncManager(request).startDeferredResultProcessing(writer.result);
+
+        } catch(Exception e) {
+            source.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("비동기 전송을 시작할 수 없습니다.", e);
+        }
+        //비동기 처리를 시작한 뒤에는 예외를 던지지 않고 전송 실패로 종료 (채널도 닫힘)
+        try {
+            writer.out.setWriteListener(writer);
+
+        } catch(RuntimeException e) {
+            writer.finish(e);
+        }
+    }
+
+    /**
+     * 버퍼의 내용을 쓸 수 있는 만큼 쓰고, 버퍼가 비면 다음 내용을 I/O 스레드풀에서 읽는다.
+     * 컨테이너 스레드(쓰기 가능 알림) 또는 읽기를 마친 I/O 스레드에서 호출되며, isReady()가 false를 반환한 뒤에만 컨테이너가 다시 호출하므로 동시에 실행되지 않는다.
+     */
+    @Override
+    public synchronized void onWritePossible() {
+        try {
+            while(!done && out.isReady()) {
+                if(buffer.hasRemaining()) {
+                    out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                    written += buffer.remaining();
+                    buffer.position(buffer.limit());
+                    continue;
+                }
+                if(eof) {
+                    finish(null);
+                    return;
+                }
+                executor.execute(this::read);
+                return;
+            }
+
+        } catch(IOException | RuntimeException e) {
+            finish(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.debug("비동기 다운로드 중단 {}", t.toString());
+        finish(t);
+    }
+
+    /**
+     * 원본에서 버퍼 크기만큼 읽은 뒤 이어서 응답에 쓴다. (I/O 스레드)
+     */
+    private void read() {
+        synchronized(this) {
+            if(done) {
+                return;
+            }
+            try {
+                buffer.clear();
+                while(buffer.hasRemaining()) {
+                    if(source.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                buffer.flip();
+
+            } catch(IOException | RuntimeException e) {
+                buffer.clear().flip();
+                finish(e);
+                return;
+            }
+        }
+        onWritePossible();
+    }
+
+    /**
+     * 전송을 종료하고 요청을 컨테이너로 돌려보낸다.
+     * 응답을 보내기 전에 실패하면 500 상태만 보내고, 이미 보내는 중이면 그대로 종료해서 연결이 끊기도록 한다. (Content-Length 불일치)
+     * 출력 스트림이 이미 비동기 모드이므로 GlobalExceptionHandler의 오류 응답은 사용하지 않는다.
+     * @param e 오류 (정상 종료면 null)
+     */
+    private synchronized void finish(Throwable e) {
+        if(done) {
+            return;
+        }
+        done = true;
+        close();
+        MetricsHelper.bytesOut(written);
+        if(e != null && !response.isCommitted()) {
+            log.warn("비동기 다운로드 실패 {}", e.toString());
+            response.reset();
+            response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        }
+        result.setResult(null);
+    }
+
+    /**
+     * 제한시간이 지나면 더 쓰지 않고 종료한다. (응답은 Spring MVC가 처리)
+     */
+    private synchronized void timeout() {
+        if(done) {
+            return;
+        }
+        log.debug("비동기 다운로드 시간 초과");
+        done = true;
+        close();
+        MetricsHelper.bytesOut(written);
+    }
+
+    private void close() {
+        try {
+            source.close();
+
+        } catch(IOException e) {
+            log.debug("비동기 다운로드 채널 종료 실패 {}", e.toString());
+        }
+    }
+}
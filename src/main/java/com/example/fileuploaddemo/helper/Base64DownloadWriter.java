@@ -0,0 +1,77 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+public class Base64DownloadWriter {
+
+    /**
+     * JSON 생성기 팩토리 (스레드 안전)
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * UploadFile 직렬화용 (스레드 안전)
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * 압축 저장된 파일을 읽을 때 버퍼 크기
+     */
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 저장소 파일을 base64String 값에 담은 UploadFile JSON 문서를 스트림으로 기록한다.
+     * 파일 내용은 힙에 적재하지 않고 채널에서 일정 크기의 버퍼 단위로 읽으면서 BASE64로 인코딩해서 기록한다.
+     * base64String 외의 값은 UploadFile의 JSON 직렬화 결과(upload2 응답과 같은 필드)를 그대로 기록한다.
+     * 압축 저장된 파일은 압축을 풀면서 인코딩하고, size 값은 파일 정보의 원본 크기(색인에 등록된 값)를 기록한다.
+     * @param out 출력 스트림
+     * @param uploadFile 파일 정보
+     * @param storageEngine 파일 저장소
+     * @param key 저장소 키
+     * @param size 저장된 파일 크기
+     * @throws IOException
+     */
+    public static void write(OutputStream out, UploadFile uploadFile, StorageEngine storageEngine, String key, long size) throws IOException {
+        long startTime = System.nanoTime();
+        boolean compressed = uploadFile.isCompressed();
+        ObjectNode fields = OBJECT_MAPPER.valueToTree(uploadFile);
+        fields.remove("base64String");
+        fields.put("size", compressed ? uploadFile.getSize() : size);
+
+        long written;
+        try(JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            InputStream in = compressed ? new GZIPInputStream(Channels.newInputStream(storageEngine.open(key)), GZIP_BUFFER_SIZE)
+                                        : Channels.newInputStream(storageEngine.open(key))) {
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> iterator = fields.fields();
+            while(iterator.hasNext()) {
+                Map.Entry<String, JsonNode> field = iterator.next();
+                generator.writeFieldName(field.getKey());
+                OBJECT_MAPPER.writeTree(generator, field.getValue());
+            }
+
+            //파일 내용은 마지막에 기록 (크기를 모르면 끝까지 읽음)
+            generator.writeFieldName("base64String");
+            written = generator.writeBinary(Base64Variants.MIME_NO_LINEFEEDS, in, !compressed && size <= Integer.MAX_VALUE ? (int) size : -1);
+            generator.writeEndObject();
+        }
+        MetricsHelper.phase("encode", startTime);
+        MetricsHelper.bytesOut(written);
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+public class Base64UploadReader {
+
+    /**
+     * JSON 파서 팩토리 (스레드 안전)
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * UploadFile JSON 배열 스트림을 읽으면서 base64String 값을 파일로 바로 디코딩해서 저장한다.
+     * base64String 값은 문자열로 적재하지 않고 일정 크기의 버퍼 단위로 디코딩해서 저장소에 기록한 뒤,
+     * 객체를 모두 읽고 나면 저장 위치에 반영한다. 중간에 실패하면 앞에서 저장 위치에 반영한 파일을 삭제한다.
+     * BASE64 형식은 decode()의 규칙을 따른다. (commons-codec보다 엄격함)
+     * @param in JSON 입력 스트림
+     * @param basePath 서버 기본 경로
+     * @param storageEngine 파일 저장소
+     * @return 저장된 파일 정보 목록
+     * @throws IOException
+     * @throws BizException
+     */
+    public static List<UploadFile> save(InputStream in, String basePath, StorageEngine storageEngine) throws IOException, BizException {
+        List<UploadFile> uploadFiles = new ArrayList<>();
+        try(JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if(parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BizException("잘못된 입력정보입니다.");
+            }
+
+            int index = 1;
+            JsonToken token;
+            while((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if(token != JsonToken.START_OBJECT) {
+                    throw new BizException("잘못된 파일입니다. index:[" + index + "]");
+                }
+                uploadFiles.add(read(parser, basePath, storageEngine, index));
+                ++index;
+            }
+
+        } catch(IOException | BizException | RuntimeException e) {
+            delete(storageEngine, uploadFiles);
+            throw e;
+        }
+
+        if(uploadFiles.isEmpty()) {
+            throw new BizException("파일을 찾을 수 없습니다.");
+        }
+        return uploadFiles;
+    }
+
+    /**
+     * 저장 위치에 반영한 파일을 삭제한다.
+     * @param storageEngine 파일 저장소
+     * @param uploadFiles 저장된 파일 정보
+     */
+    private static void delete(StorageEngine storageEngine, List<UploadFile> uploadFiles) {
+        for(UploadFile uploadFile : uploadFiles) {
+            String key = UploadHelper.toKey(uploadFile);
+            try {
+                storageEngine.delete(key);
+
+            } catch(IOException e) {
+                log.warn("업로드 실패 파일을 삭제하지 못했습니다. [{}]", key);
+            }
+        }
+    }
+
+    /**
+     * JSON 객체 하나를 읽어서 파일을 저장한다.
+     * @param parser JSON 파서 (START_OBJECT 위치)
+     * @param basePath 서버 기본 경로
+     * @param storageEngine 파일 저장소
+     * @param index 파일 순번
+     * @return 저장된 파일 정보
+     * @throws IOException
+     * @throws BizException
+     */
+    private static UploadFile read(JsonParser parser, String basePath, StorageEngine storageEngine, int index) throws IOException, BizException {
+        UploadFile uploadFile = new UploadFile();
+        StorageWriter writer = null;
+        ContentSniffer sniffer = new ContentSniffer();
+        ContentDigest digest = new ContentDigest();
+        try {
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if(token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+
+                if("base64String".equals(name) && token == JsonToken.VALUE_STRING) {
+                    if(writer != null) {
+                        writer.close();
+                    }
+                    writer = storageEngine.create();
+                    sniffer = new ContentSniffer();
+                    digest = new ContentDigest();
+                    long startTime = System.nanoTime();
+                    try {
+                        decode(parser, digest.wrap(sniffer.wrap(Channels.newOutputStream(writer))));
+
+                    } catch(JsonParseException | IllegalArgumentException e) {
+                        throw new BizException("BASE64 형식이 올바르지 않습니다. (표준 BASE64, 패딩 필요) index:[" + index + "]");
+                    }
+                    MetricsHelper.phase("decode", startTime);
+                } else if("filename".equals(name)) {
+                    uploadFile.setFilename(parser.getValueAsString());
+                } else if("subPath".equals(name)) {
+                    uploadFile.setSubPath(parser.getValueAsString());
+                } else if("serverFilename".equals(name)) {
+                    uploadFile.setServerFilename(parser.getValueAsString());
+                } else if("keepOriginalFilename".equals(name)) {
+                    uploadFile.setKeepOriginalFilename(parser.getValueAsBoolean());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            //filename 파라미터 체크
+            if(StringUtils.isEmpty(uploadFile.getFilename())) {
+                throw new BizException("filename 설정정보를 찾을 수 없습니다. index:[" + index + "]");
+            }
+
+            //base64String 파라미터 체크
+            if(writer == null || writer.getSize() == 0) {
+                throw new BizException("파일을 찾을 수 없습니다. index:[" + index + "]");
+            }
+
+            //subPath 파라미터 체크
+            if(StringUtils.isEmpty(uploadFile.getSubPath())) {
+                throw new BizException("subPath 설정정보를 찾을 수 없습니다. index:[" + index + "]");
+            }
+
+            //기본 확장자 체크
+            uploadFile.init(basePath);
+            if(UploadHelper.isDenyExtension(uploadFile)) {
+                MetricsHelper.rejected(MetricsHelper.REJECT_EXTENSION);
+                throw new BizException("허용되지 않는 확장자입니다. [" + uploadFile.getExtension() + "]");
+            }
+
+            //내용 형식 체크 (디코딩하면서 복사한 앞부분으로 판별)
+            uploadFile.setSize(writer.getSize());
+            sniffer.validate(uploadFile, false);
+            log.debug(uploadFile.toString());
+
+            long startTime = System.nanoTime();
+            writer.commit(UploadHelper.toKey(uploadFile));
+            digest.apply(uploadFile);
+            MetricsHelper.phase("save", startTime);
+            MetricsHelper.fileSize(uploadFile.getSize());
+            return uploadFile;
+
+        } finally {
+            if(writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * 현재 위치의 BASE64 문자열 토큰을 버퍼 단위로 디코딩해서 기록한다.
+     * Jackson 디코더를 사용하므로 표준 알파벳(+, /)과 = 패딩이 필요하고, 공백과 줄바꿈(\r\n 이스케이프)은 4자 단위 사이에만 올 수 있다.
+     * (76자 줄바꿈 MIME 형식은 허용, URL-safe 알파벳이나 패딩 없는 문자열은 upload2로 업로드해야 함)
+     * @param parser JSON 파서 (VALUE_STRING 위치)
+     * @param out 기록할 스트림
+     * @throws IOException
+     */
+    private static void decode(JsonParser parser, OutputStream out) throws IOException {
+        parser.readBinaryValue(Base64Variants.MIME_NO_LINEFEEDS, out);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+public class CompressionHelper {
+
+    /**
+     * 압축 저장된 파일의 서버 파일명 접미사
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 압축 저장 대상 확장자 (이미 압축된 형식인 docx, xlsx, hwpx, 이미지, 동영상 등은 제외)
+     */
+    private static final Set<String> COMPRESS_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "txt", "csv", "tsv", "log", "md",
+            "htm", "html", "css", "svg", "rtf",
+            "doc", "xls", "ppt", "hwp", "bmp"
+    ));
+
+    /**
+     * 이미 압축된 형식의 확장자 (ZIP 묶음 다운로드시 다시 압축하지 않음)
+     */
+    private static final Set<String> PRECOMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "webp",
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar", "war",
+            "docx", "xlsx", "pptx", "hwpx",
+            "mp3", "m4a", "mp4", "mov", "avi", "mkv"
+    ));
+
+    /**
+     * 압축 저장 대상 Content-Type (접두어)
+     */
+    private static final String[] COMPRESS_CONTENT_TYPES = new String[] {
+            "text/",
+            "application/msword",
+            "application/vnd.ms-excel",
+            "application/vnd.ms-powerpoint",
+            "application/x-hwp",
+            "image/bmp",
+            "image/svg+xml"
+    };
+
+    /**
+     * 압축해서 저장할 파일인 경우 true를 반환한다. (확장자 또는 Content-Type이 대상 목록에 있는 경우)
+     * @param uploadFile 업로드한 파일 정보
+     * @param contentType 요청의 Content-Type (없으면 null)
+     * @return true 압축 저장, false 원본 저장
+     */
+    public static boolean isCompressible(UploadFile uploadFile, String contentType) {
+        if(uploadFile.getExtension() != null && COMPRESS_EXTENSIONS.contains(uploadFile.getExtension())) {
+            return true;
+        }
+        if(StringUtils.isNotEmpty(contentType)) {
+            String lowerContentType = contentType.toLowerCase();
+            for(String prefix : COMPRESS_CONTENT_TYPES) {
+                if(lowerContentType.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 이미 압축된 형식의 파일인 경우 true를 반환한다.
+     * @param uploadFile 파일 정보
+     * @return true 이미 압축된 형식, false 압축 가능한 형식
+     */
+    public static boolean isPrecompressed(UploadFile uploadFile) {
+        return uploadFile.getExtension() != null && PRECOMPRESSED_EXTENSIONS.contains(uploadFile.getExtension());
+    }
+
+    /**
+     * 요청의 Accept-Encoding 헤더가 gzip을 허용하는 경우 true를 반환한다. (q=0은 허용하지 않음)
+     * @param request 요청
+     * @return true gzip 허용, false 허용하지 않음
+     */
+    public static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        while(headers != null && headers.hasMoreElements()) {
+            for(String coding : headers.nextElement().split(",")) {
+                String[] params = coding.split(";");
+                String name = params[0].trim();
+                if(!"gzip".equalsIgnoreCase(name) && !"x-gzip".equalsIgnoreCase(name) && !"*".equals(name)) {
+                    continue;
+                }
+                boolean accepted = true;
+                for(int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if(param.startsWith("q=")) {
+                        try {
+                            accepted = Double.parseDouble(param.substring(2)) > 0;
+
+                        } catch(NumberFormatException e) {
+                            accepted = false;
+                        }
+                    }
+                }
+                if(accepted) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
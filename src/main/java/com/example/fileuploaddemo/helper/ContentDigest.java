@@ -0,0 +1,264 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Locale;
+
+/**
+ * 파일 내용의 체크섬 (SHA-256, CRC32C, 요청한 경우 MD5)
+ * 저장하면서 지나가는 내용으로 계산하므로 저장 후에 파일을 다시 읽지 않는다. (압축 저장 파일은 압축하기 전 내용)
+ * 클라이언트가 보낸 Content-MD5, Digest(RFC 3230: sha-256, crc32c, md5) 헤더와 비교해서 전송 중 손상을 확인한다.
+ */
+@Slf4j
+public class ContentDigest {
+
+    private final MessageDigest sha256;
+    private final MessageDigest md5;
+    private final Crc32c crc32c;
+
+    /**
+     * 계산 결과 (finish 이후)
+     */
+    private byte[] sha256Value;
+    private byte[] md5Value;
+    private byte[] crc32cValue;
+
+    /**
+     * 생성자 (SHA-256, CRC32C)
+     */
+    public ContentDigest() {
+        this(false);
+    }
+
+    /**
+     * 생성자
+     * @param md5 MD5도 계산할지 여부 (Content-MD5 검증)
+     */
+    public ContentDigest(boolean md5) {
+        this.sha256 = DigestUtils.getSha256Digest();
+        this.md5 = md5 ? DigestUtils.getMd5Digest() : null;
+        this.crc32c = new Crc32c();
+    }
+
+    private ContentDigest(ContentDigest source) {
+        try {
+            this.sha256 = (MessageDigest) source.sha256.clone();
+            this.md5 = source.md5 != null ? (MessageDigest) source.md5.clone() : null;
+            this.crc32c = source.crc32c.copy();
+
+        } catch(CloneNotSupportedException e) {
+            throw new IllegalStateException("체크섬 상태를 복사할 수 없습니다.", e);
+        }
+    }
+
+    /**
+     * 요청 헤더를 검증할 수 있는 체크섬 계산기를 생성한다. (MD5는 요청한 경우에만 계산)
+     * @param contentMd5 Content-MD5 헤더 (없으면 null)
+     * @param digest Digest 헤더 (없으면 null)
+     * @return 체크섬 계산기
+     */
+    public static ContentDigest forRequest(String contentMd5, String digest) {
+        return new ContentDigest(StringUtils.isNotEmpty(contentMd5)
+                || (digest != null && digest.toLowerCase(Locale.ROOT).matches("(^|.*[,\\s])md5=.*")));
+    }
+
+    /**
+     * 기록되는 내용으로 체크섬을 갱신한다.
+     * @param b 내용
+     * @param off 시작 위치
+     * @param len 크기
+     */
+    public void update(byte[] b, int off, int len) {
+        sha256.update(b, off, len);
+        if(md5 != null) {
+            md5.update(b, off, len);
+        }
+        crc32c.update(b, off, len);
+    }
+
+    /**
+     * 기록되는 내용으로 체크섬을 갱신한다. (버퍼 위치는 바꾸지 않음)
+     * @param buffer 내용
+     */
+    public void update(ByteBuffer buffer) {
+        sha256.update(buffer.duplicate());
+        if(md5 != null) {
+            md5.update(buffer.duplicate());
+        }
+        crc32c.update(buffer.duplicate());
+    }
+
+    /**
+     * 읽는 내용으로 체크섬을 갱신하는 입력 스트림
+     * @param in 입력 스트림
+     * @return 입력 스트림
+     */
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if(b >= 0) {
+                    update(new byte[]{(byte) b}, 0, 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if(read > 0) {
+                    update(b, off, read);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * 쓰는 내용으로 체크섬을 갱신하는 출력 스트림
+     * @param out 출력 스트림
+     * @return 출력 스트림
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                update(new byte[]{(byte) b}, 0, 1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                update(b, off, len);
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * 지금까지 계산한 상태를 복사한다. (이어서 계산하다 실패하면 복사 전 상태로 되돌리기 위해 사용)
+     * @return 복사본
+     */
+    public ContentDigest copy() {
+        return new ContentDigest(this);
+    }
+
+    /**
+     * 계산을 마친다. 이후에는 갱신할 수 없다.
+     * @return this
+     */
+    public ContentDigest finish() {
+        if(sha256Value == null) {
+            sha256Value = sha256.digest();
+            md5Value = md5 != null ? md5.digest() : null;
+            long value = crc32c.getValue();
+            crc32cValue = new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+        return this;
+    }
+
+    /**
+     * SHA-256 (16진수)
+     * @return SHA-256
+     */
+    public String getSha256() {
+        return Hex.encodeHexString(finish().sha256Value);
+    }
+
+    /**
+     * CRC32C (16진수 8자리)
+     * @return CRC32C
+     */
+    public String getCrc32c() {
+        return Hex.encodeHexString(finish().crc32cValue);
+    }
+
+    /**
+     * 파일 정보에 체크섬을 기록한다.
+     * @param uploadFile 파일 정보
+     */
+    public void apply(UploadFile uploadFile) {
+        uploadFile.setHash(getSha256());
+        uploadFile.setCrc32c(getCrc32c());
+    }
+
+    /**
+     * 요청의 Content-MD5, Digest 헤더와 비교한다. 계산하지 않은 알고리즘은 무시한다.
+     * @param contentMd5 Content-MD5 헤더 (없으면 null)
+     * @param digest Digest 헤더 (없으면 null)
+     * @param name 파일명 (오류 메시지)
+     * @throws BizException 체크섬이 일치하지 않는 경우
+     */
+    public void verify(String contentMd5, String digest, String name) throws BizException {
+        finish();
+        if(StringUtils.isNotEmpty(contentMd5)) {
+            verify("md5", md5Value, contentMd5.trim(), name);
+        }
+        if(StringUtils.isEmpty(digest)) {
+            return;
+        }
+        for(String instance : digest.split(",")) {
+            int index = instance.indexOf('=');
+            if(index <= 0) {
+                continue;
+            }
+            String algorithm = instance.substring(0, index).trim().toLowerCase(Locale.ROOT);
+            String value = instance.substring(index + 1).trim();
+            if("sha-256".equals(algorithm)) {
+                verify(algorithm, sha256Value, value, name);
+            } else if("md5".equals(algorithm)) {
+                verify(algorithm, md5Value, value, name);
+            } else if("crc32c".equals(algorithm)) {
+                verify(algorithm, crc32cValue, value, name);
+            } else {
+                log.debug("지원하지 않는 Digest 알고리즘입니다. [{}]", algorithm);
+            }
+        }
+    }
+
+    /**
+     * 다운로드 응답의 Digest 헤더 값을 만든다.
+     * @param sha256 SHA-256 (16진수)
+     * @param crc32c CRC32C (16진수, 없으면 null)
+     * @return Digest 헤더 값, 값이 잘못되었으면 null
+     */
+    public static String toDigestHeader(String sha256, String crc32c) {
+        try {
+            StringBuilder header = new StringBuilder("sha-256=").append(Base64.encodeBase64String(Hex.decodeHex(sha256)));
+            if(StringUtils.isNotEmpty(crc32c)) {
+                header.append(",crc32c=").append(Base64.encodeBase64String(Hex.decodeHex(crc32c)));
+            }
+            return header.toString();
+
+        } catch(DecoderException e) {
+            log.debug("잘못된 체크섬입니다. [{}] [{}]", sha256, crc32c);
+            return null;
+        }
+    }
+
+    private static void verify(String algorithm, byte[] actual, String expected, String name) throws BizException {
+        if(actual == null) {
+            log.debug("계산하지 않은 Digest 알고리즘입니다. [{}]", algorithm);
+            return;
+        }
+        if(!MessageDigest.isEqual(actual, Base64.decodeBase64(expected))) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_DIGEST);
+            throw new BizException("파일 체크섬이 일치하지 않습니다. [" + name + "] " + algorithm);
+        }
+    }
+}
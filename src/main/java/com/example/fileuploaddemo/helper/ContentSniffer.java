@@ -0,0 +1,509 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 파일 내용(매직 바이트)으로 실제 형식을 판별한다.
+ * 저장하면서 지나가는 처음 SNIFF_LENGTH 바이트만 복사해 두었다가 판별하므로 파일을 다시 읽지 않는다.
+ * 실행 파일은 확장자와 관계없이 거부하고, 형식을 아는 확장자는 내용이 그 형식이어야 한다.
+ * 스크립트(#!, <?php, <%@, <%=)는 파일 시작 위치만 검사하며, 텍스트가 아닌 형식의 확장자(이미지 등)에서만 거부한다.
+ * 판별한 형식은 UploadFile.mimeType에 기록되어 색인에 저장되고 다운로드 응답의 Content-Type이 된다.
+ */
+public class ContentSniffer {
+
+    /**
+     * 판별에 사용하는 앞부분 크기
+     */
+    public static final int SNIFF_LENGTH = 512;
+
+    private static final String GIF = "image/gif";
+    private static final String PNG = "image/png";
+    private static final String JPEG = "image/jpeg";
+    private static final String BMP = "image/bmp";
+    private static final String WEBP = "image/webp";
+    private static final String TIFF = "image/tiff";
+    private static final String ICO = "image/x-icon";
+    private static final String HEIC = "image/heic";
+    private static final String SVG = "image/svg+xml";
+    private static final String PDF = "application/pdf";
+    private static final String ZIP = "application/zip";
+    private static final String GZIP = "application/gzip";
+    private static final String SEVEN_ZIP = "application/x-7z-compressed";
+    private static final String RAR = "application/vnd.rar";
+    private static final String OLE = "application/x-ole-storage";
+    private static final String RTF = "application/rtf";
+    private static final String XML = "application/xml";
+    private static final String MP4 = "video/mp4";
+    private static final String QUICKTIME = "video/quicktime";
+    private static final String AVI = "video/x-msvideo";
+    private static final String M4A = "audio/mp4";
+    private static final String MP3 = "audio/mpeg";
+    private static final String WAV = "audio/wav";
+    private static final String OGG = "audio/ogg";
+    private static final String HTML = "text/html";
+    private static final String TEXT = "text/plain";
+
+    private static final String EXE = "application/x-msdownload";
+    private static final String ELF = "application/x-executable";
+    private static final String MACH_O = "application/x-mach-binary";
+    private static final String JAVA_CLASS = "application/java-vm";
+    private static final String SHELL = "text/x-shellscript";
+    private static final String PHP = "application/x-httpd-php";
+    private static final String JSP = "application/x-jsp";
+
+    /**
+     * 거부하는 형식 (실행 파일, 스크립트)
+     */
+    private static final Set<String> DENY_TYPES = new HashSet<>(Arrays.asList(EXE, ELF, MACH_O, JAVA_CLASS, SHELL, PHP, JSP));
+
+    /**
+     * 스크립트 형식 (텍스트 형식의 확장자이거나 형식을 모르는 확장자이면 텍스트로 취급)
+     */
+    private static final Set<String> SCRIPT_TYPES = new HashSet<>(Arrays.asList(SHELL, PHP, JSP));
+
+    /**
+     * 텍스트 형식 (스크립트로 시작해도 허용하는 확장자의 형식)
+     */
+    private static final Set<String> TEXT_TYPES = new HashSet<>(Arrays.asList(TEXT, HTML, XML, SVG));
+
+    /**
+     * 이미지 업로드(isImage)에 허용하는 형식 (썸네일 생성 가능)
+     */
+    private static final Set<String> IMAGE_TYPES = new HashSet<>(Arrays.asList(GIF, PNG, JPEG));
+
+    /**
+     * HTML로 판별하는 시작 태그 (WHATWG MIME Sniffing 기준에 흔히 쓰는 태그를 더함)
+     */
+    private static final String[] HTML_TAGS = {"!doctype html", "html", "head", "body", "script", "iframe", "meta", "link", "style", "title",
+            "base", "form", "object", "embed", "img", "div", "span", "table", "font", "h1", "br", "a", "b", "p"};
+
+    /**
+     * 매직 바이트 (앞에서부터 순서대로 검사)
+     */
+    private static final List<Signature> SIGNATURES = new ArrayList<>();
+
+    /**
+     * 확장자 -> 내용으로 판별되어야 하는 형식
+     */
+    private static final Map<String, String> EXPECTED_TYPES = new HashMap<>();
+
+    /**
+     * 확장자 -> 응답 마임타입 (판별한 형식이 ZIP, OLE 같은 묶음 형식이면 확장자로 구체적인 형식을 정함)
+     */
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+    static {
+        weakSignature(0, EXE, 'M', 'Z');
+        signature(0, ELF, 0x7F, 'E', 'L', 'F');
+        signature(0, JAVA_CLASS, 0xCA, 0xFE, 0xBA, 0xBE);
+        signature(0, MACH_O, 0xFE, 0xED, 0xFA, 0xCE);
+        signature(0, MACH_O, 0xFE, 0xED, 0xFA, 0xCF);
+        signature(0, MACH_O, 0xCE, 0xFA, 0xED, 0xFE);
+        signature(0, MACH_O, 0xCF, 0xFA, 0xED, 0xFE);
+        signature(0, GIF, 'G', 'I', 'F', '8', '7', 'a');
+        signature(0, GIF, 'G', 'I', 'F', '8', '9', 'a');
+        signature(0, PNG, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A);
+        signature(0, JPEG, 0xFF, 0xD8, 0xFF);
+        weakSignature(0, BMP, 'B', 'M');
+        signature(0, TIFF, 'I', 'I', 0x2A, 0x00);
+        signature(0, TIFF, 'M', 'M', 0x00, 0x2A);
+        signature(0, ICO, 0x00, 0x00, 0x01, 0x00);
+        signature(0, PDF, '%', 'P', 'D', 'F', '-');
+        signature(0, ZIP, 'P', 'K', 0x03, 0x04);
+        signature(0, ZIP, 'P', 'K', 0x05, 0x06);
+        signature(0, GZIP, 0x1F, 0x8B);
+        signature(0, SEVEN_ZIP, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C);
+        signature(0, RAR, 'R', 'a', 'r', '!', 0x1A, 0x07);
+        signature(0, OLE, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1);
+        signature(0, RTF, '{', '\\', 'r', 't', 'f');
+        signature(0, MP3, 'I', 'D', '3');
+        signature(0, MP3, 0xFF, 0xFB);
+        signature(0, MP3, 0xFF, 0xF3);
+        signature(0, MP3, 0xFF, 0xF2);
+        signature(0, OGG, 'O', 'g', 'g', 'S');
+        signature(8, WEBP, 'W', 'E', 'B', 'P');
+        signature(8, WAV, 'W', 'A', 'V', 'E');
+        signature(8, AVI, 'A', 'V', 'I', ' ');
+
+        expect(GIF, "gif");
+        expect(PNG, "png");
+        expect(JPEG, "jpg", "jpeg", "jpe", "jfif");
+        expect(BMP, "bmp");
+        expect(WEBP, "webp");
+        expect(TIFF, "tif", "tiff");
+        expect(ICO, "ico");
+        expect(HEIC, "heic", "heif");
+        expect(SVG, "svg");
+        expect(PDF, "pdf");
+        expect(ZIP, "zip", "docx", "xlsx", "pptx", "hwpx", "odt", "ods", "odp", "epub", "apk");
+        expect(GZIP, "gz", "tgz");
+        expect(SEVEN_ZIP, "7z");
+        expect(RAR, "rar");
+        expect(OLE, "doc", "xls", "ppt", "hwp", "msg");
+        expect(RTF, "rtf");
+        expect(MP4, "mp4", "m4v");
+        expect(QUICKTIME, "mov");
+        expect(M4A, "m4a");
+        expect(AVI, "avi");
+        expect(MP3, "mp3");
+        expect(WAV, "wav");
+        expect(OGG, "ogg", "oga");
+        expect(HTML, "html", "htm");
+        expect(TEXT, "txt", "csv", "tsv", "log", "md");
+
+        MIME_TYPES.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        MIME_TYPES.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        MIME_TYPES.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+        MIME_TYPES.put("hwpx", "application/hwp+zip");
+        MIME_TYPES.put("odt", "application/vnd.oasis.opendocument.text");
+        MIME_TYPES.put("ods", "application/vnd.oasis.opendocument.spreadsheet");
+        MIME_TYPES.put("odp", "application/vnd.oasis.opendocument.presentation");
+        MIME_TYPES.put("epub", "application/epub+zip");
+        MIME_TYPES.put("apk", "application/vnd.android.package-archive");
+        MIME_TYPES.put("doc", "application/msword");
+        MIME_TYPES.put("xls", "application/vnd.ms-excel");
+        MIME_TYPES.put("ppt", "application/vnd.ms-powerpoint");
+        MIME_TYPES.put("hwp", "application/x-hwp");
+        MIME_TYPES.put("msg", "application/vnd.ms-outlook");
+        MIME_TYPES.put("csv", "text/csv");
+        MIME_TYPES.put("tsv", "text/tab-separated-values");
+        MIME_TYPES.put("md", "text/markdown");
+    }
+
+    /**
+     * 앞부분 복사본
+     */
+    private final byte[] head = new byte[SNIFF_LENGTH];
+    private int length;
+
+    /**
+     * 기록되는 내용의 앞부분을 복사한다. (앞부분을 채운 뒤에는 아무것도 하지 않음)
+     * @param b 내용
+     * @param off 시작 위치
+     * @param len 크기
+     */
+    public void update(byte[] b, int off, int len) {
+        int count = Math.min(len, SNIFF_LENGTH - length);
+        if(count > 0) {
+            System.arraycopy(b, off, head, length, count);
+            length += count;
+        }
+    }
+
+    /**
+     * 기록되는 내용의 앞부분을 복사한다. (버퍼 위치는 바꾸지 않음)
+     * @param buffer 내용
+     */
+    public void update(ByteBuffer buffer) {
+        int count = Math.min(buffer.remaining(), SNIFF_LENGTH - length);
+        if(count > 0) {
+            buffer.duplicate().get(head, length, count);
+            length += count;
+        }
+    }
+
+    /**
+     * 입력 스트림에서 앞부분을 읽어서 채운다. (이미 기록된 파일)
+     * @param in 입력 스트림
+     * @throws IOException
+     */
+    public void fill(InputStream in) throws IOException {
+        int read;
+        while(length < SNIFF_LENGTH && (read = in.read(head, length, SNIFF_LENGTH - length)) > 0) {
+            length += read;
+        }
+    }
+
+    /**
+     * 읽는 내용의 앞부분을 복사하는 입력 스트림
+     * @param in 입력 스트림
+     * @return 입력 스트림
+     */
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if(b >= 0 && length < SNIFF_LENGTH) {
+                    head[length++] = (byte) b;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if(read > 0) {
+                    update(b, off, read);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * 쓰는 내용의 앞부분을 복사하는 출력 스트림
+     * @param out 출력 스트림
+     * @return 출력 스트림
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                if(length < SNIFF_LENGTH) {
+                    head[length++] = (byte) b;
+                }
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                update(b, off, len);
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * 앞부분으로 형식을 판별한다.
+     * @return 마임타입, 내용이 없거나 알 수 없는 바이너리면 null
+     */
+    public String detect() {
+        if(length == 0) {
+            return null;
+        }
+
+        //파일 시작 위치의 스크립트 (본문 중간의 <?php, <%= 등은 텍스트, 소스 파일에 흔하므로 검사하지 않음)
+        String lower = new String(head, 0, length, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        if(lower.startsWith("<?php")) {
+            return PHP;
+        }
+        if(lower.startsWith("<%@") || lower.startsWith("<%=")) {
+            return JSP;
+        }
+        if(lower.startsWith("#!")) {
+            return SHELL;
+        }
+
+        boolean text = isText();
+        for(Signature signature : SIGNATURES) {
+            if(signature.weak && text) {
+                continue;
+            }
+            if(signature.matches(head, length)) {
+                return signature.type;
+            }
+        }
+
+        //ISO base media (mp4, mov, heic)
+        if(length >= 12 && head[4] == 'f' && head[5] == 't' && head[6] == 'y' && head[7] == 'p') {
+            String brand = new String(head, 8, 4, StandardCharsets.ISO_8859_1);
+            if("qt  ".equals(brand)) {
+                return QUICKTIME;
+            } else if("heic".equals(brand) || "heix".equals(brand) || "mif1".equals(brand) || "msf1".equals(brand)) {
+                return HEIC;
+            } else if("M4A ".equals(brand)) {
+                return M4A;
+            }
+            return MP4;
+        }
+
+        if(!text) {
+            return null;
+        }
+        String markup = skipPrologue(lower);
+        if(markup == null || isHtml(markup)) {
+            return HTML;
+        }
+        if(markup.startsWith("<svg") || (markup.startsWith("<?xml") && lower.contains("<svg"))) {
+            return SVG;
+        }
+        if(markup.startsWith("<?xml")) {
+            return XML;
+        }
+        return TEXT;
+    }
+
+    /**
+     * 판별한 형식이 정책에 맞는지 검사하고 파일 정보에 마임타입을 기록한다.
+     * 업로드 정책(ExtensionPolicy)의 마임타입 제한과 최대 크기도 검사하므로 파일 정보에 크기가 설정되어 있어야 한다.
+     * @param uploadFile 파일 정보
+     * @param image 이미지 업로드 여부 (gif, png, jpeg만 허용)
+     * @throws BizException 실행 파일이거나, 텍스트가 아닌 형식의 확장자에 스크립트이거나, 내용이 확장자와 일치하지 않는 경우
+     */
+    public void validate(UploadFile uploadFile, boolean image) throws BizException {
+        String detected = detect();
+        String extension = uploadFile.getExtension();
+        //텍스트 형식이거나 형식을 모르는 확장자의 스크립트는 텍스트 (셸 스크립트, 소스 파일 등, 서버 스크립트 확장자는 확장자 정책에서 거부)
+        if(detected != null && SCRIPT_TYPES.contains(detected)) {
+            String expected = extension != null ? EXPECTED_TYPES.get(extension) : null;
+            if(expected == null || TEXT_TYPES.contains(expected)) {
+                detected = TEXT;
+            }
+        }
+        if(detected != null && DENY_TYPES.contains(detected)) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_CONTENT);
+            throw new BizException("허용되지 않는 파일 형식입니다. [" + uploadFile.getFilename() + "]");
+        }
+        if(length > 0 && extension != null && EXPECTED_TYPES.containsKey(extension) && !EXPECTED_TYPES.get(extension).equals(detected)) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_CONTENT);
+            throw new BizException("파일 내용이 확장자와 일치하지 않습니다. [" + uploadFile.getFilename() + "]");
+        }
+        if(image && !IMAGE_TYPES.contains(detected)) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_IMAGE);
+            throw new BizException("이미지 형식의 파일이 아닙니다. [" + uploadFile.getFilename() + "]");
+        }
+
+        String mimeType = extension != null ? MIME_TYPES.get(extension) : null;
+        mimeType = mimeType != null && detected != null && detected.equals(EXPECTED_TYPES.get(extension)) ? mimeType
+                : detected != null ? detected : toMimeType(extension);
+
+        //업로드 정책의 마임타입별 허용/금지, 최대 크기
+        ExtensionPolicy policy = ExtensionPolicy.current();
+        if(!policy.isMimeTypeAllowed(mimeType, uploadFile.getSubPath())) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_CONTENT);
+            throw new BizException("허용되지 않는 파일 형식입니다. [" + uploadFile.getFilename() + "]");
+        }
+        long maxFileSize = policy.getMaxFileSize(mimeType, uploadFile.getSubPath());
+        if(maxFileSize >= 0 && uploadFile.getSize() > maxFileSize) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_SIZE);
+            throw new BizException("업로드 파일 크기가 너무 큽니다. [" + uploadFile.getFilename() + "]");
+        }
+        uploadFile.setMimeType(mimeType);
+    }
+
+    /**
+     * 확장자의 마임타입을 반환한다. (내용을 판별하지 않은 파일)
+     * @param extension 확장자
+     * @return 마임타입, 알 수 없으면 null
+     */
+    public static String toMimeType(String extension) {
+        if(extension == null) {
+            return null;
+        }
+        String mimeType = MIME_TYPES.get(extension);
+        return mimeType != null ? mimeType : EXPECTED_TYPES.get(extension);
+    }
+
+    /**
+     * 앞의 BOM, 공백, 주석을 건너뛴다.
+     * @param lower 앞부분 (소문자)
+     * @return 첫 태그 또는 내용, 주석이 앞부분 안에서 끝나지 않으면 null
+     */
+    private static String skipPrologue(String lower) {
+        String markup = lower.startsWith("\u00ef\u00bb\u00bf") ? lower.substring(3) : lower;
+        while(true) {
+            markup = markup.replaceFirst("^\\s+", "");
+            if(!markup.startsWith("<!--")) {
+                return markup;
+            }
+            int end = markup.indexOf("-->", 4);
+            if(end < 0) {
+                return null;
+            }
+            markup = markup.substring(end + 3);
+        }
+    }
+
+    /**
+     * HTML 시작 태그로 시작하는지 여부 (태그명 다음에 공백, > 또는 /가 와야 함)
+     * @param markup 앞의 BOM, 공백, 주석을 건너뛴 앞부분 (소문자)
+     * @return true HTML
+     */
+    private static boolean isHtml(String markup) {
+        for(String tag : HTML_TAGS) {
+            if(markup.startsWith("<" + tag)) {
+                int next = tag.length() + 1;
+                if(next == markup.length() || " \t\r\n\f>/".indexOf(markup.charAt(next)) >= 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 앞부분이 텍스트인지 여부 (NUL, 제어문자가 없음, UTF-16은 BOM으로 판별)
+     * UTF-8 외에 EUC-KR 같은 기존 인코딩도 텍스트로 보아야 하므로 8비트 문자는 검사하지 않는다.
+     * @return true 텍스트
+     */
+    private boolean isText() {
+        if(length >= 2 && ((head[0] == (byte) 0xFE && head[1] == (byte) 0xFF) || (head[0] == (byte) 0xFF && head[1] == (byte) 0xFE))) {
+            return true;
+        }
+        for(int i = 0; i < length; i++) {
+            int b = head[i] & 0xFF;
+            if((b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' && b != 0x1B) || b == 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void signature(int offset, String type, int... bytes) {
+        SIGNATURES.add(new Signature(offset, type, false, bytes));
+    }
+
+    /**
+     * 텍스트에도 흔히 나오는 짧은 매직 바이트 (텍스트가 아닐 때만 검사)
+     */
+    private static void weakSignature(int offset, String type, int... bytes) {
+        SIGNATURES.add(new Signature(offset, type, true, bytes));
+    }
+
+    private static void expect(String type, String... extensions) {
+        for(String extension : extensions) {
+            EXPECTED_TYPES.put(extension, type);
+        }
+    }
+
+    /**
+     * 매직 바이트
+     */
+    private static class Signature {
+
+        private final int offset;
+        private final String type;
+        private final boolean weak;
+        private final byte[] bytes;
+
+        Signature(int offset, String type, boolean weak, int[] bytes) {
+            this.offset = offset;
+            this.type = type;
+            this.weak = weak;
+            this.bytes = new byte[bytes.length];
+            for(int i = 0; i < bytes.length; i++) {
+                this.bytes[i] = (byte) bytes[i];
+            }
+        }
+
+        boolean matches(byte[] head, int length) {
+            if(length < offset + bytes.length) {
+                return false;
+            }
+            for(int i = 0; i < bytes.length; i++) {
+                if(head[offset + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.fileuploaddemo.helper;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * CRC32C (Castagnoli) 체크섬
+ * Java 8에는 java.util.zip.CRC32C가 없으므로 8바이트씩 처리하는 테이블 방식(slicing-by-8)으로 계산한다.
+ */
+public class Crc32c implements Checksum {
+
+    /**
+     * CRC32C 다항식 (reflected)
+     */
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    /**
+     * TABLE[k][n]: 바이트 n 뒤에 0 바이트가 k개 이어질 때의 CRC
+     */
+    private static final int[][] TABLE = new int[8][256];
+
+    static {
+        for(int n = 0; n < 256; n++) {
+            int crc = n;
+            for(int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLE[0][n] = crc;
+        }
+        for(int n = 0; n < 256; n++) {
+            for(int k = 1; k < 8; k++) {
+                TABLE[k][n] = (TABLE[k - 1][n] >>> 8) ^ TABLE[0][TABLE[k - 1][n] & 0xFF];
+            }
+        }
+    }
+
+    private int crc = 0xFFFFFFFF;
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[0][(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int[] t0 = TABLE[0], t1 = TABLE[1], t2 = TABLE[2], t3 = TABLE[3];
+        int[] t4 = TABLE[4], t5 = TABLE[5], t6 = TABLE[6], t7 = TABLE[7];
+        int value = crc;
+        while(len >= 8) {
+            int one = value ^ ((b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24);
+            int two = (b[off + 4] & 0xFF) | (b[off + 5] & 0xFF) << 8 | (b[off + 6] & 0xFF) << 16 | (b[off + 7] & 0xFF) << 24;
+            value = t7[one & 0xFF] ^ t6[(one >>> 8) & 0xFF] ^ t5[(one >>> 16) & 0xFF] ^ t4[one >>> 24]
+                    ^ t3[two & 0xFF] ^ t2[(two >>> 8) & 0xFF] ^ t1[(two >>> 16) & 0xFF] ^ t0[two >>> 24];
+            off += 8;
+            len -= 8;
+        }
+        while(len-- > 0) {
+            value = (value >>> 8) ^ t0[(value ^ b[off++]) & 0xFF];
+        }
+        crc = value;
+    }
+
+    /**
+     * 버퍼의 남은 내용으로 체크섬을 갱신한다. (버퍼 위치는 limit으로 이동)
+     * @param buffer 내용
+     */
+    public void update(ByteBuffer buffer) {
+        if(buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+        while(buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            update(chunk, 0, length);
+        }
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+
+    /**
+     * 지금까지 계산한 상태를 복사한다.
+     * @return 복사본
+     */
+    public Crc32c copy() {
+        Crc32c copy = new Crc32c();
+        copy.crc = crc;
+        return copy;
+    }
+}
@@ -0,0 +1,520 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageStat;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+
+@Slf4j
+public class DownloadHelper {
+
+    /**
+     * 한 요청에서 허용하는 최대 Range 개수 (초과시 Range 헤더를 무시하고 전체 파일을 전송)
+     */
+    private static final int MAX_RANGES = 16;
+
+    /**
+     * sendfile 전송을 사용할 최소 크기 (Tomcat DefaultServlet 기본값과 동일)
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    /**
+     * 로컬 파일이 아닌 채널의 전송 버퍼 크기
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Tomcat sendfile 요청 속성
+     */
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 파일을 응답으로 전송한다.
+     * If-None-Match/If-Modified-Since 조건이 맞으면 파일을 열지 않고 304로 응답한다.
+     * Range/If-Range 요청 헤더를 처리하며 파일 내용을 힙에 적재하지 않고 sendfile 또는 FileChannel.transferTo로 전송한다.
+     * 압축 저장된 파일은 gzip을 허용하는 클라이언트에 저장된 내용을 그대로(Content-Encoding: gzip) 전송하고,
+     * 그 외의 클라이언트에는 압축을 풀면서 전송한다. (Range 미지원)
+     * @param request 요청
+     * @param response 응답
+     * @param uploadFile 파일 정보
+     * @param storageEngine 파일 저장소
+     * @param key 저장소 키
+     * @throws java.nio.file.NoSuchFileException 파일이 없는 경우
+     * @throws IOException
+     */
+    public static void write(HttpServletRequest request, HttpServletResponse response, UploadFile uploadFile, StorageEngine storageEngine, String key) throws IOException {
+        write(request, response, uploadFile, storageEngine, key, null);
+    }
+
+    /**
+     * 파일을 응답으로 전송한다.
+     * I/O 스레드풀이 있으면 sendfile로 위임하지 않는 본문은 비동기 서블릿 I/O로 전송하고 바로 반환한다. (AsyncDownloadWriter)
+     * sendfile 전송은 컨테이너가 요청 스레드 없이 처리하므로 그대로 위임한다.
+     * @param request 요청
+     * @param response 응답
+     * @param uploadFile 파일 정보
+     * @param storageEngine 파일 저장소
+     * @param key 저장소 키
+     * @param asyncExecutor 비동기 전송시 파일 읽기용 I/O 스레드풀 (null이면 요청 스레드에서 전송)
+     * @throws java.nio.file.NoSuchFileException 파일이 없는 경우
+     * @throws IOException
+     */
+    public static void write(HttpServletRequest request, HttpServletResponse response, UploadFile uploadFile, StorageEngine storageEngine, String key,
+                             Executor asyncExecutor) throws IOException {
+        if(asyncExecutor != null && !request.isAsyncSupported()) {
+            asyncExecutor = null;
+        }
+        StorageStat stat = storageEngine.stat(key);
+        if(stat == null) {
+            throw new NoSuchFileException(key);
+        }
+        long length = stat.getSize();
+        long lastModified = stat.getLastModified();
+        String contentType = UploadHelper.getMimeType(uploadFile).toString();
+
+        //압축 저장된 파일은 gzip 응답과 압축을 푼 응답의 ETag를 구분한다.
+        boolean compressed = uploadFile.isCompressed();
+        boolean inflate = compressed && !CompressionHelper.acceptsGzip(request);
+        String eTag = createETag(length, lastModified);
+        if(compressed) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if(!inflate) {
+                eTag = eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, inflate ? "none" : "bytes");
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        if(checkNotModified(request, response, eTag, lastModified)) {
+            return;
+        }
+        response.setHeader("Content-Disposition", "attachment; filename=" + URLEncoder.encode(uploadFile.getFilename(), "UTF-8") + ";");
+        response.setHeader("Content-Transfer-Encoding", "binary");
+        //저장한 마임타입과 다르게 해석(sniffing)하지 않도록 한다.
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        //저장시 계산한 체크섬 (gzip 그대로 보내는 압축 저장 파일은 압축 전 내용의 체크섬이므로 보내지 않음)
+        if(StringUtils.isNotEmpty(uploadFile.getHash()) && (!compressed || inflate)) {
+            String digest = ContentDigest.toDigestHeader(uploadFile.getHash(), uploadFile.getCrc32c());
+            if(digest != null) {
+                response.setHeader("Digest", digest);
+            }
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        //압축을 풀면서 전송 (크기를 미리 알 수 없으므로 chunked 전송)
+        if(inflate) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            if(head) {
+                return;
+            }
+            SeekableByteChannel channel = storageEngine.open(key);
+            InputStream in;
+            try {
+                in = new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+
+            } catch(IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            if(asyncExecutor != null) {
+                //전송을 시작하지 못하면 압축 스트림과 파일 채널을 닫음 (시작한 뒤에는 AsyncDownloadWriter가 닫음)
+                try {
+                    AsyncDownloadWriter.start(request, response, Channels.newChannel(in), asyncExecutor);
+
+                } catch(IOException | RuntimeException e) {
+                    in.close();
+                    throw e;
+                }
+                return;
+            }
+            try {
+                MetricsHelper.bytesOut(StreamUtils.copy(in, response.getOutputStream()));
+            } finally {
+                in.close();
+            }
+            return;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = getRanges(request, eTag, lastModified, length);
+
+        } catch(IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        //전체 파일
+        if(ranges.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if(!head) {
+                transfer(request, response, storageEngine, key, 0, length, asyncExecutor);
+            }
+            return;
+        }
+
+        //단일 Range
+        if(ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if(!head) {
+                transfer(request, response, storageEngine, key, start, end - start + 1, asyncExecutor);
+            }
+            return;
+        }
+
+        //멀티 Range (multipart/byteranges)
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for(int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            String partHeader = (i > 0 ? "\r\n" : "") + "--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n";
+            byte[] bytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + (end - start + 1);
+        }
+        byte[] closeDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closeDelimiter.length;
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if(head) {
+            return;
+        }
+
+        if(asyncExecutor != null) {
+            SegmentChannel source = new SegmentChannel(storageEngine.open(key));
+            for(int i = 0; i < ranges.size(); i++) {
+                long start = ranges.get(i).getRangeStart(length);
+                long end = ranges.get(i).getRangeEnd(length);
+                source.add(partHeaders.get(i));
+                source.add(start, end - start + 1);
+            }
+            source.add(closeDelimiter);
+            AsyncDownloadWriter.start(request, response, source, asyncExecutor);
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try(SeekableByteChannel channel = storageEngine.open(key)) {
+            for(int i = 0; i < ranges.size(); i++) {
+                long start = ranges.get(i).getRangeStart(length);
+                long end = ranges.get(i).getRangeEnd(length);
+                out.write(partHeaders.get(i));
+                transferTo(channel, start, end - start + 1, target);
+            }
+        }
+        out.write(closeDelimiter);
+        MetricsHelper.bytesOut(contentLength);
+    }
+
+    /**
+     * 파일 크기와 수정시간으로 강한 ETag 값을 생성한다.
+     * @param length 파일크기
+     * @param lastModified 수정시간
+     * @return ETag
+     */
+    public static String createETag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * 조건부 요청(If-None-Match, If-Modified-Since, If-Unmodified-Since)을 검사한다.
+     * 조건이 맞으면 응답 상태를 304(GET/HEAD) 또는 412로 설정하고 true를 반환한다. 이 경우 본문을 기록하지 않아야 한다.
+     * If-None-Match는 약한 비교(W/ 접두어 무시, *)를 하며, If-None-Match가 있으면 If-Modified-Since는 무시한다. (RFC 7232)
+     * @param request 요청
+     * @param response 응답
+     * @param eTag 파일의 ETag
+     * @param lastModified 파일의 수정시간
+     * @return true 본문 전송 불필요, false 전송 필요
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String eTag, long lastModified) {
+        return new ServletWebRequest(request, response).checkNotModified(eTag, lastModified);
+    }
+
+    /**
+     * 요청의 Range 헤더를 해석해서 전송할 Range 목록을 반환한다.
+     * Range 헤더가 없거나, 형식이 잘못되었거나, If-Range 조건이 맞지 않으면 빈 목록을 반환한다.
+     * @param request 요청
+     * @param eTag 파일의 ETag
+     * @param lastModified 파일의 수정시간
+     * @param length 파일크기
+     * @return Range 목록
+     * @throws IllegalArgumentException 만족할 수 있는 Range가 없는 경우
+     */
+    private static List<HttpRange> getRanges(HttpServletRequest request, String eTag, long lastModified, long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if(StringUtils.isEmpty(rangeHeader)) {
+            return Collections.emptyList();
+        }
+        if(!isIfRangeMatched(request, eTag, lastModified)) {
+            return Collections.emptyList();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+
+        } catch(IllegalArgumentException e) {
+            log.debug("잘못된 Range 헤더를 무시합니다. [{}]", rangeHeader);
+            return Collections.emptyList();
+        }
+        if(ranges.size() > MAX_RANGES) {
+            log.debug("Range 개수가 너무 많아 무시합니다. [{}]", ranges.size());
+            return Collections.emptyList();
+        }
+
+        List<HttpRange> satisfiable = new ArrayList<>(ranges.size());
+        for(HttpRange range : ranges) {
+            if(range.getRangeStart(length) < length && range.getRangeStart(length) <= range.getRangeEnd(length)) {
+                satisfiable.add(range);
+            }
+        }
+        if(satisfiable.isEmpty()) {
+            throw new IllegalArgumentException("만족할 수 있는 Range가 없습니다. [" + rangeHeader + "]");
+        }
+        return satisfiable;
+    }
+
+    /**
+     * If-Range 조건이 현재 파일과 일치하는지 여부를 반환한다.
+     * @param request 요청
+     * @param eTag 파일의 ETag
+     * @param lastModified 파일의 수정시간
+     * @return true If-Range 헤더가 없거나 일치, false 불일치
+     */
+    private static boolean isIfRangeMatched(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if(StringUtils.isEmpty(ifRange)) {
+            return true;
+        }
+        //약한 ETag는 If-Range에서 항상 불일치
+        if(ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return eTag.equals(ifRange);
+        }
+        try {
+            long ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ifRangeDate != -1 && ifRangeDate / 1000 == lastModified / 1000;
+
+        } catch(IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 파일의 지정된 구간을 응답으로 전송한다.
+     * 로컬 파일이고 컨테이너가 sendfile을 지원하면 전송을 컨테이너에 위임하고, 그렇지 않으면 저장소 채널에서 전송한다.
+     * 전송량 지표는 sendfile과 동기 전송은 여기서, 비동기 전송은 AsyncDownloadWriter가 종료할 때 기록한다.
+     * @param request 요청
+     * @param response 응답
+     * @param storageEngine 파일 저장소
+     * @param key 저장소 키
+     * @param position 시작 위치
+     * @param count 전송할 크기
+     * @param asyncExecutor 비동기 전송시 파일 읽기용 I/O 스레드풀 (null이면 요청 스레드에서 전송)
+     * @throws IOException
+     */
+    private static void transfer(HttpServletRequest request, HttpServletResponse response, StorageEngine storageEngine, String key, long position, long count,
+                                 Executor asyncExecutor) throws IOException {
+        if(count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            Path path = storageEngine.toPath(key);
+            if(path != null) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, path.toFile().getCanonicalPath());
+                request.setAttribute(SENDFILE_START_ATTR, position);
+                request.setAttribute(SENDFILE_END_ATTR, position + count);
+                MetricsHelper.bytesOut(count);
+                return;
+            }
+        }
+
+        if(asyncExecutor != null) {
+            SegmentChannel source = new SegmentChannel(storageEngine.open(key));
+            source.add(position, count);
+            AsyncDownloadWriter.start(request, response, source, asyncExecutor);
+            return;
+        }
+
+        try(SeekableByteChannel channel = storageEngine.open(key)) {
+            transferTo(channel, position, count, Channels.newChannel(response.getOutputStream()));
+        }
+        MetricsHelper.bytesOut(count);
+    }
+
+    /**
+     * 채널의 지정된 구간을 대상 채널로 모두 전송한다.
+     * 파일 채널은 FileChannel.transferTo를 사용하고, 그 외의 채널은 버퍼로 복사한다.
+     * @param channel 읽기 채널
+     * @param position 시작 위치
+     * @param count 전송할 크기
+     * @param target 대상 채널
+     * @throws IOException
+     */
+    private static void transferTo(SeekableByteChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        if(channel instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) channel;
+            while(count > 0) {
+                long transferred = fileChannel.transferTo(position, count, target);
+                if(transferred <= 0) {
+                    throw new IOException("파일 전송이 중단되었습니다.");
+                }
+                position += transferred;
+                count -= transferred;
+            }
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, BUFFER_SIZE));
+        channel.position(position);
+        while(count > 0) {
+            buffer.clear();
+            if(buffer.remaining() > count) {
+                buffer.limit((int) count);
+            }
+            int read = channel.read(buffer);
+            if(read <= 0) {
+                throw new IOException("파일 전송이 중단되었습니다.");
+            }
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            count -= read;
+        }
+    }
+
+    /**
+     * 바이트 배열과 파일 구간을 차례로 읽는 채널 (비동기 전송의 원본, 닫으면 파일 채널도 닫힘)
+     */
+    private static class SegmentChannel implements ReadableByteChannel {
+
+        private final SeekableByteChannel channel;
+        private final Deque<Object> segments = new ArrayDeque<>();
+
+        /**
+         * 현재 파일 구간의 남은 크기
+         */
+        private long remaining;
+
+        SegmentChannel(SeekableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void add(byte[] bytes) {
+            segments.add(ByteBuffer.wrap(bytes));
+        }
+
+        void add(long position, long count) {
+            segments.add(new long[]{position, count});
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int total = 0;
+            while(dst.hasRemaining()) {
+                Object segment = segments.peek();
+                if(segment == null) {
+                    return total > 0 ? total : -1;
+                }
+
+                if(segment instanceof ByteBuffer) {
+                    ByteBuffer bytes = (ByteBuffer) segment;
+                    int count = Math.min(bytes.remaining(), dst.remaining());
+                    ByteBuffer slice = bytes.duplicate();
+                    slice.limit(slice.position() + count);
+                    dst.put(slice);
+                    bytes.position(bytes.position() + count);
+                    total += count;
+                    if(!bytes.hasRemaining()) {
+                        segments.poll();
+                    }
+                    continue;
+                }
+
+                long[] range = (long[]) segment;
+                if(remaining == 0) {
+                    channel.position(range[0]);
+                    remaining = range[1];
+                }
+                int limit = dst.limit();
+                if(dst.remaining() > remaining) {
+                    dst.limit(dst.position() + (int) remaining);
+                }
+                int read;
+                try {
+                    read = channel.read(dst);
+                } finally {
+                    dst.limit(limit);
+                }
+                if(read <= 0) {
+                    throw new IOException("파일 전송이 중단되었습니다.");
+                }
+                total += read;
+                remaining -= read;
+                if(remaining == 0) {
+                    segments.poll();
+                }
+            }
+            return total;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.entity.UploadPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 업로드 정책 (확장자, 마임타입, 크기)
+ * 설정(UploadPolicy)을 변경할 수 없는 검사용 구조로 한 번 변환해 두고, 다시 읽으면 새 정책으로 통째로 교체한다. (AtomicReference)
+ * 확장자는 파일명 끝에서부터 거꾸로 따라가는 트라이(reversed trie)로 검사하므로 substring, toLowerCase 없이 검사한다.
+ * 여러 단계 확장자(tar.gz)와 파일명 중간의 확장자(a.jsp.png)도 같은 트라이로 검사한다.
+ */
+public final class ExtensionPolicy {
+
+    /**
+     * 현재 정책 (설정을 읽기 전에는 기본 정책)
+     */
+    private static final AtomicReference<ExtensionPolicy> CURRENT = new AtomicReference<>(compile(new UploadPolicy()));
+
+    private final SuffixTrie denyExtensions;
+    private final SuffixTrie denyInnerExtensions;
+    private final SuffixTrie imageExtensions;
+    private final MimeTypeMatcher denyMimeTypes;
+    private final TypeRule[] types;
+
+    /**
+     * subPath 정책 (subPath가 긴 순서)
+     */
+    private final SubPathRule[] subPaths;
+
+    private ExtensionPolicy(UploadPolicy policy) {
+        this.denyExtensions = new SuffixTrie(policy.getDenyExtensions());
+        this.denyInnerExtensions = new SuffixTrie(policy.getDenyInnerExtensions());
+        this.imageExtensions = new SuffixTrie(policy.getImageExtensions());
+        this.denyMimeTypes = new MimeTypeMatcher(policy.getDenyMimeTypes());
+
+        List<TypeRule> types = new ArrayList<>();
+        for(UploadPolicy.TypeRule rule : nonNull(policy.getTypes())) {
+            if(rule.getMimeType() != null) {
+                types.add(new TypeRule(rule));
+            }
+        }
+        this.types = types.toArray(new TypeRule[0]);
+
+        List<SubPathRule> subPaths = new ArrayList<>();
+        for(UploadPolicy.SubPathRule rule : nonNull(policy.getSubPaths())) {
+            if(rule.getSubPath() != null) {
+                subPaths.add(new SubPathRule(rule));
+            }
+        }
+        subPaths.sort(Comparator.comparingInt((SubPathRule rule) -> rule.subPath.length()).reversed());
+        this.subPaths = subPaths.toArray(new SubPathRule[0]);
+    }
+
+    /**
+     * 설정을 검사용 정책으로 변환한다.
+     * @param policy 업로드 정책 설정
+     * @return 정책
+     */
+    public static ExtensionPolicy compile(UploadPolicy policy) {
+        return new ExtensionPolicy(policy);
+    }
+
+    /**
+     * 현재 정책
+     * @return 정책
+     */
+    public static ExtensionPolicy current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 현재 정책을 교체한다. 검사중인 요청은 이전 정책으로 끝까지 검사한다.
+     * @param policy 새 정책
+     */
+    public static void update(ExtensionPolicy policy) {
+        CURRENT.set(policy);
+    }
+
+    /**
+     * 업로드해서 안되는 파일명인지 검사한다.
+     * 마지막 확장자(여러 단계 포함)는 denyExtensions, 중간 확장자는 denyInnerExtensions로 검사하고,
+     * subPath 정책이 있으면 그 정책의 허용/금지 확장자도 검사한다.
+     * @param filename 파일명
+     * @param subPath 서브디렉토리 경로
+     * @return true 업로드 불가, false 업로드 가능
+     */
+    public boolean isDenied(String filename, String subPath) {
+        if(filename == null) {
+            return false;
+        }
+        int end = trimEnd(filename);
+        if(denyExtensions.matches(filename, end)) {
+            return true;
+        }
+        for(int i = end - 1; i > 0; i--) {
+            if(filename.charAt(i) == '.' && denyInnerExtensions.matches(filename, i)) {
+                return true;
+            }
+        }
+
+        SubPathRule rule = findRule(subPath);
+        if(rule != null) {
+            if(rule.denyExtensions.matches(filename, end)) {
+                return true;
+            }
+            if(!rule.allowExtensions.isEmpty() && !rule.allowExtensions.matches(filename, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 이미지 확장자인지 검사한다.
+     * @param filename 파일명
+     * @return true 이미지 확장자
+     */
+    public boolean isImage(String filename) {
+        return filename != null && imageExtensions.matches(filename, trimEnd(filename));
+    }
+
+    /**
+     * 업로드할 수 있는 마임타입인지 검사한다.
+     * @param mimeType 마임타입 (알 수 없으면 null)
+     * @param subPath 서브디렉토리 경로
+     * @return true 업로드 가능
+     */
+    public boolean isMimeTypeAllowed(String mimeType, String subPath) {
+        if(denyMimeTypes.matches(mimeType)) {
+            return false;
+        }
+        SubPathRule rule = findRule(subPath);
+        if(rule != null) {
+            if(rule.denyMimeTypes.matches(mimeType)) {
+                return false;
+            }
+            if(!rule.allowMimeTypes.isEmpty() && !rule.allowMimeTypes.matches(mimeType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 마임타입, subPath 정책의 최대 파일 크기를 반환한다. (둘 다 있으면 작은 값)
+     * @param mimeType 마임타입 (알 수 없으면 null)
+     * @param subPath 서브디렉토리 경로
+     * @return 최대 파일 크기, 제한이 없으면 -1
+     */
+    public long getMaxFileSize(String mimeType, String subPath) {
+        long maxFileSize = -1;
+        for(TypeRule rule : types) {
+            if(rule.mimeType.matches(mimeType)) {
+                maxFileSize = rule.maxFileSize;
+                break;
+            }
+        }
+        SubPathRule rule = findRule(subPath);
+        if(rule != null && rule.maxFileSize >= 0 && (maxFileSize < 0 || rule.maxFileSize < maxFileSize)) {
+            maxFileSize = rule.maxFileSize;
+        }
+        return maxFileSize;
+    }
+
+    /**
+     * 가장 길게 일치하는 subPath 정책을 찾는다.
+     * @param subPath 서브디렉토리 경로
+     * @return subPath 정책, 없으면 null
+     */
+    private SubPathRule findRule(String subPath) {
+        if(subPath == null) {
+            return null;
+        }
+        for(SubPathRule rule : subPaths) {
+            if(rule.matches(subPath)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 파일명 끝의 공백과 점을 제외한 길이 (Windows는 "a.jsp." "a.jsp "를 a.jsp로 저장함)
+     */
+    private static int trimEnd(String filename) {
+        int end = filename.length();
+        while(end > 0 && (filename.charAt(end - 1) == '.' || filename.charAt(end - 1) == ' ')) {
+            --end;
+        }
+        return end;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '/' || c == '\\';
+    }
+
+    private static <T> Collection<T> nonNull(Collection<T> collection) {
+        return collection != null ? collection : new ArrayList<>();
+    }
+
+    /**
+     * 확장자를 거꾸로 넣은 트라이
+     * 노드마다 자식 문자를 정렬된 배열로 가지고 이진 탐색하며, 만든 뒤에는 변경하지 않는다.
+     */
+    private static final class SuffixTrie {
+
+        private final char[][] labels;
+        private final int[][] children;
+        private final boolean[] terminal;
+
+        SuffixTrie(Collection<String> extensions) {
+            //만드는 동안에만 사용하는 노드
+            List<TreeMap<Character, Integer>> nodes = new ArrayList<>();
+            List<Boolean> terminals = new ArrayList<>();
+            nodes.add(new TreeMap<>());
+            terminals.add(false);
+            for(String extension : nonNull(extensions)) {
+                String key = normalize(extension);
+                if(key.isEmpty()) {
+                    continue;
+                }
+                int node = 0;
+                for(int i = key.length() - 1; i >= 0; i--) {
+                    Integer next = nodes.get(node).get(key.charAt(i));
+                    if(next == null) {
+                        next = nodes.size();
+                        nodes.add(new TreeMap<>());
+                        terminals.add(false);
+                        nodes.get(node).put(key.charAt(i), next);
+                    }
+                    node = next;
+                }
+                terminals.set(node, true);
+            }
+
+            this.labels = new char[nodes.size()][];
+            this.children = new int[nodes.size()][];
+            this.terminal = new boolean[nodes.size()];
+            for(int node = 0; node < nodes.size(); node++) {
+                TreeMap<Character, Integer> edges = nodes.get(node);
+                labels[node] = new char[edges.size()];
+                children[node] = new int[edges.size()];
+                int i = 0;
+                for(Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                    labels[node][i] = edge.getKey();
+                    children[node][i] = edge.getValue();
+                    ++i;
+                }
+                terminal[node] = terminals.get(node);
+            }
+        }
+
+        boolean isEmpty() {
+            return labels[0].length == 0;
+        }
+
+        /**
+         * 파일명의 end 위치 앞부분이 ".확장자"로 끝나는지 검사한다. (대소문자 무시)
+         * @param filename 파일명
+         * @param end 검사할 끝 위치 (제외)
+         * @return true 일치
+         */
+        boolean matches(String filename, int end) {
+            int node = 0;
+            for(int i = end - 1; i > 0; i--) {
+                node = child(node, Character.toLowerCase(filename.charAt(i)));
+                if(node < 0) {
+                    return false;
+                }
+                if(terminal[node] && filename.charAt(i - 1) == '.') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int child(int node, char c) {
+            int index = Arrays.binarySearch(labels[node], c);
+            return index >= 0 ? children[node][index] : -1;
+        }
+
+        private static String normalize(String extension) {
+            String key = extension == null ? "" : extension.trim().toLowerCase(Locale.ROOT);
+            return key.startsWith(".") ? key.substring(1) : key;
+        }
+    }
+
+    /**
+     * 마임타입 목록 (image/png 또는 image/* 형식)
+     */
+    private static final class MimeTypeMatcher {
+
+        private final String[] types;
+
+        MimeTypeMatcher(Collection<String> mimeTypes) {
+            List<String> types = new ArrayList<>();
+            for(String mimeType : nonNull(mimeTypes)) {
+                if(mimeType != null && !mimeType.trim().isEmpty()) {
+                    String type = mimeType.trim().toLowerCase(Locale.ROOT);
+                    types.add("*/*".equals(type) || "*".equals(type) ? "" : type.endsWith("/*") ? type.substring(0, type.length() - 1) : type);
+                }
+            }
+            this.types = types.toArray(new String[0]);
+        }
+
+        boolean isEmpty() {
+            return types.length == 0;
+        }
+
+        /**
+         * 마임타입이 목록과 일치하는지 검사한다. ("image/"로 끝나는 항목은 앞부분 일치)
+         * @param mimeType 마임타입 (알 수 없으면 null, 어떤 항목과도 일치하지 않음)
+         * @return true 일치
+         */
+        boolean matches(String mimeType) {
+            if(mimeType == null) {
+                return false;
+            }
+            for(String type : types) {
+                boolean prefix = type.isEmpty() || type.charAt(type.length() - 1) == '/';
+                if(prefix ? mimeType.regionMatches(true, 0, type, 0, type.length())
+                        : mimeType.length() == type.length() && mimeType.regionMatches(true, 0, type, 0, type.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 마임타입별 정책
+     */
+    private static final class TypeRule {
+
+        private final MimeTypeMatcher mimeType;
+        private final long maxFileSize;
+
+        TypeRule(UploadPolicy.TypeRule rule) {
+            this.mimeType = new MimeTypeMatcher(Arrays.asList(rule.getMimeType()));
+            this.maxFileSize = rule.getMaxFileSize() != null ? rule.getMaxFileSize().toBytes() : -1;
+        }
+    }
+
+    /**
+     * subPath별 정책
+     */
+    private static final class SubPathRule {
+
+        /**
+         * 앞뒤 경로 구분 문자를 제거하고 '/'로 통일한 경로
+         */
+        private final String subPath;
+        private final SuffixTrie allowExtensions;
+        private final SuffixTrie denyExtensions;
+        private final MimeTypeMatcher allowMimeTypes;
+        private final MimeTypeMatcher denyMimeTypes;
+        private final long maxFileSize;
+
+        SubPathRule(UploadPolicy.SubPathRule rule) {
+            this.subPath = UploadHelper.toSubPath(rule.getSubPath()).replace('\\', '/');
+            this.allowExtensions = new SuffixTrie(rule.getAllowExtensions());
+            this.denyExtensions = new SuffixTrie(rule.getDenyExtensions());
+            this.allowMimeTypes = new MimeTypeMatcher(rule.getAllowMimeTypes());
+            this.denyMimeTypes = new MimeTypeMatcher(rule.getDenyMimeTypes());
+            this.maxFileSize = rule.getMaxFileSize() != null ? rule.getMaxFileSize().toBytes() : -1;
+        }
+
+        /**
+         * 서브디렉토리 경로가 이 정책의 경로이거나 하위 경로인지 검사한다. (경로 구분 문자 '/', '\' 구분 없음)
+         * @param path 서브디렉토리 경로
+         * @return true 일치
+         */
+        boolean matches(String path) {
+            int start = 0;
+            while(start < path.length() && isSeparator(path.charAt(start))) {
+                ++start;
+            }
+            int length = subPath.length();
+            if(path.length() - start < length) {
+                return false;
+            }
+            for(int i = 0; i < length; i++) {
+                char c = path.charAt(start + i);
+                char expected = subPath.charAt(i);
+                if(c != expected && !(isSeparator(c) && expected == '/')) {
+                    return false;
+                }
+            }
+            return length == 0 || path.length() == start + length || isSeparator(path.charAt(start + length));
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.storage.TieredStorageEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 업로드/다운로드 지표를 기록한다.
+ * Metrics.globalRegistry에 기록하므로 Actuator가 설정한 레지스트리(Prometheus 등)로 노출된다.
+ * API별 요청 처리 시간은 Actuator의 http.server.requests 지표로 기록된다.
+ */
+public class MetricsHelper {
+
+    /**
+     * 처리 단계별 시간 (validate, save, decode, encode, thumbnail)
+     */
+    private static final String PHASE_TIMER = "file.phase";
+
+    /**
+     * 전송 바이트 (in, out)
+     */
+    private static final String BYTES_COUNTER = "file.transfer.bytes";
+
+    /**
+     * 요청당 파일 개수
+     */
+    private static final String FILES_SUMMARY = "file.upload.files";
+
+    /**
+     * 파일 크기
+     */
+    private static final String SIZE_SUMMARY = "file.upload.size";
+
+    /**
+     * 업로드 거부 (사유별)
+     */
+    private static final String REJECTED_COUNTER = "file.upload.rejected";
+
+    /**
+     * 무결성 검사 결과 (ok, corrupt, missing)
+     */
+    private static final String SCRUB_COUNTER = "file.scrub.files";
+
+    /**
+     * 요청 제한으로 거부한 요청 (사유별)
+     */
+    private static final String THROTTLED_COUNTER = "file.transfer.throttled";
+
+    /**
+     * 대기열이 가득 차서 생성하지 않은 썸네일
+     */
+    private static final String THUMBNAIL_SKIPPED_COUNTER = "file.thumbnail.skipped";
+
+    /**
+     * hot 파일 캐시 읽기 (hit, miss)
+     */
+    private static final String CACHE_COUNTER = "file.cache.requests";
+
+    /**
+     * hot 파일 캐시에서 제거된 파일
+     */
+    private static final String CACHE_EVICTION_COUNTER = "file.cache.evictions";
+
+    /**
+     * hot 파일 캐시 크기
+     */
+    private static final String CACHE_SIZE_GAUGE = "file.cache.size";
+
+    /**
+     * 진행중인 전송 개수
+     */
+    private static final String ACTIVE_GAUGE = "file.transfer.active";
+
+    private static final AtomicInteger ACTIVE_UPLOADS = Metrics.gauge(ACTIVE_GAUGE, Tags.of("direction", "in"), new AtomicInteger());
+    private static final AtomicInteger ACTIVE_DOWNLOADS = Metrics.gauge(ACTIVE_GAUGE, Tags.of("direction", "out"), new AtomicInteger());
+
+    /**
+     * 업로드 거부 사유
+     */
+    public static final String REJECT_EXTENSION = "extension";
+    public static final String REJECT_IMAGE = "image";
+    public static final String REJECT_SIZE = "size";
+    public static final String REJECT_BUSY = "busy";
+    public static final String REJECT_CONTENT = "content";
+    public static final String REJECT_DIGEST = "digest";
+
+    /**
+     * 전송 시작을 기록한다.
+     * @param upload true 업로드, false 다운로드
+     */
+    public static void transferStarted(boolean upload) {
+        (upload ? ACTIVE_UPLOADS : ACTIVE_DOWNLOADS).incrementAndGet();
+    }
+
+    /**
+     * 전송 종료를 기록한다.
+     * @param upload true 업로드, false 다운로드
+     */
+    public static void transferFinished(boolean upload) {
+        (upload ? ACTIVE_UPLOADS : ACTIVE_DOWNLOADS).decrementAndGet();
+    }
+
+    /**
+     * 업로드된 파일을 기록한다.
+     * @param api API 이름
+     * @param files 파일 개수
+     * @param bytes 전체 파일 크기
+     */
+    public static void uploaded(String api, int files, long bytes) {
+        DistributionSummary.builder(FILES_SUMMARY)
+                .tag("api", api)
+                .register(Metrics.globalRegistry)
+                .record(files);
+        bytesIn(bytes);
+    }
+
+    /**
+     * 저장된 파일 하나의 크기를 기록한다.
+     * @param bytes 파일 크기
+     */
+    public static void fileSize(long bytes) {
+        DistributionSummary.builder(SIZE_SUMMARY)
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry)
+                .record(bytes);
+    }
+
+    /**
+     * 수신한 바이트를 기록한다.
+     * @param bytes 바이트
+     */
+    public static void bytesIn(long bytes) {
+        Counter.builder(BYTES_COUNTER).tag("direction", "in").baseUnit("bytes").register(Metrics.globalRegistry).increment(bytes);
+    }
+
+    /**
+     * 전송한 바이트를 기록한다.
+     * @param bytes 바이트
+     */
+    public static void bytesOut(long bytes) {
+        Counter.builder(BYTES_COUNTER).tag("direction", "out").baseUnit("bytes").register(Metrics.globalRegistry).increment(bytes);
+    }
+
+    /**
+     * 업로드 거부를 기록한다.
+     * @param reason 거부 사유
+     */
+    public static void rejected(String reason) {
+        Counter.builder(REJECTED_COUNTER).tag("reason", reason).register(Metrics.globalRegistry).increment();
+    }
+
+    /**
+     * 요청 제한(429) 응답을 기록한다.
+     * @param reason 제한 사유 (rate, concurrent)
+     */
+    public static void throttled(String reason) {
+        Counter.builder(THROTTLED_COUNTER).tag("reason", reason).register(Metrics.globalRegistry).increment();
+    }
+
+    /**
+     * 저장된 파일의 무결성 검사 결과를 기록한다.
+     * @param result 검사 결과 (ok, corrupt, missing)
+     */
+    public static void scrubbed(String result) {
+        Counter.builder(SCRUB_COUNTER).tag("result", result).register(Metrics.globalRegistry).increment();
+    }
+
+    /**
+     * 대기열이 가득 차서 썸네일 생성을 미룬 것을 기록한다.
+     */
+    public static void thumbnailSkipped() {
+        Counter.builder(THUMBNAIL_SKIPPED_COUNTER).register(Metrics.globalRegistry).increment();
+    }
+
+    /**
+     * 처리 단계 시간을 기록한다.
+     * @param phase 처리 단계 (validate, save, decode, encode, thumbnail)
+     * @param startTime 시작 시간 (System.nanoTime)
+     */
+    public static void phase(String phase, long startTime) {
+        Timer.builder(PHASE_TIMER)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * hot 파일 캐시(tiered 저장소) 지표를 등록한다.
+     * @param storageEngine tiered 저장소
+     */
+    public static void hotCache(TieredStorageEngine storageEngine) {
+        FunctionCounter.builder(CACHE_COUNTER, storageEngine, TieredStorageEngine::getHitCount)
+                .tag("result", "hit")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder(CACHE_COUNTER, storageEngine, TieredStorageEngine::getMissCount)
+                .tag("result", "miss")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder(CACHE_EVICTION_COUNTER, storageEngine, TieredStorageEngine::getEvictionCount)
+                .register(Metrics.globalRegistry);
+        Gauge.builder(CACHE_SIZE_GAUGE, storageEngine, TieredStorageEngine::getHotBytes)
+                .baseUnit("bytes")
+                .register(Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.fileuploaddemo.helper;
+
+import com.example.fileuploaddemo.exception.BizException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * multipart/form-data 본문을 받은 순서대로 해석하는 푸시 방식 파서.
+ * 본문 전체나 파트 전체를 메모리/임시파일에 보관하지 않고, 파트 헤더와 데이터를 받는 즉시 PartHandler로 전달한다.
+ */
+public class MultipartStreamParser {
+
+    /**
+     * 파트 헤더 최대 크기
+     */
+    private static final int MAX_HEADER_SIZE = 8 * 1024;
+
+    /**
+     * 경계 문자열 다음 줄의 최대 길이 (transport padding 허용)
+     */
+    private static final int MAX_BOUNDARY_LINE = 256;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    /**
+     * 파트 처리기
+     */
+    public interface PartHandler {
+
+        /**
+         * 파트 시작 (헤더 이름은 소문자)
+         * @param headers 파트 헤더
+         */
+        void onPartBegin(Map<String, String> headers) throws IOException, BizException;
+
+        /**
+         * 파트 데이터
+         * @param buffer 버퍼
+         * @param offset 시작 위치
+         * @param length 길이
+         */
+        void onPartData(byte[] buffer, int offset, int length) throws IOException, BizException;
+
+        /**
+         * 파트 종료
+         */
+        void onPartEnd() throws IOException, BizException;
+    }
+
+    private enum State {
+        PREAMBLE, BOUNDARY_LINE, HEADERS, BODY, EPILOGUE
+    }
+
+    /**
+     * 파트 구분자 ("\r\n--" + boundary)
+     */
+    private final byte[] delimiter;
+
+    /**
+     * 파트 처리기
+     */
+    private final PartHandler handler;
+
+    /**
+     * 아직 처리하지 않은 데이터 버퍼
+     */
+    private final byte[] buffer;
+
+    /**
+     * 버퍼에 남아있는 데이터 길이
+     */
+    private int length;
+
+    /**
+     * 파서 상태
+     */
+    private State state = State.PREAMBLE;
+
+    /**
+     * 생성자
+     * @param boundary multipart 경계 문자열
+     * @param handler 파트 처리기
+     * @param bufferSize 데이터 버퍼 크기
+     */
+    public MultipartStreamParser(String boundary, PartHandler handler, int bufferSize) {
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.handler = handler;
+        this.buffer = new byte[bufferSize + MAX_HEADER_SIZE + delimiter.length];
+
+        //첫 경계 문자열 앞에는 CRLF가 없으므로 미리 넣어서 다른 구분자와 같이 처리한다.
+        this.buffer[0] = '\r';
+        this.buffer[1] = '\n';
+        this.length = 2;
+    }
+
+    /**
+     * 마지막 경계 문자열까지 모두 해석했는지 여부를 반환한다.
+     * @return true 해석 완료
+     */
+    public boolean isComplete() {
+        return state == State.EPILOGUE;
+    }
+
+    /**
+     * 수신한 데이터를 해석한다.
+     * @param data 데이터
+     * @param offset 시작 위치
+     * @param count 길이
+     * @throws IOException
+     * @throws BizException
+     */
+    public void write(byte[] data, int offset, int count) throws IOException, BizException {
+        while(count > 0) {
+            int n = Math.min(count, buffer.length - length);
+            System.arraycopy(data, offset, buffer, length, n);
+            length += n;
+            offset += n;
+            count -= n;
+            process();
+        }
+    }
+
+    /**
+     * 버퍼의 데이터를 상태에 따라 처리하고, 처리하지 못한 데이터는 버퍼 앞으로 옮긴다.
+     * @throws IOException
+     * @throws BizException
+     */
+    private void process() throws IOException, BizException {
+        int pos = 0;
+        boolean more = true;
+        while(more) {
+            switch(state) {
+                case PREAMBLE: {
+                    int index = indexOf(pos, delimiter);
+                    if(index < 0) {
+                        pos = Math.max(pos, length - delimiter.length + 1);
+                        more = false;
+                    } else {
+                        pos = index + delimiter.length;
+                        state = State.BOUNDARY_LINE;
+                    }
+                    break;
+                }
+                case BOUNDARY_LINE: {
+                    if(length - pos < 2) {
+                        more = false;
+                    } else if(buffer[pos] == '-' && buffer[pos + 1] == '-') {
+                        pos = length;
+                        state = State.EPILOGUE;
+                    } else {
+                        int index = indexOf(pos, CRLF);
+                        if(index < 0) {
+                            if(length - pos > MAX_BOUNDARY_LINE) {
+                                throw new IOException("잘못된 multipart 경계 문자열입니다.");
+                            }
+                            more = false;
+                        } else {
+                            pos = index + CRLF.length;
+                            state = State.HEADERS;
+                        }
+                    }
+                    break;
+                }
+                case HEADERS: {
+                    //헤더가 없는 파트
+                    if(length - pos >= 2 && buffer[pos] == '\r' && buffer[pos + 1] == '\n') {
+                        handler.onPartBegin(new LinkedHashMap<>());
+                        pos += CRLF.length;
+                        state = State.BODY;
+                        break;
+                    }
+                    int index = indexOf(pos, HEADER_END);
+                    if(index < 0) {
+                        if(length - pos >= MAX_HEADER_SIZE) {
+                            throw new IOException("multipart 헤더가 너무 큽니다.");
+                        }
+                        more = false;
+                    } else {
+                        handler.onPartBegin(parseHeaders(pos, index));
+                        pos = index + HEADER_END.length;
+                        state = State.BODY;
+                    }
+                    break;
+                }
+                case BODY: {
+                    int index = indexOf(pos, delimiter);
+                    if(index < 0) {
+                        //구분자의 일부일 수 있는 마지막 데이터는 남겨둔다.
+                        int safe = length - delimiter.length + 1;
+                        if(safe > pos) {
+                            handler.onPartData(buffer, pos, safe - pos);
+                            pos = safe;
+                        }
+                        more = false;
+                    } else {
+                        if(index > pos) {
+                            handler.onPartData(buffer, pos, index - pos);
+                        }
+                        handler.onPartEnd();
+                        pos = index + delimiter.length;
+                        state = State.BOUNDARY_LINE;
+                    }
+                    break;
+                }
+                default: {
+                    pos = length;
+                    more = false;
+                }
+            }
+        }
+
+        if(pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, length - pos);
+            length -= pos;
+        }
+    }
+
+    /**
+     * 버퍼에서 패턴의 위치를 반환한다.
+     * @param from 검색 시작 위치
+     * @param pattern 패턴
+     * @return 패턴 위치, 없으면 -1
+     */
+    private int indexOf(int from, byte[] pattern) {
+        int last = length - pattern.length;
+        byte first = pattern[0];
+        for(int i = from; i <= last; i++) {
+            if(buffer[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while(j < pattern.length && buffer[i + j] == pattern[j]) {
+                j++;
+            }
+            if(j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 파트 헤더를 해석한다.
+     * @param from 헤더 시작 위치
+     * @param to 헤더 끝 위치
+     * @return 파트 헤더 (이름은 소문자)
+     */
+    private Map<String, String> parseHeaders(int from, int to) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String block = new String(buffer, from, to - from, StandardCharsets.UTF_8);
+        for(String line : block.split("\r\n")) {
+            int index = line.indexOf(':');
+            if(index > 0) {
+                headers.put(line.substring(0, index).trim().toLowerCase(Locale.ROOT), line.substring(index + 1).trim());
+            }
+        }
+        return headers;
+    }
+}
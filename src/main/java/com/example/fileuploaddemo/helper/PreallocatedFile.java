@@ -0,0 +1,281 @@
+package com.example.fileuploaddemo.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 전체 크기로 미리 할당한 파일 (대용량 파일 기록)
+ * 영역(Region)마다 오프셋 위치를 지정해서 기록하므로 영역이 겹치지 않으면 여러 스레드에서 동시에 기록할 수 있다.
+ * 메모리 매핑을 사용하면 영역을 WINDOW_SIZE 단위로 매핑해서 버퍼에서 페이지 캐시로 바로 복사하고 기록한 영역만 디스크에 반영하며,
+ * 사용하지 않으면 direct 버퍼에 모아서 위치를 지정해 FileChannel로 기록한다.
+ * 매핑은 GC될 때 해제되므로, 매핑된 파일을 옮기거나 삭제할 수 없는 Windows에서는 메모리 매핑을 사용하면 안된다.
+ */
+public class PreallocatedFile implements Closeable {
+
+    /**
+     * 메모리 매핑 단위
+     */
+    private static final int WINDOW_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * direct 버퍼 크기
+     */
+    private static final int DIRECT_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * 스레드별로 사용하지 않는 direct 버퍼 (영역이 기록을 시작할 때 가져가서 닫을 때 돌려주므로, 한 버퍼는 한 영역만 사용)
+     */
+    private static final ThreadLocal<ByteBuffer> IDLE_BUFFER = new ThreadLocal<>();
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final boolean mapped;
+
+    private PreallocatedFile(RandomAccessFile file, boolean mapped) throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.size = file.length();
+        this.mapped = mapped;
+    }
+
+    /**
+     * 파일을 만들고 전체 크기로 미리 할당한다.
+     * 파일 길이만 늘리므로(sparse) 디스크 공간을 미리 확인해서, 기록 도중(메모리 매핑시 SIGBUS) 공간이 부족해지지 않도록 한다.
+     * @param path 파일 경로
+     * @param size 전체 크기
+     * @param mapped 메모리 매핑 사용 여부
+     * @return 미리 할당한 파일
+     * @throws IOException 디스크 공간이 부족한 경우
+     */
+    public static PreallocatedFile create(Path path, long size, boolean mapped) throws IOException {
+        long usableSpace = Files.getFileStore(path.toAbsolutePath().getParent()).getUsableSpace();
+        if(usableSpace < size) {
+            throw new IOException("디스크 공간이 부족합니다. size:[" + size + "] usable:[" + usableSpace + "]");
+        }
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+        try {
+            file.setLength(size);
+            return new PreallocatedFile(file, mapped);
+
+        } catch(IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 미리 할당한 파일을 연다. (서버 재시작 후 이어서 기록)
+     * @param path 파일 경로
+     * @param mapped 메모리 매핑 사용 여부
+     * @return 미리 할당한 파일
+     * @throws NoSuchFileException 파일이 없는 경우
+     * @throws IOException
+     */
+    public static PreallocatedFile open(Path path, boolean mapped) throws IOException {
+        if(!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return new PreallocatedFile(new RandomAccessFile(path.toFile(), "rw"), mapped);
+    }
+
+    /**
+     * 전체 크기를 반환한다.
+     * @return 전체 크기
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 기록할 영역을 반환한다.
+     * @param position 시작 위치
+     * @param length 영역 크기
+     * @return 영역 기록 스트림
+     */
+    public Region region(long position, long length) {
+        if(position < 0 || length < 0 || position + length > size) {
+            throw new IllegalArgumentException("잘못된 영역입니다. position:[" + position + "] length:[" + length + "] size:[" + size + "]");
+        }
+        return new Region(position, position + length);
+    }
+
+    /**
+     * 기록한 내용을 디스크에 반영한다.
+     * @throws IOException
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * 파일의 한 영역을 앞에서부터 차례로 기록하는 스트림
+     * 영역을 벗어나서 기록할 수 없고, 한 영역은 한 스레드에서만 기록한다.
+     */
+    public class Region extends OutputStream {
+
+        /**
+         * 다음에 기록할 위치
+         */
+        private long position;
+
+        /**
+         * 영역 끝 위치
+         */
+        private final long end;
+
+        /**
+         * 디스크에 반영하지 않은 매핑 (메모리 매핑 사용시)
+         */
+        private final List<MappedByteBuffer> windows = new ArrayList<>();
+
+        /**
+         * 현재 매핑 (메모리 매핑 사용시)
+         */
+        private MappedByteBuffer window;
+
+        /**
+         * 채널에 기록하지 않은 내용 (메모리 매핑을 사용하지 않을 때)
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * buffer의 내용을 기록할 위치
+         */
+        private long bufferPosition;
+
+        private Region(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        /**
+         * 기록한 위치를 반환한다.
+         * @return 다음에 기록할 위치
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if(len > end - position) {
+                throw new IOException("영역을 벗어나서 기록할 수 없습니다. position:[" + position + "] length:[" + len + "] end:[" + end + "]");
+            }
+            while(len > 0) {
+                int count;
+                if(mapped) {
+                    if(window == null || !window.hasRemaining()) {
+                        window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(WINDOW_SIZE, end - position));
+                        windows.add(window);
+                    }
+                    count = Math.min(len, window.remaining());
+                    window.put(b, off, count);
+                } else {
+                    if(buffer == null) {
+                        buffer = borrowBuffer();
+                        bufferPosition = position;
+                    }
+                    count = Math.min(len, buffer.remaining());
+                    buffer.put(b, off, count);
+                    if(!buffer.hasRemaining()) {
+                        flush();
+                    }
+                }
+                position += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        /**
+         * 모아둔 내용을 채널에 기록한다. (메모리 매핑은 이미 페이지 캐시에 반영되어 있음)
+         * @throws IOException
+         */
+        @Override
+        public void flush() throws IOException {
+            if(buffer != null && buffer.position() > 0) {
+                buffer.flip();
+                while(buffer.hasRemaining()) {
+                    bufferPosition += channel.write(buffer, bufferPosition);
+                }
+                buffer.clear();
+            }
+        }
+
+        /**
+         * 지금까지 기록한 내용을 디스크에 반영한다.
+         * 메모리 매핑을 사용하면 이 영역에서 매핑한 부분만 반영한다.
+         * @throws IOException
+         */
+        public void force() throws IOException {
+            if(mapped) {
+                for(MappedByteBuffer mappedWindow : windows) {
+                    mappedWindow.force();
+                }
+                windows.clear();
+                if(window != null && window.hasRemaining()) {
+                    windows.add(window);
+                }
+            } else {
+                flush();
+                channel.force(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            if(buffer != null) {
+                returnBuffer(buffer);
+                buffer = null;
+            }
+            window = null;
+            windows.clear();
+        }
+    }
+
+    /**
+     * 스레드의 사용하지 않는 direct 버퍼를 가져온다. 같은 스레드의 다른 영역이 사용중이면 새로 할당한다.
+     * @return 비어있는 direct 버퍼
+     */
+    private static ByteBuffer borrowBuffer() {
+        ByteBuffer buffer = IDLE_BUFFER.get();
+        if(buffer == null) {
+            return ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+        IDLE_BUFFER.remove();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 다 쓴 direct 버퍼를 스레드에 돌려준다. 이미 돌려받은 버퍼가 있으면 버린다.
+     * @param buffer direct 버퍼
+     */
+    private static void returnBuffer(ByteBuffer buffer) {
+        if(IDLE_BUFFER.get() == null) {
+            IDLE_BUFFER.set(buffer);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.fileuploaddemo.helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 잠금 없는 토큰 버킷 (GCRA, Generic Cell Rate Algorithm)
+ * 버킷 상태를 "토큰을 모두 갚는 시각(theoretical arrival time)" 하나로 표현해서 AtomicLong의 CAS로만 갱신한다.
+ * 초당 rate개의 토큰이 채워지고 최대 burst개까지 한 번에 쓸 수 있다.
+ */
+public class TokenBucket {
+
+    /**
+     * 토큰 하나가 채워지는 시간 (나노초)
+     */
+    private final double interval;
+
+    /**
+     * 한 번에 쓸 수 있는 토큰 시간 (burst * interval, 나노초)
+     */
+    private final long tolerance;
+
+    /**
+     * 지금까지 가져간 토큰을 모두 채우는 시각 (System.nanoTime 기준, 현재보다 이전이면 버킷이 가득 참)
+     */
+    private final AtomicLong tat;
+
+    /**
+     * 생성자
+     * @param rate 초당 토큰 개수
+     * @param burst 한 번에 쓸 수 있는 최대 토큰 개수
+     */
+    public TokenBucket(double rate, long burst) {
+        if(rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("잘못된 토큰 버킷 설정입니다. rate:[" + rate + "] burst:[" + burst + "]");
+        }
+        this.interval = 1_000_000_000d / rate;
+        this.tolerance = (long) (burst * interval);
+        this.tat = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 토큰이 충분하면 가져온다.
+     * @param tokens 토큰 개수
+     * @return 0 가져옴, 0보다 크면 가져오지 않았고 그만큼 기다린 뒤 다시 시도해야 함 (나노초)
+     */
+    public long tryAcquire(long tokens) {
+        long cost = (long) (tokens * interval);
+        while(true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = Math.max(current, now) + cost;
+            long wait = next - tolerance - now;
+            if(wait > 0) {
+                return wait;
+            }
+            if(tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 토큰을 가져온다. 부족한 토큰은 미리 당겨 쓰고 채워질 때까지 기다려야 하는 시간을 반환한다. (전송량 제한)
+     * @param tokens 토큰 개수
+     * @return 기다려야 하는 시간 (나노초, 0이면 기다리지 않음)
+     */
+    public long acquire(long tokens) {
+        long cost = (long) (tokens * interval);
+        while(true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = Math.max(current, now) + cost;
+            if(tat.compareAndSet(current, next)) {
+                return Math.max(0, next - tolerance - now);
+            }
+        }
+    }
+
+    /**
+     * 버킷이 가득 찼는지 여부 (한동안 사용하지 않음)
+     * @return true 가득 참
+     */
+    public boolean isFull() {
+        return tat.get() - System.nanoTime() <= 0;
+    }
+}
@@ -1,64 +1,89 @@
 package com.example.fileuploaddemo.helper;
 
 import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 public class UploadHelper {
 
     /**
-     * 이미지 확장자 배열
+     * 압축 저장시 버퍼 크기
      */
-    private static String[] IMAGE_EXTENSIONS = new String[]{"gif", "png", "jpg", "jpeg"};
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
 
     /**
-     *  이미지 파일의 확장자를 가진 경우 true를 반환한다.
-     * @param uploadFile 업로드된 파일 정보
-     * @return true 이미지파일 확장자, false 이미지파일 확장자가 아님
+     * 대용량 BASE64 파일을 기록하는 임시 디렉토리명 (basePath 하위)
      */
-    public static boolean isImageExtension(UploadFile uploadFile) {
-        if(Arrays.asList(IMAGE_EXTENSIONS).contains(uploadFile.getExtension())) {
-            return true;
+    private static final String LARGE_FILE_DIRECTORY = ".large";
+
+    /**
+     * BASE64 디코딩 버퍼 크기 (3의 배수)
+     */
+    private static final int DECODE_BUFFER_SIZE = 3 * 64 * 1024;
+
+    /**
+     * BASE64 문자 -> 6비트 값 (BASE64 문자가 아니면 -1, commons-codec과 같이 URL-safe 문자도 허용)
+     */
+    private static final byte[] BASE64_DECODE_TABLE = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_DECODE_TABLE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for(int i = 0; i < alphabet.length(); i++) {
+            BASE64_DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
         }
-        return false;
+        BASE64_DECODE_TABLE['-'] = 62;
+        BASE64_DECODE_TABLE['_'] = 63;
     }
 
     /**
-     * 업로드해서 안되는 확장자
+     *  이미지 파일의 확장자를 가진 경우 true를 반환한다. (업로드 정책의 imageExtensions)
+     * @param uploadFile 업로드된 파일 정보
+     * @return true 이미지파일 확장자, false 이미지파일 확장자가 아님
      */
-    private static String[] DENY_EXTENSIONS = new String[] {
-            "asp", "jsp", "php", "js",
-            "xml", "json", "yml", "yaml", "properties",
-            "exe", "bat", "com",
-            "ini", "conf",
-            "pl", "rb", "ry",
-            "py", "pyc", "pyd", "pyo",
-            "gradle",
-            "sh", "zsh", "csh",
-            "deb", "rpm",
-            "jar", "war"
-    };
+    public static boolean isImageExtension(UploadFile uploadFile) {
+        return ExtensionPolicy.current().isImage(toPolicyFilename(uploadFile));
+    }
 
     /**
      * 업로드해서는 안되는 확장자인 경우에 true를 반환한다.
+     * 업로드 정책의 금지 확장자(여러 단계 확장자, 파일명 중간의 확장자 포함)와 subPath별 허용/금지 확장자로 검사한다.
      * @param uploadFile 업로드된 파일 정보
-     * @return ture 업로드 가능한 확장자, false 업로드 불가능한 확장자
+     * @return true 업로드 불가능한 확장자, false 업로드 가능한 확장자
      */
     public static boolean isDenyExtension(UploadFile uploadFile) {
-        if(Arrays.asList(DENY_EXTENSIONS).contains(uploadFile.getExtension())) {
-            return true;
+        return ExtensionPolicy.current().isDenied(toPolicyFilename(uploadFile), uploadFile.getSubPath());
+    }
+
+    /**
+     * 업로드 정책으로 검사할 파일명 (파일명이 없으면 확장자)
+     */
+    private static String toPolicyFilename(UploadFile uploadFile) {
+        if(uploadFile.getFilename() != null) {
+            return uploadFile.getFilename();
         }
-        return false;
+        return uploadFile.getExtension() != null ? "." + uploadFile.getExtension() : null;
     }
 
     /**
@@ -118,71 +143,253 @@ public class UploadHelper {
     }
 
     /**
-     * BASE64로 인코딩된 문자열을 파일로 반환한다.
-     * @param uploadFile 업로드된 파일 정보
-     * @return 파일
+     * 파일 정보의 저장소 키(subPath/serverFilename)를 반환한다.
+     * @param uploadFile 업로드한 파일 정보
+     * @return 저장소 키
      */
-    private static File decodeBase64(UploadFile uploadFile) throws IOException {
-        if(uploadFile != null) {
-            File file = new File(uploadFile.getServerPath(), uploadFile.getServerFilename());
-            byte[] bytes = Base64.decodeBase64(uploadFile.getBase64String());
-            FileUtils.writeByteArrayToFile(file, bytes);
-
-            uploadFile.setSize(file.length());
-            return file;
-        }
-        return null;
+    public static String toKey(UploadFile uploadFile) {
+        return toSubPath(uploadFile.getSubPath()).replace('\\', '/') + "/" + uploadFile.getServerFilename();
     }
 
     /**
      * 파일을 저장한다.
+     * 압축 저장을 사용하고 압축 대상 파일이면 gzip으로 압축해서 저장하고 서버 파일명에 .gz를 붙인다.
+     * 기록하면서 앞부분으로 내용 형식을 판별하고, 형식이 맞지 않으면 저장 위치에 반영하지 않는다.
+     * 기록하면서 압축 전 내용의 체크섬(SHA-256, CRC32C)을 계산해서 파일 정보에 기록한다.
+     * @param storageEngine 파일 저장소
      * @param file 업로드한 파일
      * @param uploadFile 업로드한 파일 정보
+     * @param compress 압축 저장 사용 여부
+     * @param image 이미지 업로드 여부
      * @throws IOException
+     * @throws BizException 내용 형식이 맞지 않는 경우
      */
-    public static void save(MultipartFile file, UploadFile uploadFile) throws IOException {
+    public static void save(StorageEngine storageEngine, MultipartFile file, UploadFile uploadFile, boolean compress, boolean image) throws IOException, BizException {
         if(file != null && uploadFile != null) {
-            createDirectory(uploadFile);
-            File filePath = new File(uploadFile.getServerPath(), uploadFile.getServerFilename());
-            file.transferTo(filePath);
+            long startTime = System.nanoTime();
+            boolean gzip = compress && CompressionHelper.isCompressible(uploadFile, file.getContentType());
+            if(gzip) {
+                uploadFile.setServerFilename(uploadFile.getServerFilename() + CompressionHelper.GZIP_SUFFIX);
+            }
+            uploadFile.setCompressed(gzip);
+            ContentSniffer sniffer = new ContentSniffer();
+            ContentDigest digest = new ContentDigest();
+            try(StorageWriter writer = storageEngine.create();
+                InputStream in = digest.wrap(sniffer.wrap(file.getInputStream()))) {
+                if(gzip) {
+                    GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(writer), GZIP_BUFFER_SIZE);
+                    StreamUtils.copy(in, out);
+                    out.finish();
+                } else {
+                    StreamUtils.copy(in, Channels.newOutputStream(writer));
+                }
+                sniffer.validate(uploadFile, image);
+                writer.commit(toKey(uploadFile));
+            }
+            digest.apply(uploadFile);
+            MetricsHelper.phase("save", startTime);
+            MetricsHelper.fileSize(uploadFile.getSize());
         }
     }
 
     /**
      * BASE64 문자열로 전달받은 파일을 저장한다.
+     * 압축 저장을 사용하고 압축 대상 파일이면 gzip으로 압축해서 저장하고 서버 파일명에 .gz를 붙인다.
+     * 압축하지 않고 디코딩한 크기가 largeFileThreshold 이상이면 전체를 메모리에 디코딩하지 않고,
+     * 디코딩한 크기로 미리 할당한 임시파일에 버퍼 단위로 디코딩해서 기록한 뒤 저장소로 가져온다.
+     * @param storageEngine 파일 저장소
      * @param uploadFile 업로드한 파일 정보
+     * @param compress 압축 저장 사용 여부
+     * @param largeFileThreshold 대용량 파일 기준 크기
+     * @param mapped 대용량 파일 기록시 메모리 매핑 사용 여부
      * @throws IOException
+     * @throws BizException 내용 형식이 맞지 않는 경우
      */
-    public static void save(UploadFile uploadFile) throws IOException {
+    public static void save(StorageEngine storageEngine, UploadFile uploadFile, boolean compress, long largeFileThreshold, boolean mapped) throws IOException, BizException {
         if(uploadFile != null) {
-            createDirectory(uploadFile);
-            decodeBase64(uploadFile);
+            boolean gzip = compress && CompressionHelper.isCompressible(uploadFile, null);
+            if(!gzip) {
+                long size = decodedLength(uploadFile.getBase64String());
+                if(size >= largeFileThreshold) {
+                    saveLargeFile(storageEngine, uploadFile, size, mapped);
+                    return;
+                }
+            }
+
+            long startTime = System.nanoTime();
+            byte[] bytes = Base64.decodeBase64(uploadFile.getBase64String());
+            MetricsHelper.phase("decode", startTime);
+
+            //디코딩한 내용은 메모리에 있으므로 기록하기 전에 형식을 판별
+            uploadFile.setSize((long) bytes.length);
+            ContentSniffer sniffer = new ContentSniffer();
+            sniffer.update(bytes, 0, bytes.length);
+            sniffer.validate(uploadFile, false);
+            ContentDigest digest = new ContentDigest();
+            digest.update(bytes, 0, bytes.length);
+            digest.apply(uploadFile);
+
+            startTime = System.nanoTime();
+            if(gzip) {
+                uploadFile.setServerFilename(uploadFile.getServerFilename() + CompressionHelper.GZIP_SUFFIX);
+            }
+            uploadFile.setCompressed(gzip);
+            try(StorageWriter writer = storageEngine.create()) {
+                if(gzip) {
+                    GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(writer), GZIP_BUFFER_SIZE);
+                    out.write(bytes);
+                    out.finish();
+                } else {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                    while(buffer.hasRemaining()) {
+                        writer.write(buffer);
+                    }
+                }
+                writer.commit(toKey(uploadFile));
+            }
+            MetricsHelper.phase("save", startTime);
+            MetricsHelper.fileSize(bytes.length);
         }
     }
 
     /**
-     * 파일 저장을 위한 디렉토리를 생성한다.
+     * BASE64 문자열을 디코딩한 크기로 미리 할당한 임시파일에 디코딩해서 기록한 뒤 저장소로 가져온다.
+     * 디코딩하면서 앞부분으로 형식을 판별하고 체크섬을 계산하므로 기록한 파일을 다시 읽지 않는다.
+     * @param storageEngine 파일 저장소
      * @param uploadFile 업로드한 파일 정보
+     * @param size 디코딩한 크기
+     * @param mapped 메모리 매핑 사용 여부
+     * @throws IOException
+     * @throws BizException 내용 형식이 맞지 않는 경우
      */
-    private static void createDirectory(UploadFile uploadFile) {
-        File serverPath = new File(uploadFile.getServerPath());
-        if(serverPath != null && !serverPath.exists()) {
-            serverPath.mkdirs();
+    private static void saveLargeFile(StorageEngine storageEngine, UploadFile uploadFile, long size, boolean mapped) throws IOException, BizException {
+        Path directory = Paths.get(toBasePath(uploadFile.getServerBasePath()), LARGE_FILE_DIRECTORY);
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "upload", ".part");
+        try {
+            long startTime = System.nanoTime();
+            ContentSniffer sniffer = new ContentSniffer();
+            ContentDigest digest = new ContentDigest();
+            try(PreallocatedFile file = PreallocatedFile.create(temp, size, mapped);
+                OutputStream out = digest.wrap(sniffer.wrap(file.region(0, size)))) {
+                decodeBase64(uploadFile.getBase64String(), out);
+            }
+            MetricsHelper.phase("decode", startTime);
+
+            uploadFile.setSize(size);
+            sniffer.validate(uploadFile, false);
+            digest.apply(uploadFile);
+
+            startTime = System.nanoTime();
+            storageEngine.importFile(temp, toKey(uploadFile));
+            MetricsHelper.phase("save", startTime);
+            MetricsHelper.fileSize(size);
+
+        } finally {
+            Files.deleteIfExists(temp);
         }
     }
 
     /**
-     * 확장자에 대한 마임타입을 반환한다.
+     * BASE64 문자열을 디코딩한 크기를 반환한다. (commons-codec과 같이 BASE64 문자가 아닌 문자는 무시하고 = 이후는 읽지 않음)
+     * @param base64String BASE64 문자열
+     * @return 디코딩한 크기
+     */
+    private static long decodedLength(String base64String) {
+        long count = 0;
+        for(int i = 0; i < base64String.length(); i++) {
+            char c = base64String.charAt(i);
+            if(c == '=') {
+                break;
+            }
+            if(c < 128 && BASE64_DECODE_TABLE[c] >= 0) {
+                ++count;
+            }
+        }
+        return count / 4 * 3 + Math.max(0, count % 4 - 1);
+    }
+
+    /**
+     * BASE64 문자열을 버퍼 단위로 디코딩해서 기록한다. (decodedLength와 같은 규칙)
+     * @param base64String BASE64 문자열
+     * @param out 기록할 스트림
+     * @throws IOException
+     */
+    private static void decodeBase64(String base64String, OutputStream out) throws IOException {
+        byte[] buffer = new byte[DECODE_BUFFER_SIZE];
+        int length = 0;
+        int bits = 0;
+        int count = 0;
+        for(int i = 0; i < base64String.length(); i++) {
+            char c = base64String.charAt(i);
+            if(c == '=') {
+                break;
+            }
+            if(c >= 128 || BASE64_DECODE_TABLE[c] < 0) {
+                continue;
+            }
+            bits = bits << 6 | BASE64_DECODE_TABLE[c];
+            if(++count == 4) {
+                buffer[length++] = (byte) (bits >> 16);
+                buffer[length++] = (byte) (bits >> 8);
+                buffer[length++] = (byte) bits;
+                bits = 0;
+                count = 0;
+                if(length == buffer.length) {
+                    out.write(buffer, 0, length);
+                    length = 0;
+                }
+            }
+        }
+        //마지막 4자 미만 (1자는 버림)
+        if(count == 2) {
+            buffer[length++] = (byte) (bits >> 4);
+        } else if(count == 3) {
+            buffer[length++] = (byte) (bits >> 10);
+            buffer[length++] = (byte) (bits >> 2);
+        }
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * 로컬 파일시스템에 기록된 파일을 저장소로 가져온다.
+     * @param storageEngine 파일 저장소
+     * @param source 기록된 파일
+     * @param uploadFile 업로드한 파일 정보
+     * @param sniffer 기록하면서 앞부분을 복사한 내용 판별기 (형식 체크를 하지 않으면 null)
+     * @throws IOException
+     * @throws BizException 내용 형식이 맞지 않는 경우
+     */
+    public static void save(StorageEngine storageEngine, File source, UploadFile uploadFile, ContentSniffer sniffer) throws IOException, BizException {
+        if(source != null && uploadFile != null) {
+            if(sniffer != null) {
+                sniffer.validate(uploadFile, false);
+            }
+            long startTime = System.nanoTime();
+            uploadFile.setSize(storageEngine.importFile(source.toPath(), toKey(uploadFile)));
+            MetricsHelper.phase("save", startTime);
+            MetricsHelper.fileSize(uploadFile.getSize());
+        }
+    }
+
+    /**
+     * 파일의 마임타입을 반환한다.
+     * 업로드시 내용으로 판별한 마임타입이 있으면 그 값을, 없으면 확장자에 대한 마임타입을 반환한다.
      * @param uploadFile 업로드한 파일 정보
      * @return 마임타입
      */
     public static MediaType getMimeType(UploadFile uploadFile) {
-        if("gif".equals(uploadFile.getExtension())) {
-            return MediaType.IMAGE_GIF;
-        } else if ("png".equals(uploadFile.getExtension())) {
-            return MediaType.IMAGE_PNG;
-        } else if ("jpg".equals(uploadFile.getExtension()) || "jpeg".equals(uploadFile.getExtension())) {
-            return MediaType.IMAGE_JPEG;
+        String mimeType = uploadFile.getMimeType();
+        if(StringUtils.isEmpty(mimeType)) {
+            mimeType = ContentSniffer.toMimeType(uploadFile.getExtension());
+        }
+        if(StringUtils.isNotEmpty(mimeType)) {
+            try {
+                return MediaType.parseMediaType(mimeType);
+
+            } catch(InvalidMediaTypeException e) {
+                log.debug("잘못된 마임타입입니다. [{}]", mimeType);
+            }
         }
         return MediaType.APPLICATION_OCTET_STREAM;
     }
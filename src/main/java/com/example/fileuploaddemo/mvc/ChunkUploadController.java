@@ -0,0 +1,122 @@
+package com.example.fileuploaddemo.mvc;
+
+import com.example.fileuploaddemo.entity.ChunkUpload;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.service.ChunkUploadService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+@Slf4j
+@RestController
+public class ChunkUploadController {
+
+    @Autowired
+    private ChunkUploadService chunkUploadService;
+
+    /**
+     * 조각 업로드 세션을 시작한다.
+     * @param uploadFile 업로드할 파일 정보 (filename, subPath, size 필수)
+     * @param chunkSize 조각 크기
+     * @return 업로드 세션 정보
+     * @throws Exception
+     */
+    @PostMapping("/api/co/file/chunk")
+    public ResponseEntity<ChunkUpload> init(@RequestBody UploadFile uploadFile, @RequestParam(required = false) Long chunkSize) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> init", this.getClass().getName());
+        }
+
+        try {
+            return new ResponseEntity<>(chunkUploadService.init(uploadFile, chunkSize), HttpStatus.OK);
+
+        } catch(IOException e) {
+            throw new BizException("업로드 세션 생성시 오류가 발생하였습니다.");
+        }
+    }
+
+    /**
+     * 조각을 업로드한다. (요청 본문이 조각 데이터)
+     * Content-MD5 또는 Digest 헤더가 있으면 조각 내용과 비교한다.
+     * @param uploadId 업로드 세션 ID
+     * @param index 조각 번호 (0부터 시작)
+     * @param request 요청
+     * @return 업로드 세션 정보
+     * @throws Exception
+     */
+    @PutMapping("/api/co/file/chunk/{uploadId}/{index}")
+    public ResponseEntity<ChunkUpload> write(@PathVariable String uploadId, @PathVariable int index, HttpServletRequest request) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> write [{}] index:[{}]", this.getClass().getName(), uploadId, index);
+        }
+
+        try {
+            return new ResponseEntity<>(chunkUploadService.write(uploadId, index, request.getInputStream(), request.getContentLengthLong(),
+                    request.getHeader("Content-MD5"), request.getHeader("Digest")), HttpStatus.OK);
+
+        } catch(IOException e) {
+            throw new BizException("조각 업로드시 오류가 발생하였습니다. index:[" + index + "]");
+        }
+    }
+
+    /**
+     * 업로드 세션 정보를 조회한다. (수신 완료된 조각 목록)
+     * @param uploadId 업로드 세션 ID
+     * @return 업로드 세션 정보
+     * @throws Exception
+     */
+    @GetMapping("/api/co/file/chunk/{uploadId}")
+    public ResponseEntity<ChunkUpload> status(@PathVariable String uploadId) throws BizException {
+        try {
+            return new ResponseEntity<>(chunkUploadService.status(uploadId), HttpStatus.OK);
+
+        } catch(IOException e) {
+            throw new BizException("업로드 세션 조회시 오류가 발생하였습니다.");
+        }
+    }
+
+    /**
+     * 업로드를 완료한다.
+     * Digest 헤더가 있으면 전체 파일의 체크섬과 비교한다.
+     * @param uploadId 업로드 세션 ID
+     * @param request 요청
+     * @return 서버에 업로드된 파일 정보
+     * @throws Exception
+     */
+    @PostMapping("/api/co/file/chunk/{uploadId}/commit")
+    public ResponseEntity<UploadFile> commit(@PathVariable String uploadId, HttpServletRequest request) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> commit [{}]", this.getClass().getName(), uploadId);
+        }
+
+        try {
+            return new ResponseEntity<>(chunkUploadService.commit(uploadId, request.getHeader("Content-MD5"), request.getHeader("Digest")), HttpStatus.OK);
+
+        } catch(IOException e) {
+            throw new BizException("파일 업로드시 오류가 발생하였습니다.");
+        }
+    }
+
+    /**
+     * 업로드 세션을 취소한다.
+     * @param uploadId 업로드 세션 ID
+     * @return 응답 없음
+     * @throws Exception
+     */
+    @DeleteMapping("/api/co/file/chunk/{uploadId}")
+    public ResponseEntity<Void> abort(@PathVariable String uploadId) throws BizException {
+        try {
+            chunkUploadService.abort(uploadId);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+
+        } catch(IOException e) {
+            throw new BizException("업로드 세션 취소시 오류가 발생하였습니다.");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.fileuploaddemo.mvc;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Content-Encoding: gzip 으로 압축된 요청 본문을 읽으면서 압축을 푸는 필터. (upload2 JSON 요청)
+ * 압축 해제 폭탄을 막기 위해 압축을 푼 크기가 최대 크기를 넘으면 읽기를 중단한다.
+ */
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 압축을 푼 요청 본문 최대 크기
+     */
+    private final long maxInflatedSize;
+
+    /**
+     * 생성자
+     * @param maxInflatedSize 압축을 푼 요청 본문 최대 크기
+     */
+    public GzipRequestFilter(long maxInflatedSize) {
+        this.maxInflatedSize = maxInflatedSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if(contentEncoding == null || "identity".equalsIgnoreCase(contentEncoding.trim())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if(!"gzip".equalsIgnoreCase(contentEncoding.trim()) && !"x-gzip".equalsIgnoreCase(contentEncoding.trim())) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(), "지원하지 않는 Content-Encoding입니다. [" + contentEncoding + "]");
+            return;
+        }
+        filterChain.doFilter(new GzipRequestWrapper(request, maxInflatedSize), response);
+    }
+
+    /**
+     * 압축을 푼 본문을 제공하는 요청 (Content-Encoding, Content-Length 헤더는 숨김)
+     */
+    private static class GzipRequestWrapper extends HttpServletRequestWrapper {
+
+        private final long maxInflatedSize;
+        private ServletInputStream inputStream;
+        private BufferedReader reader;
+
+        GzipRequestWrapper(HttpServletRequest request, long maxInflatedSize) {
+            super(request);
+            this.maxInflatedSize = maxInflatedSize;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if(reader != null) {
+                throw new IllegalStateException("getReader()가 이미 호출되었습니다.");
+            }
+            if(inputStream == null) {
+                inputStream = new GzipServletInputStream(new GZIPInputStream(super.getInputStream(), BUFFER_SIZE), maxInflatedSize);
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if(reader == null) {
+                String encoding = getCharacterEncoding();
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), encoding != null ? encoding : StandardCharsets.UTF_8.name()));
+            }
+            return reader;
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if(isHiddenHeader(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if(isHiddenHeader(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        private static boolean isHiddenHeader(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * 압축을 푼 크기를 제한하는 입력 스트림 (블로킹 읽기만 지원)
+     */
+    private static class GzipServletInputStream extends ServletInputStream {
+
+        private final GZIPInputStream in;
+        private final long maxInflatedSize;
+        private long inflated;
+        private boolean finished;
+
+        GzipServletInputStream(GZIPInputStream in, long maxInflatedSize) {
+            this.in = in;
+            this.maxInflatedSize = maxInflatedSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if(read < 0) {
+                finished = true;
+                return -1;
+            }
+            inflated += read;
+            if(maxInflatedSize > 0 && inflated > maxInflatedSize) {
+                throw new IOException("압축을 푼 요청 본문이 최대 크기를 넘었습니다. [" + maxInflatedSize + "]");
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("비동기 읽기를 지원하지 않습니다.");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
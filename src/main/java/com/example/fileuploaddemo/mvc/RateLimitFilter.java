@@ -0,0 +1,621 @@
+package com.example.fileuploaddemo.mvc;
+
+import com.example.fileuploaddemo.exception.ResponseException;
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.TokenBucket;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 클라이언트(API 키 또는 IP)별, subPath별 요청 제한 필터
+ * 초당 요청 수와 동시 요청 수를 넘으면 429 Too Many Requests와 Retry-After 헤더로 응답하고,
+ * 초당 전송량을 넘으면 요청 본문 읽기와 응답 쓰기를 늦춘다. (블로킹 스트림은 기다리고, 비동기 스트림은 isReady를 늦춤)
+ * 전송량을 제한하는 요청은 sendfile을 사용하지 않는다. (컨테이너가 직접 보내면 제한할 수 없음)
+ * 제한 상태는 토큰 버킷(CAS)과 AtomicInteger로만 갱신하므로 요청 사이에 잠금 경쟁이 없다.
+ * subPath는 쿼리 문자열의 subPath 파라미터로 구분한다. (본문을 미리 읽지 않음)
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Tomcat sendfile 요청 속성
+     */
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 클라이언트별 제한
+     */
+    private final Limit clientLimit;
+
+    /**
+     * subPath별 제한
+     */
+    private final Limit subPathLimit;
+
+    /**
+     * API 키 헤더명 (없으면 IP로 구분)
+     */
+    private final String apiKeyHeader;
+
+    /**
+     * 구분별 최대 상태 개수 (넘으면 사용하지 않는 상태를 제거)
+     */
+    private final int maxKeys;
+
+    private final ConcurrentMap<String, Limiter> clients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Limiter> subPaths = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * 전송량 제한으로 늦춘 비동기 스트림을 다시 깨우는 타이머
+     * 리스너는 AsyncContext.start로 컨테이너 스레드에서 호출하므로, 타이머 스레드는 예약만 하고 리스너 처리에 묶이지 않는다.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * 생성자
+     * @param clientLimit 클라이언트별 제한
+     * @param subPathLimit subPath별 제한
+     * @param apiKeyHeader API 키 헤더명
+     * @param maxKeys 구분별 최대 상태 개수
+     */
+    public RateLimitFilter(Limit clientLimit, Limit subPathLimit, String apiKeyHeader, int maxKeys) {
+        this.clientLimit = clientLimit;
+        this.subPathLimit = subPathLimit;
+        this.apiKeyHeader = apiKeyHeader;
+        this.maxKeys = maxKeys;
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        this.timer = timer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Limiter client = clientLimit.isEnabled() ? getLimiter(clients, clientKey(request), clientLimit) : null;
+        String subPath = subPathLimit.isEnabled() ? getSubPath(request) : null;
+        Limiter folder = subPath != null ? getLimiter(subPaths, subPath, subPathLimit) : null;
+
+        //초당 요청 수
+        long wait = client != null ? client.tryRequest() : 0;
+        if(wait == 0 && folder != null) {
+            wait = folder.tryRequest();
+        }
+        if(wait > 0) {
+            reject(response, wait, "rate");
+            return;
+        }
+
+        //동시 요청 수
+        if(client != null && !client.enter()) {
+            reject(response, TimeUnit.SECONDS.toNanos(1), "concurrent");
+            return;
+        }
+        if(folder != null && !folder.enter()) {
+            if(client != null) {
+                client.exit();
+            }
+            reject(response, TimeUnit.SECONDS.toNanos(1), "concurrent");
+            return;
+        }
+
+        //초당 전송량
+        List<TokenBucket> buckets = new ArrayList<>(2);
+        if(client != null && client.bytes != null) {
+            buckets.add(client.bytes);
+        }
+        if(folder != null && folder.bytes != null) {
+            buckets.add(folder.bytes);
+        }
+
+        boolean async = false;
+        try {
+            if(buckets.isEmpty()) {
+                filterChain.doFilter(request, response);
+            } else {
+                filterChain.doFilter(new ThrottledRequest(request, buckets), new ThrottledResponse(response, buckets, request));
+            }
+            if(request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(client, folder));
+                async = true;
+            }
+        } finally {
+            if(!async) {
+                release(client, folder);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String apiKey = StringUtils.isEmpty(apiKeyHeader) ? null : request.getHeader(apiKeyHeader);
+        return StringUtils.isEmpty(apiKey) ? "ip:" + request.getRemoteAddr() : "key:" + apiKey;
+    }
+
+    /**
+     * 쿼리 문자열의 subPath 파라미터 (multipart 본문을 해석하지 않도록 getParameter를 사용하지 않음)
+     * @param request 요청
+     * @return subPath, 없으면 null
+     */
+    private static String getSubPath(HttpServletRequest request) {
+        String query = request.getQueryString();
+        if(StringUtils.isEmpty(query)) {
+            return null;
+        }
+        for(String pair : StringUtils.split(query, '&')) {
+            if(pair.startsWith("subPath=")) {
+                try {
+                    String subPath = URLDecoder.decode(pair.substring("subPath=".length()), "UTF-8");
+                    return StringUtils.isEmpty(subPath) ? null : UploadHelper.toSubPath(subPath).replace('\\', '/');
+
+                } catch(UnsupportedEncodingException | IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Limiter getLimiter(ConcurrentMap<String, Limiter> limiters, String key, Limit limit) {
+        Limiter limiter = limiters.get(key);
+        if(limiter != null) {
+            return limiter;
+        }
+        limiter = limiters.computeIfAbsent(key, k -> new Limiter(limit));
+        if(limiters.size() > maxKeys && evicting.compareAndSet(false, true)) {
+            try {
+                //사용중이 아니고 버킷이 가득 찬 상태는 새로 만든 것과 같으므로 제거해도 제한이 풀리지 않는다.
+                limiters.values().removeIf(Limiter::isIdle);
+            } finally {
+                evicting.set(false);
+            }
+        }
+        return limiter;
+    }
+
+    private static void release(Limiter client, Limiter folder) {
+        if(client != null) {
+            client.exit();
+        }
+        if(folder != null) {
+            folder.exit();
+        }
+    }
+
+    /**
+     * 429 응답을 보낸다. (GlobalExceptionHandler와 같은 형식)
+     * @param response 응답
+     * @param wait 다시 시도할 때까지 기다릴 시간 (나노초)
+     * @param reason 제한 사유
+     * @throws IOException
+     */
+    private void reject(HttpServletResponse response, long wait, String reason) throws IOException {
+        MetricsHelper.throttled(reason);
+        ResponseException responseException = new ResponseException();
+        responseException.setMsg("요청이 너무 많습니다. 잠시 후 다시 시도하세요.");
+        responseException.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (wait + 999_999_999) / 1_000_000_000)));
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), responseException);
+    }
+
+    /**
+     * 모든 버킷에서 전송량만큼 토큰을 가져오고 가장 오래 기다려야 하는 시간을 반환한다.
+     * @param buckets 전송량 버킷
+     * @param bytes 전송량
+     * @return 기다려야 하는 시간 (나노초)
+     */
+    private static long acquire(List<TokenBucket> buckets, long bytes) {
+        long wait = 0;
+        for(TokenBucket bucket : buckets) {
+            wait = Math.max(wait, bucket.acquire(bytes));
+        }
+        return wait;
+    }
+
+    private static void sleep(long wait) throws IOException {
+        if(wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("전송량 제한 대기 중 중단되었습니다.");
+            }
+        }
+    }
+
+    /**
+     * 제한 설정
+     */
+    public static class Limit {
+
+        /**
+         * 초당 요청 수 (0이면 제한 없음)
+         */
+        private final double requestsPerSecond;
+
+        /**
+         * 한 번에 허용하는 요청 수
+         */
+        private final int burst;
+
+        /**
+         * 동시 요청 수 (0이면 제한 없음)
+         */
+        private final int maxConcurrent;
+
+        /**
+         * 초당 전송량 (바이트, 0이면 제한 없음)
+         */
+        private final long bytesPerSecond;
+
+        /**
+         * 생성자
+         * @param requestsPerSecond 초당 요청 수 (0이면 제한 없음)
+         * @param burst 한 번에 허용하는 요청 수
+         * @param maxConcurrent 동시 요청 수 (0이면 제한 없음)
+         * @param bytesPerSecond 초당 전송량 (바이트, 0이면 제한 없음)
+         */
+        public Limit(double requestsPerSecond, int burst, int maxConcurrent, long bytesPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = Math.max(1, burst);
+            this.maxConcurrent = maxConcurrent;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        boolean isEnabled() {
+            return requestsPerSecond > 0 || maxConcurrent > 0 || bytesPerSecond > 0;
+        }
+    }
+
+    /**
+     * 클라이언트 또는 subPath 하나의 제한 상태
+     */
+    private static class Limiter {
+
+        private final TokenBucket requests;
+        private final TokenBucket bytes;
+        private final int maxConcurrent;
+        private final AtomicInteger active = new AtomicInteger();
+
+        Limiter(Limit limit) {
+            this.requests = limit.requestsPerSecond > 0 ? new TokenBucket(limit.requestsPerSecond, limit.burst) : null;
+            //1초 분량까지 한 번에 보낼 수 있다.
+            this.bytes = limit.bytesPerSecond > 0 ? new TokenBucket(limit.bytesPerSecond, limit.bytesPerSecond) : null;
+            this.maxConcurrent = limit.maxConcurrent;
+        }
+
+        long tryRequest() {
+            return requests != null ? requests.tryAcquire(1) : 0;
+        }
+
+        boolean enter() {
+            while(true) {
+                int current = active.get();
+                if(maxConcurrent > 0 && current >= maxConcurrent) {
+                    return false;
+                }
+                if(active.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void exit() {
+            active.decrementAndGet();
+        }
+
+        boolean isIdle() {
+            return active.get() == 0 && (requests == null || requests.isFull()) && (bytes == null || bytes.isFull());
+        }
+    }
+
+    /**
+     * 비동기 요청이 끝나면 동시 요청 수를 돌려준다.
+     */
+    private static class ReleaseListener implements AsyncListener {
+
+        private final Limiter client;
+        private final Limiter folder;
+
+        ReleaseListener(Limiter client, Limiter folder) {
+            this.client = client;
+            this.folder = folder;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(client, folder);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * 늦춘 비동기 스트림의 리스너를 컨테이너 스레드에서 호출한다.
+     * @param request 요청
+     * @param listener 리스너 호출
+     */
+    private void dispatch(HttpServletRequest request, Runnable listener) {
+        try {
+            request.getAsyncContext().start(listener);
+
+        } catch(IllegalStateException e) {
+            //이미 완료된 비동기 요청
+            log.debug("비동기 요청이 종료되어 스트림을 재개하지 않습니다. {}", e.toString());
+        }
+    }
+
+    /**
+     * 요청 본문 읽기를 제한하고 sendfile을 사용하지 않도록 하는 요청
+     */
+    private class ThrottledRequest extends HttpServletRequestWrapper {
+
+        private final List<TokenBucket> buckets;
+        private ServletInputStream inputStream;
+
+        ThrottledRequest(HttpServletRequest request, List<TokenBucket> buckets) {
+            super(request);
+            this.buckets = buckets;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            if(SENDFILE_SUPPORT_ATTR.equals(name)) {
+                return Boolean.FALSE;
+            }
+            return super.getAttribute(name);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if(inputStream == null) {
+                inputStream = new ThrottledInputStream(super.getInputStream(), buckets, (HttpServletRequest) getRequest());
+            }
+            return inputStream;
+        }
+    }
+
+    /**
+     * 응답 쓰기를 제한하는 응답
+     */
+    private class ThrottledResponse extends HttpServletResponseWrapper {
+
+        private final List<TokenBucket> buckets;
+        private final HttpServletRequest request;
+        private ServletOutputStream outputStream;
+
+        ThrottledResponse(HttpServletResponse response, List<TokenBucket> buckets, HttpServletRequest request) {
+            super(response);
+            this.buckets = buckets;
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if(outputStream == null) {
+                outputStream = new ThrottledOutputStream(super.getOutputStream(), buckets, request);
+            }
+            return outputStream;
+        }
+    }
+
+    /**
+     * 읽은 만큼 토큰을 가져오는 입력 스트림
+     * 블로킹 읽기는 토큰이 채워질 때까지 기다리고, 비동기 읽기는 그 동안 isReady가 false를 반환한 뒤 컨테이너 스레드에서 onDataAvailable을 호출한다.
+     */
+    private class ThrottledInputStream extends ServletInputStream {
+
+        private final ServletInputStream in;
+        private final List<TokenBucket> buckets;
+        private final HttpServletRequest request;
+        private ReadListener readListener;
+        private volatile long resumeAt = System.nanoTime();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        ThrottledInputStream(ServletInputStream in, List<TokenBucket> buckets, HttpServletRequest request) {
+            this.in = in;
+            this.buckets = buckets;
+            this.request = request;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = in.read();
+            if(read >= 0) {
+                throttle(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if(read > 0) {
+                throttle(read);
+            }
+            return read;
+        }
+
+        private void throttle(long bytes) throws IOException {
+            long wait = acquire(buckets, bytes);
+            if(readListener == null) {
+                sleep(wait);
+            } else if(wait > 0) {
+                resumeAt = System.nanoTime() + wait;
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return in.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            long wait = resumeAt - System.nanoTime();
+            if(readListener != null && wait > 0) {
+                if(scheduled.compareAndSet(false, true)) {
+                    timer.schedule(this::resume, wait, TimeUnit.NANOSECONDS);
+                }
+                return false;
+            }
+            return in.isReady();
+        }
+
+        private void resume() {
+            scheduled.set(false);
+            dispatch(request, () -> {
+                try {
+                    if(!in.isFinished()) {
+                        readListener.onDataAvailable();
+                    }
+                } catch(Throwable t) {
+                    readListener.onError(t);
+                }
+            });
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            this.readListener = readListener;
+            in.setReadListener(readListener);
+        }
+    }
+
+    /**
+     * 쓴 만큼 토큰을 가져오는 출력 스트림
+     * 블로킹 쓰기는 토큰이 채워질 때까지 기다리고, 비동기 쓰기는 그 동안 isReady가 false를 반환한 뒤 컨테이너 스레드에서 onWritePossible을 호출한다.
+     */
+    private class ThrottledOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream out;
+        private final List<TokenBucket> buckets;
+        private final HttpServletRequest request;
+        private WriteListener writeListener;
+        private volatile long resumeAt = System.nanoTime();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        ThrottledOutputStream(ServletOutputStream out, List<TokenBucket> buckets, HttpServletRequest request) {
+            this.out = out;
+            this.buckets = buckets;
+            this.request = request;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            throttle(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if(len > 0) {
+                throttle(len);
+            }
+        }
+
+        private void throttle(long bytes) throws IOException {
+            long wait = acquire(buckets, bytes);
+            if(writeListener == null) {
+                sleep(wait);
+            } else if(wait > 0) {
+                resumeAt = System.nanoTime() + wait;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            long wait = resumeAt - System.nanoTime();
+            if(writeListener != null && wait > 0) {
+                if(scheduled.compareAndSet(false, true)) {
+                    timer.schedule(this::resume, wait, TimeUnit.NANOSECONDS);
+                }
+                return false;
+            }
+            return out.isReady();
+        }
+
+        private void resume() {
+            scheduled.set(false);
+            dispatch(request, () -> {
+                try {
+                    writeListener.onWritePossible();
+
+                } catch(Throwable t) {
+                    writeListener.onError(t);
+                }
+            });
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.writeListener = writeListener;
+            out.setWriteListener(writeListener);
+        }
+    }
+}
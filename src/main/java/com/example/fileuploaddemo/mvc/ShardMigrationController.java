@@ -0,0 +1,47 @@
+package com.example.fileuploaddemo.mvc;
+
+import com.example.fileuploaddemo.entity.ShardMigration;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.service.ShardMigrationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+public class ShardMigrationController {
+
+    @Autowired
+    private ShardMigrationService shardMigrationService;
+
+    /**
+     * 기존 위치에 저장된 파일을 분산 위치로 옮기는 작업을 시작한다. (백그라운드 실행)
+     * @param subPath 서브디렉토리 경로 (없으면 전체)
+     * @return 진행 상태
+     * @throws Exception
+     */
+    @PostMapping("/api/co/file/shard/migrate")
+    public ResponseEntity<ShardMigration> migrate(@RequestParam(value = "subPath", required = false) String subPath) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> migrate [{}]", this.getClass().getName(), subPath);
+        }
+
+        return new ResponseEntity<>(shardMigrationService.start(subPath), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * 분산 배치 이동 진행 상태를 조회한다.
+     * @return 진행 상태
+     * @throws Exception
+     */
+    @GetMapping("/api/co/file/shard/migrate")
+    public ResponseEntity<ShardMigration> status() throws BizException {
+        ShardMigration migration = shardMigrationService.status();
+        if(migration == null) {
+            throw new BizException("실행한 분산 배치 이동이 없습니다.");
+        }
+        return new ResponseEntity<>(migration, HttpStatus.OK);
+    }
+}
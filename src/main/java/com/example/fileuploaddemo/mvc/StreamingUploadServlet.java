@@ -0,0 +1,520 @@
+package com.example.fileuploaddemo.mvc;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.exception.ResponseException;
+import com.example.fileuploaddemo.helper.ContentDigest;
+import com.example.fileuploaddemo.helper.ContentSniffer;
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.MultipartStreamParser;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.service.FileIndexService;
+import com.example.fileuploaddemo.service.ThumbnailService;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * multipart 요청을 비동기 서블릿 I/O로 직접 해석해서 각 파트를 저장소에 바로 기록한다.
+ * 컨테이너의 multipart 임시파일을 거치지 않으므로 업로드당 디스크 쓰기가 한 번으로 줄어든다.
+ * 이 서블릿에는 multipart 설정을 하지 않으므로 필터에서 getParameter를 호출해도 본문을 읽지 않는다.
+ * I/O 스레드풀이 있으면 읽은 내용의 해석과 파일 쓰기를 스레드풀에서 실행하므로 컨테이너 스레드는 디스크 쓰기를 기다리지 않는다.
+ */
+@Slf4j
+public class StreamingUploadServlet extends HttpServlet {
+
+    /**
+     * 읽기 버퍼 크기
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 폼 필드 최대 크기
+     */
+    private static final int MAX_FIELD_SIZE = 4 * 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 서버 기본 경로
+     */
+    private final String basePath;
+
+    /**
+     * 파일당 최대 크기 (음수이면 제한 없음)
+     */
+    private final long maxFileSize;
+
+    /**
+     * 요청당 최대 크기 (음수이면 제한 없음)
+     */
+    private final long maxRequestSize;
+
+    /**
+     * 비동기 처리 제한시간 (밀리초)
+     */
+    private final long timeout;
+
+    /**
+     * 파일 저장소
+     */
+    private final StorageEngine storageEngine;
+
+    /**
+     * 썸네일 생성
+     */
+    private final ThumbnailService thumbnailService;
+
+    /**
+     * 파일 메타데이터 색인
+     */
+    private final FileIndexService fileIndexService;
+
+    /**
+     * 파일 쓰기용 I/O 스레드풀 (없으면 컨테이너 스레드에서 기록)
+     */
+    private final Executor ioExecutor;
+
+    /**
+     * 생성자
+     * @param basePath 서버 기본 경로
+     * @param maxFileSize 파일당 최대 크기
+     * @param maxRequestSize 요청당 최대 크기
+     * @param timeout 비동기 처리 제한시간 (밀리초)
+     * @param storageEngine 파일 저장소
+     * @param thumbnailService 썸네일 생성
+     * @param fileIndexService 파일 메타데이터 색인
+     * @param ioExecutor 파일 쓰기용 I/O 스레드풀 (null이면 컨테이너 스레드에서 기록)
+     */
+    public StreamingUploadServlet(String basePath, long maxFileSize, long maxRequestSize, long timeout, StorageEngine storageEngine,
+                                  ThumbnailService thumbnailService, FileIndexService fileIndexService, Executor ioExecutor) {
+        this.basePath = basePath;
+        this.maxFileSize = maxFileSize;
+        this.maxRequestSize = maxRequestSize;
+        this.timeout = timeout;
+        this.storageEngine = storageEngine;
+        this.thumbnailService = thumbnailService;
+        this.fileIndexService = fileIndexService;
+        this.ioExecutor = ioExecutor;
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> upload", this.getClass().getName());
+        }
+
+        String boundary = null;
+        try {
+            MediaType contentType = MediaType.parseMediaType(request.getContentType());
+            if(MediaType.MULTIPART_FORM_DATA.includes(contentType)) {
+                boundary = StringUtils.strip(contentType.getParameter("boundary"), "\"");
+            }
+        } catch(RuntimeException e) {
+            log.debug("잘못된 Content-Type 입니다. [{}]", request.getContentType());
+        }
+
+        if(StringUtils.isEmpty(basePath)) {
+            writeError(response, new BizException("basePath 설정이 잘못되었습니다."));
+            return;
+        }
+        if(StringUtils.isEmpty(boundary)) {
+            writeError(response, new BizException("multipart 요청이 아닙니다."));
+            return;
+        }
+
+        //쿼리 문자열 파라미터 (파일 파트보다 앞에 있는 폼 필드로도 설정 가능)
+        Map<String, String> param = new HashMap<>();
+        for(String name : new String[]{"subPath", "keepOriginalFilename", "isImage"}) {
+            if(request.getParameter(name) != null) {
+                param.put(name, request.getParameter(name));
+            }
+        }
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeout);
+        StreamingUpload upload = new StreamingUpload(asyncContext, request.getInputStream(), boundary, param);
+        asyncContext.addListener(upload);
+        request.getInputStream().setReadListener(upload);
+    }
+
+    /**
+     * 오류 응답을 기록한다. (GlobalExceptionHandler와 같은 형식)
+     * @param response 응답
+     * @param e 오류
+     * @throws IOException
+     */
+    private void writeError(HttpServletResponse response, Exception e) throws IOException {
+        ResponseException responseException = new ResponseException();
+        if(e instanceof BizException) {
+            responseException.setCode(((BizException) e).getCode());
+            responseException.setMsg(e.getMessage());
+            responseException.setStatus(HttpStatus.FORBIDDEN.value());
+        } else {
+            responseException.setMsg(e.getMessage());
+            responseException.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        }
+        response.setStatus(responseException.getStatus());
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), responseException);
+    }
+
+    /**
+     * 요청 하나의 비동기 업로드 처리
+     */
+    private class StreamingUpload implements ReadListener, AsyncListener, MultipartStreamParser.PartHandler {
+
+        private final AsyncContext asyncContext;
+        private final ServletInputStream in;
+        private final MultipartStreamParser parser;
+        private final Map<String, String> param;
+        private final byte[] readBuffer = new byte[BUFFER_SIZE];
+
+        /**
+         * 저장 완료된 파일 정보
+         */
+        private final List<UploadFile> uploadFiles = new ArrayList<>();
+
+        /**
+         * 현재 폼 필드 이름과 값
+         */
+        private String fieldName;
+        private final ByteArrayOutputStream fieldValue = new ByteArrayOutputStream();
+
+        /**
+         * 현재 저장중인 파일
+         */
+        private UploadFile current;
+        private StorageWriter channel;
+        private ContentSniffer sniffer;
+        private ContentDigest digest;
+        private String contentMd5;
+        private String digestHeader;
+        private long fileSize;
+
+        /**
+         * 요청 전체 크기
+         */
+        private long requestSize;
+
+        /**
+         * 처리 완료 여부 (this 잠금 안에서 변경, 읽기 루프는 잠금 없이 확인)
+         */
+        private volatile boolean done;
+
+        /**
+         * I/O 스레드풀에서 기록중인지 여부와 그 동안 본문을 모두 읽었다는 알림을 받았는지 여부 (this 잠금 안에서 변경)
+         */
+        private boolean writing;
+        private boolean allDataRead;
+
+        StreamingUpload(AsyncContext asyncContext, ServletInputStream in, String boundary, Map<String, String> param) {
+            this.asyncContext = asyncContext;
+            this.in = in;
+            this.param = param;
+            this.parser = new MultipartStreamParser(boundary, this, BUFFER_SIZE);
+        }
+
+        @Override
+        public void onDataAvailable() {
+            try {
+                while(!done && in.isReady()) {
+                    int read = in.read(readBuffer);
+                    if(read < 0) {
+                        break;
+                    }
+                    requestSize += read;
+                    if(maxRequestSize >= 0 && requestSize > maxRequestSize) {
+                        MetricsHelper.rejected(MetricsHelper.REJECT_SIZE);
+                        throw new BizException("업로드 요청 크기가 너무 큽니다.");
+                    }
+                    if(ioExecutor != null) {
+                        //기록을 마친 뒤 I/O 스레드에서 이어서 읽는다. (isReady를 다시 호출할 때까지 컨테이너는 onDataAvailable을 호출하지 않음)
+                        synchronized(this) {
+                            writing = true;
+                        }
+                        ioExecutor.execute(() -> write(read));
+                        return;
+                    }
+                    parser.write(readBuffer, 0, read);
+                }
+            } catch(Exception e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * 읽은 내용을 해석해서 기록한 뒤 이어서 읽는다. (I/O 스레드)
+         * @param length 읽은 크기
+         */
+        private void write(int length) {
+            try {
+                parser.write(readBuffer, 0, length);
+
+            } catch(Exception e) {
+                fail(e);
+                return;
+            }
+
+            boolean complete;
+            synchronized(this) {
+                writing = false;
+                complete = allDataRead;
+            }
+            if(complete) {
+                complete();
+            } else {
+                onDataAvailable();
+            }
+        }
+
+        /**
+         * 본문을 모두 읽었다는 알림. 마지막으로 읽은 내용을 아직 기록하는 중이면 기록을 마친 뒤 완료 처리한다.
+         */
+        @Override
+        public void onAllDataRead() {
+            synchronized(this) {
+                if(writing) {
+                    allDataRead = true;
+                    return;
+                }
+            }
+            complete();
+        }
+
+        /**
+         * 저장한 파일을 색인에 등록하고 응답을 보낸다.
+         * I/O 스레드에서 실행되는 동안 컨테이너 스레드의 onTimeout, onError가 fail을 호출할 수 있으므로 fail과 같은 잠금 안에서 처리한다.
+         */
+        private synchronized void complete() {
+            if(done) {
+                return;
+            }
+            if(!parser.isComplete()) {
+                fail(new BizException("잘못된 multipart 요청입니다."));
+                return;
+            }
+            if(uploadFiles.isEmpty()) {
+                fail(new BizException("파일을 찾을 수 없습니다."));
+                return;
+            }
+
+            try {
+                for(UploadFile uploadFile : uploadFiles) {
+                    fileIndexService.register(uploadFile);
+                }
+
+            } catch(IOException e) {
+                fail(e);
+                return;
+            }
+
+            done = true;
+            MetricsHelper.uploaded("upload/stream", uploadFiles.size(), uploadFiles.stream().mapToLong(UploadFile::getSize).sum());
+            if(Boolean.parseBoolean(param.get("isImage"))) {
+                uploadFiles.forEach(thumbnailService::schedule);
+            }
+            try {
+                HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+                response.setStatus(HttpStatus.OK.value());
+                response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+                objectMapper.writeValue(response.getOutputStream(), uploadFiles);
+
+            } catch(IOException e) {
+                log.warn("업로드 응답 기록시 오류가 발생하였습니다.", e);
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            fail(t instanceof Exception ? (Exception) t : new IOException(t));
+        }
+
+        @Override
+        public void onPartBegin(Map<String, String> headers) throws IOException, BizException {
+            String header = headers.get("content-disposition");
+            if(StringUtils.isEmpty(header)) {
+                throw new BizException("잘못된 multipart 요청입니다.");
+            }
+            ContentDisposition disposition = ContentDisposition.parse(header);
+
+            //폼 필드
+            if(disposition.getFilename() == null) {
+                fieldName = disposition.getName();
+                fieldValue.reset();
+                return;
+            }
+
+            //파일을 선택하지 않은 파트
+            if(StringUtils.isEmpty(disposition.getFilename())) {
+                return;
+            }
+
+            //subPath 파라미터
+            String subPath = param.get("subPath");
+            if(StringUtils.isEmpty(subPath)) {
+                throw new BizException("subPath 설정정보를 찾을 수 없습니다.");
+            }
+
+            //객체 정보 설정
+            UploadFile uploadFile = new UploadFile();
+            uploadFile.setFilename(disposition.getFilename());
+            uploadFile.init(basePath);
+            uploadFile.setSubPath(subPath);
+            uploadFile.setKeepOriginalFilename(Boolean.parseBoolean(param.get("keepOriginalFilename")));
+            log.debug(uploadFile.toString());
+
+            //기본 확장자 체크
+            if(UploadHelper.isDenyExtension(uploadFile)) {
+                MetricsHelper.rejected(MetricsHelper.REJECT_EXTENSION);
+                throw new BizException("허용되지 않는 확장자입니다. [" + uploadFile.getExtension() + "]");
+            }
+
+            //이미지인 경우 파일 확장자 체크
+            if(Boolean.parseBoolean(param.get("isImage")) && !UploadHelper.isImageExtension(uploadFile)) {
+                MetricsHelper.rejected(MetricsHelper.REJECT_IMAGE);
+                throw new BizException("이미지 형식의 파일 확장자가 아닙니다.");
+            }
+
+            current = uploadFile;
+            fileSize = 0;
+            sniffer = new ContentSniffer();
+            contentMd5 = headers.get("content-md5");
+            digestHeader = headers.get("digest");
+            digest = ContentDigest.forRequest(contentMd5, digestHeader);
+            channel = storageEngine.create();
+        }
+
+        @Override
+        public void onPartData(byte[] buffer, int offset, int length) throws IOException, BizException {
+            if(channel != null) {
+                fileSize += length;
+                if(maxFileSize >= 0 && fileSize > maxFileSize) {
+                    MetricsHelper.rejected(MetricsHelper.REJECT_SIZE);
+                    throw new BizException("업로드 파일 크기가 너무 큽니다. [" + current.getFilename() + "]");
+                }
+                sniffer.update(buffer, offset, length);
+                digest.update(buffer, offset, length);
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, offset, length);
+                while(byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+            } else if(fieldName != null) {
+                if(fieldValue.size() + length > MAX_FIELD_SIZE) {
+                    throw new BizException("폼 필드 값이 너무 큽니다. [" + fieldName + "]");
+                }
+                fieldValue.write(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void onPartEnd() throws IOException, BizException {
+            if(channel != null) {
+                //내용 형식 체크 (기록하면서 복사한 앞부분으로 판별)
+                current.setSize(fileSize);
+                sniffer.validate(current, Boolean.parseBoolean(param.get("isImage")));
+                //파트 헤더의 Content-MD5, Digest 검증
+                digest.verify(contentMd5, digestHeader, current.getFilename());
+                digest.apply(current);
+                //fail이 이미 기록한 파일을 삭제했으면 저장하지 않음
+                synchronized(this) {
+                    if(!done) {
+                        channel.commit(UploadHelper.toKey(current));
+                        uploadFiles.add(current);
+                        MetricsHelper.fileSize(fileSize);
+                    }
+                    channel.close();
+                    channel = null;
+                    current = null;
+                }
+            } else if(fieldName != null) {
+                param.put(fieldName, new String(fieldValue.toByteArray(), StandardCharsets.UTF_8));
+                fieldName = null;
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            fail(new BizException("업로드 처리 시간이 초과되었습니다."));
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            fail(event.getThrowable() instanceof Exception ? (Exception) event.getThrowable() : new IOException("업로드가 중단되었습니다."));
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        /**
+         * 업로드를 중단하고 기록한 파일을 삭제한 뒤 오류 응답을 보낸다.
+         * @param e 오류
+         */
+        private synchronized void fail(Exception e) {
+            if(done) {
+                return;
+            }
+            done = true;
+            log.debug("스트리밍 업로드 실패", e);
+
+            if(channel != null) {
+                try {
+                    channel.close();
+                } catch(IOException ignore) {
+                }
+            }
+            for(UploadFile uploadFile : uploadFiles) {
+                String key = UploadHelper.toKey(uploadFile);
+                try {
+                    storageEngine.delete(key);
+
+                } catch(IOException ex) {
+                    log.warn("업로드 실패 파일을 삭제하지 못했습니다. [{}]", key);
+                }
+            }
+
+            try {
+                HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+                if(!response.isCommitted()) {
+                    writeError(response, e instanceof BizException ? e : new BizException("파일 업로드시 오류가 발생하였습니다."));
+                }
+            } catch(IOException | RuntimeException ignore) {
+            } finally {
+                try {
+                    asyncContext.complete();
+                } catch(IllegalStateException ignore) {
+                }
+            }
+        }
+    }
+}
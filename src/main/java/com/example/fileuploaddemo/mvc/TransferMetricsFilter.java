@@ -0,0 +1,76 @@
+package com.example.fileuploaddemo.mvc;
+
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 진행중인 업로드/다운로드 개수를 기록하는 필터.
+ * 비동기로 처리되는 요청은 비동기 처리가 끝날 때 종료를 기록한다.
+ */
+public class TransferMetricsFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String method = request.getMethod();
+        boolean upload;
+        if("POST".equals(method) || "PUT".equals(method)) {
+            upload = true;
+        } else if("GET".equals(method) || "HEAD".equals(method)) {
+            upload = false;
+        } else {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        MetricsHelper.transferStarted(upload);
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if(request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new TransferListener(upload));
+                async = true;
+            }
+        } finally {
+            if(!async) {
+                MetricsHelper.transferFinished(upload);
+            }
+        }
+    }
+
+    /**
+     * 비동기 요청 종료 리스너 (onComplete는 오류, 시간초과 이후에도 항상 호출된다)
+     */
+    private static class TransferListener implements AsyncListener {
+
+        private final boolean upload;
+
+        TransferListener(boolean upload) {
+            this.upload = upload;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            MetricsHelper.transferFinished(upload);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
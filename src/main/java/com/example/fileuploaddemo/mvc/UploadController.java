@@ -1,19 +1,40 @@
 package com.example.fileuploaddemo.mvc;
 
+import com.example.fileuploaddemo.entity.FileListPage;
+import com.example.fileuploaddemo.entity.FileListQuery;
+import com.example.fileuploaddemo.entity.FileMetadata;
 import com.example.fileuploaddemo.entity.UploadFile;
 import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.Base64DownloadWriter;
+import com.example.fileuploaddemo.helper.Base64UploadReader;
+import com.example.fileuploaddemo.helper.ContentDigest;
+import com.example.fileuploaddemo.helper.DownloadHelper;
+import com.example.fileuploaddemo.helper.MetricsHelper;
 import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.service.FileIndexService;
+import com.example.fileuploaddemo.service.FileListService;
+import com.example.fileuploaddemo.service.ThumbnailService;
+import com.example.fileuploaddemo.service.UploadSaveService;
+import com.example.fileuploaddemo.service.ZipDownloadService;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageStat;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
-import org.springframework.util.FileCopyUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URLEncoder;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +46,43 @@ public class UploadController {
     @Value("${file.upload.basePath}")
     private String basePath;
 
+    @Value("${file.download.cacheControl:private, no-cache}")
+    private String cacheControl;
+
+    @Value("${file.upload.compression.enabled:false}")
+    private boolean compress;
+
+    @Value("${file.async.enabled:false}")
+    private boolean async;
+
+    @Value("${file.upload.largeFile.threshold:16MB}")
+    private DataSize largeFileThreshold;
+
+    @Value("${file.upload.largeFile.mapped:false}")
+    private boolean mappedFile;
+
+    @Autowired
+    private UploadSaveService uploadSaveService;
+
+    @Autowired
+    private StorageEngine storageEngine;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ZipDownloadService zipDownloadService;
+
+    @Autowired
+    private FileIndexService fileIndexService;
+
+    @Autowired
+    private FileListService fileListService;
+
+    @Autowired
+    @Qualifier("asyncIoExecutor")
+    private ThreadPoolTaskExecutor asyncIoExecutor;
+
     /**
      * 파일을 업로드한다. (Multipart 요청)
      * @param files 업로드한 파일
@@ -70,7 +128,8 @@ public class UploadController {
             isImage = Boolean.parseBoolean(param.get("isImage"));
         }
 
-        //파일을 저장
+        //파일 정보 생성 및 확장자 체크
+        long startTime = System.nanoTime();
         List<UploadFile> uploadFiles = new ArrayList<>();
         for(MultipartFile file : files) {
             UploadFile uploadFile = new UploadFile(file);
@@ -86,42 +145,63 @@ public class UploadController {
 
             //기본 확장자 체크
             if(UploadHelper.isDenyExtension(uploadFile)) {
+                MetricsHelper.rejected(MetricsHelper.REJECT_EXTENSION);
                 throw new BizException("허용되지 않는 확장자입니다. [" + uploadFile.getExtension() + "]");
             }
 
             //이미지인 경우 파일 확장자 체크
             if(isImage && !UploadHelper.isImageExtension(uploadFile)) {
+                MetricsHelper.rejected(MetricsHelper.REJECT_IMAGE);
                 throw new BizException("이미지 형식의 파일 확장자가 아닙니다.");
             }
+            uploadFiles.add(uploadFile);
+        }
 
-            //파일저장
-            try {
-                UploadHelper.save(file, uploadFile);
-                uploadFiles.add(uploadFile);
+        MetricsHelper.phase("validate", startTime);
 
-            } catch(IOException e) {
-                throw new BizException("파일 업로드시 오류가 발생하였습니다.");
+        //파일저장 (I/O 스레드풀에서 동시에 저장)
+        try {
+            uploadSaveService.saveAll(files, uploadFiles, isImage);
+            register(uploadFiles);
+            MetricsHelper.uploaded("upload", uploadFiles.size(), uploadFiles.stream().mapToLong(UploadFile::getSize).sum());
+
+            //이미지인 경우 썸네일 생성 예약
+            if(isImage) {
+                uploadFiles.forEach(thumbnailService::schedule);
             }
+
+        } catch(IOException e) {
+            throw new BizException("파일 업로드시 오류가 발생하였습니다.");
         }
         return new ResponseEntity<>(uploadFiles, HttpStatus.OK);
     }
 
     /**
      * 서버에 업로드되어 있는 파일을 다운로드한다.
+     * Range/If-Range 요청을 지원하며 파일 내용을 메모리에 적재하지 않고 전송한다.
+     * ETag/Last-Modified 검증 요청(If-None-Match, If-Modified-Since)이 일치하면 304로 응답한다.
+     * size 파라미터가 있으면 이미지 파일의 썸네일을 전송한다.
+     * 파일 ID가 있으면 서버 색인의 파일 정보를 사용한다.
      * @param uploadFile 파일 정보
-     * @return 파일
+     * @param size 썸네일 크기
+     * @param request 요청
+     * @param response 응답
      * @throws Exception
      */
     @GetMapping("/api/co/file/download")
-    public @ResponseBody HttpEntity<byte[]> downlaod(@RequestBody UploadFile uploadFile) throws BizException {
+    public void downlaod(@RequestBody UploadFile uploadFile, @RequestParam(value = "size", required = false) Integer size,
+                         HttpServletRequest request, HttpServletResponse response) throws BizException {
         if(log.isDebugEnabled()) {
             log.debug("{} -> download", this.getClass().getName());
-            log.debug(uploadFile.toString());
+            log.debug(String.valueOf(uploadFile));
         }
 
         if(uploadFile == null) {
             throw new BizException("잘못된 입력정보입니다.");
         }
+        if(StringUtils.hasText(uploadFile.getId())) {
+            uploadFile = findById(uploadFile.getId());
+        }
         if(StringUtils.isEmpty(uploadFile.getServerPath())) {
             throw new BizException("serverPath 정보가 입력되지 않았습니다.");
         }
@@ -135,25 +215,226 @@ public class UploadController {
             throw new BizException("filename 정보가 입력되지 않았습니다.");
         }
 
-        File file = new File(uploadFile.getServerPath(), uploadFile.getServerFilename());
-        if(!file.exists()) {
+        write(uploadFile, size, request, response);
+    }
+
+    /**
+     * 서버 색인에 등록된 파일을 파일 ID로 다운로드한다. (파일 정보를 전달하지 않음)
+     * @param id 파일 ID
+     * @param size 썸네일 크기
+     * @param request 요청
+     * @param response 응답
+     * @throws Exception
+     */
+    @GetMapping("/api/co/file/download/id/{id}")
+    public void downloadById(@PathVariable("id") String id, @RequestParam(value = "size", required = false) Integer size,
+                             HttpServletRequest request, HttpServletResponse response) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> downloadById [{}]", this.getClass().getName(), id);
+        }
+
+        write(findById(id), size, request, response);
+    }
+
+    /**
+     * 서버 색인에 등록된 파일의 메타데이터를 조회한다.
+     * @param id 파일 ID
+     * @return 메타데이터
+     * @throws Exception
+     */
+    @GetMapping("/api/co/file/meta/{id}")
+    public ResponseEntity<FileMetadata> meta(@PathVariable("id") String id) throws BizException {
+        FileMetadata metadata = fileIndexService.get(id);
+        if(metadata == null) {
+            throw new BizException("파일을 찾을 수 없습니다.");
+        }
+        return new ResponseEntity<>(metadata, HttpStatus.OK);
+    }
+
+    /**
+     * subPath 디렉토리의 파일 목록을 조회한다. (커서 방식 페이징)
+     * 응답의 nextCursor를 다음 요청의 cursor로 전달하면 다음 페이지를 조회한다. 정렬 기준과 조건은 첫 요청과 같아야 한다.
+     * @param query 조회 조건 (subPath, sort, order, extension, minSize, maxSize, cursor, limit)
+     * @return 파일 목록
+     * @throws Exception
+     */
+    @GetMapping("/api/co/file/list")
+    public ResponseEntity<FileListPage> list(FileListQuery query) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> list", this.getClass().getName());
+            log.debug(String.valueOf(query));
+        }
+
+        try {
+            return new ResponseEntity<>(fileListService.list(query), HttpStatus.OK);
+
+        } catch(IOException e) {
+            throw new BizException("파일 목록 조회시 오류가 발생하였습니다.");
+        }
+    }
+
+    /**
+     * 서버에 업로드되어 있는 파일을 BASE64 문자열로 다운로드한다. (JSON 메시지로 응답)
+     * upload2와 같은 형식의 UploadFile 문서를 응답하며, base64String 값은 파일을 읽으면서 응답 스트림에 바로 인코딩한다.
+     * ETag/Last-Modified 검증 요청이 일치하면 304로 응답한다.
+     * 저장시 계산한 체크섬이 있으면 Digest 헤더로 보내서 클라이언트가 디코딩한 파일 내용을 검증할 수 있도록 한다.
+     * @param uploadFile 파일 정보
+     * @param request 요청
+     * @param response 응답
+     * @throws Exception
+     */
+    @GetMapping("/api/co/file/download2")
+    public void download2(@RequestBody UploadFile uploadFile, HttpServletRequest request, HttpServletResponse response) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> download2", this.getClass().getName());
+            log.debug(String.valueOf(uploadFile));
+        }
+
+        if(uploadFile == null) {
+            throw new BizException("잘못된 입력정보입니다.");
+        }
+        if(StringUtils.hasText(uploadFile.getId())) {
+            uploadFile = findById(uploadFile.getId());
+        }
+        if(StringUtils.isEmpty(uploadFile.getSubPath())) {
+            throw new BizException("subPath 정보가 입력되지 않았습니다.");
+        }
+        if(StringUtils.isEmpty(uploadFile.getServerFilename())) {
+            throw new BizException("serverFilename 정보가 입력되지 않았습니다.");
+        }
+        if(StringUtils.isEmpty(uploadFile.getFilename())) {
+            throw new BizException("filename 정보가 입력되지 않았습니다.");
+        }
+
+        try {
+            String key = UploadHelper.toKey(uploadFile);
+            StorageStat stat = storageEngine.stat(key);
+            if(stat == null) {
+                throw new BizException("파일을 찾을 수 없습니다.");
+            }
+
+            //색인에 등록된 파일이면 파일 ID, 원본 크기, 업로드시 판별한 마임타입, 계산한 체크섬, 압축 저장 여부
+            FileMetadata metadata = fileIndexService.getByKey(key);
+            uploadFile.setCompressed(metadata != null && metadata.isCompressed());
+            if(metadata != null) {
+                uploadFile.setId(metadata.getId());
+                uploadFile.setSize(metadata.getSize());
+                uploadFile.setMimeType(metadata.getMimeType());
+                uploadFile.setHash(metadata.getHash());
+                uploadFile.setCrc32c(metadata.getCrc32c());
+            }
+
+            setCacheControl(response);
+            if(DownloadHelper.checkNotModified(request, response, DownloadHelper.createETag(stat.getSize(), stat.getLastModified()), stat.getLastModified())) {
+                return;
+            }
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            //저장시 계산한 체크섬 (base64String을 디코딩한 파일 내용, 압축 저장 파일은 압축 전 내용)
+            if(StringUtils.hasText(uploadFile.getHash())) {
+                String digest = ContentDigest.toDigestHeader(uploadFile.getHash(), uploadFile.getCrc32c());
+                if(digest != null) {
+                    response.setHeader("Digest", digest);
+                }
+            }
+            Base64DownloadWriter.write(response.getOutputStream(), uploadFile, storageEngine, key, stat.getSize());
+
+        } catch(NoSuchFileException e) {
             throw new BizException("파일을 찾을 수 없습니다.");
+        } catch(IOException e) {
+            throw new BizException("파일 다운로드시 오류가 발생하였습니다.");
+        }
+    }
+
+    /**
+     * 서버에 업로드되어 있는 여러 파일을 하나의 ZIP 파일로 다운로드한다.
+     * 파일 정보 목록(RequestBody) 또는 subPath 디렉토리의 모든 파일을 묶으며, 파일을 읽으면서 응답 스트림에 바로 압축한다.
+     * @param files 파일 정보 목록
+     * @param subPath 서브디렉토리 경로 (파일 정보 목록이 없는 경우)
+     * @param filename ZIP 파일명
+     * @param response 응답
+     * @throws Exception
+     */
+    @RequestMapping(value = "/api/co/file/download/zip", method = {RequestMethod.GET, RequestMethod.POST})
+    public void downloadZip(@RequestBody(required = false) List<UploadFile> files,
+                            @RequestParam(value = "subPath", required = false) String subPath,
+                            @RequestParam(value = "filename", required = false) String filename,
+                            HttpServletResponse response) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> downloadZip", this.getClass().getName());
         }
 
         try {
-            byte[] bytes = FileCopyUtils.copyToByteArray(file);
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(UploadHelper.getMimeType(uploadFile));
-            headers.set("Content-Disposition", "attachment; filename=" + URLEncoder.encode(uploadFile.getFilename(), "UTF-8") + ";");
-            headers.set("Content-Transfer-Encoding", "binary");
-            headers.setContentLength(bytes.length);
-            return new HttpEntity<>(bytes, headers);
+            if(files == null || files.isEmpty()) {
+                if(StringUtils.isEmpty(subPath)) {
+                    throw new BizException("파일 정보 또는 subPath 정보가 입력되지 않았습니다.");
+                }
+                files = zipDownloadService.list(subPath);
+            }
+
+            List<UploadFile> resolved = new ArrayList<>(files.size());
+            for(UploadFile uploadFile : files) {
+                if(uploadFile != null && StringUtils.hasText(uploadFile.getId())) {
+                    uploadFile = findById(uploadFile.getId());
+                }
+                if(uploadFile == null || StringUtils.isEmpty(uploadFile.getSubPath()) || StringUtils.isEmpty(uploadFile.getServerFilename())) {
+                    throw new BizException("잘못된 파일 정보입니다. index:[" + (resolved.size() + 1) + "]");
+                }
+                resolved.add(uploadFile);
+            }
+            files = resolved;
+
+            List<ZipDownloadService.ZipItem> items = zipDownloadService.prepare(files);
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType("application/zip");
+            response.setHeader("Content-Disposition", "attachment; filename=" + URLEncoder.encode(StringUtils.isEmpty(filename) ? "download.zip" : filename, "UTF-8") + ";");
+            zipDownloadService.write(items, response.getOutputStream());
 
         } catch(IOException e) {
             throw new BizException("파일 다운로드시 오류가 발생하였습니다.");
         }
     }
 
+    /**
+     * 서버에 업로드되어 있는 파일을 삭제한다.
+     * @param uploadFile 파일 정보
+     * @return 삭제된 파일 정보
+     * @throws Exception
+     */
+    @DeleteMapping("/api/co/file/delete")
+    public ResponseEntity<UploadFile> delete(@RequestBody UploadFile uploadFile) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> delete", this.getClass().getName());
+            log.debug(String.valueOf(uploadFile));
+        }
+
+        if(uploadFile == null) {
+            throw new BizException("잘못된 입력정보입니다.");
+        }
+        if(StringUtils.hasText(uploadFile.getId())) {
+            uploadFile = findById(uploadFile.getId());
+        }
+        if(StringUtils.isEmpty(uploadFile.getSubPath())) {
+            throw new BizException("subPath 정보가 입력되지 않았습니다.");
+        }
+        if(StringUtils.isEmpty(uploadFile.getServerFilename())) {
+            throw new BizException("serverFilename 정보가 입력되지 않았습니다.");
+        }
+
+        try {
+            String key = UploadHelper.toKey(uploadFile);
+            if(!storageEngine.delete(key)) {
+                throw new BizException("파일을 찾을 수 없습니다.");
+            }
+            fileIndexService.removeByKey(key);
+            thumbnailService.delete(uploadFile);
+            return new ResponseEntity<>(uploadFile, HttpStatus.OK);
+
+        } catch(IOException e) {
+            throw new BizException("파일 삭제시 오류가 발생하였습니다.");
+        }
+    }
+
     /**
      * 파일을 업로드한다. (JSON 메시지를 RequestBody로 받음)
      * @param files 업로드한 파일 정보
@@ -176,44 +457,184 @@ public class UploadController {
             throw new BizException("파일을 찾을 수 없습니다.");
         }
 
-        //파일을 저장
+        //파일을 저장 (처리하지 못한 파일이 있으면 먼저 저장한 파일을 삭제)
+        List<UploadFile> saved = new ArrayList<>(files.size());
         int index = 1;
-        for(UploadFile uploadFile : files) {
-            if(uploadFile == null) {
-                throw new BizException("잘못된 파일입니다. index:[" + index + "]");
-            }
-            log.debug(uploadFile.toString());
+        try {
+            for(UploadFile uploadFile : files) {
+                if(uploadFile == null) {
+                    throw new BizException("잘못된 파일입니다. index:[" + index + "]");
+                }
+                log.debug(uploadFile.toString());
 
-            //filename 파라미터 체크
-            if(StringUtils.isEmpty(uploadFile.getFilename())) {
-                throw new BizException("filename 설정정보를 찾을 수 없습니다. index:[" + index + "]");
-            }
+                //filename 파라미터 체크
+                if(StringUtils.isEmpty(uploadFile.getFilename())) {
+                    throw new BizException("filename 설정정보를 찾을 수 없습니다. index:[" + index + "]");
+                }
+
+                //base64String 파라미터 체크
+                if(StringUtils.isEmpty(uploadFile.getBase64String())) {
+                    throw new BizException("파일을 찾을 수 없습니다. index:[" + index + "]");
+                }
+
+                //subPath 파라미터 체크
+                if(StringUtils.isEmpty(uploadFile.getSubPath())) {
+                    throw new BizException("subPath 설정정보를 찾을 수 없습니다. index:[" + index + "]");
+                }
 
-            //base64String 파라미터 체크
-            if(StringUtils.isEmpty(uploadFile.getBase64String())) {
-                throw new BizException("파일을 찾을 수 없습니다. index:[" + index + "]");
+                //기본 확장자 체크
+                if(UploadHelper.isDenyExtension(uploadFile)) {
+                    MetricsHelper.rejected(MetricsHelper.REJECT_EXTENSION);
+                    throw new BizException("허용되지 않는 확장자입니다. [" + uploadFile.getExtension() + "]");
+                }
+
+                try {
+                    uploadFile.init(basePath);
+                    UploadHelper.save(storageEngine, uploadFile, compress, largeFileThreshold.toBytes(), mappedFile);
+                    saved.add(uploadFile);
+                    uploadFile.setBase64String(null);
+                    fileIndexService.register(uploadFile);
+
+                } catch(IOException e) {
+                    throw new BizException("파일 업로드시 오류가 발생하였습니다. index:[" + index + "]");
+                }
+                ++index;
             }
 
-            //subPath 파라미터 체크
-            if(StringUtils.isEmpty(uploadFile.getSubPath())) {
-                throw new BizException("subPath 설정정보를 찾을 수 없습니다. index:[" + index + "]");
+        } catch(BizException | RuntimeException e) {
+            rollback(saved);
+            throw e;
+        }
+        MetricsHelper.uploaded("upload2", files.size(), files.stream().mapToLong(UploadFile::getSize).sum());
+        return new ResponseEntity<>(files, HttpStatus.OK);
+    }
+
+    /**
+     * 파일을 업로드한다. (JSON 메시지를 스트림으로 읽음)
+     * upload2와 같은 형식의 요청을 받지만 base64String 값을 메모리에 적재하지 않고 파일로 바로 디코딩한다.
+     * base64String은 표준 BASE64(패딩 필요)만 받는다. URL-safe 알파벳이나 패딩 없는 문자열은 upload2를 사용한다.
+     * @param request 요청
+     * @return 서버에 업로드된 파일 정보
+     * @throws Exception
+     */
+    @PostMapping("/api/co/file/upload2/stream")
+    public ResponseEntity<List<UploadFile>> upload2Stream(HttpServletRequest request) throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> upload2Stream", this.getClass().getName());
+        }
+
+        if(StringUtils.isEmpty(basePath)) {
+            throw new BizException("basePath 설정이 잘못되었습니다.");
+        }
+
+        try {
+            List<UploadFile> files = Base64UploadReader.save(request.getInputStream(), basePath, storageEngine);
+            register(files);
+            MetricsHelper.uploaded("upload2/stream", files.size(), files.stream().mapToLong(UploadFile::getSize).sum());
+            return new ResponseEntity<>(files, HttpStatus.OK);
+
+        } catch(JsonProcessingException e) {
+            throw new BizException("잘못된 입력정보입니다.");
+        } catch(IOException e) {
+            throw new BizException("파일 업로드시 오류가 발생하였습니다.");
+        }
+    }
+
+    /**
+     * 다운로드 응답의 Cache-Control 헤더를 설정한다. (file.download.cacheControl, 304 응답에도 포함)
+     * @param response 응답
+     */
+    private void setCacheControl(HttpServletResponse response) {
+        if(!StringUtils.isEmpty(cacheControl)) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+    }
+
+    /**
+     * 파일 또는 썸네일을 응답으로 전송한다.
+     * 비동기 모드(file.async.enabled)이면 본문은 비동기 서블릿 I/O로 전송하고 요청 스레드는 바로 반환된다.
+     * @param uploadFile 파일 정보
+     * @param size 썸네일 크기 (null이면 원본)
+     * @param request 요청
+     * @param response 응답
+     * @throws BizException
+     */
+    private void write(UploadFile uploadFile, Integer size, HttpServletRequest request, HttpServletResponse response) throws BizException {
+        String key = UploadHelper.toKey(uploadFile);
+
+        //업로드시 판별한 마임타입, 계산한 체크섬, 압축 저장 여부 (색인에 등록된 파일, 요청의 파일 정보는 사용하지 않음)
+        FileMetadata metadata = fileIndexService.getByKey(key);
+        uploadFile.setCompressed(metadata != null && metadata.isCompressed());
+        if(metadata != null) {
+            uploadFile.setMimeType(metadata.getMimeType());
+            uploadFile.setHash(metadata.getHash());
+            uploadFile.setCrc32c(metadata.getCrc32c());
+        }
+        //썸네일은 원본과 내용이 다르다.
+        if(size != null) {
+            uploadFile.setHash(null);
+            uploadFile.setCrc32c(null);
+        }
+        try {
+            if(size != null) {
+                key = thumbnailService.get(uploadFile, size);
             }
+            setCacheControl(response);
+            DownloadHelper.write(request, response, uploadFile, storageEngine, key, async ? asyncIoExecutor : null);
 
-            //기본 확장자 체크
-            if(UploadHelper.isDenyExtension(uploadFile)) {
-                throw new BizException("허용되지 않는 확장자입니다. [" + uploadFile.getExtension() + "]");
+        } catch(NoSuchFileException e) {
+            throw new BizException("파일을 찾을 수 없습니다.");
+        } catch(IOException e) {
+            throw new BizException("파일 다운로드시 오류가 발생하였습니다.");
+        }
+    }
+
+    /**
+     * 서버 색인에서 파일 ID의 파일 정보를 찾는다.
+     * @param id 파일 ID
+     * @return 파일 정보
+     * @throws BizException 색인에 없는 경우
+     */
+    private UploadFile findById(String id) throws BizException {
+        FileMetadata metadata = fileIndexService.get(id);
+        if(metadata == null) {
+            throw new BizException("파일을 찾을 수 없습니다.");
+        }
+        return fileIndexService.toUploadFile(metadata);
+    }
+
+    /**
+     * 저장된 파일들을 서버 색인에 등록한다. (응답의 파일 정보에 ID 설정)
+     * 등록에 실패하면 저장된 파일과 먼저 등록한 색인을 모두 삭제한다.
+     * @param uploadFiles 저장된 파일 정보
+     * @throws IOException
+     */
+    private void register(List<UploadFile> uploadFiles) throws IOException {
+        try {
+            for(UploadFile uploadFile : uploadFiles) {
+                fileIndexService.register(uploadFile);
             }
 
+        } catch(IOException | RuntimeException e) {
+            rollback(uploadFiles);
+            throw e;
+        }
+    }
+
+    /**
+     * 요청을 처리하지 못한 경우 저장된 파일과 색인을 삭제한다.
+     * @param uploadFiles 저장된 파일 정보
+     */
+    private void rollback(List<UploadFile> uploadFiles) {
+        for(UploadFile uploadFile : uploadFiles) {
+            String key = UploadHelper.toKey(uploadFile);
             try {
-                uploadFile.init(basePath);
-                UploadHelper.save(uploadFile);
-                uploadFile.setBase64String(null);
+                fileIndexService.removeByKey(key);
+                storageEngine.delete(key);
 
             } catch(IOException e) {
-                throw new BizException("파일 업로드시 오류가 발생하였습니다. index:[" + index + "]");
+                log.warn("업로드 실패 파일을 삭제하지 못했습니다. [{}]", key);
             }
-            ++index;
         }
-        return new ResponseEntity<>(files, HttpStatus.OK);
     }
 }
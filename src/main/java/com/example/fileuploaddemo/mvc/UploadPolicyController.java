@@ -0,0 +1,40 @@
+package com.example.fileuploaddemo.mvc;
+
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.service.UploadPolicyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@Slf4j
+@RestController
+public class UploadPolicyController {
+
+    @Autowired
+    private UploadPolicyService uploadPolicyService;
+
+    /**
+     * 업로드 정책을 다시 읽어서 반영한다.
+     * @return 응답 없음
+     * @throws Exception
+     */
+    @PostMapping("/api/co/file/policy/reload")
+    public ResponseEntity<Void> reload() throws BizException {
+        if(log.isDebugEnabled()) {
+            log.debug("{} -> reload", this.getClass().getName());
+        }
+
+        try {
+            uploadPolicyService.reload();
+
+        } catch(IOException | RuntimeException e) {
+            log.warn("업로드 정책을 다시 읽지 못했습니다.", e);
+            throw new BizException("업로드 정책을 읽을 수 없습니다.");
+        }
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+}
@@ -0,0 +1,693 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.ChunkUpload;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.ContentDigest;
+import com.example.fileuploaddemo.helper.ContentSniffer;
+import com.example.fileuploaddemo.helper.ExtensionPolicy;
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.PreallocatedFile;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * 조각(chunk) 단위 이어올리기 업로드 세션을 관리한다.
+ * 세션마다 전체 크기로 미리 할당한 파일에 조각을 오프셋 위치로 기록하고 (대용량 파일은 설정에 따라 메모리 매핑),
+ * 수신 완료된 조각 번호는 인덱스 파일에 추가 기록해서 서버가 재시작되어도 이어올리기가 가능하다.
+ * (수신 완료 후 다시 받다가 실패해서 내용이 바뀌었을 수 있는 조각은 -(번호 + 1)로 기록해서 수신하지 않은 것으로 되돌린다)
+ */
+@Slf4j
+@Service
+public class ChunkUploadService {
+
+    /**
+     * 세션 디렉토리명 (basePath 하위)
+     */
+    private static final String CHUNK_DIRECTORY = ".chunks";
+
+    /**
+     * 최소 조각 크기
+     */
+    private static final long MIN_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * 읽기 버퍼 크기
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 업로드 세션 ID 형식
+     */
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 진행중인 업로드 세션
+     */
+    private final ConcurrentMap<String, ChunkSession> sessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private StorageEngine storageEngine;
+
+    @Autowired
+    private FileIndexService fileIndexService;
+
+    @Value("${file.upload.basePath}")
+    private String basePath;
+
+    @Value("${file.upload.chunk.defaultChunkSize:8MB}")
+    private DataSize defaultChunkSize;
+
+    @Value("${file.upload.chunk.maxChunkSize:64MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${file.upload.chunk.maxFileSize:10GB}")
+    private DataSize maxFileSize;
+
+    @Value("${file.upload.chunk.expire:24h}")
+    private Duration expire;
+
+    @Value("${file.upload.largeFile.threshold:16MB}")
+    private DataSize largeFileThreshold;
+
+    @Value("${file.upload.largeFile.mapped:false}")
+    private boolean mappedFile;
+
+    /**
+     * 업로드 세션을 시작한다.
+     * @param uploadFile 업로드할 파일 정보 (filename, subPath, size 필수)
+     * @param chunkSize 조각 크기 (null이면 기본값)
+     * @return 업로드 세션 정보
+     * @throws IOException
+     * @throws BizException
+     */
+    public ChunkUpload init(UploadFile uploadFile, Long chunkSize) throws IOException, BizException {
+        if(StringUtils.isEmpty(basePath)) {
+            throw new BizException("basePath 설정이 잘못되었습니다.");
+        }
+        if(uploadFile == null) {
+            throw new BizException("잘못된 입력정보입니다.");
+        }
+        if(StringUtils.isEmpty(uploadFile.getFilename())) {
+            throw new BizException("filename 설정정보를 찾을 수 없습니다.");
+        }
+        if(StringUtils.isEmpty(uploadFile.getSubPath())) {
+            throw new BizException("subPath 설정정보를 찾을 수 없습니다.");
+        }
+        if(uploadFile.getSize() <= 0) {
+            throw new BizException("size 설정정보가 잘못되었습니다.");
+        }
+        if(uploadFile.getSize() > maxFileSize.toBytes()) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_SIZE);
+            throw new BizException("업로드 파일 크기가 너무 큽니다.");
+        }
+
+        long size = chunkSize == null ? defaultChunkSize.toBytes() : chunkSize;
+        if(size < MIN_CHUNK_SIZE || size > maxChunkSize.toBytes()) {
+            throw new BizException("chunkSize 설정정보가 잘못되었습니다. [" + MIN_CHUNK_SIZE + " ~ " + maxChunkSize.toBytes() + "]");
+        }
+
+        uploadFile.setBase64String(null);
+        uploadFile.init(basePath);
+        if(UploadHelper.isDenyExtension(uploadFile)) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_EXTENSION);
+            throw new BizException("허용되지 않는 확장자입니다. [" + uploadFile.getExtension() + "]");
+        }
+        //확장자의 마임타입으로 크기를 미리 검사 (완료시 내용으로 다시 검사)
+        long maxTypeSize = ExtensionPolicy.current().getMaxFileSize(ContentSniffer.toMimeType(uploadFile.getExtension()), uploadFile.getSubPath());
+        if(maxTypeSize >= 0 && uploadFile.getSize() > maxTypeSize) {
+            MetricsHelper.rejected(MetricsHelper.REJECT_SIZE);
+            throw new BizException("업로드 파일 크기가 너무 큽니다.");
+        }
+
+        ChunkUpload chunkUpload = new ChunkUpload();
+        chunkUpload.setUploadId(UUID.randomUUID().toString().replace("-", ""));
+        chunkUpload.setUploadFile(uploadFile);
+        chunkUpload.setChunkSize(size);
+        chunkUpload.setChunkCount((int) ((uploadFile.getSize() + size - 1) / size));
+
+        File directory = getChunkDirectory();
+        if(!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        //전체 크기로 미리 할당
+        PreallocatedFile file = openPartFile(chunkUpload, true);
+        ChunkSession session;
+        try {
+            Files.createFile(getIndexFile(chunkUpload.getUploadId()).toPath());
+            objectMapper.writeValue(getSessionFile(chunkUpload.getUploadId()), chunkUpload);
+            session = new ChunkSession(chunkUpload, file);
+
+        } catch(IOException e) {
+            file.close();
+            throw e;
+        }
+        sessions.put(chunkUpload.getUploadId(), session);
+        log.debug("chunk upload init [{}] {}", chunkUpload.getUploadId(), uploadFile);
+        return session.toChunkUpload();
+    }
+
+    /**
+     * 조각을 수신해서 미리 할당된 파일의 오프셋 위치에 기록한다.
+     * 같은 세션의 조각은 순서와 관계없이 동시에 수신할 수 있다.
+     * 요청에 Content-MD5, Digest 헤더가 있으면 조각 내용과 비교하고, 일치하지 않으면 수신하지 않은 것으로 처리한다.
+     * 크기나 체크섬이 맞지 않거나 수신 도중 실패하면 파일의 조각 위치가 이미 바뀌었을 수 있으므로,
+     * 이전에 수신 완료한 조각이라도 수신하지 않은 것으로 되돌린다. (다시 받아야 완료할 수 있음)
+     * @param uploadId 업로드 세션 ID
+     * @param index 조각 번호 (0부터 시작)
+     * @param in 조각 데이터
+     * @param contentLength 요청 본문 크기 (알 수 없으면 -1)
+     * @param contentMd5 조각의 Content-MD5 헤더 (없으면 null)
+     * @param digestHeader 조각의 Digest 헤더 (없으면 null)
+     * @return 업로드 세션 정보
+     * @throws IOException
+     * @throws BizException
+     */
+    public ChunkUpload write(String uploadId, int index, InputStream in, long contentLength, String contentMd5, String digestHeader) throws IOException, BizException {
+        ChunkSession session = getSession(uploadId);
+        if(index < 0 || index >= session.chunkCount) {
+            throw new BizException("조각 번호가 잘못되었습니다. index:[" + index + "]");
+        }
+
+        long position = index * session.chunkSize;
+        long expected = Math.min(session.chunkSize, session.uploadFile.getSize() - position);
+        if(contentLength >= 0 && contentLength != expected) {
+            throw new BizException("조각 크기가 일치하지 않습니다. index:[" + index + "] expected:[" + expected + "]");
+        }
+
+        boolean modified = false;
+        boolean accepted = false;
+        session.lock.readLock().lock();
+        try {
+            if(session.closed) {
+                throw new BizException("종료된 업로드 세션입니다.");
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ContentSniffer sniffer = index == 0 ? new ContentSniffer() : null;
+            ContentDigest chunkDigest = StringUtils.isNotEmpty(contentMd5) || StringUtils.isNotEmpty(digestHeader)
+                    ? ContentDigest.forRequest(contentMd5, digestHeader) : null;
+            long digestGeneration = session.digestGeneration();
+            ContentDigest fileDigest = session.nextDigest(index);
+            long written = 0;
+            int read;
+            try(PreallocatedFile.Region region = session.file.region(position, expected)) {
+                while((read = in.read(buffer, 0, (int) Math.min(buffer.length, expected - written + 1))) > 0) {
+                    if(written + read > expected) {
+                        throw new BizException("조각 크기가 일치하지 않습니다. index:[" + index + "] expected:[" + expected + "]");
+                    }
+                    if(sniffer != null) {
+                        sniffer.update(buffer, 0, read);
+                    }
+                    if(chunkDigest != null) {
+                        chunkDigest.update(buffer, 0, read);
+                    }
+                    if(fileDigest != null) {
+                        fileDigest.update(buffer, 0, read);
+                    }
+                    modified = true;
+                    region.write(buffer, 0, read);
+                    written += read;
+                }
+                if(written != expected) {
+                    throw new BizException("조각 크기가 일치하지 않습니다. index:[" + index + "] expected:[" + expected + "]");
+                }
+
+                if(chunkDigest != null) {
+                    chunkDigest.verify(contentMd5, digestHeader, session.uploadFile.getFilename() + " index:[" + index + "]");
+                }
+
+                //조각 데이터를 디스크에 반영한 뒤 수신 기록
+                region.force();
+            }
+            session.markReceived(index);
+            accepted = true;
+            session.advanceDigest(index, fileDigest, digestGeneration);
+            if(sniffer != null) {
+                session.sniffer = sniffer;
+            }
+            MetricsHelper.bytesIn(written);
+
+        } finally {
+            if(modified && !accepted) {
+                session.invalidate(index);
+            }
+            session.lock.readLock().unlock();
+        }
+        return session.toChunkUpload();
+    }
+
+    /**
+     * 업로드 세션 정보를 반환한다.
+     * @param uploadId 업로드 세션 ID
+     * @return 업로드 세션 정보
+     * @throws IOException
+     * @throws BizException
+     */
+    public ChunkUpload status(String uploadId) throws IOException, BizException {
+        return getSession(uploadId).toChunkUpload();
+    }
+
+    /**
+     * 모든 조각이 수신된 업로드를 완료하고 파일을 저장 위치로 이동한다.
+     * 요청에 Digest 헤더(sha-256, crc32c)가 있으면 전체 파일의 체크섬과 비교한다.
+     * @param uploadId 업로드 세션 ID
+     * @param contentMd5 전체 파일의 Content-MD5 헤더 (없으면 null, 조각 단위로만 계산하므로 무시됨)
+     * @param digestHeader 전체 파일의 Digest 헤더 (없으면 null)
+     * @return 저장된 파일 정보
+     * @throws IOException
+     * @throws BizException
+     */
+    public UploadFile commit(String uploadId, String contentMd5, String digestHeader) throws IOException, BizException {
+        ChunkSession session = getSession(uploadId);
+        session.lock.writeLock().lock();
+        try {
+            if(session.closed) {
+                throw new BizException("종료된 업로드 세션입니다.");
+            }
+            int missing = session.chunkCount - session.receivedCount();
+            if(missing > 0) {
+                throw new BizException("수신되지 않은 조각이 있습니다. count:[" + missing + "]");
+            }
+
+            //첫 조각을 기록하면서 복사한 앞부분으로 형식을 판별 (세션을 복원한 경우에만 파일 앞부분을 읽음)
+            ContentSniffer sniffer = session.sniffer;
+            if(sniffer == null) {
+                sniffer = new ContentSniffer();
+                try(InputStream in = Files.newInputStream(getPartFile(uploadId).toPath())) {
+                    sniffer.fill(in);
+                }
+            }
+
+            //순서대로 수신한 조각까지는 수신하면서 계산한 체크섬을 이어서 사용하고, 나머지 조각만 파일에서 읽는다.
+            ContentDigest digest = session.finishDigest();
+
+            //세션을 닫은 뒤에는 실패해도 다시 완료할 수 없으므로 세션과 저장한 파일을 정리한다.
+            session.close();
+            boolean saved = false;
+            try {
+                digest.verify(contentMd5, digestHeader, session.uploadFile.getFilename());
+                digest.apply(session.uploadFile);
+                UploadHelper.save(storageEngine, getPartFile(uploadId), session.uploadFile, sniffer);
+                saved = true;
+                fileIndexService.register(session.uploadFile);
+
+            } catch(BizException | IOException e) {
+                if(saved) {
+                    String key = UploadHelper.toKey(session.uploadFile);
+                    try {
+                        storageEngine.delete(key);
+
+                    } catch(IOException ex) {
+                        log.warn("업로드 실패 파일을 삭제하지 못했습니다. [{}]", key);
+                    }
+                }
+                deleteSessionFiles(uploadId);
+                sessions.remove(uploadId);
+                throw e;
+            }
+            deleteSessionFiles(uploadId);
+            sessions.remove(uploadId);
+            log.debug("chunk upload commit [{}] {}", uploadId, session.uploadFile);
+            return session.uploadFile;
+
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 업로드 세션을 취소하고 수신한 데이터를 삭제한다.
+     * @param uploadId 업로드 세션 ID
+     * @throws IOException
+     * @throws BizException
+     */
+    public void abort(String uploadId) throws IOException, BizException {
+        ChunkSession session = getSession(uploadId);
+        session.lock.writeLock().lock();
+        try {
+            session.close();
+            deleteSessionFiles(uploadId);
+            sessions.remove(uploadId);
+
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 만료된 업로드 세션을 정리한다.
+     */
+    @Scheduled(fixedDelayString = "${file.upload.chunk.cleanupInterval:600000}")
+    public void cleanup() {
+        File[] sessionFiles = getChunkDirectory().listFiles((dir, name) -> name.endsWith(".json"));
+        if(sessionFiles == null) {
+            return;
+        }
+
+        long expireTime = System.currentTimeMillis() - expire.toMillis();
+        for(File sessionFile : sessionFiles) {
+            String uploadId = sessionFile.getName().substring(0, sessionFile.getName().length() - ".json".length());
+            if(getIndexFile(uploadId).lastModified() < expireTime && sessionFile.lastModified() < expireTime) {
+                try {
+                    log.info("만료된 업로드 세션을 삭제합니다. [{}]", uploadId);
+                    abort(uploadId);
+
+                } catch(IOException | BizException e) {
+                    log.warn("만료된 업로드 세션 삭제시 오류가 발생하였습니다. [{}]", uploadId, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 업로드 세션을 반환한다. 메모리에 없으면 세션 파일에서 복원한다.
+     * @param uploadId 업로드 세션 ID
+     * @return 업로드 세션
+     * @throws IOException
+     * @throws BizException
+     */
+    private ChunkSession getSession(String uploadId) throws IOException, BizException {
+        if(uploadId == null || !UPLOAD_ID_PATTERN.matcher(uploadId).matches()) {
+            throw new BizException("업로드 세션 ID가 잘못되었습니다.");
+        }
+
+        ChunkSession session = sessions.get(uploadId);
+        if(session != null) {
+            return session;
+        }
+
+        File sessionFile = getSessionFile(uploadId);
+        if(!sessionFile.exists()) {
+            throw new BizException("업로드 세션을 찾을 수 없습니다.");
+        }
+        synchronized(sessions) {
+            session = sessions.get(uploadId);
+            if(session == null) {
+                ChunkUpload chunkUpload = objectMapper.readValue(sessionFile, ChunkUpload.class);
+                session = new ChunkSession(chunkUpload, openPartFile(chunkUpload, false));
+                session.load();
+                sessions.put(uploadId, session);
+            }
+        }
+        return session;
+    }
+
+    /**
+     * 조각을 기록할 파일을 연다. 파일 크기가 largeFile.threshold 이상이면 설정에 따라 메모리 매핑으로 기록한다.
+     * @param chunkUpload 업로드 세션 정보
+     * @param create true 새로 만들어서 전체 크기로 미리 할당, false 기존 파일을 염
+     * @return 미리 할당한 파일
+     * @throws IOException
+     */
+    private PreallocatedFile openPartFile(ChunkUpload chunkUpload, boolean create) throws IOException {
+        Path path = getPartFile(chunkUpload.getUploadId()).toPath();
+        long size = chunkUpload.getUploadFile().getSize();
+        boolean mapped = mappedFile && size >= largeFileThreshold.toBytes();
+        return create ? PreallocatedFile.create(path, size, mapped) : PreallocatedFile.open(path, mapped);
+    }
+
+    private void deleteSessionFiles(String uploadId) {
+        getPartFile(uploadId).delete();
+        getIndexFile(uploadId).delete();
+        getSessionFile(uploadId).delete();
+    }
+
+    private File getChunkDirectory() {
+        return new File(UploadHelper.toBasePath(basePath), CHUNK_DIRECTORY);
+    }
+
+    private File getPartFile(String uploadId) {
+        return new File(getChunkDirectory(), uploadId + ".part");
+    }
+
+    private File getIndexFile(String uploadId) {
+        return new File(getChunkDirectory(), uploadId + ".idx");
+    }
+
+    private File getSessionFile(String uploadId) {
+        return new File(getChunkDirectory(), uploadId + ".json");
+    }
+
+    /**
+     * 업로드 세션 상태
+     */
+    private class ChunkSession {
+
+        private final String uploadId;
+        private final UploadFile uploadFile;
+        private final long chunkSize;
+        private final int chunkCount;
+
+        /**
+         * 수신 완료된 조각
+         */
+        private final BitSet received;
+
+        /**
+         * 조각 기록과 완료/취소 사이의 잠금 (조각 기록은 동시에 가능)
+         */
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        /**
+         * 미리 할당된 파일
+         */
+        private final PreallocatedFile file;
+
+        /**
+         * 수신 완료 조각 번호 기록 채널
+         */
+        private final FileChannel indexChannel;
+
+        /**
+         * 첫 조각의 앞부분 (내용 형식 판별)
+         */
+        private volatile ContentSniffer sniffer;
+
+        /**
+         * 앞에서부터 빠짐없이 수신한 조각까지의 전체 파일 체크섬 (this 잠금 안에서 사용)
+         */
+        private ContentDigest digest = new ContentDigest();
+        private int digestedChunks;
+
+        /**
+         * 체크섬을 처음부터 다시 계산할 때마다 증가 (그 전에 복사한 체크섬은 반영하지 않음)
+         */
+        private long digestGeneration;
+
+        private volatile boolean closed;
+
+        ChunkSession(ChunkUpload chunkUpload, PreallocatedFile file) throws IOException {
+            this.uploadId = chunkUpload.getUploadId();
+            this.uploadFile = chunkUpload.getUploadFile();
+            this.chunkSize = chunkUpload.getChunkSize();
+            this.chunkCount = chunkUpload.getChunkCount();
+            this.received = new BitSet(chunkCount);
+            this.file = file;
+            this.indexChannel = FileChannel.open(getIndexFile(uploadId).toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        /**
+         * 인덱스 파일에서 수신 완료된 조각 번호를 복원한다.
+         * @throws IOException
+         */
+        void load() throws IOException {
+            try(DataInputStream in = new DataInputStream(Files.newInputStream(getIndexFile(uploadId).toPath()))) {
+                while(true) {
+                    int index = in.readInt();
+                    if(index >= 0 && index < chunkCount) {
+                        received.set(index);
+                    } else if(index < 0 && -index - 1 < chunkCount) {
+                        received.clear(-index - 1);
+                    }
+                }
+            } catch(EOFException e) {
+                //기록 끝 (마지막 기록이 잘린 경우 해당 조각은 다시 수신)
+            }
+        }
+
+        /**
+         * 조각 수신 완료를 기록한다.
+         * @param index 조각 번호
+         * @throws IOException
+         */
+        synchronized void markReceived(int index) throws IOException {
+            if(received.get(index)) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(4).putInt(index);
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                indexChannel.write(buffer);
+            }
+            received.set(index);
+        }
+
+        /**
+         * 조각을 수신하지 않은 것으로 되돌린다. (인덱스 파일에 -(번호 + 1)로 기록)
+         * 전체 파일 체크섬에 이미 반영한 조각이면 체크섬도 처음부터 다시 계산한다.
+         * 인덱스 파일 기록에 실패해도 메모리의 수신 상태는 되돌린다.
+         * @param index 조각 번호
+         */
+        synchronized void invalidate(int index) {
+            if(!received.get(index)) {
+                return;
+            }
+            received.clear(index);
+            if(index < digestedChunks) {
+                resetDigest();
+            }
+            log.debug("chunk upload invalidate [{}] index:[{}]", uploadId, index);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(4).putInt(-index - 1);
+                buffer.flip();
+                while(buffer.hasRemaining()) {
+                    indexChannel.write(buffer);
+                }
+
+            } catch(IOException e) {
+                log.warn("조각 수신 취소를 기록하지 못했습니다. [{}] index:[{}]", uploadId, index, e);
+            }
+        }
+
+        synchronized int receivedCount() {
+            return received.cardinality();
+        }
+
+        /**
+         * 체크섬 세대를 반환한다. (nextDigest 전에 조회해서 advanceDigest에 전달)
+         * @return 체크섬 세대
+         */
+        synchronized long digestGeneration() {
+            return digestGeneration;
+        }
+
+        /**
+         * 조각이 체크섬을 이어서 계산할 차례이면 현재 체크섬의 복사본을 반환한다.
+         * @param index 조각 번호
+         * @return 체크섬 복사본, 차례가 아니면 null
+         */
+        synchronized ContentDigest nextDigest(int index) {
+            return index == digestedChunks ? digest.copy() : null;
+        }
+
+        /**
+         * 수신 완료한 조각까지 전체 파일 체크섬을 반영한다.
+         * 이미 반영한 조각을 다시 받으면 내용이 바뀌었을 수 있으므로 처음부터 다시 계산한다. (완료시 파일에서 읽음)
+         * 복사한 뒤 체크섬을 다시 계산하기 시작했으면 이전 내용으로 계산한 것이므로 반영하지 않는다.
+         * @param index 조각 번호
+         * @param next 조각 내용까지 계산한 체크섬 (차례가 아니었으면 null)
+         * @param generation 복사하기 전에 조회한 체크섬 세대
+         */
+        synchronized void advanceDigest(int index, ContentDigest next, long generation) {
+            if(index < digestedChunks) {
+                resetDigest();
+            } else if(next != null && index == digestedChunks && generation == digestGeneration) {
+                digest = next;
+                ++digestedChunks;
+            }
+        }
+
+        /**
+         * 전체 파일 체크섬을 처음부터 다시 계산한다. (this 잠금 안에서 호출)
+         */
+        private void resetDigest() {
+            digest = new ContentDigest();
+            digestedChunks = 0;
+            ++digestGeneration;
+        }
+
+        /**
+         * 아직 반영하지 않은 조각을 파일에서 읽어서 전체 파일 체크섬 계산을 마친다.
+         * @return 전체 파일 체크섬
+         * @throws IOException
+         */
+        synchronized ContentDigest finishDigest() throws IOException {
+            long position = digestedChunks * chunkSize;
+            if(position < uploadFile.getSize()) {
+                log.debug("chunk upload digest [{}] read from:[{}]", uploadId, position);
+                try(FileChannel part = FileChannel.open(getPartFile(uploadId).toPath(), StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    int read;
+                    while((read = part.read(buffer, position)) > 0) {
+                        buffer.flip();
+                        digest.update(buffer);
+                        buffer.clear();
+                        position += read;
+                    }
+                }
+            }
+            digestedChunks = chunkCount;
+            return digest.finish();
+        }
+
+        /**
+         * 세션의 파일 채널을 닫는다.
+         */
+        void close() {
+            closed = true;
+            try {
+                file.close();
+                indexChannel.close();
+
+            } catch(IOException e) {
+                log.warn("업로드 세션 파일을 닫지 못했습니다. [{}]", uploadId, e);
+            }
+        }
+
+        /**
+         * 현재 세션 정보를 반환한다.
+         * @return 업로드 세션 정보
+         */
+        synchronized ChunkUpload toChunkUpload() {
+            List<Integer> receivedChunks = new ArrayList<>(received.cardinality());
+            long receivedBytes = 0;
+            for(int i = received.nextSetBit(0); i >= 0; i = received.nextSetBit(i + 1)) {
+                receivedChunks.add(i);
+                receivedBytes += Math.min(chunkSize, uploadFile.getSize() - i * chunkSize);
+            }
+
+            ChunkUpload chunkUpload = new ChunkUpload();
+            chunkUpload.setUploadId(uploadId);
+            chunkUpload.setUploadFile(uploadFile);
+            chunkUpload.setChunkSize(chunkSize);
+            chunkUpload.setChunkCount(chunkCount);
+            chunkUpload.setReceivedChunks(receivedChunks);
+            chunkUpload.setReceivedBytes(receivedBytes);
+            chunkUpload.setComplete(receivedChunks.size() == chunkCount);
+            return chunkUpload;
+        }
+    }
+}
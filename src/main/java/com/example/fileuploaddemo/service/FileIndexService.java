@@ -0,0 +1,324 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.FileMetadata;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 파일 메타데이터 색인
+ * 저장된 파일의 메타데이터를 파일 ID로 조회할 수 있도록 메모리에 보관하고, 변경 내용은 색인 로그 파일에 한 줄씩(JSON) 추가 기록한다.
+ * 서버를 시작하면 로그를 다시 읽어서 색인을 복원하며, 삭제되거나 대체된 기록이 많으면 살아있는 기록만 남기도록 로그를 다시 쓴다.
+ */
+@Slf4j
+@Service
+public class FileIndexService {
+
+    /**
+     * 색인 디렉토리명 (basePath 하위)
+     */
+    private static final String INDEX_DIRECTORY = ".meta";
+
+    /**
+     * 색인 로그 파일명
+     */
+    private static final String INDEX_FILENAME = "index.log";
+
+    /**
+     * 로그를 다시 쓰는 최소 기록 개수
+     */
+    private static final int COMPACT_MIN_RECORDS = 1000;
+
+    /**
+     * 파일 ID 형식
+     */
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    private final ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    /**
+     * 파일 ID -> 메타데이터
+     */
+    private final Map<String, FileMetadata> files = new ConcurrentHashMap<>();
+
+    /**
+     * 저장소 키 -> 파일 ID (같은 키에 다시 저장하거나 키로 삭제할 때 사용)
+     */
+    private final Map<String, String> keys = new ConcurrentHashMap<>();
+
+    /**
+     * subPath -> 파일 ID 목록
+     */
+    private final Map<String, Set<String>> subPaths = new ConcurrentHashMap<>();
+
+    /**
+     * 서버 기본 경로
+     */
+    private final String basePath;
+
+    /**
+     * 색인 로그 파일
+     */
+    private final Path indexFile;
+
+    /**
+     * 색인 로그 기록 (this 잠금 안에서 사용)
+     */
+    private BufferedWriter writer;
+
+    /**
+     * 생성자
+     * 색인 로그를 읽어서 색인을 복원한다.
+     * @param basePath 서버 기본 경로
+     * @throws IOException
+     */
+    public FileIndexService(@Value("${file.upload.basePath}") String basePath) throws IOException {
+        this.basePath = basePath;
+        this.indexFile = Paths.get(UploadHelper.toBasePath(basePath), INDEX_DIRECTORY, INDEX_FILENAME);
+        Files.createDirectories(indexFile.getParent());
+
+        int records = load();
+        if(records >= COMPACT_MIN_RECORDS && records > files.size() * 2) {
+            compact();
+        }
+        writer = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("파일 색인 [{}] files:[{}] records:[{}]", indexFile, files.size(), records);
+    }
+
+    /**
+     * 저장된 파일을 색인에 등록하고 파일 정보에 ID를 설정한다.
+     * 같은 저장소 키에 등록된 이전 파일은 색인에서 제거된다.
+     * @param uploadFile 저장된 파일 정보
+     * @return 등록된 메타데이터
+     * @throws IOException
+     */
+    public FileMetadata register(UploadFile uploadFile) throws IOException {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setId(UUID.randomUUID().toString().replace("-", ""));
+        metadata.setFilename(uploadFile.getFilename());
+        metadata.setExtension(uploadFile.getExtension());
+        metadata.setSize(uploadFile.getSize());
+        metadata.setMimeType(UploadHelper.getMimeType(uploadFile).toString());
+        metadata.setHash(uploadFile.getHash());
+        metadata.setCrc32c(uploadFile.getCrc32c());
+        metadata.setCompressed(uploadFile.isCompressed());
+        metadata.setSubPath(UploadHelper.toSubPath(uploadFile.getSubPath()).replace('\\', '/'));
+        metadata.setServerFilename(uploadFile.getServerFilename());
+        metadata.setCreatedAt(System.currentTimeMillis());
+
+        synchronized(this) {
+            append(metadata);
+            String previous = keys.get(toKey(metadata));
+            if(previous != null) {
+                remove(previous);
+            }
+            apply(metadata);
+        }
+        uploadFile.setId(metadata.getId());
+        return metadata;
+    }
+
+    /**
+     * 파일 ID로 메타데이터를 조회한다.
+     * @param id 파일 ID
+     * @return 메타데이터, 없으면 null
+     */
+    public FileMetadata get(String id) {
+        if(id == null || !ID_PATTERN.matcher(id).matches()) {
+            return null;
+        }
+        return files.get(id);
+    }
+
+    /**
+     * 저장소 키로 메타데이터를 조회한다.
+     * @param key 저장소 키 (subPath/serverFilename)
+     * @return 메타데이터, 없으면 null
+     */
+    public FileMetadata getByKey(String key) {
+        String id = keys.get(key);
+        return id != null ? files.get(id) : null;
+    }
+
+    /**
+     * 색인에 등록된 모든 파일 메타데이터를 반환한다. (순서 없음, 호출 시점의 복사본)
+     * @return 메타데이터 목록
+     */
+    public List<FileMetadata> list() {
+        return new ArrayList<>(files.values());
+    }
+
+    /**
+     * subPath에 등록된 파일 메타데이터 목록을 반환한다. (등록 순서)
+     * @param subPath 서브디렉토리 경로
+     * @return 메타데이터 목록
+     */
+    public List<FileMetadata> list(String subPath) {
+        Set<String> ids = subPaths.get(UploadHelper.toSubPath(subPath).replace('\\', '/'));
+        if(ids == null) {
+            return Collections.emptyList();
+        }
+        List<FileMetadata> list = new ArrayList<>(ids.size());
+        for(String id : ids) {
+            FileMetadata metadata = files.get(id);
+            if(metadata != null) {
+                list.add(metadata);
+            }
+        }
+        list.sort((a, b) -> Long.compare(a.getCreatedAt(), b.getCreatedAt()));
+        return list;
+    }
+
+    /**
+     * 저장소 키의 파일을 색인에서 제거한다.
+     * @param key 저장소 키 (subPath/serverFilename)
+     * @throws IOException
+     */
+    public synchronized void removeByKey(String key) throws IOException {
+        String id = keys.get(key);
+        if(id != null) {
+            remove(id);
+        }
+    }
+
+    /**
+     * 메타데이터를 다운로드, 삭제 등에 사용할 파일 정보로 변환한다.
+     * @param metadata 메타데이터
+     * @return 파일 정보
+     */
+    public UploadFile toUploadFile(FileMetadata metadata) {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setId(metadata.getId());
+        uploadFile.setFilename(metadata.getFilename());
+        uploadFile.setExtension(metadata.getExtension());
+        uploadFile.setSize(metadata.getSize());
+        uploadFile.setMimeType(metadata.getMimeType());
+        uploadFile.setHash(metadata.getHash());
+        uploadFile.setCrc32c(metadata.getCrc32c());
+        uploadFile.setCompressed(metadata.isCompressed());
+        uploadFile.setServerBasePath(basePath);
+        uploadFile.setSubPath(metadata.getSubPath());
+        uploadFile.setServerFilename(metadata.getServerFilename());
+        return uploadFile;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void remove(String id) throws IOException {
+        FileMetadata deleted = new FileMetadata();
+        deleted.setId(id);
+        deleted.setDeleted(true);
+        append(deleted);
+        apply(deleted);
+    }
+
+    /**
+     * 색인 로그에 기록을 추가한다. (운영체제 버퍼까지 기록)
+     * @param metadata 기록
+     * @throws IOException
+     */
+    private void append(FileMetadata metadata) throws IOException {
+        writer.write(objectMapper.writeValueAsString(metadata));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * 기록을 메모리 색인에 반영한다.
+     * @param metadata 기록
+     */
+    private void apply(FileMetadata metadata) {
+        if(metadata.isDeleted()) {
+            FileMetadata removed = files.remove(metadata.getId());
+            if(removed != null) {
+                keys.remove(toKey(removed), removed.getId());
+                Set<String> ids = subPaths.get(removed.getSubPath());
+                if(ids != null) {
+                    ids.remove(removed.getId());
+                }
+            }
+            return;
+        }
+        files.put(metadata.getId(), metadata);
+        keys.put(toKey(metadata), metadata.getId());
+        subPaths.computeIfAbsent(metadata.getSubPath(), k -> ConcurrentHashMap.newKeySet()).add(metadata.getId());
+    }
+
+    /**
+     * 색인 로그를 읽어서 메모리 색인을 복원한다. 마지막 줄이 잘린 경우(기록 도중 종료) 무시한다.
+     * @return 읽은 기록 개수
+     * @throws IOException
+     */
+    private int load() throws IOException {
+        int records = 0;
+        try(BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(StringUtils.isBlank(line)) {
+                    continue;
+                }
+                try {
+                    apply(objectMapper.readValue(line, FileMetadata.class));
+                    ++records;
+
+                } catch(IOException e) {
+                    log.warn("파일 색인 기록을 읽을 수 없어 무시합니다. line:[{}]", records + 1);
+                }
+            }
+
+        } catch(NoSuchFileException e) {
+            return 0;
+        }
+        return records;
+    }
+
+    /**
+     * 살아있는 기록만 임시파일에 기록한 뒤 색인 로그 파일을 교체한다.
+     * @throws IOException
+     */
+    private void compact() throws IOException {
+        Path temp = indexFile.resolveSibling(INDEX_FILENAME + ".tmp");
+        try(BufferedWriter compacted = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            List<FileMetadata> list = new ArrayList<>(files.values());
+            list.sort((a, b) -> Long.compare(a.getCreatedAt(), b.getCreatedAt()));
+            for(FileMetadata metadata : list) {
+                compacted.write(objectMapper.writeValueAsString(metadata));
+                compacted.newLine();
+            }
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("파일 색인 로그를 정리했습니다. files:[{}]", files.size());
+    }
+
+    private static String toKey(FileMetadata metadata) {
+        return metadata.getSubPath() + "/" + metadata.getServerFilename();
+    }
+}
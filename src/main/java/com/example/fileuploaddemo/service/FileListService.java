@@ -0,0 +1,242 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.FileEntry;
+import com.example.fileuploaddemo.entity.FileListPage;
+import com.example.fileuploaddemo.entity.FileListQuery;
+import com.example.fileuploaddemo.entity.FileMetadata;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageStat;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 디렉토리 파일 목록 조회
+ * 저장소의 디렉토리 목록 색인(listStats)을 커서 방식으로 나누어 반환한다.
+ * 이름순은 색인의 정렬 순서를 그대로 사용해서 커서 위치부터 페이지 크기만큼만 읽고,
+ * 크기순, 수정시간순은 전체를 한 번 훑으면서 페이지 크기만큼의 힙만 유지한다. (전체 정렬 없음)
+ */
+@Service
+public class FileListService {
+
+    private static final String SORT_NAME = "name";
+    private static final String SORT_SIZE = "size";
+    private static final String SORT_LAST_MODIFIED = "lastModified";
+
+    /**
+     * 기본 페이지 크기
+     */
+    private static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * 파일 저장소
+     */
+    private final StorageEngine storageEngine;
+
+    /**
+     * 파일 메타데이터 색인
+     */
+    private final FileIndexService fileIndexService;
+
+    /**
+     * 최대 페이지 크기
+     */
+    private final int maxLimit;
+
+    /**
+     * 생성자
+     * @param storageEngine 파일 저장소
+     * @param fileIndexService 파일 메타데이터 색인
+     * @param maxLimit 최대 페이지 크기
+     */
+    public FileListService(StorageEngine storageEngine,
+                           FileIndexService fileIndexService,
+                           @Value("${file.list.maxLimit:1000}") int maxLimit) {
+        this.storageEngine = storageEngine;
+        this.fileIndexService = fileIndexService;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * subPath 디렉토리의 파일 목록을 한 페이지 반환한다.
+     * @param query 조회 조건
+     * @return 파일 목록과 다음 페이지 커서
+     * @throws IOException
+     * @throws BizException 조회 조건이 잘못된 경우
+     */
+    public FileListPage list(FileListQuery query) throws IOException, BizException {
+        if(StringUtils.isEmpty(query.getSubPath())) {
+            throw new BizException("subPath 정보가 입력되지 않았습니다.");
+        }
+        String sort = StringUtils.defaultIfEmpty(query.getSort(), SORT_NAME);
+        if(!SORT_NAME.equals(sort) && !SORT_SIZE.equals(sort) && !SORT_LAST_MODIFIED.equals(sort)) {
+            throw new BizException("지원하지 않는 정렬 기준입니다. [" + sort + "]");
+        }
+        boolean descending = "desc".equalsIgnoreCase(query.getOrder());
+        int limit = query.getLimit() == null ? DEFAULT_LIMIT : Math.max(1, Math.min(query.getLimit(), maxLimit));
+        Map.Entry<String, StorageStat> after = StringUtils.isEmpty(query.getCursor()) ? null : decodeCursor(query.getCursor(), sort);
+
+        String directory = UploadHelper.toSubPath(query.getSubPath()).replace('\\', '/');
+        NavigableMap<String, StorageStat> stats = storageEngine.listStats(directory);
+        Filter filter = new Filter(directory, query);
+
+        //다음 페이지 존재 여부를 알기 위해 한 개 더 읽는다.
+        List<Map.Entry<String, StorageStat>> entries;
+        if(SORT_NAME.equals(sort)) {
+            NavigableMap<String, StorageStat> view = descending ? stats.descendingMap() : stats;
+            if(after != null) {
+                view = view.tailMap(after.getKey(), false);
+            }
+            entries = new ArrayList<>(limit + 1);
+            for(Map.Entry<String, StorageStat> entry : view.entrySet()) {
+                if(filter.matches(entry)) {
+                    entries.add(entry);
+                    if(entries.size() > limit) {
+                        break;
+                    }
+                }
+            }
+        } else {
+            Comparator<Map.Entry<String, StorageStat>> comparator = comparator(sort, descending);
+            PriorityQueue<Map.Entry<String, StorageStat>> heap = new PriorityQueue<>(limit + 2, comparator.reversed());
+            for(Map.Entry<String, StorageStat> entry : stats.entrySet()) {
+                if((after == null || comparator.compare(entry, after) > 0) && filter.matches(entry)) {
+                    heap.offer(entry);
+                    if(heap.size() > limit + 1) {
+                        heap.poll();
+                    }
+                }
+            }
+            entries = new ArrayList<>(heap);
+            entries.sort(comparator);
+        }
+
+        FileListPage page = new FileListPage();
+        if(entries.size() > limit) {
+            entries = entries.subList(0, limit);
+            page.setNextCursor(encodeCursor(sort, entries.get(limit - 1)));
+        }
+        List<FileEntry> files = new ArrayList<>(entries.size());
+        for(Map.Entry<String, StorageStat> entry : entries) {
+            files.add(toFileEntry(directory, entry, filter.getMetadata(entry.getKey())));
+        }
+        page.setFiles(files);
+        return page;
+    }
+
+    private static FileEntry toFileEntry(String directory, Map.Entry<String, StorageStat> entry, FileMetadata metadata) {
+        FileEntry file = new FileEntry();
+        file.setSubPath(directory);
+        file.setServerFilename(entry.getKey());
+        file.setSize(entry.getValue().getSize());
+        file.setLastModified(entry.getValue().getLastModified());
+        if(metadata != null) {
+            file.setId(metadata.getId());
+            file.setFilename(metadata.getFilename());
+            file.setExtension(metadata.getExtension());
+        } else {
+            file.setFilename(entry.getKey());
+            file.setExtension(parseExtension(entry.getKey()));
+        }
+        return file;
+    }
+
+    private static Comparator<Map.Entry<String, StorageStat>> comparator(String sort, boolean descending) {
+        Comparator<Map.Entry<String, StorageStat>> comparator = SORT_SIZE.equals(sort)
+                ? Comparator.comparingLong(entry -> entry.getValue().getSize())
+                : Comparator.comparingLong(entry -> entry.getValue().getLastModified());
+        //값이 같으면 이름순으로 구분해서 커서 위치가 하나로 정해지도록 한다.
+        comparator = comparator.thenComparing(Map.Entry::getKey);
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    /**
+     * 커서 문자열을 만든다. (정렬 기준:값:이름, URL-safe BASE64)
+     * @param sort 정렬 기준
+     * @param last 페이지의 마지막 파일
+     * @return 커서
+     */
+    private static String encodeCursor(String sort, Map.Entry<String, StorageStat> last) {
+        long value = SORT_SIZE.equals(sort) ? last.getValue().getSize() : SORT_LAST_MODIFIED.equals(sort) ? last.getValue().getLastModified() : 0;
+        String cursor = sort + ":" + value + ":" + last.getKey();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 커서 문자열을 이전 페이지의 마지막 파일 위치로 변환한다.
+     * @param cursor 커서
+     * @param sort 정렬 기준
+     * @return 이름과 정렬 값
+     * @throws BizException 잘못된 커서이거나 정렬 기준이 다른 경우
+     */
+    private static Map.Entry<String, StorageStat> decodeCursor(String cursor, String sort) throws BizException {
+        try {
+            String[] values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+            if(values.length == 3 && sort.equals(values[0])) {
+                long value = Long.parseLong(values[1]);
+                return new AbstractMap.SimpleImmutableEntry<>(values[2], new StorageStat(value, value));
+            }
+
+        } catch(IllegalArgumentException e) {
+            //아래에서 처리
+        }
+        throw new BizException("잘못된 커서입니다.");
+    }
+
+    private static String parseExtension(String name) {
+        int index = name.lastIndexOf('.');
+        return index >= 0 ? name.substring(index + 1).toLowerCase() : null;
+    }
+
+    /**
+     * 확장자, 크기 조건
+     * 확장자는 서버 색인에 등록된 파일은 원본 파일명의 확장자, 등록되지 않은 파일은 서버 파일명의 확장자를 사용한다.
+     */
+    private class Filter {
+
+        private final String directory;
+        private final Set<String> extensions;
+        private final Long minSize;
+        private final Long maxSize;
+
+        Filter(String directory, FileListQuery query) {
+            this.directory = directory;
+            this.extensions = StringUtils.isEmpty(query.getExtension()) ? null
+                    : new HashSet<>(Arrays.asList(StringUtils.split(query.getExtension().toLowerCase().replace(".", ""), ", ")));
+            this.minSize = query.getMinSize();
+            this.maxSize = query.getMaxSize();
+        }
+
+        boolean matches(Map.Entry<String, StorageStat> entry) {
+            long size = entry.getValue().getSize();
+            if((minSize != null && size < minSize) || (maxSize != null && size > maxSize)) {
+                return false;
+            }
+            if(extensions != null) {
+                FileMetadata metadata = getMetadata(entry.getKey());
+                return extensions.contains(metadata != null ? metadata.getExtension() : parseExtension(entry.getKey()));
+            }
+            return true;
+        }
+
+        FileMetadata getMetadata(String name) {
+            return fileIndexService.getByKey(directory + "/" + name);
+        }
+    }
+}
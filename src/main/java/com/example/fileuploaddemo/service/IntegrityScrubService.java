@@ -0,0 +1,169 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.FileMetadata;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.ContentDigest;
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.TokenBucket;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 저장된 파일의 무결성 검사 (scrub)
+ * 색인에 체크섬이 기록된 파일을 주기적으로 다시 읽어서 SHA-256을 비교하고, 다르거나 없어진 파일은 오류 로그와 지표로 남긴다.
+ * 읽기 속도는 file.scrub.bytesPerSecond로 제한해서 업로드/다운로드의 디스크 I/O를 방해하지 않도록 한다.
+ * 검사는 오래 걸리므로 다른 스케줄 작업을 막지 않도록 전용 스레드(scrubExecutor)에서 실행한다.
+ */
+@Slf4j
+@Service
+public class IntegrityScrubService {
+
+    /**
+     * 읽기 버퍼 크기
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 무결성 검사 스레드
+     */
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * 파일 저장소
+     */
+    private final StorageEngine storageEngine;
+
+    /**
+     * 파일 메타데이터 색인
+     */
+    private final FileIndexService fileIndexService;
+
+    /**
+     * 무결성 검사 사용 여부
+     */
+    private final boolean enabled;
+
+    /**
+     * 읽기 속도 제한 (제한하지 않으면 null)
+     */
+    private final TokenBucket budget;
+
+    /**
+     * 생성자
+     * @param executor 무결성 검사 스레드
+     * @param storageEngine 파일 저장소
+     * @param fileIndexService 파일 메타데이터 색인
+     * @param enabled 무결성 검사 사용 여부
+     * @param bytesPerSecond 초당 읽기 크기 (0이면 제한 없음)
+     */
+    public IntegrityScrubService(@Qualifier("scrubExecutor") ThreadPoolTaskExecutor executor,
+                                 StorageEngine storageEngine,
+                                 FileIndexService fileIndexService,
+                                 @Value("${file.scrub.enabled:false}") boolean enabled,
+                                 @Value("${file.scrub.bytesPerSecond:10MB}") DataSize bytesPerSecond) {
+        this.executor = executor;
+        this.storageEngine = storageEngine;
+        this.fileIndexService = fileIndexService;
+        this.enabled = enabled;
+        long rate = bytesPerSecond.toBytes();
+        this.budget = rate > 0 ? new TokenBucket(rate, Math.max(BUFFER_SIZE, rate)) : null;
+    }
+
+    /**
+     * 무결성 검사 스레드에서 색인의 모든 파일을 검사한다.
+     * 이전 검사가 아직 실행 중이면 이번 검사는 건너뛴다.
+     */
+    @Scheduled(initialDelayString = "${file.scrub.interval:86400000}", fixedDelayString = "${file.scrub.interval:86400000}")
+    public void scrub() {
+        if(!enabled) {
+            return;
+        }
+
+        try {
+            executor.execute(this::scrubAll);
+
+        } catch(TaskRejectedException e) {
+            log.info("이전 무결성 검사가 아직 실행 중입니다.");
+        }
+    }
+
+    /**
+     * 색인의 모든 파일을 검사한다.
+     */
+    void scrubAll() {
+        long startTime = System.currentTimeMillis();
+        int checked = 0;
+        int corrupt = 0;
+        int missing = 0;
+        for(FileMetadata metadata : fileIndexService.list()) {
+            if(StringUtils.isEmpty(metadata.getHash())) {
+                continue;
+            }
+            try {
+                ++checked;
+                if(verify(metadata)) {
+                    MetricsHelper.scrubbed("ok");
+                } else {
+                    ++corrupt;
+                    MetricsHelper.scrubbed("corrupt");
+                    log.error("파일 체크섬이 일치하지 않습니다. id:[{}] [{}/{}]", metadata.getId(), metadata.getSubPath(), metadata.getServerFilename());
+                }
+
+            } catch(NoSuchFileException e) {
+                ++missing;
+                MetricsHelper.scrubbed("missing");
+                log.error("색인에 등록된 파일이 없습니다. id:[{}] [{}/{}]", metadata.getId(), metadata.getSubPath(), metadata.getServerFilename());
+            } catch(IOException e) {
+                log.warn("무결성 검사시 오류가 발생하였습니다. id:[{}]", metadata.getId(), e);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("무결성 검사 완료 files:[{}] corrupt:[{}] missing:[{}] time:[{}ms]", checked, corrupt, missing, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 파일을 다시 읽어서 저장시 계산한 체크섬과 비교한다. (압축 저장 파일은 압축을 풀어서 비교)
+     * @param metadata 메타데이터
+     * @return true 일치, false 불일치
+     * @throws NoSuchFileException 파일이 없는 경우
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean verify(FileMetadata metadata) throws IOException, InterruptedException {
+        UploadFile uploadFile = fileIndexService.toUploadFile(metadata);
+        ContentDigest digest = new ContentDigest();
+        try(InputStream source = Channels.newInputStream(storageEngine.open(UploadHelper.toKey(uploadFile)))) {
+            InputStream in = metadata.isCompressed() ? new GZIPInputStream(source, BUFFER_SIZE) : source;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+                if(budget != null) {
+                    long wait = budget.acquire(read);
+                    if(wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                }
+            }
+        }
+        return metadata.getHash().equals(digest.getSha256());
+    }
+}
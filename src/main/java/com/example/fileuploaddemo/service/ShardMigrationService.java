@@ -0,0 +1,225 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.ShardMigration;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.ShardLayout;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 분산 배치 이동
+ * 기존 위치(subPath/파일명)에 저장된 파일을 분산 위치로 옮긴다. 서비스를 멈추지 않고 실행하며, 이동하는 동안에도 저장소는 두 위치를 모두 찾는다.
+ * 디렉토리를 순회하면서 파일을 묶음 단위로 나누어 스레드풀에서 병렬로 이동하므로, 파일이 많은 한 디렉토리도 나누어 처리한다.
+ */
+@Slf4j
+@Service
+public class ShardMigrationService {
+
+    /**
+     * 한 작업에서 이동할 파일 개수
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * 이동용 스레드풀
+     */
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * 분산 배치
+     */
+    private final ShardLayout shardLayout;
+
+    /**
+     * 서버 기본 경로
+     */
+    private final Path root;
+
+    /**
+     * 마지막으로 시작한 이동 (this 잠금 안에서 변경)
+     */
+    private Progress progress;
+
+    /**
+     * 생성자
+     * @param executor 이동용 스레드풀
+     * @param shardLayout 분산 배치
+     * @param basePath 서버 기본 경로
+     */
+    public ShardMigrationService(@Qualifier("shardMigrationExecutor") ThreadPoolTaskExecutor executor,
+                                 ShardLayout shardLayout,
+                                 @Value("${file.upload.basePath}") String basePath) {
+        this.executor = executor;
+        this.shardLayout = shardLayout;
+        this.root = Paths.get(UploadHelper.toBasePath(basePath)).toAbsolutePath().normalize();
+    }
+
+    /**
+     * subPath 디렉토리(하위 디렉토리 포함)의 기존 위치 파일을 분산 위치로 옮기는 작업을 시작한다.
+     * @param subPath 서브디렉토리 경로 (없으면 전체)
+     * @return 진행 상태
+     * @throws BizException 분산 배치를 사용하지 않거나 이미 실행중인 경우
+     */
+    public synchronized ShardMigration start(String subPath) throws BizException {
+        if(!shardLayout.isEnabled()) {
+            throw new BizException("분산 배치를 사용하지 않습니다. (file.storage.shard.levels)");
+        }
+        if(progress != null && progress.finishedAt == 0) {
+            throw new BizException("분산 배치 이동이 이미 실행중입니다.");
+        }
+        Path start = StringUtils.isEmpty(subPath) ? root : root.resolve(UploadHelper.toSubPath(subPath)).normalize();
+        if(!start.startsWith(root)) {
+            throw new BizException("잘못된 subPath입니다.");
+        }
+
+        progress = new Progress(subPath);
+        Progress current = progress;
+        Thread walker = new Thread(() -> run(current, start), "shard-migration-walker");
+        walker.setDaemon(true);
+        walker.start();
+        return current.toShardMigration();
+    }
+
+    /**
+     * 마지막으로 시작한 이동의 진행 상태를 반환한다.
+     * @return 진행 상태, 시작한 적이 없으면 null
+     */
+    public synchronized ShardMigration status() {
+        return progress != null ? progress.toShardMigration() : null;
+    }
+
+    /**
+     * 디렉토리를 순회하면서 파일 묶음을 스레드풀에 넘기고 모두 끝날 때까지 기다린다. (순회 스레드)
+     * @param progress 진행 상태
+     * @param start 시작 디렉토리
+     */
+    private void run(Progress progress, Path start) {
+        log.info("분산 배치 이동 시작 [{}]", start);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+                private List<Path> batch = new ArrayList<>(BATCH_SIZE);
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                    //분산 디렉토리, 임시파일, 중복제거 저장소 등 내부 디렉토리는 제외한다.
+                    if(!directory.equals(start) && directory.getFileName().toString().startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if(attributes.isRegularFile() && !file.getFileName().toString().startsWith(".")) {
+                        batch.add(file);
+                        if(batch.size() >= BATCH_SIZE) {
+                            submit();
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    log.warn("분산 배치 이동 대상을 읽을 수 없습니다. [{}] {}", file, e.toString());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+                    submit();
+                    progress.directories.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private void submit() {
+                    if(!batch.isEmpty()) {
+                        List<Path> files = batch;
+                        batch = new ArrayList<>(BATCH_SIZE);
+                        futures.add(executor.submit(() -> migrate(progress, files)));
+                    }
+                }
+            });
+
+            for(Future<?> future : futures) {
+                future.get();
+            }
+
+        } catch(IOException | ExecutionException e) {
+            log.error("분산 배치 이동 실패 [{}]", start, e);
+            progress.error = e.toString();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.error = e.toString();
+        } finally {
+            progress.finishedAt = System.currentTimeMillis();
+            log.info("분산 배치 이동 종료 [{}] directories:[{}] moved:[{}] failed:[{}]",
+                    start, progress.directories.get(), progress.movedFiles.get(), progress.failedFiles.get());
+        }
+    }
+
+    private void migrate(Progress progress, List<Path> files) {
+        for(Path file : files) {
+            try {
+                if(shardLayout.migrate(file)) {
+                    progress.movedFiles.incrementAndGet();
+                }
+
+            } catch(IOException e) {
+                log.warn("분산 배치 이동 실패 [{}] {}", file, e.toString());
+                progress.failedFiles.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 진행 상태
+     */
+    private static class Progress {
+
+        private final String subPath;
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long finishedAt;
+        private final AtomicLong directories = new AtomicLong();
+        private final AtomicLong movedFiles = new AtomicLong();
+        private final AtomicLong failedFiles = new AtomicLong();
+        private volatile String error;
+
+        Progress(String subPath) {
+            this.subPath = subPath;
+        }
+
+        ShardMigration toShardMigration() {
+            ShardMigration migration = new ShardMigration();
+            migration.setSubPath(subPath);
+            migration.setRunning(finishedAt == 0);
+            migration.setStartedAt(startedAt);
+            migration.setFinishedAt(finishedAt);
+            migration.setDirectories(directories.get());
+            migration.setMovedFiles(movedFiles.get());
+            migration.setFailedFiles(failedFiles.get());
+            migration.setError(error);
+            return migration;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 이미지 썸네일 생성
+ * 이미지를 업로드하면 설정된 크기(file.thumbnail.sizes)의 썸네일을 전용 스레드풀에서 미리 만들어 원본과 같은 디렉토리의 .thumbs 하위에 저장한다.
+ * 대기열이 가득 차서 만들지 못한 썸네일은 다운로드 요청시 만들며, 같은 썸네일을 동시에 요청하면 한 번만 만들고 나머지 요청은 완료를 기다린다.
+ */
+@Slf4j
+@Service
+public class ThumbnailService {
+
+    /**
+     * 썸네일 디렉토리명 (원본 파일과 같은 디렉토리 하위)
+     */
+    private static final String THUMBNAIL_DIRECTORY = ".thumbs";
+
+    /**
+     * 썸네일 생성용 스레드풀
+     */
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * 파일 저장소
+     */
+    private final StorageEngine storageEngine;
+
+    /**
+     * 썸네일 크기 (가로, 세로 최대 픽셀)
+     */
+    private final int[] sizes;
+
+    /**
+     * 썸네일을 만들 원본 이미지 최대 픽셀 수
+     */
+    private final long maxPixels;
+
+    /**
+     * 생성중인 썸네일 (썸네일 저장소 키, 생성 완료)
+     */
+    private final ConcurrentMap<String, CompletableFuture<Void>> generating = new ConcurrentHashMap<>();
+
+    /**
+     * 생성자
+     * @param executor 썸네일 생성용 스레드풀
+     * @param storageEngine 파일 저장소
+     * @param sizes 썸네일 크기
+     * @param maxPixels 원본 이미지 최대 픽셀 수
+     */
+    public ThumbnailService(@Qualifier("thumbnailExecutor") ThreadPoolTaskExecutor executor,
+                            StorageEngine storageEngine,
+                            @Value("${file.thumbnail.sizes:160,320,640}") int[] sizes,
+                            @Value("${file.thumbnail.maxPixels:50000000}") long maxPixels) {
+        this.executor = executor;
+        this.storageEngine = storageEngine;
+        this.sizes = sizes.clone();
+        this.maxPixels = maxPixels;
+        Arrays.sort(this.sizes);
+    }
+
+    /**
+     * 이미지 파일의 썸네일 생성을 예약한다.
+     * 대기열이 가득 차면 생성하지 않고, 다운로드시 요청된 크기만 생성한다.
+     * @param uploadFile 저장된 파일 정보
+     */
+    public void schedule(UploadFile uploadFile) {
+        if(!UploadHelper.isImageExtension(uploadFile)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateOnce(uploadFile, sizes);
+
+                } catch(IOException | RuntimeException e) {
+                    log.warn("썸네일 생성시 오류가 발생하였습니다. [{}]", UploadHelper.toKey(uploadFile), e);
+                }
+            });
+
+        } catch(TaskRejectedException e) {
+            MetricsHelper.thumbnailSkipped();
+            log.debug("썸네일 대기열이 가득 차서 생성을 미룹니다. [{}]", UploadHelper.toKey(uploadFile));
+        }
+    }
+
+    /**
+     * 썸네일의 저장소 키를 반환한다. 썸네일이 없으면 생성하고, 다른 요청이나 예약된 작업이 생성중이면 완료될 때까지 기다린다.
+     * @param uploadFile 원본 파일 정보
+     * @param size 썸네일 크기
+     * @return 썸네일 저장소 키
+     * @throws IOException
+     * @throws BizException
+     */
+    public String get(UploadFile uploadFile, int size) throws IOException, BizException {
+        if(Arrays.binarySearch(sizes, size) < 0) {
+            throw new BizException("지원하지 않는 썸네일 크기입니다. " + Arrays.toString(sizes));
+        }
+        if(!UploadHelper.isImageExtension(uploadFile)) {
+            throw new BizException("이미지 형식의 파일 확장자가 아닙니다.");
+        }
+
+        String key = toKey(uploadFile, size);
+        if(storageEngine.exists(key)) {
+            return key;
+        }
+        for(CompletableFuture<Void> running : generateOnce(uploadFile, new int[]{size})) {
+            try {
+                running.get();
+
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch(ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        }
+        return key;
+    }
+
+    /**
+     * 원본 파일의 썸네일을 모두 삭제한다.
+     * @param uploadFile 원본 파일 정보
+     */
+    public void delete(UploadFile uploadFile) {
+        if(!UploadHelper.isImageExtension(uploadFile)) {
+            return;
+        }
+        for(int size : sizes) {
+            String key = toKey(uploadFile, size);
+            try {
+                storageEngine.delete(key);
+
+            } catch(IOException e) {
+                log.warn("썸네일을 삭제하지 못했습니다. [{}]", key);
+            }
+        }
+    }
+
+    /**
+     * 없는 썸네일 중 다른 곳에서 생성중이지 않은 크기만 생성한다.
+     * @param uploadFile 원본 파일 정보
+     * @param targets 썸네일 크기 (오름차순)
+     * @return 다른 곳에서 생성중인 썸네일의 완료
+     * @throws IOException
+     */
+    private List<CompletableFuture<Void>> generateOnce(UploadFile uploadFile, int[] targets) throws IOException {
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        Map<String, CompletableFuture<Void>> claimed = new LinkedHashMap<>();
+        int[] sizes = new int[targets.length];
+        int count = 0;
+        try {
+            for(int size : targets) {
+                String key = toKey(uploadFile, size);
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                CompletableFuture<Void> existing = generating.putIfAbsent(key, future);
+                if(existing != null) {
+                    running.add(existing);
+                    continue;
+                }
+                claimed.put(key, future);
+                //생성을 맡기 전에 다른 곳에서 생성을 마쳤으면 다시 만들지 않음
+                if(!storageEngine.exists(key)) {
+                    sizes[count++] = size;
+                }
+            }
+            if(count > 0) {
+                generate(uploadFile, Arrays.copyOf(sizes, count));
+            }
+            claimed.values().forEach(future -> future.complete(null));
+
+        } catch(IOException | RuntimeException e) {
+            claimed.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        } finally {
+            claimed.forEach(generating::remove);
+        }
+        return running;
+    }
+
+    /**
+     * 원본 이미지를 한 번 읽어서 요청된 크기의 썸네일을 생성한다.
+     * 큰 이미지는 가장 큰 썸네일 크기의 2배 이상이 되는 범위에서 서브샘플링으로 읽어서 메모리 사용을 줄인다.
+     * @param uploadFile 원본 파일 정보
+     * @param targets 썸네일 크기 (오름차순)
+     * @throws IOException
+     */
+    private void generate(UploadFile uploadFile, int[] targets) throws IOException {
+        long startTime = System.nanoTime();
+        String key = UploadHelper.toKey(uploadFile);
+        BufferedImage source;
+        try(InputStream in = Channels.newInputStream(storageEngine.open(key));
+            ImageInputStream imageInput = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if(!readers.hasNext()) {
+                throw new IOException("이미지를 읽을 수 없습니다. [" + key + "]");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if((long) width * height > maxPixels) {
+                    throw new IOException("이미지가 너무 큽니다. [" + key + "] " + width + "x" + height);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (targets[targets.length - 1] * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                source = reader.read(0, param);
+
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        String format = "png".equals(uploadFile.getExtension()) || "gif".equals(uploadFile.getExtension()) ? uploadFile.getExtension() : "jpg";
+        for(int size : targets) {
+            BufferedImage thumbnail = resize(source, size, !"jpg".equals(format));
+            try(StorageWriter writer = storageEngine.create()) {
+                if(!ImageIO.write(thumbnail, format, Channels.newOutputStream(writer))) {
+                    throw new IOException("이미지를 기록할 수 없습니다. [" + format + "]");
+                }
+                writer.commit(toKey(uploadFile, size));
+            }
+        }
+        MetricsHelper.phase("thumbnail", startTime);
+    }
+
+    /**
+     * 가로, 세로가 size 이하가 되도록 비율을 유지해서 축소한다. (확대하지 않음)
+     * @param source 원본 이미지
+     * @param size 최대 크기
+     * @param alpha 투명도 유지 여부
+     * @return 축소된 이미지
+     */
+    private static BufferedImage resize(BufferedImage source, int size, boolean alpha) {
+        double scale = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * 썸네일의 저장소 키를 반환한다. (subPath/.thumbs/serverFilename_크기)
+     * @param uploadFile 원본 파일 정보
+     * @param size 썸네일 크기
+     * @return 썸네일 저장소 키
+     */
+    private static String toKey(UploadFile uploadFile, int size) {
+        return UploadHelper.toSubPath(uploadFile.getSubPath()).replace('\\', '/') + "/" + THUMBNAIL_DIRECTORY + "/" + uploadFile.getServerFilename() + "_" + size;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.UploadPolicy;
+import com.example.fileuploaddemo.helper.ExtensionPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * 업로드 정책(file.policy)을 읽어서 ExtensionPolicy에 반영한다.
+ * file.policy.location에 정책 파일(application.yml과 같은 file.policy 형식의 YAML)을 지정하면 application.yml 대신 그 파일을 읽고,
+ * 파일이 변경되면 서버를 재시작하지 않고 다시 읽는다. 잘못된 정책 파일은 반영하지 않고 이전 정책을 유지한다.
+ */
+@Slf4j
+@Service
+public class UploadPolicyService {
+
+    /**
+     * 정책 설정 위치
+     */
+    private static final String PREFIX = "file.policy";
+
+    private final Environment environment;
+
+    /**
+     * 정책 파일 경로 (없으면 application.yml)
+     */
+    private final String location;
+
+    /**
+     * 마지막으로 읽은 정책 파일의 변경 시각
+     */
+    private volatile long lastModified;
+
+    /**
+     * 생성자
+     * 정책을 읽어서 반영한다.
+     * @param environment 설정
+     * @param location 정책 파일 경로
+     * @throws IOException 정책 파일을 읽을 수 없는 경우
+     */
+    public UploadPolicyService(Environment environment, @Value("${file.policy.location:}") String location) throws IOException {
+        this.environment = environment;
+        this.location = location;
+        reload();
+    }
+
+    /**
+     * 정책을 다시 읽어서 반영한다.
+     * @throws IOException 정책 파일을 읽을 수 없는 경우
+     */
+    public synchronized void reload() throws IOException {
+        Binder binder;
+        if(StringUtils.isNotEmpty(location)) {
+            Path path = Paths.get(location);
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader().load("uploadPolicy", new FileSystemResource(path.toFile()));
+            binder = new Binder(ConfigurationPropertySources.from(sources));
+            lastModified = modified;
+        } else {
+            binder = Binder.get(environment);
+        }
+
+        UploadPolicy policy = binder.bind(PREFIX, UploadPolicy.class).orElseGet(UploadPolicy::new);
+        ExtensionPolicy.update(ExtensionPolicy.compile(policy));
+        log.info("업로드 정책 [{}] denyExtensions:[{}] types:[{}] subPaths:[{}]", StringUtils.defaultIfEmpty(location, "application"),
+                policy.getDenyExtensions().size(), policy.getTypes().size(), policy.getSubPaths().size());
+    }
+
+    /**
+     * 정책 파일이 변경되었으면 다시 읽는다.
+     */
+    @Scheduled(fixedDelayString = "${file.policy.reloadInterval:30000}")
+    public void checkModified() {
+        if(StringUtils.isEmpty(location)) {
+            return;
+        }
+        try {
+            if(Files.getLastModifiedTime(Paths.get(location)).toMillis() != lastModified) {
+                reload();
+            }
+
+        } catch(IOException | RuntimeException e) {
+            log.warn("업로드 정책을 다시 읽지 못했습니다. 이전 정책을 유지합니다. [{}]", location, e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Slf4j
+@Service
+public class UploadSaveService {
+
+    /**
+     * 저장중인 바이트 제한 단위 (1KB)
+     */
+    private static final long PERMIT_UNIT = 1024;
+
+    /**
+     * 퍼밋을 기다리는 동안 저장 실패를 확인하는 간격 (나노초)
+     */
+    private static final long ABORT_CHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 저장 작업 상태 (대기, 실행, 취소)
+     */
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_CANCELLED = 2;
+
+    /**
+     * 파일 저장용 I/O 스레드풀
+     */
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * 전체 요청에서 동시에 저장중인 바이트 제한 (KB 단위 퍼밋)
+     */
+    private final Semaphore inFlightPermits;
+
+    /**
+     * 최대 퍼밋 개수
+     */
+    private final int maxPermits;
+
+    /**
+     * 퍼밋 대기 시간 (밀리초)
+     */
+    private final long inFlightTimeout;
+
+    /**
+     * 파일 저장소
+     */
+    private final StorageEngine storageEngine;
+
+    /**
+     * 압축 저장 사용 여부
+     */
+    private final boolean compress;
+
+    /**
+     * 생성자
+     * @param executor 파일 저장용 I/O 스레드풀
+     * @param storageEngine 파일 저장소
+     * @param maxInFlightBytes 동시에 저장중인 최대 바이트
+     * @param inFlightTimeout 저장 대기 시간
+     * @param compress 압축 저장 사용 여부
+     */
+    public UploadSaveService(@Qualifier("uploadIoExecutor") ThreadPoolTaskExecutor executor,
+                             StorageEngine storageEngine,
+                             @Value("${file.upload.maxInFlightBytes:256MB}") DataSize maxInFlightBytes,
+                             @Value("${file.upload.inFlightTimeout:30s}") Duration inFlightTimeout,
+                             @Value("${file.upload.compression.enabled:false}") boolean compress) {
+        this.executor = executor;
+        this.storageEngine = storageEngine;
+        this.compress = compress;
+        this.maxPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxInFlightBytes.toBytes() / PERMIT_UNIT));
+        this.inFlightPermits = new Semaphore(maxPermits, true);
+        this.inFlightTimeout = inFlightTimeout.toMillis();
+    }
+
+    /**
+     * 요청의 파일들을 I/O 스레드풀에서 동시에 저장한다.
+     * 하나라도 저장에 실패하면 아직 시작하지 않은 저장은 취소하고, 이미 저장된 파일은 삭제한다.
+     * (저장 위치에 반영되기 전에 실패한 파일은 삭제하지 않으므로 같은 이름의 기존 파일은 남는다)
+     * @param files 업로드한 파일
+     * @param uploadFiles 업로드한 파일 정보 (files와 같은 순서)
+     * @param image 이미지 업로드 여부
+     * @throws IOException
+     * @throws BizException
+     */
+    public void saveAll(MultipartFile[] files, List<UploadFile> uploadFiles, boolean image) throws IOException, BizException {
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        AtomicReferenceArray<UploadFile> saved = new AtomicReferenceArray<>(files.length);
+        AtomicIntegerArray states = new AtomicIntegerArray(files.length);
+        List<Future<Integer>> futures = new ArrayList<>(files.length);
+        int[] permitCounts = new int[files.length];
+        int pending = 0;
+        boolean success = false;
+
+        try {
+            for(int i = 0; i < files.length && !aborted.get(); i++) {
+                final int index = i;
+                final MultipartFile file = files[i];
+                final UploadFile uploadFile = uploadFiles.get(i);
+                final int permits = toPermits(file.getSize());
+
+                if(!acquire(permits, aborted)) {
+                    //먼저 제출한 저장이 실패해서 중단 (실패 원인은 아래에서 확인)
+                    if(aborted.get()) {
+                        break;
+                    }
+                    MetricsHelper.rejected(MetricsHelper.REJECT_BUSY);
+                    throw new BizException("업로드 요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해 주세요.");
+                }
+                permitCounts[index] = permits;
+                try {
+                    futures.add(completionService.submit(() -> {
+                        //요청 스레드가 먼저 취소했으면 실행하지 않음 (퍼밋은 요청 스레드가 반환)
+                        if(!states.compareAndSet(index, STATE_PENDING, STATE_STARTED)) {
+                            return index;
+                        }
+                        try {
+                            if(aborted.get()) {
+                                return index;
+                            }
+                            UploadHelper.save(storageEngine, file, uploadFile, compress, image);
+                            saved.set(index, uploadFile);
+                            return index;
+
+                        } catch(IOException | BizException | RuntimeException e) {
+                            aborted.set(true);
+                            throw e;
+                        } finally {
+                            inFlightPermits.release(permits);
+                        }
+                    }));
+                    ++pending;
+
+                } catch(RejectedExecutionException e) {
+                    permitCounts[index] = 0;
+                    inFlightPermits.release(permits);
+                    MetricsHelper.rejected(MetricsHelper.REJECT_BUSY);
+                    throw new BizException("업로드 요청이 많아 처리할 수 없습니다. 잠시 후 다시 시도해 주세요.");
+                }
+
+                //이미 완료된 저장 결과를 확인 (실패시 즉시 중단)
+                Future<Integer> done;
+                while((done = completionService.poll()) != null) {
+                    --pending;
+                    done.get();
+                }
+            }
+
+            while(pending > 0) {
+                Future<Integer> done = completionService.take();
+                --pending;
+                done.get();
+            }
+            success = true;
+
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof BizException) {
+                throw (BizException) cause;
+            }
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+
+        } finally {
+            if(!success) {
+                aborted.set(true);
+                cancel(futures, states, permitCounts);
+                cleanup(saved);
+            }
+        }
+    }
+
+    /**
+     * 저장중인 바이트 퍼밋을 얻는다. 기다리는 동안 다른 저장이 실패하면 더 기다리지 않는다.
+     * @param permits 퍼밋 개수
+     * @param aborted 저장 중단 여부
+     * @return 퍼밋을 얻었으면 true (제한시간이 지났거나 중단되었으면 false)
+     * @throws InterruptedException
+     */
+    private boolean acquire(int permits, AtomicBoolean aborted) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(inFlightTimeout);
+        while(!aborted.get()) {
+            long remaining = deadline - System.nanoTime();
+            if(remaining <= 0) {
+                return false;
+            }
+            if(inFlightPermits.tryAcquire(permits, Math.min(remaining, ABORT_CHECK_INTERVAL), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 파일 크기를 퍼밋 개수로 변환한다.
+     * @param size 파일 크기
+     * @return 퍼밋 개수
+     */
+    private int toPermits(long size) {
+        long permits = (size + PERMIT_UNIT - 1) / PERMIT_UNIT;
+        return (int) Math.max(1, Math.min(maxPermits, permits));
+    }
+
+    /**
+     * 아직 시작하지 않은 저장은 취소해서 퍼밋을 반환하고, 실행중인 저장은 끝날 때까지 기다린다. (저장된 파일을 삭제하기 위해)
+     * @param futures 제출한 저장 작업
+     * @param states 저장 작업 상태
+     * @param permitCounts 저장 작업별 퍼밋 개수
+     */
+    private void cancel(List<Future<Integer>> futures, AtomicIntegerArray states, int[] permitCounts) {
+        boolean interrupted = false;
+        for(int i = 0; i < futures.size(); i++) {
+            Future<Integer> future = futures.get(i);
+            if(states.compareAndSet(i, STATE_PENDING, STATE_CANCELLED)) {
+                future.cancel(false);
+                inFlightPermits.release(permitCounts[i]);
+                continue;
+            }
+            while(true) {
+                try {
+                    future.get();
+                    break;
+
+                } catch(ExecutionException | CancellationException e) {
+                    break;
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 저장 위치에 반영된 파일을 삭제한다.
+     * @param saved 저장 위치에 반영된 파일
+     */
+    private void cleanup(AtomicReferenceArray<UploadFile> saved) {
+        for(int i = 0; i < saved.length(); i++) {
+            UploadFile uploadFile = saved.get(i);
+            if(uploadFile == null) {
+                continue;
+            }
+            String key = UploadHelper.toKey(uploadFile);
+            try {
+                storageEngine.delete(key);
+
+            } catch(IOException e) {
+                log.warn("업로드 실패 파일을 삭제하지 못했습니다. [{}]", key);
+            }
+        }
+    }
+}
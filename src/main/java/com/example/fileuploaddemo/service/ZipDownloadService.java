@@ -0,0 +1,336 @@
+package com.example.fileuploaddemo.service;
+
+import com.example.fileuploaddemo.entity.FileMetadata;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.CompressionHelper;
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageStat;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+public class ZipDownloadService {
+
+    /**
+     * 읽기/쓰기 버퍼 크기
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 기록중인 파일보다 앞서서 CRC를 계산할 파일 개수
+     */
+    private static final int READ_AHEAD = 2;
+
+    /**
+     * 미리읽기용 스레드풀
+     */
+    private final ThreadPoolTaskExecutor executor;
+
+    /**
+     * 파일 저장소
+     */
+    private final StorageEngine storageEngine;
+
+    /**
+     * 파일 메타데이터 색인
+     */
+    private final FileIndexService fileIndexService;
+
+    /**
+     * 서버 기본 경로
+     */
+    private final String basePath;
+
+    /**
+     * 한 번에 묶을 수 있는 최대 파일 개수
+     */
+    private final int maxFiles;
+
+    /**
+     * 생성자
+     * @param executor 미리읽기용 스레드풀
+     * @param storageEngine 파일 저장소
+     * @param fileIndexService 파일 메타데이터 색인
+     * @param basePath 서버 기본 경로
+     * @param maxFiles 최대 파일 개수
+     */
+    public ZipDownloadService(@Qualifier("downloadIoExecutor") ThreadPoolTaskExecutor executor,
+                              StorageEngine storageEngine,
+                              FileIndexService fileIndexService,
+                              @Value("${file.upload.basePath}") String basePath,
+                              @Value("${file.download.zip.maxFiles:1000}") int maxFiles) {
+        this.executor = executor;
+        this.storageEngine = storageEngine;
+        this.fileIndexService = fileIndexService;
+        this.basePath = basePath;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * subPath 디렉토리의 파일 정보 목록을 반환한다.
+     * 색인에 등록된 파일은 원본 파일명을 사용하고, 등록되지 않은 파일은 서버 파일명을 파일명으로 사용한다.
+     * @param subPath 서브디렉토리 경로
+     * @return 파일 정보 목록
+     * @throws IOException
+     */
+    public List<UploadFile> list(String subPath) throws IOException {
+        List<UploadFile> files = new ArrayList<>();
+        String directory = UploadHelper.toSubPath(subPath).replace('\\', '/');
+        for(String name : storageEngine.list(directory)) {
+            FileMetadata metadata = fileIndexService.getByKey(directory + "/" + name);
+            if(metadata != null) {
+                files.add(fileIndexService.toUploadFile(metadata));
+                continue;
+            }
+            UploadFile uploadFile = new UploadFile();
+            uploadFile.setFilename(name);
+            uploadFile.setSubPath(subPath);
+            uploadFile.setKeepOriginalFilename(true);
+            uploadFile.init(basePath);
+            files.add(uploadFile);
+        }
+        return files;
+    }
+
+    /**
+     * 응답을 시작하기 전에 모든 파일이 있는지 확인하고 ZIP 항목 목록을 만든다.
+     * @param files 파일 정보 목록
+     * @return ZIP 항목 목록
+     * @throws IOException
+     * @throws BizException 파일이 없거나 너무 많은 경우
+     */
+    public List<ZipItem> prepare(List<UploadFile> files) throws IOException, BizException {
+        if(files.isEmpty()) {
+            throw new BizException("파일을 찾을 수 없습니다.");
+        }
+        if(files.size() > maxFiles) {
+            throw new BizException("한 번에 다운로드할 수 있는 파일 개수를 넘었습니다. [" + maxFiles + "]");
+        }
+
+        List<ZipItem> items = new ArrayList<>(files.size());
+        Set<String> names = new HashSet<>();
+        for(UploadFile uploadFile : files) {
+            String key = UploadHelper.toKey(uploadFile);
+            StorageStat stat = storageEngine.stat(key);
+            if(stat == null) {
+                throw new BizException("파일을 찾을 수 없습니다. [" + uploadFile.getFilename() + "]");
+            }
+            //압축 저장 여부는 요청의 파일 정보가 아닌 색인에 등록된 값을 사용
+            FileMetadata metadata = fileIndexService.getByKey(key);
+            boolean compressed = metadata != null && metadata.isCompressed();
+            boolean stored = !compressed && CompressionHelper.isPrecompressed(uploadFile);
+            items.add(new ZipItem(key, toEntryName(uploadFile, names), stat, compressed, stored));
+        }
+        return items;
+    }
+
+    /**
+     * ZIP 항목을 순서대로 출력 스트림에 기록한다.
+     * 이미 압축된 형식은 STORED로 기록하며, STORED 항목의 CRC는 미리읽기 스레드풀에서 기록중인 파일보다 앞서 계산한다.
+     * CRC를 계산한 뒤에 파일 크기나 수정시간이 바뀌었으면 계산한 CRC를 사용할 수 없으므로 DEFLATED로 기록한다.
+     * 압축 저장된 파일은 압축을 풀어서 DEFLATED로 기록한다. 파일 내용은 버퍼 단위로 전송하며 메모리에 적재하지 않는다.
+     * @param items ZIP 항목 목록
+     * @param out 출력 스트림
+     * @throws IOException
+     */
+    public void write(List<ZipItem> items, OutputStream out) throws IOException {
+        long startTime = System.nanoTime();
+        List<Future<long[]>> checksums = new ArrayList<>(items.size());
+        int scheduled = 0;
+        CountingOutputStream counter = new CountingOutputStream(out);
+        try {
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(counter, BUFFER_SIZE));
+            zip.setLevel(Deflater.BEST_SPEED);
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            for(int i = 0; i < items.size(); i++) {
+                for(; scheduled < items.size() && scheduled <= i + READ_AHEAD; scheduled++) {
+                    checksums.add(items.get(scheduled).stored ? executor.submit(checksumTask(items.get(scheduled).key)) : null);
+                }
+
+                ZipItem item = items.get(i);
+                ZipEntry entry = new ZipEntry(item.name);
+                entry.setTime(item.stat.getLastModified());
+                long[] checksum = item.stored ? getChecksum(checksums.get(i)) : null;
+                if(checksum != null && isUnchanged(item.key, checksum)) {
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setCrc(checksum[0]);
+                    entry.setSize(checksum[1]);
+                    entry.setCompressedSize(checksum[1]);
+                } else {
+                    entry.setMethod(ZipEntry.DEFLATED);
+                }
+
+                zip.putNextEntry(entry);
+                try(InputStream in = item.compressed ? new GZIPInputStream(Channels.newInputStream(storageEngine.open(item.key)), BUFFER_SIZE)
+                                                     : Channels.newInputStream(storageEngine.open(item.key))) {
+                    int read;
+                    while((read = in.read(buffer)) >= 0) {
+                        zip.write(buffer, 0, read);
+                    }
+                }
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+
+        } finally {
+            for(Future<long[]> checksum : checksums) {
+                if(checksum != null) {
+                    checksum.cancel(true);
+                }
+            }
+            MetricsHelper.phase("zip", startTime);
+            MetricsHelper.bytesOut(counter.count);
+        }
+    }
+
+    /**
+     * 파일의 CRC32와 크기를 계산하는 작업을 반환한다.
+     * @param key 저장소 키
+     * @return {CRC32, 크기, 수정시간} (계산하는 동안 파일이 바뀌었으면 null)
+     */
+    private Callable<long[]> checksumTask(String key) {
+        return () -> {
+            StorageStat stat = storageEngine.stat(key);
+            if(stat == null) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            long size = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try(SeekableByteChannel channel = storageEngine.open(key)) {
+                int read;
+                while((read = channel.read(buffer)) >= 0) {
+                    crc.update(buffer.array(), 0, read);
+                    size += read;
+                    buffer.clear();
+                }
+            }
+            if(size != stat.getSize()) {
+                return null;
+            }
+            return new long[]{crc.getValue(), size, stat.getLastModified()};
+        };
+    }
+
+    /**
+     * CRC를 계산한 뒤로 파일 크기와 수정시간이 바뀌지 않았는지 확인한다.
+     * @param key 저장소 키
+     * @param checksum {CRC32, 크기, 수정시간}
+     * @return 바뀌지 않았으면 true
+     * @throws IOException
+     */
+    private boolean isUnchanged(String key, long[] checksum) throws IOException {
+        StorageStat stat = storageEngine.stat(key);
+        return stat != null && stat.getSize() == checksum[1] && stat.getLastModified() == checksum[2];
+    }
+
+    private static long[] getChecksum(Future<long[]> checksum) throws IOException {
+        try {
+            return checksum.get();
+
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("CRC 계산이 중단되었습니다.", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("CRC 계산시 오류가 발생하였습니다.", e.getCause());
+        }
+    }
+
+    /**
+     * ZIP 항목 이름을 반환한다. 경로 구분 문자는 _로 바꾸고, 같은 이름이 있으면 "이름 (n).확장자"로 구분한다.
+     * @param uploadFile 파일 정보
+     * @param names 이미 사용한 이름
+     * @return ZIP 항목 이름
+     */
+    private static String toEntryName(UploadFile uploadFile, Set<String> names) {
+        String name = uploadFile.getFilename() != null ? uploadFile.getFilename() : uploadFile.getServerFilename();
+        name = name.replace('/', '_').replace('\\', '_');
+        if(names.add(name)) {
+            return name;
+        }
+        int index = name.lastIndexOf('.');
+        String base = index > 0 ? name.substring(0, index) : name;
+        String extension = index > 0 ? name.substring(index) : "";
+        for(int i = 1; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if(names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * 실제로 응답에 쓴 바이트(압축 후)를 세는 출력 스트림
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * ZIP 항목
+     */
+    public static class ZipItem {
+
+        private final String key;
+        private final String name;
+        private final StorageStat stat;
+        private final boolean compressed;
+        private final boolean stored;
+
+        ZipItem(String key, String name, StorageStat stat, boolean compressed, boolean stored) {
+            this.key = key;
+            this.name = name;
+            this.stat = stat;
+            this.compressed = compressed;
+            this.stored = stored;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.fileuploaddemo.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.MessageDigest;
+import java.util.UUID;
+
+/**
+ * 내용 기반(content-addressed) 중복제거 저장소.
+ * 파일을 기록하면서 계산한 SHA-256 해시로 같은 내용은 .cas/ab/cd/해시 위치에 한 번만 저장한다.
+ * 논리 경로(subPath/serverFilename)는 blob에 대한 하드링크로 만들어서 다운로드는 기존 경로를 그대로 사용하고,
+ * blob마다 참조 개수를 기록해서 마지막 참조가 삭제될 때 blob을 삭제한다.
+ * 하드링크를 만들 수 없으면 blob을 참조하지 않는 일반 파일로 복사한다. (삭제시 참조 개수를 줄이지 않음)
+ * 논리 경로는 같은 디렉토리의 숨김 임시 이름에 연결한 뒤 이름을 변경해서 한 번에 교체하므로, 기존 파일을 덮어쓰는 동안에도 파일이 없는 순간이 없다.
+ */
+@Slf4j
+public class DedupStore {
+
+    /**
+     * 해시 값을 기록하는 사용자 정의 파일 속성
+     */
+    private static final String HASH_ATTRIBUTE = "cas.sha256";
+
+    /**
+     * 해시별 잠금 개수
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * 저장소 디렉토리
+     */
+    private final Path directory;
+
+    /**
+     * 생성자
+     * @param directory 저장소 디렉토리
+     */
+    public DedupStore(Path directory) {
+        this.directory = directory;
+        for(int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 해시 계산기를 반환한다.
+     * @return SHA-256 해시 계산기
+     */
+    public MessageDigest newDigest() {
+        return DigestUtils.getSha256Digest();
+    }
+
+    /**
+     * 기록중인 임시파일 디렉토리를 반환한다. (blob과 같은 파일시스템)
+     * @return 임시파일 디렉토리
+     * @throws IOException
+     */
+    public Path getTempDirectory() throws IOException {
+        return Files.createDirectories(directory.resolve("tmp"));
+    }
+
+    /**
+     * 이미 기록된 파일을 해시해서 저장소에 반영한다. (순서 없이 기록된 파일과 같이 기록중 해시가 불가능한 경우)
+     * @param source 기록된 파일 (저장소와 같은 파일시스템)
+     * @param target 논리 경로
+     * @throws IOException
+     */
+    public void commit(Path source, Path target) throws IOException {
+        byte[] hash;
+        try(InputStream in = Files.newInputStream(source)) {
+            hash = DigestUtils.sha256(in);
+        }
+        store(source, hash, target);
+    }
+
+    /**
+     * 기록된 임시파일을 blob으로 저장하고 논리 경로를 blob에 연결한다.
+     * @param temp 기록된 임시파일
+     * @param digest SHA-256 해시
+     * @param target 논리 경로
+     * @throws IOException
+     */
+    public void store(Path temp, byte[] digest, Path target) throws IOException {
+        String hash = Hex.encodeHexString(digest);
+        Path blob = getBlob(hash);
+        synchronized(getLock(hash)) {
+            if(Files.exists(blob)) {
+                Files.delete(temp);
+                log.debug("중복 파일 [{}] {}", hash, target);
+            } else {
+                Files.createDirectories(blob.getParent());
+                Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+                writeHashAttribute(blob, hash);
+            }
+            updateReference(hash, 1);
+        }
+
+        //같은 디렉토리의 임시 이름에 연결 (목록에 나오지 않도록 .으로 시작)
+        Files.createDirectories(target.getParent());
+        Path staged = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".link");
+        boolean linked = false;
+        boolean published = false;
+        try {
+            try {
+                Files.createLink(staged, blob);
+                linked = true;
+
+            } catch(UnsupportedOperationException | IOException e) {
+                //복사한 파일은 blob과 같은 파일이 아니므로 삭제시 참조를 해제하지 않는다. (복사 후 참조 반환)
+                log.warn("하드링크를 만들 수 없어 파일을 복사합니다. [{}]", target);
+                try {
+                    Files.copy(blob, staged, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    synchronized(getLock(hash)) {
+                        updateReference(hash, -1);
+                    }
+                }
+            }
+            replace(staged, target);
+            published = true;
+
+        } finally {
+            //교체하지 못했으면 임시 이름의 파일과 참조를 정리
+            if(!published) {
+                Files.deleteIfExists(staged);
+                if(linked) {
+                    synchronized(getLock(hash)) {
+                        updateReference(hash, -1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 임시 이름의 파일을 논리 경로로 이름을 변경해서 한 번에 교체한다.
+     * 기존 파일이 blob에 연결되어 있었으면 교체한 뒤 참조를 해제한다.
+     * @param staged 임시 이름의 파일 (논리 경로와 같은 디렉토리)
+     * @param target 논리 경로
+     * @throws IOException
+     */
+    private void replace(Path staged, Path target) throws IOException {
+        if(!Files.exists(target)) {
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+
+        String hash = readHash(target);
+        Path blob = getBlob(hash);
+        synchronized(getLock(hash)) {
+            boolean linked = Files.exists(blob) && Files.isSameFile(target, blob);
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+            if(linked) {
+                updateReference(hash, -1);
+            }
+        }
+    }
+
+    /**
+     * 논리 경로의 파일을 삭제하고, blob에 연결된 파일이면 참조 개수를 줄인다. 참조가 없으면 blob도 삭제한다.
+     * @param target 논리 경로
+     * @return true 삭제됨, false 파일이 없음
+     * @throws IOException
+     */
+    public boolean delete(Path target) throws IOException {
+        if(!Files.exists(target)) {
+            return false;
+        }
+
+        String hash = readHash(target);
+        Path blob = getBlob(hash);
+        synchronized(getLock(hash)) {
+            boolean linked = Files.exists(blob) && Files.isSameFile(target, blob);
+            Files.deleteIfExists(target);
+            if(linked) {
+                updateReference(hash, -1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * blob의 참조 개수를 변경한다. 참조가 없으면 blob을 삭제한다. (해시별 잠금 안에서 호출)
+     * @param hash SHA-256 해시
+     * @param delta 변경값
+     * @throws IOException
+     */
+    private void updateReference(String hash, int delta) throws IOException {
+        Path blob = getBlob(hash);
+        Path refs = blob.resolveSibling(hash + ".refs");
+
+        long count = 0;
+        if(Files.exists(refs)) {
+            count = Long.parseLong(new String(Files.readAllBytes(refs), StandardCharsets.US_ASCII).trim());
+        }
+        count += delta;
+
+        if(count <= 0) {
+            Files.deleteIfExists(blob);
+            Files.deleteIfExists(refs);
+            log.debug("blob 삭제 [{}]", hash);
+        } else {
+            Files.write(refs, Long.toString(count).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * 파일의 해시를 반환한다. 파일 속성에 없으면 내용을 읽어서 계산한다.
+     * @param path 파일 경로
+     * @return SHA-256 해시
+     * @throws IOException
+     */
+    private String readHash(Path path) throws IOException {
+        String hash = readHashAttribute(path);
+        if(hash == null) {
+            try(InputStream in = Files.newInputStream(path)) {
+                hash = DigestUtils.sha256Hex(in);
+            }
+        }
+        return hash;
+    }
+
+    private void writeHashAttribute(Path path, String hash) {
+        try {
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+            if(view != null) {
+                view.write(HASH_ATTRIBUTE, StandardCharsets.US_ASCII.encode(hash));
+            }
+        } catch(IOException | UnsupportedOperationException e) {
+            log.debug("파일 속성을 기록할 수 없습니다. [{}]", path);
+        }
+    }
+
+    private String readHashAttribute(Path path) {
+        try {
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+            if(view != null && view.list().contains(HASH_ATTRIBUTE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(view.size(HASH_ATTRIBUTE));
+                view.read(HASH_ATTRIBUTE, buffer);
+                buffer.flip();
+                return StandardCharsets.US_ASCII.decode(buffer).toString();
+            }
+        } catch(IOException | UnsupportedOperationException e) {
+            log.debug("파일 속성을 읽을 수 없습니다. [{}]", path);
+        }
+        return null;
+    }
+
+    private Object getLock(String hash) {
+        return locks[(hash.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    /**
+     * 해시에 대한 blob 경로를 반환한다. (.cas/ab/cd/abcd...)
+     * @param hash SHA-256 해시
+     * @return blob 경로
+     */
+    private Path getBlob(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.fileuploaddemo.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 디렉토리 목록 색인 저장소
+ * 디렉토리 목록(list, listStats)을 메모리 색인에서 반환해서, 파일이 많은 디렉토리도 요청마다 파일시스템을 순회하지 않는다.
+ * 디렉토리는 처음 조회할 때 한 번 읽어서 색인하고, 이후에는 이 저장소를 통한 commit, importFile, delete 시점에 해당 파일만 갱신한다.
+ * 로컬 파일시스템 디렉토리는 WatchService로 감시해서 외부에서 추가, 변경, 삭제한 파일도 반영하며, 이벤트가 유실되면(OVERFLOW) 디렉토리를 다시 읽는다.
+ * 감시는 subPath 디렉토리만 등록하고 분산 배치(ShardLayout)의 .shard 하위 디렉토리는 등록하지 않는다. (기본 설정에서 subPath마다 65536개로 감시 개수 제한을 넘음)
+ * 따라서 분산 배치를 사용하면 외부에서 분산 위치에 직접 추가, 변경, 삭제한 파일은 반영되지 않으며, 파일은 이 저장소를 통해서만 변경해야 한다.
+ * 색인하는 디렉토리 개수가 최대 개수를 넘으면 가장 오래 조회하지 않은 디렉토리부터 색인과 감시를 해제한다.
+ */
+@Slf4j
+public class DirectoryIndexStorageEngine implements StorageEngine {
+
+    /**
+     * 하위 저장소
+     */
+    private final StorageEngine delegate;
+
+    /**
+     * 색인할 최대 디렉토리 개수
+     */
+    private final int maxDirectories;
+
+    /**
+     * 색인중인 디렉토리 (접근 순서)
+     */
+    private final Map<String, Directory> directories;
+
+    /**
+     * 감시 키 -> 디렉토리
+     */
+    private final Map<WatchKey, Directory> watchedDirectories = new ConcurrentHashMap<>();
+
+    /**
+     * 디렉토리 감시 (처음 로컬 디렉토리를 색인할 때 생성, directories 잠금 안에서 생성)
+     */
+    private volatile WatchService watchService;
+
+    /**
+     * 생성자
+     * @param delegate 하위 저장소
+     * @param maxDirectories 색인할 최대 디렉토리 개수
+     */
+    public DirectoryIndexStorageEngine(StorageEngine delegate, int maxDirectories) {
+        this.delegate = delegate;
+        this.maxDirectories = maxDirectories;
+        this.directories = new LinkedHashMap<String, Directory>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Directory> eldest) {
+                if(size() > DirectoryIndexStorageEngine.this.maxDirectories) {
+                    unwatch(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public StorageWriter create() throws IOException {
+        return new IndexingWriter(delegate.create());
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        return delegate.open(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        try {
+            return delegate.delete(key);
+
+        } finally {
+            refresh(key);
+        }
+    }
+
+    @Override
+    public StorageStat stat(String key) throws IOException {
+        return delegate.stat(key);
+    }
+
+    @Override
+    public List<String> list(String directory) throws IOException {
+        return new ArrayList<>(listStats(directory).keySet());
+    }
+
+    /**
+     * 색인된 목록을 읽기 전용으로 반환한다. 반환한 목록은 이후 변경 내용이 반영될 수 있다.
+     */
+    @Override
+    public NavigableMap<String, StorageStat> listStats(String directory) throws IOException {
+        String directoryKey = toDirectoryKey(directory);
+        Directory indexed = getDirectory(directoryKey);
+        synchronized(indexed) {
+            if(!indexed.loaded && !load(indexed)) {
+                return Collections.emptyNavigableMap();
+            }
+        }
+        return Collections.unmodifiableNavigableMap(indexed.entries);
+    }
+
+    @Override
+    public long importFile(Path source, String key) throws IOException {
+        try {
+            return delegate.importFile(source, key);
+
+        } finally {
+            refresh(key);
+        }
+    }
+
+    @Override
+    public Path toPath(String key) throws IOException {
+        return delegate.toPath(key);
+    }
+
+    /**
+     * 색인중인 디렉토리 개수
+     * @return 개수
+     */
+    public int getDirectoryCount() {
+        synchronized(directories) {
+            return directories.size();
+        }
+    }
+
+    /**
+     * 디렉토리 감시를 종료한다.
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if(watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private Directory getDirectory(String directoryKey) {
+        synchronized(directories) {
+            return directories.computeIfAbsent(directoryKey, Directory::new);
+        }
+    }
+
+    /**
+     * 디렉토리를 읽어서 색인한다. (디렉토리 잠금 안에서 호출)
+     * 감시를 먼저 등록한 뒤 읽어서, 읽는 동안 외부에서 변경된 파일은 감시 이벤트로 다시 반영한다. (분산 위치의 파일은 감시하지 않음)
+     * @param directory 디렉토리
+     * @return true 색인됨, false 디렉토리가 없어서 색인하지 않음
+     * @throws IOException
+     */
+    private boolean load(Directory directory) throws IOException {
+        Path path = delegate.toPath(directory.key);
+        if(path != null && directory.watchKey == null) {
+            try {
+                directory.watchKey = path.register(getWatchService(path),
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(directory.watchKey, directory);
+
+            } catch(NoSuchFileException e) {
+                //아직 없는 디렉토리는 색인하지 않고 다음 조회시 다시 읽는다.
+                synchronized(directories) {
+                    directories.remove(directory.key, directory);
+                }
+                return false;
+            }
+        }
+
+        //다시 읽는 경우 이전 목록을 반환받은 요청이 영향을 받지 않도록 새 목록으로 교체한다.
+        long startTime = System.nanoTime();
+        directory.entries = new ConcurrentSkipListMap<>(delegate.listStats(directory.key));
+        directory.loaded = true;
+        log.debug("디렉토리 색인 [{}] files:[{}] {}ms", directory.key, directory.entries.size(), (System.nanoTime() - startTime) / 1000000);
+        return true;
+    }
+
+    /**
+     * 색인된 디렉토리에 있는 파일의 정보를 하위 저장소에서 다시 읽어서 갱신한다.
+     * 색인을 읽는 중이면 끝날 때까지 기다린 뒤 갱신한다.
+     * @param key 파일 키
+     */
+    private void refresh(String key) {
+        String normalized = MemoryStorageEngine.normalize(key);
+        int index = normalized.lastIndexOf('/');
+        Directory directory;
+        synchronized(directories) {
+            directory = directories.get(index >= 0 ? normalized.substring(0, index) : "");
+        }
+        if(directory != null) {
+            synchronized(directory) {
+                refresh(directory, normalized.substring(index + 1));
+            }
+        }
+    }
+
+    /**
+     * 디렉토리 색인의 파일 한 개를 갱신한다. (디렉토리 잠금 안에서 호출)
+     * @param directory 디렉토리
+     * @param name 파일 이름
+     */
+    private void refresh(Directory directory, String name) {
+        if(!directory.loaded || name.isEmpty() || name.startsWith(".")) {
+            return;
+        }
+        try {
+            StorageStat stat = delegate.stat(directory.key.isEmpty() ? name : directory.key + "/" + name);
+            if(stat != null) {
+                directory.entries.put(name, stat);
+            } else {
+                directory.entries.remove(name);
+            }
+
+        } catch(IOException e) {
+            //다음 조회시 다시 읽도록 색인을 버린다.
+            log.warn("디렉토리 색인 갱신 실패 [{}/{}] {}", directory.key, name, e.toString());
+            directory.loaded = false;
+        }
+    }
+
+    private WatchService getWatchService(Path path) throws IOException {
+        synchronized(directories) {
+            if(watchService == null) {
+                watchService = path.getFileSystem().newWatchService();
+                Thread watcher = new Thread(this::watch, "directory-index-watcher");
+                watcher.setDaemon(true);
+                watcher.start();
+            }
+            return watchService;
+        }
+    }
+
+    private void unwatch(Directory directory) {
+        if(directory.watchKey != null) {
+            directory.watchKey.cancel();
+            watchedDirectories.remove(directory.watchKey);
+        }
+    }
+
+    /**
+     * 감시 이벤트를 색인에 반영한다. (감시 스레드)
+     */
+    private void watch() {
+        while(true) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+
+            } catch(ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+
+            Directory directory = watchedDirectories.get(watchKey);
+            if(directory == null) {
+                watchKey.cancel();
+                continue;
+            }
+            synchronized(directory) {
+                for(WatchEvent<?> event : watchKey.pollEvents()) {
+                    if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        //유실된 이벤트가 있으면 다음 조회시 디렉토리를 다시 읽는다.
+                        directory.loaded = false;
+                    } else {
+                        refresh(directory, event.context().toString());
+                    }
+                }
+            }
+
+            //디렉토리가 삭제되어 감시가 끝나면 색인을 버린다.
+            if(!watchKey.reset()) {
+                watchedDirectories.remove(watchKey);
+                synchronized(directories) {
+                    directories.remove(directory.key, directory);
+                }
+            }
+        }
+    }
+
+    private static String toDirectoryKey(String directory) {
+        String directoryKey = MemoryStorageEngine.normalize(directory);
+        while(directoryKey.endsWith("/")) {
+            directoryKey = directoryKey.substring(0, directoryKey.length() - 1);
+        }
+        return directoryKey;
+    }
+
+    /**
+     * 색인된 디렉토리
+     */
+    private static class Directory {
+
+        private final String key;
+        private volatile NavigableMap<String, StorageStat> entries = new ConcurrentSkipListMap<>();
+        private volatile boolean loaded;
+        private WatchKey watchKey;
+
+        Directory(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 하위 저장소에 기록하고 commit 시점에 디렉토리 색인을 갱신하는 채널
+     */
+    private class IndexingWriter implements StorageWriter {
+
+        private final StorageWriter writer;
+
+        IndexingWriter(StorageWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return writer.write(src);
+        }
+
+        @Override
+        public long getSize() {
+            return writer.getSize();
+        }
+
+        @Override
+        public void commit(String key) throws IOException {
+            try {
+                writer.commit(key);
+
+            } finally {
+                refresh(key);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return writer.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.fileuploaddemo.storage;
+
+/**
+ * 키별 최근 접근 빈도 추정기 (Count-Min Sketch, TinyLFU)
+ * 키마다 4개의 카운터(최대 15)를 증가시키고 그 중 최솟값을 빈도로 사용한다.
+ * 증가 횟수가 테이블 크기의 10배가 되면 모든 카운터를 절반으로 줄여서 오래된 빈도가 남지 않도록 한다.
+ * 동기화하지 않으므로 호출하는 쪽에서 잠금을 잡아야 한다.
+ */
+class FrequencySketch {
+
+    private static final int[] SEEDS = {0x97CB3127, 0xB8F3C2A9, 0x6A09E667, 0xBB67AE85};
+
+    private static final int MAX_COUNT = 15;
+
+    private final byte[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * 생성자
+     * @param expectedEntries 예상 키 개수 (테이블 크기는 이 값 이상의 2의 거듭제곱)
+     */
+    FrequencySketch(int expectedEntries) {
+        int size = Integer.highestOneBit(Math.max(64, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+        this.table = new byte[size];
+        this.mask = size - 1;
+        this.sampleSize = size * 10;
+    }
+
+    /**
+     * 키의 접근을 기록한다.
+     * @param key 키
+     */
+    void increment(String key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for(int seed : SEEDS) {
+            int index = indexOf(hash, seed);
+            if(table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if(added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 키의 추정 빈도를 반환한다.
+     * @param key 키
+     * @return 빈도 (0 ~ 15)
+     */
+    int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for(int seed : SEEDS) {
+            frequency = Math.min(frequency, table[indexOf(hash, seed)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for(int i = 0; i < table.length; i++) {
+            table[i] = (byte) (table[i] >>> 1);
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int seed) {
+        int h = hash * seed;
+        h ^= h >>> 17;
+        return h & mask;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+}
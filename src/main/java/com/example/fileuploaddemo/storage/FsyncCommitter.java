@@ -0,0 +1,246 @@
+package com.example.fileuploaddemo.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 파일 기록 완료(commit) 처리
+ * 기록한 임시파일을 정책에 따라 디스크에 강제 기록(fsync)한 뒤 저장 위치로 옮기고(rename), 옮긴 디렉토리를 강제 기록한다.
+ * none: 강제 기록하지 않는다. (운영체제가 기록할 때까지 서버 장애시 유실될 수 있음)
+ * file: 파일과 디렉토리를 요청 스레드마다 강제 기록한다.
+ * group: 파일은 요청 스레드에서 동시에 강제 기록해서 옮기고, 디렉토리 강제 기록만 기록 스레드 한 개가 대기중인 요청을 모아서
+ *        같은 디렉토리는 한 번만 강제 기록한 뒤 요청 스레드를 깨운다.
+ *        앞 묶음을 기록하는 동안 들어온 요청이 다음 묶음이 되므로 같은 디렉토리에 동시 업로드가 많을수록 파일당 비용이 줄어든다.
+ */
+@Slf4j
+public class FsyncCommitter {
+
+    /**
+     * 강제 기록 정책
+     */
+    public enum Policy {
+        NONE, FILE, GROUP
+    }
+
+    /**
+     * 저장 위치로 옮기는 작업
+     */
+    public interface Publisher {
+        void publish() throws IOException;
+    }
+
+    /**
+     * 강제 기록 정책
+     */
+    private final Policy policy;
+
+    /**
+     * 묶음을 모으기 위해 기다리는 시간 (나노초, group)
+     */
+    private final long groupCommitDelay;
+
+    /**
+     * 한 묶음의 최대 파일 개수 (group)
+     */
+    private final int groupCommitMaxFiles;
+
+    /**
+     * 묶음 기록 완료를 기다리는 최대 시간 (나노초, group)
+     */
+    private final long groupCommitTimeout;
+
+    /**
+     * 디렉토리 강제 기록을 기다리는 요청 (group)
+     */
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * 디렉토리 강제 기록 지원 여부 (Windows는 디렉토리를 열 수 없음)
+     */
+    private volatile boolean directorySyncSupported = true;
+
+    /**
+     * 생성자
+     * @param policy 강제 기록 정책
+     * @param groupCommitDelay 묶음을 모으기 위해 기다리는 시간 (밀리초, group)
+     * @param groupCommitMaxFiles 한 묶음의 최대 파일 개수 (group)
+     * @param groupCommitTimeout 묶음 기록 완료를 기다리는 최대 시간 (밀리초, group)
+     */
+    public FsyncCommitter(Policy policy, long groupCommitDelay, int groupCommitMaxFiles, long groupCommitTimeout) {
+        this.policy = policy;
+        this.groupCommitDelay = TimeUnit.MILLISECONDS.toNanos(groupCommitDelay);
+        this.groupCommitMaxFiles = Math.max(1, groupCommitMaxFiles);
+        this.groupCommitTimeout = TimeUnit.MILLISECONDS.toNanos(groupCommitTimeout);
+        if(policy == Policy.GROUP) {
+            Thread committer = new Thread(this::run, "fsync-group-commit");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    /**
+     * 기록한 파일을 정책에 따라 강제 기록하고 닫은 뒤 저장 위치로 옮긴다. (group은 디렉토리 강제 기록이 끝날 때까지 기다린다)
+     * @param channel 기록한 파일 채널 (없으면 null, 완료 후 닫힘)
+     * @param directory 저장 위치 디렉토리
+     * @param publisher 저장 위치로 옮기는 작업
+     * @throws IOException
+     */
+    public void commit(FileChannel channel, Path directory, Publisher publisher) throws IOException {
+        if(channel != null) {
+            try {
+                if(policy != Policy.NONE) {
+                    channel.force(true);
+                }
+            } finally {
+                channel.close();
+            }
+        }
+        publisher.publish();
+        if(policy == Policy.FILE) {
+            syncDirectory(directory);
+        } else if(policy == Policy.GROUP) {
+            awaitDirectory(directory);
+        }
+    }
+
+    /**
+     * 강제 기록 정책
+     * @return 정책
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 디렉토리 강제 기록을 기록 스레드에 맡기고 끝날 때까지 기다린다.
+     * @param directory 디렉토리
+     * @throws IOException 강제 기록에 실패하거나 최대 시간 안에 끝나지 않은 경우
+     */
+    private void awaitDirectory(Path directory) throws IOException {
+        Request request = new Request(directory);
+        queue.add(request);
+        try {
+            request.done.get(groupCommitTimeout, TimeUnit.NANOSECONDS);
+
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("파일 기록 완료를 기다리는 중 중단되었습니다.");
+        } catch(ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch(TimeoutException e) {
+            throw new IOException("디렉토리 강제 기록이 끝나지 않았습니다. [" + directory + "]");
+        }
+    }
+
+    /**
+     * 대기중인 요청을 묶음으로 처리한다. (기록 스레드)
+     */
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        while(true) {
+            try {
+                batch.add(queue.take());
+                if(groupCommitDelay > 0) {
+                    long deadline = System.nanoTime() + groupCommitDelay;
+                    long remaining;
+                    while(batch.size() < groupCommitMaxFiles && (remaining = deadline - System.nanoTime()) > 0) {
+                        Request request = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if(request == null) {
+                            break;
+                        }
+                        batch.add(request);
+                    }
+                }
+                queue.drainTo(batch, groupCommitMaxFiles - batch.size());
+
+            } catch(InterruptedException e) {
+                return;
+            }
+
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 묶음의 디렉토리를 한 번씩 강제 기록하고 요청 스레드를 깨운다.
+     * @param batch 묶음
+     */
+    private void commit(List<Request> batch) {
+        Map<Path, IOException> directories = new HashMap<>();
+        for(Request request : batch) {
+            if(!directories.containsKey(request.directory)) {
+                try {
+                    syncDirectory(request.directory);
+                    directories.put(request.directory, null);
+
+                } catch(IOException e) {
+                    directories.put(request.directory, e);
+                }
+            }
+        }
+        for(Request request : batch) {
+            IOException e = directories.get(request.directory);
+            if(e != null) {
+                request.done.completeExceptionally(e);
+            } else {
+                request.done.complete(null);
+            }
+        }
+        log.trace("group commit files:[{}] directories:[{}]", batch.size(), directories.size());
+    }
+
+    /**
+     * 디렉토리를 강제 기록해서 이름 변경(rename)이 서버 장애 후에도 남도록 한다.
+     * @param directory 디렉토리
+     * @throws IOException
+     */
+    private void syncDirectory(Path directory) throws IOException {
+        if(!directorySyncSupported) {
+            return;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+
+        } catch(AccessDeniedException e) {
+            log.debug("디렉토리를 강제 기록할 수 없습니다. [{}] {}", directory, e.toString());
+            directorySyncSupported = false;
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * 디렉토리 강제 기록을 기다리는 요청
+     */
+    private static class Request {
+
+        private final Path directory;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Request(Path directory) {
+            this.directory = directory;
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.example.fileuploaddemo.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 로컬 파일시스템 저장소 (NIO)
+ * 파일은 임시파일(루트 하위 .tmp, 같은 파일시스템)에 기록한 뒤 commit 시점에 키 위치로 이름을 변경해서 한 번에 교체한다.
+ * 읽는 쪽은 이전 파일 또는 기록이 끝난 새 파일만 보게 되며, 강제 기록(fsync) 정책에 따라 이름 변경 전후에 디스크에 강제 기록한다.
+ * 중복제거 저장소가 설정되면 기록하면서 해시를 계산하고 commit 시점에 blob으로 저장한다.
+ * 분산 배치가 설정되면 파일을 분산 위치에 저장하고, 읽을 때는 분산 위치를 먼저 찾고 없으면 기존 위치(subPath/파일명)를 찾는다.
+ */
+@Slf4j
+public class LocalFileStorageEngine implements StorageEngine {
+
+    /**
+     * 임시파일 디렉토리명 (root 하위)
+     */
+    private static final String TEMP_DIRECTORY = ".tmp";
+
+    /**
+     * 저장소 루트 디렉토리
+     */
+    private final Path root;
+
+    /**
+     * 중복제거 저장소 (사용하지 않으면 null)
+     */
+    private final DedupStore dedupStore;
+
+    /**
+     * 분산 배치 (사용하지 않으면 null)
+     */
+    private final ShardLayout shardLayout;
+
+    /**
+     * 기록 완료 처리 (강제 기록 정책)
+     */
+    private final FsyncCommitter fsyncCommitter;
+
+    /**
+     * 생성자
+     * @param root 저장소 루트 디렉토리
+     * @param dedupStore 중복제거 저장소 (사용하지 않으면 null)
+     */
+    public LocalFileStorageEngine(Path root, DedupStore dedupStore) {
+        this(root, dedupStore, null);
+    }
+
+    /**
+     * 생성자
+     * @param root 저장소 루트 디렉토리
+     * @param dedupStore 중복제거 저장소 (사용하지 않으면 null)
+     * @param shardLayout 분산 배치 (사용하지 않으면 null)
+     */
+    public LocalFileStorageEngine(Path root, DedupStore dedupStore, ShardLayout shardLayout) {
+        this(root, dedupStore, shardLayout, null);
+    }
+
+    /**
+     * 생성자
+     * @param root 저장소 루트 디렉토리
+     * @param dedupStore 중복제거 저장소 (사용하지 않으면 null)
+     * @param shardLayout 분산 배치 (사용하지 않으면 null)
+     * @param fsyncCommitter 기록 완료 처리 (null이면 강제 기록하지 않음)
+     */
+    public LocalFileStorageEngine(Path root, DedupStore dedupStore, ShardLayout shardLayout, FsyncCommitter fsyncCommitter) {
+        this.root = root.toAbsolutePath().normalize();
+        this.dedupStore = dedupStore;
+        this.shardLayout = shardLayout != null && shardLayout.isEnabled() ? shardLayout : null;
+        this.fsyncCommitter = fsyncCommitter != null ? fsyncCommitter : new FsyncCommitter(FsyncCommitter.Policy.NONE, 0, 1, 0);
+    }
+
+    @Override
+    public StorageWriter create() throws IOException {
+        Path directory = dedupStore != null ? dedupStore.getTempDirectory() : Files.createDirectories(root.resolve(TEMP_DIRECTORY));
+        Path temp = Files.createTempFile(directory, "upload-", ".tmp");
+        return new LocalFileWriter(temp, dedupStore != null ? dedupStore.newDigest() : null);
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        Path path = resolveExisting(key);
+        try {
+            return FileChannel.open(path, StandardOpenOption.READ);
+
+        } catch(NoSuchFileException e) {
+            //찾은 뒤 분산 위치로 이동된 파일
+            if(shardLayout == null || !path.equals(resolve(key))) {
+                throw e;
+            }
+            return FileChannel.open(shardLayout.toShardPath(path), StandardOpenOption.READ);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            return Files.isRegularFile(resolveExisting(key));
+
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        Path path = resolve(key);
+        boolean deleted = deleteFile(path);
+        if(shardLayout != null && deleteFile(shardLayout.toShardPath(path))) {
+            deleted = true;
+        }
+        return deleted;
+    }
+
+    @Override
+    public StorageStat stat(String key) throws IOException {
+        Path path = resolveExisting(key);
+        try {
+            return stat(path);
+
+        } catch(NoSuchFileException e) {
+            //찾은 뒤 분산 위치로 이동된 파일
+            if(shardLayout == null || !path.equals(resolve(key))) {
+                return null;
+            }
+            try {
+                return stat(shardLayout.toShardPath(path));
+
+            } catch(NoSuchFileException ignored) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public List<String> list(String directory) throws IOException {
+        if(shardLayout != null) {
+            return new ArrayList<>(listStats(directory).keySet());
+        }
+        List<String> names = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(resolve(directory))) {
+            for(Path path : stream) {
+                String name = path.getFileName().toString();
+                if(!name.startsWith(".") && Files.isRegularFile(path)) {
+                    names.add(name);
+                }
+            }
+
+        } catch(NoSuchFileException e) {
+            return Collections.emptyList();
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * 디렉토리를 한 번 순회하면서 파일 정보를 함께 읽는다. (Windows는 디렉토리 목록에 포함된 속성을 사용하므로 파일별 조회가 없다)
+     * 분산 배치를 사용하면 분산 디렉토리도 순회하며, 같은 이름이 두 위치에 있으면 분산 위치의 파일 정보를 사용한다.
+     */
+    @Override
+    public NavigableMap<String, StorageStat> listStats(String directory) throws IOException {
+        Path start = resolve(directory);
+        NavigableMap<String, StorageStat> stats = new TreeMap<>();
+        try {
+            walk(start, 1, stats);
+
+        } catch(NoSuchFileException e) {
+            return Collections.emptyNavigableMap();
+        }
+        if(shardLayout != null) {
+            try {
+                walk(start.resolve(ShardLayout.SHARD_DIRECTORY), shardLayout.getLevels() + 1, stats);
+
+            } catch(NoSuchFileException e) {
+                //분산 위치에 저장된 파일이 없음
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 디렉토리를 depth 깊이까지 순회하면서 가장 깊은 단계의 파일 정보를 읽는다.
+     * @param start 디렉토리
+     * @param depth 깊이
+     * @param stats 파일 이름 -> 파일 정보
+     * @throws IOException
+     */
+    private static void walk(Path start, int depth, NavigableMap<String, StorageStat> stats) throws IOException {
+        Files.walkFileTree(start, EnumSet.noneOf(FileVisitOption.class), depth, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String name = file.getFileName().toString();
+                if(!file.equals(start) && !name.startsWith(".") && attributes.isRegularFile() && start.relativize(file).getNameCount() == depth) {
+                    stats.put(name, new StorageStat(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                //순회 도중 삭제된 파일은 무시한다.
+                if(file.equals(start)) {
+                    throw e;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public long importFile(Path source, String key) throws IOException {
+        Path target = resolveTarget(key);
+        long size = Files.size(source);
+        Files.createDirectories(target.getParent());
+        FileChannel channel = fsyncCommitter.getPolicy() != FsyncCommitter.Policy.NONE ? FileChannel.open(source, StandardOpenOption.WRITE) : null;
+        fsyncCommitter.commit(channel, target.getParent(), () -> {
+            if(dedupStore != null) {
+                dedupStore.commit(source, target);
+            } else {
+                moveTo(source, target);
+            }
+        });
+        deleteFlat(key);
+        return size;
+    }
+
+    @Override
+    public Path toPath(String key) throws IOException {
+        return resolveExisting(key);
+    }
+
+    /**
+     * 키를 저장소 경로로 변환한다. 루트 디렉토리 밖이나 내부 디렉토리(.tmp, .cas 등)를 가리키는 키는 허용하지 않는다.
+     * @param key 파일 키
+     * @return 파일 경로
+     * @throws IOException
+     */
+    private Path resolve(String key) throws IOException {
+        Path path = root.resolve(Paths.get(key.replace('\\', '/'))).normalize();
+        if(!path.startsWith(root) || path.equals(root)) {
+            throw new AccessDeniedException(key);
+        }
+        if(root.relativize(path).getName(0).toString().startsWith(".")) {
+            throw new AccessDeniedException(key);
+        }
+        return path;
+    }
+
+    /**
+     * 키의 파일이 있는 경로를 반환한다. 분산 배치를 사용하면 분산 위치에 있으면 분산 위치, 없으면 기존 위치를 반환한다.
+     * @param key 파일 키
+     * @return 파일 경로
+     * @throws IOException
+     */
+    private Path resolveExisting(String key) throws IOException {
+        Path path = resolve(key);
+        if(shardLayout != null) {
+            Path shardPath = shardLayout.toShardPath(path);
+            if(Files.exists(shardPath)) {
+                return shardPath;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * 키의 파일을 저장할 경로를 반환한다. 분산 배치를 사용하면 분산 위치를 반환한다.
+     * @param key 파일 키
+     * @return 파일 경로
+     * @throws IOException
+     */
+    private Path resolveTarget(String key) throws IOException {
+        Path path = resolve(key);
+        return shardLayout != null ? shardLayout.toShardPath(path) : path;
+    }
+
+    /**
+     * 분산 위치에 저장한 뒤 기존 위치에 남아 있는 이전 파일을 삭제한다.
+     * @param key 파일 키
+     * @throws IOException
+     */
+    private void deleteFlat(String key) throws IOException {
+        if(shardLayout != null) {
+            deleteFile(resolve(key));
+        }
+    }
+
+    private boolean deleteFile(Path path) throws IOException {
+        if(dedupStore != null) {
+            return dedupStore.delete(path);
+        }
+        return Files.deleteIfExists(path);
+    }
+
+    private static StorageStat stat(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if(!attributes.isRegularFile()) {
+            return null;
+        }
+        return new StorageStat(attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * 기록된 파일을 저장 위치로 이동한다. (저장 디렉토리가 없으면 생성)
+     * 기존 파일은 이름 변경으로 한 번에 교체하므로 파일이 없거나 일부만 기록된 순간이 없다.
+     * 기존 파일이 하드링크로 공유되고 있어도 디렉토리 항목만 바뀌므로 공유된 내용은 변경되지 않는다.
+     * @param source 기록된 파일
+     * @param target 저장 위치
+     * @throws IOException
+     */
+    private static void moveTo(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.deleteIfExists(target);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 임시파일 기록 채널
+     */
+    private class LocalFileWriter implements StorageWriter {
+
+        private final Path temp;
+        private final FileChannel channel;
+        private final MessageDigest digest;
+        private long size;
+        private boolean committed;
+
+        LocalFileWriter(Path temp, MessageDigest digest) throws IOException {
+            this.temp = temp;
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if(committed) {
+                throw new ClosedChannelException();
+            }
+            ByteBuffer view = digest != null ? src.duplicate() : null;
+            int written = channel.write(src);
+            if(view != null) {
+                view.limit(view.position() + written);
+                digest.update(view);
+            }
+            size += written;
+            return written;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void commit(String key) throws IOException {
+            Path target = resolveTarget(key);
+            Files.createDirectories(target.getParent());
+            byte[] hash = digest != null ? digest.digest() : null;
+            fsyncCommitter.commit(channel, target.getParent(), () -> {
+                if(hash != null) {
+                    dedupStore.store(temp, hash, target);
+                } else {
+                    moveTo(temp, target);
+                }
+            });
+            committed = true;
+            deleteFlat(key);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !committed && channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            if(!committed) {
+                committed = true;
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
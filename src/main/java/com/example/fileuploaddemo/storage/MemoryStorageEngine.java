@@ -0,0 +1,213 @@
+package com.example.fileuploaddemo.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 메모리 저장소 (부하 테스트, 벤치마크용)
+ * 파일 내용을 힙의 ByteBuffer로 보관하며 서버를 재시작하면 모두 사라진다.
+ */
+public class MemoryStorageEngine implements StorageEngine {
+
+    /**
+     * 기록 버퍼 초기 크기
+     */
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    /**
+     * 저장된 파일 (키 -> 내용)
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public StorageWriter create() {
+        return new MemoryWriter();
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        return new ByteBufferChannel(get(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return entries.containsKey(normalize(key));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return entries.remove(normalize(key)) != null;
+    }
+
+    @Override
+    public StorageStat stat(String key) {
+        Entry entry = entries.get(normalize(key));
+        if(entry == null) {
+            return null;
+        }
+        return new StorageStat(entry.content.limit(), entry.lastModified);
+    }
+
+    @Override
+    public List<String> list(String directory) {
+        String prefix = normalize(directory);
+        if(!prefix.isEmpty() && !prefix.endsWith("/")) {
+            prefix += "/";
+        }
+        List<String> names = new ArrayList<>();
+        for(String key : entries.keySet()) {
+            if(key.startsWith(prefix)) {
+                String name = key.substring(prefix.length());
+                if(!name.isEmpty() && name.indexOf('/') < 0 && !name.startsWith(".")) {
+                    names.add(name);
+                }
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    @Override
+    public NavigableMap<String, StorageStat> listStats(String directory) {
+        NavigableMap<String, StorageStat> stats = new TreeMap<>();
+        for(String name : list(directory)) {
+            StorageStat stat = stat(normalize(directory) + "/" + name);
+            if(stat != null) {
+                stats.put(name, stat);
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public long importFile(Path source, String key) throws IOException {
+        byte[] bytes = Files.readAllBytes(source);
+        put(key, ByteBuffer.wrap(bytes));
+        Files.delete(source);
+        return bytes.length;
+    }
+
+    @Override
+    public Path toPath(String key) {
+        return null;
+    }
+
+    /**
+     * 저장된 파일 내용을 반환한다.
+     * @param key 파일 키
+     * @return 파일 내용 (읽기 전용)
+     * @throws NoSuchFileException 파일이 없는 경우
+     */
+    ByteBuffer get(String key) throws NoSuchFileException {
+        Entry entry = entries.get(normalize(key));
+        if(entry == null) {
+            throw new NoSuchFileException(key);
+        }
+        return entry.content.duplicate();
+    }
+
+    /**
+     * 파일 내용을 저장한다. 같은 키의 기존 파일은 대체된다.
+     * @param key 파일 키
+     * @param content 파일 내용 (0 ~ limit)
+     */
+    void put(String key, ByteBuffer content) {
+        entries.put(normalize(key), new Entry(content.asReadOnlyBuffer(), System.currentTimeMillis()));
+    }
+
+    /**
+     * 경로 구분 문자를 통일한다.
+     * @param key 파일 키
+     * @return 정규화된 키
+     */
+    static String normalize(String key) {
+        String normalized = key.replace('\\', '/');
+        while(normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+
+    /**
+     * 저장된 파일
+     */
+    private static class Entry {
+
+        private final ByteBuffer content;
+        private final long lastModified;
+
+        Entry(ByteBuffer content, long lastModified) {
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * 크기가 늘어나는 버퍼에 기록하는 채널
+     */
+    private class MemoryWriter implements StorageWriter {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        private long size;
+        private boolean open = true;
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if(!open) {
+                throw new ClosedChannelException();
+            }
+            int count = src.remaining();
+            if(buffer.remaining() < count) {
+                long required = (long) buffer.position() + count;
+                if(required > Integer.MAX_VALUE - 8) {
+                    throw new IOException("메모리 저장소에 저장할 수 있는 크기를 초과하였습니다.");
+                }
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, (long) buffer.capacity() * 2));
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            buffer.put(src);
+            size += count;
+            return count;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public void commit(String key) throws IOException {
+            if(!open) {
+                throw new ClosedChannelException();
+            }
+            buffer.flip();
+            put(key, buffer);
+            open = false;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.fileuploaddemo.storage;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * 디렉토리 분산 배치
+ * 파일이 많은 subPath 디렉토리가 커지지 않도록 파일을 subPath/.shard/ab/cd/파일명 위치에 저장한다. (ab, cd는 파일명 MD5 해시의 앞부분)
+ * 단계(levels)마다 16^width개의 디렉토리로 나누며, 기본값(2단계, 2자리)은 65536개 디렉토리로 나눈다.
+ * 분산 디렉토리는 .으로 시작하므로 하위 subPath 디렉토리와 겹치지 않고 파일 목록에도 나타나지 않는다.
+ */
+public class ShardLayout {
+
+    /**
+     * 분산 디렉토리명 (subPath 하위)
+     */
+    public static final String SHARD_DIRECTORY = ".shard";
+
+    /**
+     * 단계 수 (0이면 사용하지 않음)
+     */
+    private final int levels;
+
+    /**
+     * 단계별 디렉토리명 길이 (16진수 자릿수)
+     */
+    private final int width;
+
+    /**
+     * 생성자
+     * @param levels 단계 수 (0이면 사용하지 않음)
+     * @param width 단계별 디렉토리명 길이 (16진수 자릿수)
+     */
+    public ShardLayout(int levels, int width) {
+        if(levels < 0 || (levels > 0 && (width < 1 || levels * width > 32))) {
+            throw new IllegalArgumentException("잘못된 분산 배치 설정입니다. levels:[" + levels + "] width:[" + width + "]");
+        }
+        this.levels = levels;
+        this.width = width;
+    }
+
+    /**
+     * 분산 배치 사용 여부
+     * @return true 사용
+     */
+    public boolean isEnabled() {
+        return levels > 0;
+    }
+
+    /**
+     * 단계 수
+     * @return 단계 수
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * 기존 위치(subPath/파일명)의 분산 위치를 반환한다.
+     * @param flatPath 기존 위치
+     * @return 분산 위치
+     */
+    public Path toShardPath(Path flatPath) {
+        String name = flatPath.getFileName().toString();
+        String hash = DigestUtils.md5Hex(name);
+        Path path = flatPath.resolveSibling(SHARD_DIRECTORY);
+        for(int i = 0; i < levels; i++) {
+            path = path.resolve(hash.substring(i * width, (i + 1) * width));
+        }
+        return path.resolve(name);
+    }
+
+    /**
+     * 기존 위치의 파일을 분산 위치로 이동한다. 분산 위치에 이미 파일이 있으면 그 파일이 최신이므로 기존 위치의 파일만 삭제한다.
+     * 이름 변경(rename)은 대상 파일을 덮어쓰므로, 확인한 뒤 이동하는 사이에 분산 위치에 저장된 새 파일을 잃지 않도록
+     * 대상이 있으면 실패하는 하드링크로 분산 위치에 만든 뒤 기존 위치를 삭제한다. (파일 내용, 수정시간, 중복제거 링크는 그대로 유지됨)
+     * @param flatPath 기존 위치
+     * @return true 이동됨, false 이동할 파일이 없거나 분산 위치에 이미 있음
+     * @throws IOException
+     */
+    public boolean migrate(Path flatPath) throws IOException {
+        if(!Files.isRegularFile(flatPath)) {
+            return false;
+        }
+        Path shardPath = toShardPath(flatPath);
+        Files.createDirectories(shardPath.getParent());
+        try {
+            Files.createLink(shardPath, flatPath);
+
+        } catch(FileAlreadyExistsException e) {
+            Files.deleteIfExists(flatPath);
+            return false;
+
+        } catch(NoSuchFileException e) {
+            return false;
+        }
+        Files.deleteIfExists(flatPath);
+        return true;
+    }
+}
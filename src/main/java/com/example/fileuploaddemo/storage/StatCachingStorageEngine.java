@@ -0,0 +1,206 @@
+package com.example.fileuploaddemo.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * 파일 정보(크기, 수정시간) 캐시 저장소
+ * 다운로드의 ETag/Last-Modified 검증에 필요한 파일 정보를 메모리에 보관해서, 304 응답은 파일시스템을 조회하지 않고 처리한다.
+ * 저장된 파일은 이 저장소를 통해서만 변경되므로 commit, delete, importFile 시점에 해당 키를 무효화하고,
+ * 외부에서 변경된 경우에 대비해 일정 시간이 지나면 다시 조회한다.
+ */
+public class StatCachingStorageEngine implements StorageEngine {
+
+    /**
+     * 하위 저장소
+     */
+    private final StorageEngine delegate;
+
+    /**
+     * 최대 보관 개수
+     */
+    private final int maxEntries;
+
+    /**
+     * 보관 시간 (밀리초)
+     */
+    private final long ttl;
+
+    /**
+     * 파일 정보 캐시 (접근 순서)
+     */
+    private final Map<String, CachedStat> cache;
+
+    /**
+     * 무효화 횟수 (cache 잠금 안에서 변경, 조회하는 도중 무효화된 파일 정보를 보관하지 않도록 비교)
+     */
+    private long invalidations;
+
+    /**
+     * 생성자
+     * @param delegate 하위 저장소
+     * @param maxEntries 최대 보관 개수
+     * @param ttl 보관 시간 (밀리초)
+     */
+    public StatCachingStorageEngine(StorageEngine delegate, int maxEntries, long ttl) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.cache = new LinkedHashMap<String, CachedStat>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStat> eldest) {
+                return size() > StatCachingStorageEngine.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public StorageWriter create() throws IOException {
+        return new InvalidatingWriter(delegate.create());
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        return delegate.open(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        synchronized(cache) {
+            CachedStat cached = cache.get(MemoryStorageEngine.normalize(key));
+            if(cached != null && cached.expires > System.currentTimeMillis()) {
+                return true;
+            }
+        }
+        return delegate.exists(key);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        try {
+            return delegate.delete(key);
+
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public StorageStat stat(String key) throws IOException {
+        String cacheKey = MemoryStorageEngine.normalize(key);
+        long now = System.currentTimeMillis();
+        long generation;
+        synchronized(cache) {
+            CachedStat cached = cache.get(cacheKey);
+            if(cached != null && cached.expires > now) {
+                return cached.stat;
+            }
+            generation = invalidations;
+        }
+
+        //조회하는 도중 변경(무효화)되었으면 이전 정보일 수 있으므로 보관하지 않는다.
+        StorageStat stat = delegate.stat(key);
+        if(stat != null) {
+            synchronized(cache) {
+                if(generation == invalidations) {
+                    cache.put(cacheKey, new CachedStat(stat, now + ttl));
+                }
+            }
+        }
+        return stat;
+    }
+
+    @Override
+    public List<String> list(String directory) throws IOException {
+        return delegate.list(directory);
+    }
+
+    @Override
+    public NavigableMap<String, StorageStat> listStats(String directory) throws IOException {
+        return delegate.listStats(directory);
+    }
+
+    @Override
+    public long importFile(Path source, String key) throws IOException {
+        try {
+            return delegate.importFile(source, key);
+
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Path toPath(String key) throws IOException {
+        return delegate.toPath(key);
+    }
+
+    private void invalidate(String key) {
+        synchronized(cache) {
+            invalidations++;
+            cache.remove(MemoryStorageEngine.normalize(key));
+        }
+    }
+
+    /**
+     * 캐시된 파일 정보
+     */
+    private static class CachedStat {
+
+        private final StorageStat stat;
+        private final long expires;
+
+        CachedStat(StorageStat stat, long expires) {
+            this.stat = stat;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * commit 시점에 캐시를 무효화하는 기록 채널
+     */
+    private class InvalidatingWriter implements StorageWriter {
+
+        private final StorageWriter writer;
+
+        InvalidatingWriter(StorageWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return writer.write(src);
+        }
+
+        @Override
+        public long getSize() {
+            return writer.getSize();
+        }
+
+        @Override
+        public void commit(String key) throws IOException {
+            try {
+                writer.commit(key);
+
+            } finally {
+                invalidate(key);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return writer.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.fileuploaddemo.storage;
+
+import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * 파일 저장소.
+ * 파일은 basePath 기준 상대 경로인 키(subPath/serverFilename)로 구분한다.
+ */
+public interface StorageEngine {
+
+    /**
+     * 파일을 기록할 채널을 연다.
+     * 기록한 내용은 StorageWriter.commit(key)를 호출해야 반영되고, commit 없이 닫으면 버려진다.
+     * @return 기록 채널
+     * @throws IOException
+     */
+    StorageWriter create() throws IOException;
+
+    /**
+     * 파일을 읽을 채널을 연다.
+     * @param key 파일 키
+     * @return 읽기 채널
+     * @throws java.nio.file.NoSuchFileException 파일이 없는 경우
+     * @throws IOException
+     */
+    SeekableByteChannel open(String key) throws IOException;
+
+    /**
+     * 파일 존재 여부를 반환한다.
+     * @param key 파일 키
+     * @return true 존재
+     */
+    boolean exists(String key);
+
+    /**
+     * 파일을 삭제한다.
+     * @param key 파일 키
+     * @return true 삭제됨, false 파일이 없음
+     * @throws IOException
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * 파일 정보를 반환한다.
+     * @param key 파일 키
+     * @return 파일 정보, 파일이 없으면 null
+     * @throws IOException
+     */
+    StorageStat stat(String key) throws IOException;
+
+    /**
+     * 디렉토리 바로 아래에 있는 파일 이름 목록을 반환한다. (하위 디렉토리, .으로 시작하는 이름은 제외)
+     * @param directory 디렉토리 키 (subPath)
+     * @return 파일 이름 목록 (이름순), 디렉토리가 없으면 빈 목록
+     * @throws IOException
+     */
+    List<String> list(String directory) throws IOException;
+
+    /**
+     * 디렉토리 바로 아래에 있는 파일의 이름과 파일 정보를 반환한다. (list와 같은 파일 대상)
+     * @param directory 디렉토리 키 (subPath)
+     * @return 파일 이름 -> 파일 정보 (이름순), 디렉토리가 없으면 빈 목록
+     * @throws IOException
+     */
+    NavigableMap<String, StorageStat> listStats(String directory) throws IOException;
+
+    /**
+     * 로컬 파일시스템에 기록된 파일을 저장소로 가져온다. (원본 파일은 이동되거나 삭제된다)
+     * @param source 원본 파일
+     * @param key 파일 키
+     * @return 저장된 파일 크기
+     * @throws IOException
+     */
+    long importFile(Path source, String key) throws IOException;
+
+    /**
+     * 파일의 로컬 경로를 반환한다. (sendfile 등 경로가 필요한 전송에 사용)
+     * @param key 파일 키
+     * @return 로컬 경로, 로컬 파일이 아니면 null
+     * @throws IOException
+     */
+    Path toPath(String key) throws IOException;
+}
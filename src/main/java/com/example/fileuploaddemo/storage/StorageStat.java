@@ -0,0 +1,19 @@
+package com.example.fileuploaddemo.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class StorageStat {
+
+    /**
+     * 파일크기
+     */
+    private long size;
+
+    /**
+     * 수정시간
+     */
+    private long lastModified;
+}
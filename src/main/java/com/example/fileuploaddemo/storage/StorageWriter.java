@@ -0,0 +1,23 @@
+package com.example.fileuploaddemo.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 저장소 기록 채널
+ */
+public interface StorageWriter extends WritableByteChannel {
+
+    /**
+     * 기록한 크기를 반환한다.
+     * @return 기록한 크기
+     */
+    long getSize();
+
+    /**
+     * 기록을 완료하고 키 위치에 반영한다. 같은 키의 기존 파일은 대체된다.
+     * @param key 파일 키
+     * @throws IOException
+     */
+    void commit(String key) throws IOException;
+}
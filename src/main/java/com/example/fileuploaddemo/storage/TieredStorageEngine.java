@@ -0,0 +1,338 @@
+package com.example.fileuploaddemo.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 2단계 저장소
+ * 모든 파일은 하위 저장소(cold)에 기록하고, 자주 읽는 작은 파일은 메모리(hot)에 보관해서 읽기를 메모리에서 처리한다. (read-through)
+ * hot 파일은 힙 밖의 direct 버퍼에 보관해서 GC 대상이 되지 않으며, 전체 크기를 넘으면 최근 사용 순서(LRU)로 제거한다.
+ * 새 파일은 제거될 파일보다 최근 접근 빈도(TinyLFU)가 높을 때만 보관해서 한 번 읽고 마는 파일이 자주 읽는 파일을 밀어내지 않도록 한다.
+ * 파일을 다시 기록(commit, importFile)하거나 삭제하면 hot 파일을 제거한다.
+ */
+@Slf4j
+public class TieredStorageEngine implements StorageEngine {
+
+    /**
+     * 하위 저장소
+     */
+    private final StorageEngine cold;
+
+    /**
+     * 메모리에 보관할 파일 최대 크기
+     */
+    private final long hotMaxFileSize;
+
+    /**
+     * 메모리에 보관할 전체 최대 크기
+     */
+    private final long hotMaxTotalBytes;
+
+    /**
+     * 메모리에 보관중인 파일 (접근 순서)
+     */
+    private final LinkedHashMap<String, HotEntry> hot = new LinkedHashMap<>(256, 0.75f, true);
+
+    /**
+     * 파일별 최근 읽기 빈도 (hot 잠금 안에서 사용)
+     */
+    private final FrequencySketch sketch;
+
+    /**
+     * 메모리에 보관중인 전체 크기 (hot 잠금 안에서 변경)
+     */
+    private long hotBytes;
+
+    /**
+     * 무효화 횟수 (hot 잠금 안에서 변경, 읽는 도중 무효화된 파일을 보관하지 않도록 비교)
+     */
+    private long invalidations;
+
+    /**
+     * 읽기 통계
+     */
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 생성자
+     * @param cold 하위 저장소
+     * @param hotMaxFileSize 메모리에 보관할 파일 최대 크기
+     * @param hotMaxTotalBytes 메모리에 보관할 전체 최대 크기
+     */
+    public TieredStorageEngine(StorageEngine cold, long hotMaxFileSize, long hotMaxTotalBytes) {
+        this.cold = cold;
+        this.hotMaxFileSize = Math.min(hotMaxFileSize, Integer.MAX_VALUE - 8);
+        this.hotMaxTotalBytes = hotMaxTotalBytes;
+        //평균 4KB 파일 기준 예상 개수
+        this.sketch = new FrequencySketch((int) Math.min(hotMaxTotalBytes / 4096, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public StorageWriter create() throws IOException {
+        return new TieredWriter(cold.create());
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        String hotKey = MemoryStorageEngine.normalize(key);
+        HotEntry entry;
+        long generation;
+        synchronized(hot) {
+            sketch.increment(hotKey);
+            entry = hot.get(hotKey);
+            generation = invalidations;
+        }
+        if(entry != null) {
+            hits.increment();
+            return new ByteBufferChannel(entry.content);
+        }
+        misses.increment();
+
+        //작은 파일은 읽으면서 메모리로 올린다.
+        StorageStat stat = cold.stat(key);
+        if(stat != null && stat.getSize() <= hotMaxFileSize && isAdmitted(hotKey, stat.getSize())) {
+            ByteBuffer content = ByteBuffer.allocateDirect((int) stat.getSize());
+            try(SeekableByteChannel channel = cold.open(key)) {
+                while(content.hasRemaining() && channel.read(content) >= 0) {
+                    //읽기 반복
+                }
+            }
+            //읽는 도중 크기가 바뀐 파일은 보관하지 않는다.
+            if(!content.hasRemaining()) {
+                content.flip();
+                putHot(hotKey, content, stat.getLastModified(), generation);
+                return new ByteBufferChannel(content);
+            }
+        }
+        return cold.open(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return getHot(MemoryStorageEngine.normalize(key)) != null || cold.exists(key);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        removeHot(MemoryStorageEngine.normalize(key));
+        return cold.delete(key);
+    }
+
+    @Override
+    public StorageStat stat(String key) throws IOException {
+        HotEntry entry = getHot(MemoryStorageEngine.normalize(key));
+        if(entry != null) {
+            return new StorageStat(entry.content.limit(), entry.lastModified);
+        }
+        return cold.stat(key);
+    }
+
+    @Override
+    public List<String> list(String directory) throws IOException {
+        return cold.list(directory);
+    }
+
+    @Override
+    public NavigableMap<String, StorageStat> listStats(String directory) throws IOException {
+        return cold.listStats(directory);
+    }
+
+    @Override
+    public long importFile(Path source, String key) throws IOException {
+        try {
+            return cold.importFile(source, key);
+
+        } finally {
+            removeHot(MemoryStorageEngine.normalize(key));
+        }
+    }
+
+    /**
+     * 메모리에 보관중인 파일은 메모리에서 전송하도록 null을 반환한다.
+     */
+    @Override
+    public Path toPath(String key) throws IOException {
+        if(getHot(MemoryStorageEngine.normalize(key)) != null) {
+            return null;
+        }
+        return cold.toPath(key);
+    }
+
+    /**
+     * 메모리에서 읽은 횟수
+     * @return 횟수
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 하위 저장소에서 읽은 횟수
+     * @return 횟수
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 전체 크기를 넘어서 메모리에서 제거한 횟수
+     * @return 횟수
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 메모리에 보관중인 전체 크기
+     * @return 바이트
+     */
+    public long getHotBytes() {
+        synchronized(hot) {
+            return hotBytes;
+        }
+    }
+
+    private HotEntry getHot(String hotKey) {
+        synchronized(hot) {
+            return hot.get(hotKey);
+        }
+    }
+
+    private void removeHot(String hotKey) {
+        synchronized(hot) {
+            invalidations++;
+            HotEntry entry = hot.remove(hotKey);
+            if(entry != null) {
+                hotBytes -= entry.content.limit();
+            }
+        }
+    }
+
+    /**
+     * 파일을 메모리에 보관할지 결정한다. (TinyLFU)
+     * 공간이 남으면 보관하고, 공간이 부족하면 제거될 파일보다 최근 읽기 빈도가 높을 때만 보관한다.
+     * @param hotKey 정규화된 파일 키
+     * @param size 파일 크기
+     * @return true 보관, false 하위 저장소에서 읽음
+     */
+    private boolean isAdmitted(String hotKey, long size) {
+        if(size > hotMaxTotalBytes) {
+            return false;
+        }
+        synchronized(hot) {
+            long needed = hotBytes + size - hotMaxTotalBytes;
+            if(needed <= 0) {
+                return true;
+            }
+            int frequency = sketch.frequency(hotKey);
+            for(Map.Entry<String, HotEntry> victim : hot.entrySet()) {
+                if(sketch.frequency(victim.getKey()) >= frequency) {
+                    return false;
+                }
+                needed -= victim.getValue().content.limit();
+                if(needed <= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 파일을 메모리에 보관한다. 전체 크기를 넘으면 가장 오래 사용하지 않은 파일부터 제거한다.
+     * @param hotKey 정규화된 파일 키
+     * @param content 파일 내용 (direct 버퍼)
+     * @param lastModified 수정시간
+     * @param generation 파일 정보를 읽기 전의 무효화 횟수 (그 사이 무효화되었으면 보관하지 않음)
+     */
+    private void putHot(String hotKey, ByteBuffer content, long lastModified, long generation) {
+        int size = content.limit();
+        synchronized(hot) {
+            if(generation != invalidations) {
+                return;
+            }
+            HotEntry previous = hot.put(hotKey, new HotEntry(content.asReadOnlyBuffer(), lastModified));
+            if(previous != null) {
+                hotBytes -= previous.content.limit();
+            }
+            hotBytes += size;
+
+            Iterator<Map.Entry<String, HotEntry>> iterator = hot.entrySet().iterator();
+            while(hotBytes > hotMaxTotalBytes && iterator.hasNext()) {
+                Map.Entry<String, HotEntry> eldest = iterator.next();
+                hotBytes -= eldest.getValue().content.limit();
+                iterator.remove();
+                evictions.increment();
+                log.trace("hot 저장소에서 제거 [{}]", eldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * 메모리에 보관중인 파일
+     */
+    private static class HotEntry {
+
+        private final ByteBuffer content;
+        private final long lastModified;
+
+        HotEntry(ByteBuffer content, long lastModified) {
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * 하위 저장소에 기록하고 commit 시점에 이전 hot 파일을 제거하는 채널
+     */
+    private class TieredWriter implements StorageWriter {
+
+        private final StorageWriter writer;
+
+        TieredWriter(StorageWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return writer.write(src);
+        }
+
+        @Override
+        public long getSize() {
+            return writer.getSize();
+        }
+
+        @Override
+        public void commit(String key) throws IOException {
+            try {
+                writer.commit(key);
+
+            } finally {
+                removeHot(MemoryStorageEngine.normalize(key));
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return writer.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.AsyncDownloadWriter;
+import com.example.fileuploaddemo.helper.DownloadHelper;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncDownloadWriterTest {
+
+    /**
+     * 파일 읽기용 I/O 스레드풀
+     */
+    private ExecutorService executor;
+
+    /**
+     * 쓰기 가능 알림을 보내는 컨테이너 스레드
+     */
+    private ExecutorService container;
+
+    private MockHttpServletRequest request;
+
+    private AsyncResponse response;
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(2);
+        container = Executors.newSingleThreadExecutor();
+        request = new MockHttpServletRequest("GET", "/download");
+        request.setAsyncSupported(true);
+        response = new AsyncResponse(new MockHttpServletResponse(), container);
+        WebAsyncUtils.getAsyncManager(request).setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+        container.shutdownNow();
+    }
+
+    @Test
+    public void test1() throws Exception {
+        //읽기 버퍼보다 큰 내용을 소켓이 쓰기 불가인 동안 기다리면서 전송
+        byte[] bytes = new byte[300 * 1024 + 7];
+        new Random(1).nextBytes(bytes);
+        ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(bytes));
+        AsyncDownloadWriter.start(request, response, source, executor);
+
+        awaitResult();
+        Assert.assertArrayEquals(bytes, response.out.toByteArray());
+        Assert.assertFalse(source.isOpen());
+        Assert.assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //응답을 보내기 전에 읽기가 실패하면 500
+        ReadableByteChannel source = new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                throw new IOException("read failed");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+        AsyncDownloadWriter.start(request, response, source, executor);
+
+        awaitResult();
+        Assert.assertEquals(500, response.getStatus());
+        Assert.assertFalse(source.isOpen());
+    }
+
+    @Test
+    public void test3() throws Exception {
+        //멀티 Range 본문도 요청 스레드와 같은 내용으로 전송
+        byte[] bytes = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+        StorageEngine storageEngine = new MemoryStorageEngine();
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(bytes));
+            writer.commit("notice/10001/a.txt");
+        }
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename("a.txt");
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init("/upload");
+
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,10-11");
+        DownloadHelper.write(request, response, uploadFile, storageEngine, "notice/10001/a.txt", executor);
+
+        awaitResult();
+        Assert.assertEquals(206, response.getStatus());
+        String body = new String(response.out.toByteArray(), StandardCharsets.US_ASCII);
+        Assert.assertTrue(body.contains("Content-Range: bytes 0-1/20\r\n\r\n01"));
+        Assert.assertTrue(body.contains("Content-Range: bytes 10-11/20\r\n\r\nab"));
+        Assert.assertEquals(response.out.toByteArray().length, Long.parseLong(response.getHeader(HttpHeaders.CONTENT_LENGTH)));
+    }
+
+    /**
+     * 전송이 끝나서 비동기 처리 결과가 설정될 때까지 기다린다.
+     */
+    private void awaitResult() throws InterruptedException {
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(!asyncManager.hasConcurrentResult()) {
+            Assert.assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 비동기 출력 스트림을 사용하는 응답
+     */
+    private static class AsyncResponse extends HttpServletResponseWrapper {
+
+        private final AsyncOutputStream out;
+
+        AsyncResponse(MockHttpServletResponse response, ExecutorService container) {
+            super(response);
+            this.out = new AsyncOutputStream(container);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+
+    /**
+     * 쓸 때마다 한 번씩 쓰기 불가로 응답하고, 컨테이너 스레드에서 쓰기 가능 알림을 보내는 출력 스트림
+     */
+    private static class AsyncOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private final ExecutorService container;
+        private WriteListener writeListener;
+        private boolean pending;
+
+        AsyncOutputStream(ExecutorService container) {
+            this.container = container;
+        }
+
+        @Override
+        public synchronized boolean isReady() {
+            if(!pending) {
+                return true;
+            }
+            pending = false;
+            container.execute(writeListener::onWritePossible);
+            return false;
+        }
+
+        @Override
+        public synchronized void setWriteListener(WriteListener writeListener) {
+            this.writeListener = writeListener;
+            container.execute(writeListener::onWritePossible);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            content.write(b);
+            pending = true;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            content.write(b, off, len);
+            pending = true;
+        }
+
+        synchronized byte[] toByteArray() {
+            return content.toByteArray();
+        }
+    }
+}
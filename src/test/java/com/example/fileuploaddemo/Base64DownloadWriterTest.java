@@ -0,0 +1,59 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.Base64DownloadWriter;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Base64DownloadWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void test1() throws Exception {
+        StorageEngine storageEngine = new MemoryStorageEngine();
+        byte[] bytes = "hello, hello, hello".getBytes(StandardCharsets.UTF_8);
+
+        for(boolean compress : new boolean[]{false, true}) {
+            UploadFile uploadFile = new UploadFile();
+            uploadFile.setFilename("a.txt");
+            uploadFile.setSubPath("notice/10001");
+            uploadFile.setKeepOriginalFilename(true);
+            uploadFile.init("/upload");
+            uploadFile.setBase64String(Base64.encodeBase64String(bytes));
+            UploadHelper.save(storageEngine, uploadFile, compress, Long.MAX_VALUE, false);
+            Assert.assertEquals(compress, uploadFile.isCompressed());
+            uploadFile.setBase64String(null);
+
+            String key = UploadHelper.toKey(uploadFile);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Base64DownloadWriter.write(out, uploadFile, storageEngine, key, storageEngine.stat(key).getSize());
+            JsonNode json = objectMapper.readTree(out.toByteArray());
+
+            //UploadFile JSON과 같은 필드를 기록하고 base64String은 마지막에 기록
+            List<String> expected = new ArrayList<>();
+            objectMapper.valueToTree(uploadFile).fieldNames().forEachRemaining(expected::add);
+            expected.remove("base64String");
+            expected.add("base64String");
+            List<String> actual = new ArrayList<>();
+            json.fieldNames().forEachRemaining(actual::add);
+            Assert.assertEquals(expected, actual);
+
+            //압축 저장 파일도 원본 내용과 원본 크기
+            Assert.assertArrayEquals(bytes, Base64.decodeBase64(json.get("base64String").asText()));
+            Assert.assertEquals(bytes.length, json.get("size").asLong());
+            Assert.assertEquals(compress, json.get("compressed").asBoolean());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.Base64UploadReader;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.LocalFileStorageEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+@Slf4j
+public class Base64UploadReaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String testResourcePath;
+
+    @Before
+    public void setup() {
+        testResourcePath = "./src/test/resources/images";
+    }
+
+    @Test
+    public void test1() throws Exception {
+        File file = new File(testResourcePath, "/animals/Alligator.jpg");
+        String base64String = UploadHelper.encodeBase64(file);
+
+        //base64String 필드가 subPath, filename 보다 먼저 오는 경우
+        String jsonString = "[{\"base64String\":\"" + base64String + "\",\"subPath\":\"notice/10001\",\"filename\":\"Alligator.jpg\",\"keepOriginalFilename\":true}]";
+        String basePath = temporaryFolder.getRoot().getAbsolutePath();
+
+        List<UploadFile> uploadFiles = Base64UploadReader.save(new ByteArrayInputStream(jsonString.getBytes(StandardCharsets.UTF_8)), basePath, new LocalFileStorageEngine(Paths.get(basePath), null));
+
+        Assert.assertEquals(1, uploadFiles.size());
+        UploadFile uploadFile = uploadFiles.get(0);
+        File savedFile = new File(uploadFile.getServerPath(), uploadFile.getServerFilename());
+        log.debug(uploadFile.toString());
+
+        Assert.assertEquals("Alligator.jpg", uploadFile.getServerFilename());
+        Assert.assertEquals(file.length(), uploadFile.getSize());
+        Assert.assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(savedFile.toPath()));
+    }
+
+    @Test(expected = BizException.class)
+    public void test2() throws Exception {
+        String jsonString = "[{\"filename\":\"run.jsp\",\"subPath\":\"notice/10001\",\"base64String\":\"YWJj\"}]";
+        String basePath = temporaryFolder.getRoot().getAbsolutePath();
+
+        Base64UploadReader.save(new ByteArrayInputStream(jsonString.getBytes(StandardCharsets.UTF_8)), basePath, new LocalFileStorageEngine(Paths.get(basePath), null));
+    }
+
+    @Test
+    public void test3() throws Exception {
+        //76자 줄바꿈(MIME) 형식은 허용
+        byte[] bytes = Files.readAllBytes(new File(testResourcePath, "/animals/Alligator.jpg").toPath());
+        String chunked = new String(Base64.encodeBase64Chunked(bytes), StandardCharsets.US_ASCII).replace("\r\n", "\\r\\n");
+        String jsonString = "[{\"filename\":\"a.jpg\",\"subPath\":\"notice/10001\",\"keepOriginalFilename\":true,\"base64String\":\"" + chunked + "\"}]";
+        String basePath = temporaryFolder.getRoot().getAbsolutePath();
+
+        List<UploadFile> uploadFiles = Base64UploadReader.save(new ByteArrayInputStream(jsonString.getBytes(StandardCharsets.UTF_8)), basePath, new LocalFileStorageEngine(Paths.get(basePath), null));
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(Paths.get(uploadFiles.get(0).getServerPath(), uploadFiles.get(0).getServerFilename())));
+    }
+
+    @Test
+    public void test4() throws Exception {
+        //뒤의 파일이 실패하면 앞에서 저장한 파일을 삭제 (URL-safe 알파벳은 지원하지 않음)
+        String jsonString = "[{\"filename\":\"a.txt\",\"subPath\":\"notice/10001\",\"keepOriginalFilename\":true,\"base64String\":\"YWJj\"},"
+                + "{\"filename\":\"b.txt\",\"subPath\":\"notice/10001\",\"keepOriginalFilename\":true,\"base64String\":\"-_-_\"}]";
+        String basePath = temporaryFolder.getRoot().getAbsolutePath();
+        try {
+            Base64UploadReader.save(new ByteArrayInputStream(jsonString.getBytes(StandardCharsets.UTF_8)), basePath, new LocalFileStorageEngine(Paths.get(basePath), null));
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+        Assert.assertFalse(Files.exists(Paths.get(basePath, "notice", "10001", "a.txt")));
+        Assert.assertFalse(Files.exists(Paths.get(basePath, "notice", "10001", "b.txt")));
+    }
+}
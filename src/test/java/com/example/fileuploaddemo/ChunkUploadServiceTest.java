@@ -0,0 +1,213 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.ChunkUpload;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.ContentDigest;
+import com.example.fileuploaddemo.service.ChunkUploadService;
+import com.example.fileuploaddemo.service.FileIndexService;
+import com.example.fileuploaddemo.storage.LocalFileStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ChunkUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String basePath;
+
+    private StorageEngine storageEngine;
+
+    private FileIndexService fileIndexService;
+
+    private byte[] bytes;
+
+    @Before
+    public void setup() throws Exception {
+        basePath = temporaryFolder.getRoot().getAbsolutePath();
+        storageEngine = new LocalFileStorageEngine(temporaryFolder.getRoot().toPath(), null);
+        fileIndexService = new FileIndexService(basePath);
+        bytes = new byte[CHUNK_SIZE * 2 + 100];
+        new Random(1).nextBytes(bytes);
+    }
+
+    @Test
+    public void test1() throws Exception {
+        ChunkUploadService chunkUploadService = createService();
+        String uploadId = chunkUploadService.init(createUploadFile(), (long) CHUNK_SIZE).getUploadId();
+
+        //순서와 관계없이 수신
+        writeChunk(chunkUploadService, uploadId, 2, null);
+        writeChunk(chunkUploadService, uploadId, 0, null);
+
+        //서버가 재시작되어도 세션 파일에서 복원해서 이어올리기
+        chunkUploadService = createService();
+        Assert.assertEquals(Arrays.asList(0, 2), chunkUploadService.status(uploadId).getReceivedChunks());
+        ChunkUpload chunkUpload = writeChunk(chunkUploadService, uploadId, 1, null);
+        Assert.assertTrue(chunkUpload.isComplete());
+
+        assertCommitted(chunkUploadService.commit(uploadId, null, null));
+    }
+
+    @Test
+    public void test2() throws Exception {
+        ChunkUploadService chunkUploadService = createService();
+        String uploadId = chunkUploadService.init(createUploadFile(), (long) CHUNK_SIZE).getUploadId();
+        for(int i = 0; i < 3; i++) {
+            writeChunk(chunkUploadService, uploadId, i, null);
+        }
+
+        //수신 완료한 조각을 다시 받다가 크기가 모자라면 수신하지 않은 것으로 되돌림
+        try {
+            chunkUploadService.write(uploadId, 1, new ByteArrayInputStream(bytes, CHUNK_SIZE, 100), -1, null, null);
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+        Assert.assertEquals(Arrays.asList(0, 2), chunkUploadService.status(uploadId).getReceivedChunks());
+        try {
+            chunkUploadService.commit(uploadId, null, null);
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+
+        //되돌린 상태는 서버가 재시작되어도 유지
+        chunkUploadService = createService();
+        Assert.assertEquals(Arrays.asList(0, 2), chunkUploadService.status(uploadId).getReceivedChunks());
+
+        writeChunk(chunkUploadService, uploadId, 1, null);
+        assertCommitted(chunkUploadService.commit(uploadId, null, null));
+    }
+
+    @Test
+    public void test3() throws Exception {
+        ChunkUploadService chunkUploadService = createService();
+        String uploadId = chunkUploadService.init(createUploadFile(), (long) CHUNK_SIZE).getUploadId();
+        for(int i = 0; i < 3; i++) {
+            writeChunk(chunkUploadService, uploadId, i, null);
+        }
+
+        //다시 받은 조각의 Content-MD5가 맞지 않으면 수신하지 않은 것으로 되돌림
+        try {
+            writeChunk(chunkUploadService, uploadId, 0, "AAAAAAAAAAAAAAAAAAAAAA==");
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+        Assert.assertEquals(Arrays.asList(1, 2), chunkUploadService.status(uploadId).getReceivedChunks());
+
+        writeChunk(chunkUploadService, uploadId, 0, null);
+        assertCommitted(chunkUploadService.commit(uploadId, null, null));
+    }
+
+    @Test
+    public void test4() throws Exception {
+        ChunkUploadService chunkUploadService = createService();
+        String uploadId = chunkUploadService.init(createUploadFile(), (long) CHUNK_SIZE).getUploadId();
+        for(int i = 0; i < 3; i++) {
+            writeChunk(chunkUploadService, uploadId, i, null);
+        }
+
+        //체크섬에 반영한 조각이 다른 내용으로 기록되다가 실패해도 전체 파일 체크섬은 파일 내용과 일치
+        byte[] other = new byte[CHUNK_SIZE];
+        try {
+            chunkUploadService.write(uploadId, 1, new ByteArrayInputStream(other), other.length, "AAAAAAAAAAAAAAAAAAAAAA==", null);
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+        writeChunk(chunkUploadService, uploadId, 1, null);
+
+        String sha256 = DigestUtils.sha256Hex(bytes);
+        UploadFile uploadFile = chunkUploadService.commit(uploadId, null, ContentDigest.toDigestHeader(sha256, null));
+        assertCommitted(uploadFile);
+        Assert.assertEquals(sha256, uploadFile.getHash());
+    }
+
+    @Test
+    public void test5() throws Exception {
+        ChunkUploadService chunkUploadService = createService();
+        String uploadId = chunkUploadService.init(createUploadFile(), (long) CHUNK_SIZE).getUploadId();
+        for(int i = 0; i < 3; i++) {
+            writeChunk(chunkUploadService, uploadId, i, null);
+        }
+
+        //저장한 뒤 색인 등록이 실패하면 저장한 파일과 세션을 삭제
+        fileIndexService.close();
+        try {
+            chunkUploadService.commit(uploadId, null, null);
+            Assert.fail();
+
+        } catch(IOException e) {
+            //expected
+        }
+        Assert.assertFalse(storageEngine.exists("notice/10001/a.bin"));
+        try {
+            chunkUploadService.status(uploadId);
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+    }
+
+    private ChunkUploadService createService() {
+        ChunkUploadService chunkUploadService = new ChunkUploadService();
+        ReflectionTestUtils.setField(chunkUploadService, "storageEngine", storageEngine);
+        ReflectionTestUtils.setField(chunkUploadService, "fileIndexService", fileIndexService);
+        ReflectionTestUtils.setField(chunkUploadService, "basePath", basePath);
+        ReflectionTestUtils.setField(chunkUploadService, "defaultChunkSize", DataSize.ofMegabytes(8));
+        ReflectionTestUtils.setField(chunkUploadService, "maxChunkSize", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(chunkUploadService, "maxFileSize", DataSize.ofGigabytes(10));
+        ReflectionTestUtils.setField(chunkUploadService, "expire", Duration.ofHours(24));
+        ReflectionTestUtils.setField(chunkUploadService, "largeFileThreshold", DataSize.ofMegabytes(16));
+        ReflectionTestUtils.setField(chunkUploadService, "mappedFile", false);
+        return chunkUploadService;
+    }
+
+    private UploadFile createUploadFile() {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename("a.bin");
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.setSize(bytes.length);
+        return uploadFile;
+    }
+
+    private ChunkUpload writeChunk(ChunkUploadService chunkUploadService, String uploadId, int index, String contentMd5) throws Exception {
+        int offset = index * CHUNK_SIZE;
+        int length = Math.min(CHUNK_SIZE, bytes.length - offset);
+        return chunkUploadService.write(uploadId, index, new ByteArrayInputStream(bytes, offset, length), length, contentMd5, null);
+    }
+
+    private void assertCommitted(UploadFile uploadFile) throws Exception {
+        Assert.assertEquals(bytes.length, uploadFile.getSize());
+        try(InputStream in = Channels.newInputStream(storageEngine.open("notice/10001/a.bin"))) {
+            Assert.assertArrayEquals(bytes, StreamUtils.copyToByteArray(in));
+        }
+    }
+}
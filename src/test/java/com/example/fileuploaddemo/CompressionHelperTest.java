@@ -0,0 +1,101 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.CompressionHelper;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionHelperTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test1() {
+        //확장자 또는 Content-Type으로 압축 저장 대상 판별
+        Assert.assertTrue(CompressionHelper.isCompressible(createUploadFile("a.txt"), null));
+        Assert.assertTrue(CompressionHelper.isCompressible(createUploadFile("a.bin"), "Text/Plain; charset=UTF-8"));
+        Assert.assertFalse(CompressionHelper.isCompressible(createUploadFile("a.png"), "image/png"));
+        Assert.assertFalse(CompressionHelper.isCompressible(createUploadFile("noextension"), null));
+
+        Assert.assertTrue(CompressionHelper.isPrecompressed(createUploadFile("a.ZIP")));
+        Assert.assertFalse(CompressionHelper.isPrecompressed(createUploadFile("a.txt")));
+        Assert.assertFalse(CompressionHelper.isPrecompressed(createUploadFile("noextension")));
+    }
+
+    @Test
+    public void test2() throws Exception {
+        StorageEngine storageEngine = new MemoryStorageEngine();
+        byte[] bytes = "hello, hello, hello".getBytes(StandardCharsets.UTF_8);
+
+        //압축 저장하면 서버 파일명에 .gz를 붙이고 압축 여부를 기록
+        UploadFile text = createUploadFile("a.txt");
+        text.setBase64String(Base64.encodeBase64String(bytes));
+        UploadHelper.save(storageEngine, text, true, Long.MAX_VALUE, false);
+        Assert.assertTrue(text.isCompressed());
+        Assert.assertEquals("a.txt.gz", text.getServerFilename());
+        try(InputStream in = new GZIPInputStream(Channels.newInputStream(storageEngine.open(UploadHelper.toKey(text))))) {
+            byte[] inflated = new byte[bytes.length + 1];
+            int length = 0;
+            int read;
+            while((read = in.read(inflated, length, inflated.length - length)) > 0) {
+                length += read;
+            }
+            Assert.assertEquals(bytes.length, length);
+        }
+
+        //사용자가 올린 gzip 파일은 파일명이 .gz로 끝나도 압축 저장한 파일로 취급하지 않음
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try(GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(bytes);
+        }
+        UploadFile gz = createUploadFile("x.txt.gz");
+        gz.setBase64String(Base64.encodeBase64String(gzipped.toByteArray()));
+        UploadHelper.save(storageEngine, gz, true, Long.MAX_VALUE, false);
+        Assert.assertFalse(gz.isCompressed());
+        Assert.assertEquals("x.txt.gz", gz.getServerFilename());
+
+        //요청 JSON으로 압축 여부를 지정할 수 없음
+        UploadFile bound = UploadFile.bind("[{\"filename\":\"x.txt.gz\",\"compressed\":true}]").get(0);
+        Assert.assertFalse(bound.isCompressed());
+    }
+
+    @Test
+    public void test3() {
+        Assert.assertTrue(CompressionHelper.acceptsGzip(createRequest("gzip, deflate, br")));
+        Assert.assertTrue(CompressionHelper.acceptsGzip(createRequest("br;q=1.0, *;q=0.1")));
+        Assert.assertFalse(CompressionHelper.acceptsGzip(createRequest("gzip;q=0, br")));
+        Assert.assertFalse(CompressionHelper.acceptsGzip(createRequest("identity")));
+        Assert.assertFalse(CompressionHelper.acceptsGzip(new MockHttpServletRequest()));
+    }
+
+    private UploadFile createUploadFile(String filename) {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init(temporaryFolder.getRoot().getAbsolutePath());
+        return uploadFile;
+    }
+
+    private MockHttpServletRequest createRequest(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return request;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.ContentDigest;
+import com.example.fileuploaddemo.helper.Crc32c;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class ContentDigestTest {
+
+    @Test
+    public void test1() {
+        //CRC32C 검사값 (RFC 3720)
+        byte[] bytes = "123456789".getBytes(StandardCharsets.US_ASCII);
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(bytes, 0, bytes.length);
+        Assert.assertEquals(0xe3069283L, crc32c.getValue());
+
+        //나누어 계산해도 같은 결과 (byte[], direct ByteBuffer)
+        crc32c.reset();
+        crc32c.update(bytes, 0, 4);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(5);
+        buffer.put(bytes, 4, 5).flip();
+        crc32c.update(buffer);
+        Assert.assertEquals(0xe3069283L, crc32c.getValue());
+    }
+
+    @Test
+    public void test2() throws Exception {
+        byte[] bytes = new byte[100000];
+        new Random(1).nextBytes(bytes);
+
+        //중간에 복사해서 이어서 계산해도 같은 결과
+        ContentDigest digest = new ContentDigest(true);
+        digest.update(bytes, 0, 30000);
+        ContentDigest copy = digest.copy();
+        copy.update(bytes, 30000, bytes.length - 30000);
+        digest.update(new byte[10], 0, 10);
+        Assert.assertEquals(DigestUtils.sha256Hex(bytes), copy.getSha256());
+        Assert.assertNotEquals(copy.getSha256(), digest.getSha256());
+
+        String contentMd5 = Base64.encodeBase64String(DigestUtils.md5(bytes));
+        copy.verify(contentMd5, ContentDigest.toDigestHeader(copy.getSha256(), copy.getCrc32c()), "a.bin");
+    }
+
+    @Test(expected = BizException.class)
+    public void test3() throws Exception {
+        byte[] bytes = "hello".getBytes(StandardCharsets.UTF_8);
+        ContentDigest digest = new ContentDigest();
+        digest.update(bytes, 0, bytes.length);
+        digest.verify(null, "SHA-256=" + Base64.encodeBase64String(DigestUtils.sha256("world")), "a.txt");
+    }
+}
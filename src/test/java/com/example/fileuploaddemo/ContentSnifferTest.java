@@ -0,0 +1,98 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.ContentSniffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class ContentSnifferTest {
+
+    @Test
+    public void test1() {
+        //매직 바이트
+        Assert.assertEquals("image/png", detect(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D}));
+        Assert.assertEquals("image/gif", detect("GIF89a\u0001\u0000"));
+        Assert.assertEquals("application/pdf", detect("%PDF-1.7\n"));
+        Assert.assertNull(detect(new byte[0]));
+
+        //스크립트는 파일 시작 위치만 판별
+        Assert.assertEquals("application/x-httpd-php", detect("<?php echo 1; ?>"));
+        Assert.assertEquals("application/x-jsp", detect("<%@ page contentType=\"text/html\" %>"));
+        Assert.assertEquals("text/x-shellscript", detect("#!/bin/sh\necho 1\n"));
+        Assert.assertEquals("image/gif", detect("GIF89a\u0001\u0000<?php echo 1; ?>"));
+        Assert.assertEquals("text/plain", detect("hello <%= request %>"));
+    }
+
+    @Test
+    public void test2() {
+        //BOM, 공백, 주석을 건너뛰고 HTML 시작 태그 판별
+        Assert.assertEquals("text/html", detect("<!DOCTYPE html><html></html>"));
+        Assert.assertEquals("text/html", detect("\u00ef\u00bb\u00bf\r\n  <HTML lang=\"ko\">"));
+        Assert.assertEquals("text/html", detect("<!-- header -->\n<!-- build 1 -->\n<meta charset=\"utf-8\">"));
+        Assert.assertEquals("text/html", detect("<title>a</title>"));
+        Assert.assertEquals("text/html", detect("<div class=\"a\">"));
+        Assert.assertEquals("text/html", detect("<a href=\"x\">link</a>"));
+        Assert.assertEquals("text/html", detect("<p>"));
+
+        //앞부분 안에서 끝나지 않는 주석은 HTML로 판별
+        Assert.assertEquals("text/html", detect("<!-- no end"));
+
+        //태그명이 다르면 HTML이 아님
+        Assert.assertEquals("text/plain", detect("<abbr>"));
+        Assert.assertEquals("text/plain", detect("<pre-formatted"));
+        Assert.assertEquals("text/plain", detect("hello <html>"));
+    }
+
+    @Test
+    public void test3() {
+        Assert.assertEquals("image/svg+xml", detect("<!-- Generator -->\n<svg xmlns=\"http://www.w3.org/2000/svg\">"));
+        Assert.assertEquals("image/svg+xml", detect("<?xml version=\"1.0\"?>\n<svg>"));
+        Assert.assertEquals("application/xml", detect("<?xml version=\"1.0\"?>\n<root/>"));
+        Assert.assertEquals("text/plain", detect("a,b,c\n1,2,3\n"));
+    }
+
+    @Test
+    public void test4() throws Exception {
+        //텍스트 형식이거나 형식을 모르는 확장자의 스크립트는 텍스트로 허용
+        Assert.assertEquals("text/plain", validate("run.txt", "#!/bin/sh\necho 1\n"));
+        Assert.assertEquals("text/csv", validate("a.csv", "<%= name %>,1\n"));
+        Assert.assertEquals("text/plain", validate("build.py", "#!/usr/bin/env python\nprint(1)\n"));
+
+        //텍스트가 아닌 형식의 확장자에 스크립트는 거부
+        for(String[] file : new String[][]{{"a.png", "<?php echo 1; ?>"}, {"a.gif", "#!/bin/sh\n"}, {"a.pdf", "<%@ page %>"}}) {
+            try {
+                validate(file[0], file[1]);
+                Assert.fail(file[0]);
+
+            } catch(BizException e) {
+                //expected
+            }
+        }
+    }
+
+    private String validate(String filename, String content) throws BizException {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.init("/upload");
+        byte[] bytes = content.getBytes(StandardCharsets.ISO_8859_1);
+        uploadFile.setSize(bytes.length);
+        ContentSniffer sniffer = new ContentSniffer();
+        sniffer.update(bytes, 0, bytes.length);
+        sniffer.validate(uploadFile, false);
+        return uploadFile.getMimeType();
+    }
+
+    private String detect(String content) {
+        return detect(content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private String detect(byte[] bytes) {
+        ContentSniffer sniffer = new ContentSniffer();
+        sniffer.update(bytes, 0, bytes.length);
+        return sniffer.detect();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.DownloadHelper;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class DownloadHelperTest {
+
+    private static final String KEY = "notice/10001/a.txt";
+
+    private final byte[] bytes = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+    private StorageEngine storageEngine;
+
+    private UploadFile uploadFile;
+
+    @Before
+    public void setup() throws Exception {
+        storageEngine = new MemoryStorageEngine();
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(bytes));
+            writer.commit(KEY);
+        }
+        uploadFile = new UploadFile();
+        uploadFile.setFilename("a.txt");
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init("/upload");
+    }
+
+    @Test
+    public void test1() throws Exception {
+        //전체 파일
+        MockHttpServletResponse response = download(new MockHttpServletRequest("GET", "/download"));
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        Assert.assertArrayEquals(bytes, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //단일 Range
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse response = download(request);
+        Assert.assertEquals(206, response.getStatus());
+        Assert.assertEquals("bytes 2-5/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 2, 6), response.getContentAsByteArray());
+
+        //끝에서부터
+        request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        response = download(request);
+        Assert.assertEquals(206, response.getStatus());
+        Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 17, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    public void test3() throws Exception {
+        //멀티 Range
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,10-11");
+        MockHttpServletResponse response = download(request);
+        Assert.assertEquals(206, response.getStatus());
+        Assert.assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        String body = response.getContentAsString();
+        Assert.assertTrue(body.contains("Content-Range: bytes 0-1/20\r\n\r\n01"));
+        Assert.assertTrue(body.contains("Content-Range: bytes 10-11/20\r\n\r\nab"));
+        Assert.assertEquals(response.getContentAsByteArray().length, Long.parseLong(response.getHeader(HttpHeaders.CONTENT_LENGTH)));
+    }
+
+    @Test
+    public void test4() throws Exception {
+        //만족할 수 없는 Range
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=100-200");
+        MockHttpServletResponse response = download(request);
+        Assert.assertEquals(416, response.getStatus());
+        Assert.assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    public void test5() throws Exception {
+        String eTag = download(new MockHttpServletRequest("GET", "/download")).getHeader(HttpHeaders.ETAG);
+
+        //If-Range가 일치하지 않으면 전체 파일
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+        MockHttpServletResponse response = download(request);
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(bytes, response.getContentAsByteArray());
+
+        //If-Range가 일치하면 Range
+        request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, eTag);
+        Assert.assertEquals(206, download(request).getStatus());
+
+        //If-None-Match가 일치하면 본문 없이 304
+        request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        response = download(request);
+        Assert.assertEquals(304, response.getStatus());
+        Assert.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletResponse download(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        DownloadHelper.write(request, response, uploadFile, storageEngine, KEY);
+        return response;
+    }
+}
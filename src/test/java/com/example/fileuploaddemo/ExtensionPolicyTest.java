@@ -0,0 +1,78 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadPolicy;
+import com.example.fileuploaddemo.helper.ExtensionPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Arrays;
+
+public class ExtensionPolicyTest {
+
+    @Test
+    public void test1() {
+        UploadPolicy uploadPolicy = new UploadPolicy();
+        uploadPolicy.getDenyExtensions().add("tar.gz");
+        ExtensionPolicy policy = ExtensionPolicy.compile(uploadPolicy);
+
+        //마지막 확장자 (대소문자, 끝의 점과 공백 무시)
+        Assert.assertTrue(policy.isDenied("a.jsp", null));
+        Assert.assertTrue(policy.isDenied("a.JsP", null));
+        Assert.assertTrue(policy.isDenied("a.jsp. ", null));
+        Assert.assertFalse(policy.isDenied("a.png", null));
+        Assert.assertFalse(policy.isDenied("jsp", null));
+
+        //여러 단계 확장자
+        Assert.assertTrue(policy.isDenied("a.tar.gz", null));
+        Assert.assertFalse(policy.isDenied("a.gz", null));
+        Assert.assertFalse(policy.isDenied("atar.gz", null));
+
+        //파일명 중간의 확장자
+        Assert.assertTrue(policy.isDenied("a.jsp.png", null));
+        Assert.assertFalse(policy.isDenied("google.com.png", null));
+        Assert.assertFalse(policy.isDenied("ajsp.png", null));
+
+        Assert.assertTrue(policy.isImage("a.JPG"));
+        Assert.assertFalse(policy.isImage("a.bmp"));
+    }
+
+    @Test
+    public void test2() {
+        UploadPolicy.SubPathRule notice = new UploadPolicy.SubPathRule();
+        notice.setSubPath("notice");
+        notice.setAllowExtensions(Arrays.asList("png", "pdf"));
+        notice.setMaxFileSize(DataSize.ofMegabytes(5));
+
+        UploadPolicy.SubPathRule secret = new UploadPolicy.SubPathRule();
+        secret.setSubPath("notice/secret");
+        secret.setDenyExtensions(Arrays.asList("pdf"));
+        secret.setDenyMimeTypes(Arrays.asList("image/*"));
+
+        UploadPolicy.TypeRule image = new UploadPolicy.TypeRule();
+        image.setMimeType("image/*");
+        image.setMaxFileSize(DataSize.ofMegabytes(50));
+
+        UploadPolicy uploadPolicy = new UploadPolicy();
+        uploadPolicy.setSubPaths(Arrays.asList(notice, secret));
+        uploadPolicy.setTypes(Arrays.asList(image));
+        ExtensionPolicy policy = ExtensionPolicy.compile(uploadPolicy);
+
+        //subPath 허용 확장자 (하위 경로 포함, 경로 일부만 같은 경우는 제외)
+        Assert.assertFalse(policy.isDenied("a.png", "notice/10001"));
+        Assert.assertTrue(policy.isDenied("a.txt", "notice/10001"));
+        Assert.assertFalse(policy.isDenied("a.txt", "notices"));
+        Assert.assertFalse(policy.isDenied("a.txt", "board"));
+
+        //가장 길게 일치하는 subPath 정책 한 개만 적용
+        Assert.assertTrue(policy.isDenied("a.pdf", "notice/secret/1"));
+        Assert.assertFalse(policy.isDenied("a.txt", "notice/secret/1"));
+        Assert.assertFalse(policy.isMimeTypeAllowed("image/png", "notice/secret"));
+        Assert.assertTrue(policy.isMimeTypeAllowed("image/png", "notice"));
+
+        //마임타입, subPath 최대 크기 중 작은 값
+        Assert.assertEquals(DataSize.ofMegabytes(5).toBytes(), policy.getMaxFileSize("image/png", "notice"));
+        Assert.assertEquals(DataSize.ofMegabytes(50).toBytes(), policy.getMaxFileSize("image/png", "board"));
+        Assert.assertEquals(-1, policy.getMaxFileSize("text/plain", "board"));
+    }
+}
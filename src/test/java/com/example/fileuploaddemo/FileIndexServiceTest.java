@@ -0,0 +1,127 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.FileMetadata;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.service.FileIndexService;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class FileIndexServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test1() throws Exception {
+        String basePath = temporaryFolder.getRoot().getAbsolutePath();
+        FileIndexService fileIndexService = new FileIndexService(basePath);
+        UploadFile a = createUploadFile("a.txt", 10);
+        UploadFile b = createUploadFile("b.txt", 20);
+        fileIndexService.register(a);
+        Thread.sleep(2);
+        fileIndexService.register(b);
+
+        //파일 ID, 저장소 키, subPath로 조회 (subPath는 등록 순서)
+        Assert.assertNotNull(a.getId());
+        Assert.assertEquals("a.txt", fileIndexService.get(a.getId()).getFilename());
+        Assert.assertEquals(b.getId(), fileIndexService.getByKey("notice/10001/b.txt").getId());
+        List<FileMetadata> list = fileIndexService.list("notice/10001");
+        Assert.assertEquals(2, list.size());
+        Assert.assertEquals(a.getId(), list.get(0).getId());
+        Assert.assertEquals(b.getId(), list.get(1).getId());
+
+        //색인의 파일 정보로 변환
+        UploadFile uploadFile = fileIndexService.toUploadFile(fileIndexService.get(a.getId()));
+        Assert.assertEquals(10, uploadFile.getSize());
+        Assert.assertEquals("abc", uploadFile.getHash());
+        Assert.assertEquals("notice/10001", uploadFile.getSubPath());
+        Assert.assertEquals("a.txt", uploadFile.getServerFilename());
+        Assert.assertEquals(basePath, uploadFile.getServerBasePath());
+
+        //같은 저장소 키에 다시 등록하면 이전 기록은 제거
+        UploadFile replaced = createUploadFile("a.txt", 30);
+        fileIndexService.register(replaced);
+        Assert.assertNull(fileIndexService.get(a.getId()));
+        Assert.assertEquals(replaced.getId(), fileIndexService.getByKey("notice/10001/a.txt").getId());
+        Assert.assertEquals(2, fileIndexService.list("notice/10001").size());
+
+        fileIndexService.removeByKey("notice/10001/b.txt");
+        Assert.assertNull(fileIndexService.get(b.getId()));
+        fileIndexService.close();
+
+        //다시 시작하면 로그에서 복원
+        fileIndexService = new FileIndexService(basePath);
+        try {
+            Assert.assertEquals(1, fileIndexService.list().size());
+            Assert.assertEquals(30, fileIndexService.get(replaced.getId()).getSize());
+            Assert.assertNull(fileIndexService.getByKey("notice/10001/b.txt"));
+        } finally {
+            fileIndexService.close();
+        }
+    }
+
+    @Test
+    public void test2() throws Exception {
+        String basePath = temporaryFolder.getRoot().getAbsolutePath();
+        FileIndexService fileIndexService = new FileIndexService(basePath);
+        UploadFile a = createUploadFile("a.txt", 10);
+        fileIndexService.register(a);
+        fileIndexService.close();
+
+        //기록 도중 종료되어 잘린 마지막 줄은 무시
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve(".meta/index.log");
+        Files.write(indexFile, "{\"id\":\"0123".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        fileIndexService = new FileIndexService(basePath);
+        try {
+            Assert.assertEquals(1, fileIndexService.list().size());
+            Assert.assertNotNull(fileIndexService.get(a.getId()));
+
+            //파일 ID 형식이 아니면 조회하지 않음
+            Assert.assertNull(fileIndexService.get("../" + a.getId()));
+            Assert.assertNull(fileIndexService.get(null));
+        } finally {
+            fileIndexService.close();
+        }
+    }
+
+    @Test
+    public void test3() throws Exception {
+        String basePath = temporaryFolder.getRoot().getAbsolutePath();
+        FileIndexService fileIndexService = new FileIndexService(basePath);
+        for(int i = 0; i < 1000; i++) {
+            fileIndexService.register(createUploadFile("a.txt", i));
+        }
+        fileIndexService.close();
+
+        //대체된 기록이 많으면 시작할 때 살아있는 기록만 남김
+        Path indexFile = temporaryFolder.getRoot().toPath().resolve(".meta/index.log");
+        Assert.assertEquals(1999, Files.readAllLines(indexFile, StandardCharsets.UTF_8).size());
+        fileIndexService = new FileIndexService(basePath);
+        try {
+            Assert.assertEquals(1, fileIndexService.list().size());
+            Assert.assertEquals(999, fileIndexService.getByKey("notice/10001/a.txt").getSize());
+            Assert.assertEquals(1, Files.readAllLines(indexFile, StandardCharsets.UTF_8).size());
+        } finally {
+            fileIndexService.close();
+        }
+    }
+
+    private UploadFile createUploadFile(String filename, long size) {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init(temporaryFolder.getRoot().getAbsolutePath());
+        uploadFile.setSize(size);
+        uploadFile.setHash("abc");
+        return uploadFile;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.FileMetadata;
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.service.FileIndexService;
+import com.example.fileuploaddemo.service.IntegrityScrubService;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class IntegrityScrubServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private StorageEngine storageEngine;
+
+    private FileIndexService fileIndexService;
+
+    @Before
+    public void setup() throws Exception {
+        storageEngine = new MemoryStorageEngine();
+        fileIndexService = new FileIndexService(temporaryFolder.getRoot().getAbsolutePath());
+    }
+
+    @After
+    public void teardown() throws Exception {
+        fileIndexService.close();
+    }
+
+    @Test
+    public void test1() throws Exception {
+        IntegrityScrubService integrityScrubService = new IntegrityScrubService(null, storageEngine, fileIndexService, true, DataSize.ofBytes(0));
+        byte[] bytes = "hello, hello, hello".getBytes(StandardCharsets.UTF_8);
+        FileMetadata plain = save("a.txt", bytes, false);
+        FileMetadata compressed = save("b.txt", bytes, true);
+        Assert.assertTrue(compressed.isCompressed());
+
+        //저장한 내용 그대로면 일치 (압축 저장 파일은 압축을 풀어서 비교)
+        Assert.assertTrue(integrityScrubService.verify(plain));
+        Assert.assertTrue(integrityScrubService.verify(compressed));
+
+        //저장 후 내용이 바뀌면 불일치
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap("hello, hello, hellO".getBytes(StandardCharsets.UTF_8)));
+            writer.commit(plain.getSubPath() + "/" + plain.getServerFilename());
+        }
+        Assert.assertFalse(integrityScrubService.verify(plain));
+
+        //없어진 파일
+        storageEngine.delete(compressed.getSubPath() + "/" + compressed.getServerFilename());
+        try {
+            integrityScrubService.verify(compressed);
+            Assert.fail();
+        } catch(NoSuchFileException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //초당 읽기 크기를 넘으면 기다림 (64KB는 바로 읽고 나머지 64KB는 약 1초 후)
+        IntegrityScrubService integrityScrubService = new IntegrityScrubService(null, storageEngine, fileIndexService, true, DataSize.ofKilobytes(64));
+        byte[] bytes = new byte[128 * 1024];
+        Arrays.fill(bytes, (byte) 'a');
+        FileMetadata metadata = save("c.txt", bytes, false);
+
+        long start = System.nanoTime();
+        Assert.assertTrue(integrityScrubService.verify(metadata));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(800));
+    }
+
+    private FileMetadata save(String filename, byte[] bytes, boolean compress) throws Exception {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init(temporaryFolder.getRoot().getAbsolutePath());
+        uploadFile.setBase64String(Base64.encodeBase64String(bytes));
+        UploadHelper.save(storageEngine, uploadFile, compress, Long.MAX_VALUE, false);
+        return fileIndexService.register(uploadFile);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.helper.MetricsHelper;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class MetricsHelperTest {
+
+    private SimpleMeterRegistry registry;
+
+    @Before
+    public void setup() {
+        //전역 레지스트리에 기록한 지표를 확인할 레지스트리
+        registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+    }
+
+    @After
+    public void teardown() {
+        Metrics.removeRegistry(registry);
+        registry.close();
+    }
+
+    @Test
+    public void test1() {
+        //요청당 파일 개수, 수신/전송 바이트
+        MetricsHelper.uploaded("upload", 2, 300);
+        MetricsHelper.bytesOut(100);
+        MetricsHelper.bytesOut(20);
+
+        Assert.assertEquals(1, registry.get("file.upload.files").tag("api", "upload").summary().count());
+        Assert.assertEquals(2, registry.get("file.upload.files").tag("api", "upload").summary().totalAmount(), 0);
+        Assert.assertEquals(300, registry.get("file.transfer.bytes").tag("direction", "in").counter().count(), 0);
+        Assert.assertEquals(120, registry.get("file.transfer.bytes").tag("direction", "out").counter().count(), 0);
+    }
+
+    @Test
+    public void test2() {
+        //사유별 거부, 요청 제한, 무결성 검사 결과
+        MetricsHelper.rejected(MetricsHelper.REJECT_CONTENT);
+        MetricsHelper.rejected(MetricsHelper.REJECT_CONTENT);
+        MetricsHelper.rejected(MetricsHelper.REJECT_SIZE);
+        MetricsHelper.throttled("rate");
+        MetricsHelper.scrubbed("corrupt");
+
+        Assert.assertEquals(2, registry.get("file.upload.rejected").tag("reason", "content").counter().count(), 0);
+        Assert.assertEquals(1, registry.get("file.upload.rejected").tag("reason", "size").counter().count(), 0);
+        Assert.assertEquals(1, registry.get("file.transfer.throttled").tag("reason", "rate").counter().count(), 0);
+        Assert.assertEquals(1, registry.get("file.scrub.files").tag("result", "corrupt").counter().count(), 0);
+    }
+
+    @Test
+    public void test3() {
+        //진행중인 전송 개수 (게이지는 MetricsHelper를 처음 사용할 때 등록)
+        MetricsHelper.transferStarted(true);
+        double active = registry.get("file.transfer.active").tag("direction", "in").gauge().value();
+        MetricsHelper.transferStarted(true);
+        Assert.assertEquals(active + 1, registry.get("file.transfer.active").tag("direction", "in").gauge().value(), 0);
+        MetricsHelper.transferFinished(true);
+        MetricsHelper.transferFinished(true);
+        Assert.assertEquals(active - 1, registry.get("file.transfer.active").tag("direction", "in").gauge().value(), 0);
+    }
+
+    @Test
+    public void test4() {
+        //처리 단계 시간
+        MetricsHelper.phase("save", System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5));
+        Assert.assertEquals(1, registry.get("file.phase").tag("phase", "save").timer().count());
+        Assert.assertTrue(registry.get("file.phase").tag("phase", "save").timer().totalTime(TimeUnit.MILLISECONDS) >= 5);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.MultipartStreamParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class MultipartStreamParserTest {
+
+    private static final String BOUNDARY = "----boundary7MA4YWxk";
+
+    @Test
+    public void test1() throws Exception {
+        //데이터 중간에 구분자 일부("\r\n--" + 경계 문자열 앞부분)가 있는 경우
+        String data = "line1\r\n--" + BOUNDARY.substring(0, 10) + "\r\nline2";
+        byte[] body = ("preamble\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"subPath\"\r\n\r\n"
+                + "notice/10001\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + data + "\r\n"
+                + "--" + BOUNDARY + "--\r\n"
+                + "epilogue").getBytes(StandardCharsets.UTF_8);
+
+        //한 번에 받는 크기와 관계없이 같은 결과
+        for(int chunkSize = 1; chunkSize <= body.length; chunkSize++) {
+            PartCollector collector = new PartCollector();
+            MultipartStreamParser parser = new MultipartStreamParser(BOUNDARY, collector, 16);
+            for(int offset = 0; offset < body.length; offset += chunkSize) {
+                parser.write(body, offset, Math.min(chunkSize, body.length - offset));
+            }
+
+            Assert.assertTrue(parser.isComplete());
+            Assert.assertEquals(2, collector.headers.size());
+            Assert.assertEquals("form-data; name=\"subPath\"", collector.headers.get(0).get("content-disposition"));
+            Assert.assertEquals("notice/10001", collector.contents.get(0));
+            Assert.assertEquals("text/plain", collector.headers.get(1).get("content-type"));
+            Assert.assertEquals(data, collector.contents.get(1));
+        }
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //마지막 경계 문자열을 받지 못한 경우
+        byte[] body = ("--" + BOUNDARY + "\r\n\r\nabc").getBytes(StandardCharsets.UTF_8);
+        PartCollector collector = new PartCollector();
+        MultipartStreamParser parser = new MultipartStreamParser(BOUNDARY, collector, 1024);
+        parser.write(body, 0, body.length);
+
+        Assert.assertFalse(parser.isComplete());
+        Assert.assertEquals(1, collector.headers.size());
+        Assert.assertTrue(collector.headers.get(0).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void test3() throws Exception {
+        //헤더 크기 제한
+        StringBuilder header = new StringBuilder("--" + BOUNDARY + "\r\nX-Large: ");
+        for(int i = 0; i < 16 * 1024; i++) {
+            header.append('a');
+        }
+        byte[] body = header.toString().getBytes(StandardCharsets.UTF_8);
+        new MultipartStreamParser(BOUNDARY, new PartCollector(), 1024).write(body, 0, body.length);
+    }
+
+    /**
+     * 파트 헤더와 내용을 모으는 처리기
+     */
+    private static class PartCollector implements MultipartStreamParser.PartHandler {
+
+        private final List<Map<String, String>> headers = new ArrayList<>();
+        private final List<String> contents = new ArrayList<>();
+        private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+
+        @Override
+        public void onPartBegin(Map<String, String> headers) {
+            this.headers.add(headers);
+            current.reset();
+        }
+
+        @Override
+        public void onPartData(byte[] buffer, int offset, int length) {
+            current.write(buffer, offset, length);
+        }
+
+        @Override
+        public void onPartEnd() throws IOException, BizException {
+            contents.add(new String(current.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.helper.PreallocatedFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PreallocatedFileTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test1() throws Exception {
+        //여러 스레드가 영역을 나누어 동시에 기록 (FileChannel)
+        assertParallelWrite(false);
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //여러 스레드가 영역을 나누어 동시에 기록 (메모리 매핑)
+        assertParallelWrite(true);
+    }
+
+    @Test
+    public void test3() throws Exception {
+        Path path = temporaryFolder.getRoot().toPath().resolve("a.part");
+        try(PreallocatedFile file = PreallocatedFile.create(path, 10, false)) {
+            Assert.assertEquals(10, file.getSize());
+            Assert.assertEquals(10, Files.size(path));
+
+            //영역을 벗어나서 기록할 수 없음
+            PreallocatedFile.Region region = file.region(5, 3);
+            region.write(new byte[]{1, 2});
+            Assert.assertEquals(7, region.getPosition());
+            try {
+                region.write(new byte[]{3, 4});
+                Assert.fail();
+            } catch(IOException e) {
+                Assert.assertEquals(7, region.getPosition());
+            }
+            region.close();
+
+            //파일 크기를 벗어나는 영역
+            try {
+                file.region(8, 3);
+                Assert.fail();
+            } catch(IllegalArgumentException e) {
+                //expected
+            }
+        }
+
+        //다시 열어서 이어서 기록
+        try(PreallocatedFile file = PreallocatedFile.open(path, false);
+            PreallocatedFile.Region region = file.region(0, 1)) {
+            Assert.assertEquals(10, file.getSize());
+            region.write(9);
+        }
+        Assert.assertArrayEquals(new byte[]{9, 0, 0, 0, 0, 1, 2, 0, 0, 0}, Files.readAllBytes(path));
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void test4() throws Exception {
+        PreallocatedFile.open(temporaryFolder.getRoot().toPath().resolve("none.part"), false);
+    }
+
+    @Test
+    public void test5() throws Exception {
+        //한 스레드에서 두 영역을 번갈아 기록해도 기록하지 않은 내용이 섞이지 않음
+        byte[] bytes = new byte[2 * 100000];
+        new Random(3).nextBytes(bytes);
+        Path path = temporaryFolder.getRoot().toPath().resolve("nested.part");
+        try(PreallocatedFile file = PreallocatedFile.create(path, bytes.length, false);
+            PreallocatedFile.Region first = file.region(0, 100000);
+            PreallocatedFile.Region second = file.region(100000, 100000)) {
+            for(int offset = 0; offset < 100000; offset += 1000) {
+                first.write(bytes, offset, 1000);
+                second.write(bytes, 100000 + offset, 1000);
+            }
+        }
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(path));
+    }
+
+    /**
+     * direct 버퍼 크기의 배수가 아닌 영역 4개를 각각 다른 스레드에서 작은 단위로 나누어 기록하고 내용을 확인한다.
+     * @param mapped 메모리 매핑 사용 여부
+     */
+    private void assertParallelWrite(boolean mapped) throws Exception {
+        byte[] bytes = new byte[4 * 300001];
+        new Random(mapped ? 2 : 1).nextBytes(bytes);
+        int regionSize = bytes.length / 4;
+        Path path = temporaryFolder.getRoot().toPath().resolve(mapped ? "mapped.part" : "channel.part");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try(PreallocatedFile file = PreallocatedFile.create(path, bytes.length, mapped)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < 4; i++) {
+                int position = i * regionSize;
+                futures.add(executor.submit(() -> {
+                    try(PreallocatedFile.Region region = file.region(position, regionSize)) {
+                        for(int offset = 0; offset < regionSize; offset += 7919) {
+                            region.write(bytes, position + offset, Math.min(7919, regionSize - offset));
+                        }
+                        region.force();
+                        Assert.assertEquals(position + regionSize, region.getPosition());
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+            file.force();
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(path));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.mvc.RateLimitFilter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RateLimitFilterTest {
+
+    private static final RateLimitFilter.Limit NONE = new RateLimitFilter.Limit(0, 1, 0, 0);
+
+    private RateLimitFilter filter;
+
+    @After
+    public void teardown() {
+        if(filter != null) {
+            filter.destroy();
+        }
+    }
+
+    @Test
+    public void test1() throws Exception {
+        //클라이언트별 초당 요청 수를 넘으면 본문을 처리하지 않고 429와 Retry-After로 응답
+        filter = new RateLimitFilter(new RateLimitFilter.Limit(1, 2, 0, 0), NONE, "X-API-Key", 100);
+        AtomicInteger called = new AtomicInteger();
+        FilterChain chain = (req, res) -> called.incrementAndGet();
+
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.1", null), chain).getStatus());
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.1", null), chain).getStatus());
+        MockHttpServletResponse rejected = doFilter(createRequest("10.0.0.1", null), chain);
+        Assert.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), rejected.getStatus());
+        Assert.assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        Assert.assertTrue(rejected.getContentAsString().contains("\"status\":429"));
+        Assert.assertEquals(2, called.get());
+
+        //다른 IP, 같은 IP라도 API 키가 있으면 따로 제한
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.2", null), chain).getStatus());
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.1", "key1"), chain).getStatus());
+        Assert.assertEquals(4, called.get());
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //subPath별 제한은 클라이언트가 달라도 같이 적용되고, 다른 subPath에는 영향 없음
+        filter = new RateLimitFilter(NONE, new RateLimitFilter.Limit(1, 1, 0, 0), "X-API-Key", 100);
+        FilterChain chain = (req, res) -> {};
+
+        MockHttpServletRequest request = createRequest("10.0.0.1", null);
+        request.setQueryString("subPath=notice%2F10001&keepOriginalFilename=true");
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(request, chain).getStatus());
+
+        request = createRequest("10.0.0.2", null);
+        request.setQueryString("keepOriginalFilename=true&subPath=notice/10001");
+        Assert.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), doFilter(request, chain).getStatus());
+
+        request = createRequest("10.0.0.2", null);
+        request.setQueryString("subPath=notice/10002");
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(request, chain).getStatus());
+
+        //subPath가 없는 요청은 제한하지 않음
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.2", null), chain).getStatus());
+    }
+
+    @Test
+    public void test3() throws Exception {
+        //처리 중인 요청이 있으면 동시 요청 수 제한, 끝나면 다시 허용
+        filter = new RateLimitFilter(new RateLimitFilter.Limit(0, 1, 1, 0), NONE, "X-API-Key", 100);
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[1];
+        FilterChain chain = (req, res) -> nested[0] = doFilter(createRequest("10.0.0.1", null), (r, s) -> {});
+
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.1", null), chain).getStatus());
+        Assert.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), nested[0].getStatus());
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.1", null), (r, s) -> {}).getStatus());
+
+        //비동기 요청은 완료될 때 반환
+        MockHttpServletRequest async = createRequest("10.0.0.1", null);
+        async.setAsyncSupported(true);
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(async, (req, res) -> req.startAsync()).getStatus());
+        Assert.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), doFilter(createRequest("10.0.0.1", null), (r, s) -> {}).getStatus());
+        async.getAsyncContext().complete();
+        Assert.assertEquals(HttpStatus.OK.value(), doFilter(createRequest("10.0.0.1", null), (r, s) -> {}).getStatus());
+    }
+
+    @Test
+    public void test4() throws Exception {
+        //초당 전송량을 넘게 쓰면 기다리고, sendfile을 사용하지 않음
+        filter = new RateLimitFilter(new RateLimitFilter.Limit(0, 1, 0, 1000), NONE, "X-API-Key", 100);
+        MockHttpServletRequest request = createRequest("10.0.0.1", null);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        Object[] sendfile = new Object[1];
+        long start = System.nanoTime();
+        MockHttpServletResponse response = doFilter(request, (req, res) -> {
+            sendfile[0] = req.getAttribute("org.apache.tomcat.sendfile.support");
+            res.getOutputStream().write(new byte[1500]);
+        });
+        long elapsed = System.nanoTime() - start;
+
+        Assert.assertEquals(Boolean.FALSE, sendfile[0]);
+        Assert.assertEquals(1500, response.getContentAsByteArray().length);
+        Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(400));
+    }
+
+    private MockHttpServletResponse doFilter(MockHttpServletRequest request, FilterChain chain) throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletRequest createRequest(String remoteAddr, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/co/file/upload");
+        request.setRemoteAddr(remoteAddr);
+        if(apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        return request;
+    }
+}
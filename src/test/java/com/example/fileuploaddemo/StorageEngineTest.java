@@ -0,0 +1,206 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.storage.DedupStore;
+import com.example.fileuploaddemo.storage.DirectoryIndexStorageEngine;
+import com.example.fileuploaddemo.storage.FsyncCommitter;
+import com.example.fileuploaddemo.storage.LocalFileStorageEngine;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.ShardLayout;
+import com.example.fileuploaddemo.storage.StatCachingStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageStat;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import com.example.fileuploaddemo.storage.TieredStorageEngine;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.StreamUtils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+public class StorageEngineTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test1() throws Exception {
+        assertReadWrite(new MemoryStorageEngine());
+        assertReadWrite(new LocalFileStorageEngine(temporaryFolder.newFolder("local").toPath(), null));
+        assertReadWrite(new TieredStorageEngine(new LocalFileStorageEngine(temporaryFolder.newFolder("tiered").toPath(), null), 1024, 4096));
+        assertReadWrite(new StatCachingStorageEngine(new MemoryStorageEngine(), 16, 60000));
+        assertReadWrite(new LocalFileStorageEngine(temporaryFolder.newFolder("sharded").toPath(), null, new ShardLayout(2, 2)));
+        assertReadWrite(new LocalFileStorageEngine(temporaryFolder.newFolder("fsync").toPath(), null, null, new FsyncCommitter(FsyncCommitter.Policy.GROUP, 0, 16, 10000)));
+        assertReadWrite(new DirectoryIndexStorageEngine(new LocalFileStorageEngine(temporaryFolder.newFolder("indexed").toPath(), null), 16));
+        Path dedup = temporaryFolder.newFolder("dedup").toPath();
+        assertReadWrite(new LocalFileStorageEngine(dedup, new DedupStore(dedup.resolve(".cas"))));
+    }
+
+    @Test(expected = AccessDeniedException.class)
+    public void test2() throws Exception {
+        StorageEngine storageEngine = new LocalFileStorageEngine(temporaryFolder.getRoot().toPath(), null);
+        storageEngine.open("notice/../../passwd");
+    }
+
+    @Test
+    public void test3() throws Exception {
+        Path root = temporaryFolder.getRoot().toPath();
+        StorageEngine storageEngine = new LocalFileStorageEngine(root, new DedupStore(root.resolve(".cas")));
+        byte[] bytes = "dedup".getBytes(StandardCharsets.UTF_8);
+        String hash = DigestUtils.sha256Hex(bytes);
+        Path refs = root.resolve(".cas").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + ".refs");
+
+        //같은 내용은 blob 하나를 참조
+        write(storageEngine, "notice/10001/a.txt", bytes);
+        write(storageEngine, "notice/10001/b.txt", bytes);
+        Assert.assertEquals("2", new String(Files.readAllBytes(refs), StandardCharsets.US_ASCII));
+
+        //같은 경로에 다른 내용을 기록하면 교체한 뒤 기존 참조를 해제 (임시 이름은 남지 않음)
+        write(storageEngine, "notice/10001/a.txt", "other".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("1", new String(Files.readAllBytes(refs), StandardCharsets.US_ASCII));
+        Assert.assertEquals(Arrays.asList("a.txt", "b.txt"), storageEngine.list("notice/10001"));
+        try(Stream<Path> files = Files.list(root.resolve("notice/10001"))) {
+            Assert.assertEquals(2, files.count());
+        }
+
+        //같은 내용을 다시 기록해도 참조 개수는 그대로
+        write(storageEngine, "notice/10001/b.txt", bytes);
+        Assert.assertEquals("1", new String(Files.readAllBytes(refs), StandardCharsets.US_ASCII));
+
+        //마지막 참조를 삭제하면 blob도 삭제
+        Assert.assertTrue(storageEngine.delete("notice/10001/b.txt"));
+        Assert.assertFalse(Files.exists(refs));
+        Assert.assertFalse(Files.exists(refs.resolveSibling(hash)));
+    }
+
+    @Test
+    public void test4() throws Exception {
+        //파일 정보를 조회하는 도중 파일이 교체되면 조회한 (이전) 정보는 캐시하지 않음
+        StatCachingStorageEngine[] caching = new StatCachingStorageEngine[1];
+        MemoryStorageEngine delegate = new MemoryStorageEngine() {
+            private boolean replaced;
+
+            @Override
+            public StorageStat stat(String key) {
+                StorageStat stat = super.stat(key);
+                if(!replaced) {
+                    replaced = true;
+                    try {
+                        write(caching[0], key, "replaced".getBytes(StandardCharsets.UTF_8));
+                    } catch(Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return stat;
+            }
+        };
+        caching[0] = new StatCachingStorageEngine(delegate, 16, 60000);
+        write(delegate, "notice/10001/a.txt", "old".getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(3, caching[0].stat("notice/10001/a.txt").getSize());
+        Assert.assertEquals(8, caching[0].stat("notice/10001/a.txt").getSize());
+    }
+
+    @Test
+    public void test5() throws Exception {
+        ShardLayout shardLayout = new ShardLayout(2, 2);
+        Path flat = temporaryFolder.newFolder("notice").toPath().resolve("a.txt");
+        Path shard = shardLayout.toShardPath(flat);
+
+        //분산 위치에 이미 파일이 있으면 덮어쓰지 않고, 읽히지 않는 기존 위치의 파일은 삭제
+        Files.write(flat, "old".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(shard.getParent());
+        Files.write(shard, "new".getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse(shardLayout.migrate(flat));
+        Assert.assertEquals("new", new String(Files.readAllBytes(shard), StandardCharsets.UTF_8));
+        Assert.assertFalse(Files.exists(flat));
+
+        Files.delete(shard);
+        Files.write(flat, "old".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(shardLayout.migrate(flat));
+        Assert.assertEquals("old", new String(Files.readAllBytes(shard), StandardCharsets.UTF_8));
+        Assert.assertFalse(Files.exists(flat));
+        Assert.assertFalse(shardLayout.migrate(flat));
+    }
+
+    @Test
+    public void test6() throws Exception {
+        //group 정책에서 여러 스레드가 동시에 기록 완료
+        StorageEngine storageEngine = new LocalFileStorageEngine(temporaryFolder.getRoot().toPath(), null, null,
+                new FsyncCommitter(FsyncCommitter.Policy.GROUP, 1, 4, 10000));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < 32; i++) {
+                String key = "notice/" + (i % 2) + "/" + i + ".txt";
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                futures.add(executor.submit(() -> {
+                    write(storageEngine, key, bytes);
+                    return null;
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for(int i = 0; i < 32; i++) {
+            String key = "notice/" + (i % 2) + "/" + i + ".txt";
+            try(InputStream in = Channels.newInputStream(storageEngine.open(key))) {
+                Assert.assertEquals(key, StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void write(StorageEngine storageEngine, String key, byte[] bytes) throws Exception {
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(bytes));
+            writer.commit(key);
+        }
+    }
+
+    private void assertReadWrite(StorageEngine storageEngine) throws Exception {
+        byte[] bytes = "storage engine".getBytes(StandardCharsets.UTF_8);
+
+        //commit 없이 닫으면 반영되지 않음
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(bytes));
+        }
+        Assert.assertFalse(storageEngine.exists("notice/10001/a.txt"));
+
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(bytes));
+            writer.commit("notice/10001/a.txt");
+        }
+        Assert.assertTrue(storageEngine.exists("notice/10001/a.txt"));
+        Assert.assertEquals(bytes.length, storageEngine.stat("notice/10001/a.txt").getSize());
+        Assert.assertEquals(Collections.singletonList("a.txt"), storageEngine.list("notice/10001"));
+        Assert.assertEquals(bytes.length, storageEngine.listStats("notice/10001").get("a.txt").getSize());
+
+        try(InputStream in = Channels.newInputStream(storageEngine.open("notice/10001/a.txt"))) {
+            Assert.assertArrayEquals(bytes, StreamUtils.copyToByteArray(in));
+        }
+
+        Assert.assertTrue(storageEngine.delete("notice/10001/a.txt"));
+        Assert.assertFalse(storageEngine.exists("notice/10001/a.txt"));
+        Assert.assertNull(storageEngine.stat("notice/10001/a.txt"));
+        Assert.assertTrue(storageEngine.list("notice/10001").isEmpty());
+    }
+}
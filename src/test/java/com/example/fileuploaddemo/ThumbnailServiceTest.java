@@ -0,0 +1,132 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.service.ThumbnailService;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ThumbnailServiceTest {
+
+    private ThreadPoolTaskExecutor executor;
+
+    private AtomicInteger created;
+
+    private MemoryStorageEngine storageEngine;
+
+    private ThumbnailService thumbnailService;
+
+    @Before
+    public void setup() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.initialize();
+
+        //썸네일을 저장한 횟수
+        created = new AtomicInteger();
+        storageEngine = new MemoryStorageEngine() {
+            @Override
+            public StorageWriter create() {
+                created.incrementAndGet();
+                return super.create();
+            }
+        };
+        thumbnailService = new ThumbnailService(executor, storageEngine, new int[]{160, 320}, 50000000);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void test1() throws Exception {
+        UploadFile uploadFile = createImage("a.png", 1000, 500);
+
+        //같은 썸네일을 동시에 요청해도 한 번만 생성
+        ExecutorService requests = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for(int i = 0; i < 8; i++) {
+                futures.add(requests.submit(() -> {
+                    start.await();
+                    return thumbnailService.get(uploadFile, 160);
+                }));
+            }
+            start.countDown();
+            for(Future<String> future : futures) {
+                Assert.assertEquals("notice/10001/.thumbs/a.png_160", future.get());
+            }
+        } finally {
+            requests.shutdown();
+        }
+        Assert.assertEquals(1, created.get());
+
+        BufferedImage thumbnail = ImageIO.read(Channels.newInputStream(storageEngine.open("notice/10001/.thumbs/a.png_160")));
+        Assert.assertEquals(160, thumbnail.getWidth());
+        Assert.assertEquals(80, thumbnail.getHeight());
+
+        //이미 만든 썸네일은 다시 만들지 않음
+        thumbnailService.get(uploadFile, 160);
+        Assert.assertEquals(1, created.get());
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //이미지가 아닌 원본은 실패하고, 다음 요청에서 다시 시도
+        UploadFile uploadFile = createUploadFile("b.png");
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+            writer.commit(UploadHelper.toKey(uploadFile));
+        }
+        for(int i = 0; i < 2; i++) {
+            try {
+                thumbnailService.get(uploadFile, 320);
+                Assert.fail();
+
+            } catch(IOException e) {
+                //expected
+            }
+        }
+        Assert.assertFalse(storageEngine.exists("notice/10001/.thumbs/b.png_320"));
+    }
+
+    private UploadFile createImage(String filename, int width, int height) throws Exception {
+        UploadFile uploadFile = createUploadFile(filename);
+        try(StorageWriter writer = storageEngine.create()) {
+            ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", Channels.newOutputStream(writer));
+            writer.commit(UploadHelper.toKey(uploadFile));
+        }
+        created.set(0);
+        return uploadFile;
+    }
+
+    private UploadFile createUploadFile(String filename) {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init("/upload");
+        return uploadFile;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.helper.TokenBucket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TokenBucketTest {
+
+    @Test
+    public void test1() {
+        //burst만큼 바로 가져오고, 넘으면 기다릴 시간을 반환
+        TokenBucket bucket = new TokenBucket(1, 5);
+        for(int i = 0; i < 5; i++) {
+            Assert.assertEquals(0, bucket.tryAcquire(1));
+        }
+        long wait = bucket.tryAcquire(1);
+        Assert.assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1));
+        Assert.assertFalse(bucket.isFull());
+    }
+
+    @Test
+    public void test2() {
+        //acquire는 부족한 토큰을 당겨 쓰고 채워질 때까지의 시간을 반환
+        TokenBucket bucket = new TokenBucket(1000, 1000);
+        Assert.assertEquals(0, bucket.acquire(1000));
+        long wait = bucket.acquire(500);
+        Assert.assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(400) && wait <= TimeUnit.MILLISECONDS.toNanos(500));
+
+        //당겨 쓴 동안에는 tryAcquire로 가져올 수 없음
+        Assert.assertTrue(bucket.tryAcquire(1) > 0);
+    }
+
+    @Test
+    public void test3() throws Exception {
+        //여러 스레드가 동시에 가져와도 burst를 넘지 않음
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(8);
+        for(int i = 0; i < 8; i++) {
+            new Thread(() -> {
+                for(int j = 0; j < 100; j++) {
+                    if(bucket.tryAcquire(1) == 0) {
+                        acquired.incrementAndGet();
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(100, acquired.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test4() {
+        new TokenBucket(0, 1);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+public class UploadHelperTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test1() throws Exception {
+        //대용량 파일 경로(버퍼 단위 디코딩)와 commons-codec 디코딩 결과 비교 (패딩, 76자 줄바꿈)
+        Random random = new Random(1);
+        for(int size : new int[]{0, 1, 2, 3, 4, 5, 1000, 3 * 64 * 1024, 3 * 64 * 1024 + 1, 500000}) {
+            byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+            assertDecoded(Base64.encodeBase64String(bytes), bytes);
+            assertDecoded(new String(Base64.encodeBase64Chunked(bytes), "US-ASCII"), bytes);
+        }
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //URL-safe 문자, 패딩 없음, 중간의 공백, = 이후 내용, 남는 1자
+        byte[] bytes = new byte[100001];
+        new Random(2).nextBytes(bytes);
+        String urlSafe = Base64.encodeBase64URLSafeString(bytes);
+        assertDecoded(urlSafe, bytes);
+        assertDecoded(" " + urlSafe.substring(0, 1000) + "\t\n" + urlSafe.substring(1000) + " ", bytes);
+        assertDecoded(Base64.encodeBase64String(new byte[]{1, 2}) + "QUJD", new byte[]{1, 2});
+        assertDecoded("QUJDR", "ABC".getBytes("US-ASCII"));
+    }
+
+    /**
+     * 미리 할당한 임시파일(FileChannel, 메모리 매핑)에 디코딩해서 저장한 내용이 commons-codec 디코딩 결과와 같은지 확인한다.
+     * @param base64String BASE64 문자열
+     * @param expected 디코딩한 내용
+     */
+    private void assertDecoded(String base64String, byte[] expected) throws Exception {
+        Assert.assertArrayEquals(expected, Base64.decodeBase64(base64String));
+        for(boolean mapped : new boolean[]{false, true}) {
+            StorageEngine storageEngine = new MemoryStorageEngine();
+            UploadFile uploadFile = new UploadFile();
+            uploadFile.setFilename("a.bin");
+            uploadFile.setSubPath("notice/10001");
+            uploadFile.setKeepOriginalFilename(true);
+            uploadFile.init(temporaryFolder.getRoot().getAbsolutePath());
+            uploadFile.setBase64String(base64String);
+            UploadHelper.save(storageEngine, uploadFile, false, 0, mapped);
+
+            Assert.assertEquals(expected.length, uploadFile.getSize());
+            Assert.assertEquals(DigestUtils.sha256Hex(expected), uploadFile.getHash());
+            try(InputStream in = Channels.newInputStream(storageEngine.open(UploadHelper.toKey(uploadFile)))) {
+                Assert.assertArrayEquals(expected, IOUtils.toByteArray(in));
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.service.UploadSaveService;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageEngine;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+public class UploadSaveServiceTest {
+
+    private ThreadPoolTaskExecutor executor;
+
+    private StorageEngine storageEngine;
+
+    private UploadSaveService uploadSaveService;
+
+    @Before
+    public void setup() {
+        //한 스레드에서 요청 순서대로 저장
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.initialize();
+        storageEngine = new MemoryStorageEngine();
+        uploadSaveService = new UploadSaveService(executor, storageEngine, DataSize.ofMegabytes(1), Duration.ofSeconds(1), false);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void test1() throws Exception {
+        byte[] bytes = "existing".getBytes(StandardCharsets.UTF_8);
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(bytes));
+            writer.commit("notice/10001/a.png");
+        }
+
+        //내용 형식이 맞지 않아 저장되지 않은 파일과 같은 이름의 기존 파일은 삭제하지 않음
+        MultipartFile[] files = {new MockMultipartFile("files", "a.png", "image/png", "not an image".getBytes(StandardCharsets.UTF_8))};
+        try {
+            uploadSaveService.saveAll(files, Arrays.asList(createUploadFile("a.png")), false);
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+        Assert.assertTrue(storageEngine.exists("notice/10001/a.png"));
+        Assert.assertEquals(bytes.length, storageEngine.stat("notice/10001/a.png").getSize());
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //먼저 저장된 파일은 뒤의 파일이 실패하면 삭제
+        MultipartFile[] files = {
+                new MockMultipartFile("files", "b.txt", "text/plain", "hello".getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("files", "c.png", "image/png", "not an image".getBytes(StandardCharsets.UTF_8))
+        };
+        try {
+            uploadSaveService.saveAll(files, Arrays.asList(createUploadFile("b.txt"), createUploadFile("c.png")), false);
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+        Assert.assertFalse(storageEngine.exists("notice/10001/b.txt"));
+        Assert.assertFalse(storageEngine.exists("notice/10001/c.png"));
+    }
+
+    @Test
+    public void test3() throws Exception {
+        //실패한 뒤에 대기중인 저장은 취소하고 퍼밋을 모두 반환
+        MultipartFile[] files = {
+                new MockMultipartFile("files", "c.png", "image/png", "not an image".getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile("files", "d.txt", "text/plain", createText(300 * 1024)),
+                new MockMultipartFile("files", "e.txt", "text/plain", createText(300 * 1024)),
+                new MockMultipartFile("files", "f.txt", "text/plain", createText(300 * 1024))
+        };
+        try {
+            uploadSaveService.saveAll(files, Arrays.asList(createUploadFile("c.png"), createUploadFile("d.txt"), createUploadFile("e.txt"),
+                    createUploadFile("f.txt")), false);
+            Assert.fail();
+
+        } catch(BizException e) {
+            //expected
+        }
+        Assert.assertFalse(storageEngine.exists("notice/10001/d.txt"));
+        Assert.assertFalse(storageEngine.exists("notice/10001/e.txt"));
+        Assert.assertFalse(storageEngine.exists("notice/10001/f.txt"));
+
+        //전체 퍼밋이 필요한 파일도 기다리지 않고 저장
+        MultipartFile[] large = {new MockMultipartFile("files", "g.txt", "text/plain", createText(1024 * 1024))};
+        uploadSaveService.saveAll(large, Arrays.asList(createUploadFile("g.txt")), false);
+        Assert.assertTrue(storageEngine.exists("notice/10001/g.txt"));
+    }
+
+    private byte[] createText(int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 'a');
+        return bytes;
+    }
+
+    private UploadFile createUploadFile(String filename) {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init("/upload");
+        return uploadFile;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.fileuploaddemo;
+
+import com.example.fileuploaddemo.entity.UploadFile;
+import com.example.fileuploaddemo.exception.BizException;
+import com.example.fileuploaddemo.helper.UploadHelper;
+import com.example.fileuploaddemo.service.FileIndexService;
+import com.example.fileuploaddemo.service.ZipDownloadService;
+import com.example.fileuploaddemo.storage.MemoryStorageEngine;
+import com.example.fileuploaddemo.storage.StorageStat;
+import com.example.fileuploaddemo.storage.StorageWriter;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class ZipDownloadServiceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ThreadPoolTaskExecutor executor;
+
+    private MemoryStorageEngine storageEngine;
+
+    private FileIndexService fileIndexService;
+
+    private ZipDownloadService zipDownloadService;
+
+    /**
+     * stat을 호출할 때마다 수정시간이 바뀌는 저장소 키 (CRC 계산 후 변경된 파일)
+     */
+    private volatile String changingKey;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Before
+    public void setup() throws Exception {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.initialize();
+        storageEngine = new MemoryStorageEngine() {
+            @Override
+            public StorageStat stat(String key) {
+                StorageStat stat = super.stat(key);
+                if(stat != null && key.equals(changingKey)) {
+                    stat.setLastModified(clock.incrementAndGet());
+                }
+                return stat;
+            }
+        };
+        fileIndexService = new FileIndexService(temporaryFolder.getRoot().getAbsolutePath());
+        zipDownloadService = new ZipDownloadService(executor, storageEngine, fileIndexService, temporaryFolder.getRoot().getAbsolutePath(), 3);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        fileIndexService.close();
+        executor.shutdown();
+    }
+
+    @Test
+    public void test1() throws Exception {
+        byte[] zipped = new byte[200000];
+        new Random(1).nextBytes(zipped);
+        byte[] text = "hello, hello, hello".getBytes(StandardCharsets.UTF_8);
+        UploadFile a = save("a.zip", zipped, false);
+        UploadFile b = save("b.txt", text, true);
+        UploadFile c = save("c.txt", text, false);
+        c.setFilename("a.zip");
+
+        //이미 압축된 형식은 STORED, 압축 저장된 파일은 풀어서 DEFLATED, 같은 이름은 번호를 붙임
+        File file = write(Arrays.asList(a, b, c));
+        try(ZipFile zip = new ZipFile(file)) {
+            ZipEntry entry = zip.getEntry("a.zip");
+            Assert.assertEquals(ZipEntry.STORED, entry.getMethod());
+            Assert.assertArrayEquals(zipped, IOUtils.toByteArray(zip.getInputStream(entry)));
+
+            entry = zip.getEntry("b.txt");
+            Assert.assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            Assert.assertArrayEquals(text, IOUtils.toByteArray(zip.getInputStream(entry)));
+
+            entry = zip.getEntry("a (1).zip");
+            Assert.assertArrayEquals(text, IOUtils.toByteArray(zip.getInputStream(entry)));
+        }
+    }
+
+    @Test
+    public void test2() throws Exception {
+        //CRC를 계산한 뒤에 바뀐 파일은 DEFLATED로 기록
+        byte[] zipped = new byte[100000];
+        new Random(2).nextBytes(zipped);
+        UploadFile a = save("a.zip", zipped, false);
+        changingKey = UploadHelper.toKey(a);
+
+        File file = write(Collections.singletonList(a));
+        try(ZipFile zip = new ZipFile(file)) {
+            ZipEntry entry = zip.getEntry("a.zip");
+            Assert.assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            Assert.assertArrayEquals(zipped, IOUtils.toByteArray(zip.getInputStream(entry)));
+        }
+    }
+
+    @Test
+    public void test3() throws Exception {
+        UploadFile a = save("a.txt", new byte[]{1}, false);
+
+        //없는 파일, 최대 개수 초과는 응답 전에 실패
+        UploadFile none = createUploadFile("none.txt");
+        for(List<UploadFile> files : Arrays.asList(Collections.<UploadFile>emptyList(), Collections.singletonList(none), Arrays.asList(a, a, a, a))) {
+            try {
+                zipDownloadService.prepare(files);
+                Assert.fail();
+
+            } catch(BizException e) {
+                //expected
+            }
+        }
+    }
+
+    /**
+     * 파일을 저장소에 저장하고 색인에 등록한다.
+     * @param filename 파일명
+     * @param bytes 내용
+     * @param compressed 압축 저장 여부
+     * @return 파일 정보
+     */
+    private UploadFile save(String filename, byte[] bytes, boolean compressed) throws Exception {
+        UploadFile uploadFile = createUploadFile(filename);
+        byte[] content = bytes;
+        if(compressed) {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try(GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(bytes);
+            }
+            content = gzipped.toByteArray();
+        }
+        try(StorageWriter writer = storageEngine.create()) {
+            writer.write(ByteBuffer.wrap(content));
+            writer.commit(UploadHelper.toKey(uploadFile));
+        }
+        uploadFile.setSize(bytes.length);
+        uploadFile.setCompressed(compressed);
+        fileIndexService.register(uploadFile);
+        return uploadFile;
+    }
+
+    private File write(List<UploadFile> files) throws Exception {
+        File file = temporaryFolder.newFile();
+        try(OutputStream out = new FileOutputStream(file)) {
+            zipDownloadService.write(zipDownloadService.prepare(files), out);
+        }
+        return file;
+    }
+
+    private UploadFile createUploadFile(String filename) {
+        UploadFile uploadFile = new UploadFile();
+        uploadFile.setFilename(filename);
+        uploadFile.setSubPath("notice/10001");
+        uploadFile.setKeepOriginalFilename(true);
+        uploadFile.init(temporaryFolder.getRoot().getAbsolutePath());
+        return uploadFile;
+    }
+}